@@ -0,0 +1,120 @@
+package github.javaguide.benchmark;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One call through the codec of both sides: the client encodes a request, the server decodes it and encodes
+ * the response, the client decodes the response.
+ * <p>
+ * pooled=false allocates the envelope objects for every call and never recycles them (the behaviour before the
+ * Recycler was introduced), pooled=true takes them from the Recycler and recycles them as the client and server do.
+ * Run with {@code java -jar rpc-framework-benchmark/target/benchmarks.jar EnvelopeAllocation -prof gc} and compare
+ * gc.alloc.rate.norm, the bytes allocated per call.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class EnvelopeAllocationBenchmark {
+    private static final String INTERFACE_NAME = "github.javaguide.HelloService";
+    private static final Object[] PARAMETERS = {"hello"};
+    private static final Class<?>[] PARAM_TYPES = {String.class};
+
+    @Param({"false", "true"})
+    private boolean pooled;
+
+    private EmbeddedChannel client;
+    private EmbeddedChannel server;
+    private int messageId;
+
+    @Setup
+    public void setup() {
+        client = new EmbeddedChannel(new RpcMessageEncoder(), new RpcMessageDecoder());
+        server = new EmbeddedChannel(new RpcMessageEncoder(), new RpcMessageDecoder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.finishAndReleaseAll();
+        server.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public Object call() {
+        String requestId = "request-" + messageId;
+        RpcRequest rpcRequest = pooled
+                ? RpcRequest.newInstance(requestId, INTERFACE_NAME, "hello", PARAMETERS, PARAM_TYPES, "version1", "group1")
+                : RpcRequest.builder().requestId(requestId).interfaceName(INTERFACE_NAME).methodName("hello")
+                .parameters(PARAMETERS).paramTypes(PARAM_TYPES).version("version1").group("group1").build();
+        // client -> server
+        RpcMessage requestMessage = message(RpcConstants.REQUEST_TYPE, messageId++, rpcRequest);
+        client.writeOutbound(requestMessage);
+        recycle(requestMessage);
+        server.writeInbound((Object) client.readOutbound());
+        RpcMessage receivedRequest = server.readInbound();
+        int receivedMessageId = receivedRequest.getRequestId();
+        RpcRequest decodedRequest = (RpcRequest) LazyPayload.resolve(receivedRequest.getData());
+        recycle(receivedRequest);
+        // server -> client
+        RpcResponse<Object> rpcResponse = pooled
+                ? RpcResponse.success(decodedRequest.getParameters()[0], decodedRequest.getRequestId())
+                : RpcResponse.builder().code(RpcResponseCodeEnum.SUCCESS.getCode()).message(RpcResponseCodeEnum.SUCCESS.getMessage())
+                .requestId(decodedRequest.getRequestId()).data(decodedRequest.getParameters()[0]).build();
+        RpcMessage responseMessage = message(RpcConstants.RESPONSE_TYPE, receivedMessageId, rpcResponse);
+        server.writeOutbound(responseMessage);
+        recycle(responseMessage);
+        recycle(rpcResponse);
+        client.writeInbound((Object) server.readOutbound());
+        RpcMessage receivedResponse = client.readInbound();
+        Object result = LazyPayload.resolve(receivedResponse.getData());
+        recycle(receivedResponse);
+        recycle(rpcRequest);
+        return result;
+    }
+
+    private RpcMessage message(byte messageType, int requestId, Object data) {
+        RpcMessage rpcMessage = pooled ? RpcMessage.newInstance() : new RpcMessage();
+        rpcMessage.setMessageType(messageType);
+        rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+        rpcMessage.setRequestId(requestId);
+        rpcMessage.setData(data);
+        return rpcMessage;
+    }
+
+    private void recycle(RpcMessage rpcMessage) {
+        if (pooled) {
+            rpcMessage.recycle();
+        }
+    }
+
+    private void recycle(RpcRequest rpcRequest) {
+        if (pooled) {
+            rpcRequest.recycle();
+        }
+    }
+
+    private void recycle(RpcResponse<Object> rpcResponse) {
+        if (pooled) {
+            rpcResponse.recycle();
+        }
+    }
+}
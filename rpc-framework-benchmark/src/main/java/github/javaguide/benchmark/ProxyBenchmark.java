@@ -0,0 +1,67 @@
+package github.javaguide.benchmark;
+
+import github.javaguide.annotation.RpcReference;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.proxy.ProxyFactory;
+import github.javaguide.proxy.RpcClientProxy;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.stub.RpcStubs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client side of a call through a JDK proxy, an ASM generated proxy and the stub generated by
+ * rpc-framework-processor, with a transport answering at once: building the request, checking the response and
+ * recycling the request, no serialization and no network.
+ * <p>
+ * Run with {@code java -jar rpc-framework-benchmark/target/benchmarks.jar Proxy -prof gc}
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ProxyBenchmark {
+
+    public interface QuoteService {
+        double quote(String symbol, int quantity);
+
+        void touch();
+    }
+
+    private static final Double PRICE = 42.5;
+
+    @Param({"jdk", "asm", "stub"})
+    private String proxyType;
+
+    /**
+     * makes rpc-framework-processor generate the stub of QuoteService
+     */
+    @RpcReference
+    private QuoteService quoteService;
+
+    @Setup
+    public void setup() {
+        RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcRequest -> RpcResponse.success(PRICE, rpcRequest.getRequestId()));
+        quoteService = "stub".equals(proxyType) ? RpcStubs.newStub(QuoteService.class, rpcClientProxy)
+                : ExtensionLoader.getExtensionLoader(ProxyFactory.class).getExtension(proxyType).getProxy(QuoteService.class, rpcClientProxy);
+        if (quoteService == null) {
+            throw new IllegalStateException("no stub generated for " + QuoteService.class.getName());
+        }
+    }
+
+    @Benchmark
+    public double quote() {
+        return quoteService.quote("ACME", 100);
+    }
+
+    @Benchmark
+    public void touch() {
+        quoteService.touch();
+    }
+}
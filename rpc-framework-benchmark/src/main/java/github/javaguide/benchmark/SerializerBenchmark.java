@@ -0,0 +1,119 @@
+package github.javaguide.benchmark;
+
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.remoting.dto.RpcPayload;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode of a request carrying an order DTO and of the response returning it, with every serializer.
+ * The bodies are written into and read from a pooled direct ByteBuf, as the codec does with rpc.compress=none.
+ * <p>
+ * Run with {@code java -jar rpc-framework-benchmark/target/benchmarks.jar Serializer -prof gc}, the size of the
+ * encoded request and response of every serializer is printed in the setup.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class SerializerBenchmark {
+
+    @Param({"kyro", "protostuff", "hessian", "hessian2", "codegen"})
+    private String serializerName;
+
+    private Serializer serializer;
+    private RpcRequest request;
+    private RpcResponse<Object> response;
+    private ByteBuf buf;
+
+    @Setup
+    public void setup() {
+        serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serializerName);
+        Order order = Order.sample();
+        request = RpcRequest.builder().methodName("placeOrder")
+                .parameters(new Object[]{order, "web"})
+                .interfaceName("github.javaguide.OrderService")
+                .paramTypes(new Class<?>[]{Order.class, String.class})
+                .requestId(UUID.randomUUID().toString())
+                .group("group1")
+                .version("version1")
+                .build();
+        response = RpcResponse.success(new RpcPayload(order), request.getRequestId());
+        buf = PooledByteBufAllocator.DEFAULT.directBuffer(4096);
+        System.out.printf("%n%s request=%dB response=%dB%n", serializerName,
+                serializer.serialize(request).length, serializer.serialize(response).length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buf.release();
+    }
+
+    @Benchmark
+    public Object request() {
+        buf.clear();
+        serializer.serialize(request, buf);
+        return serializer.deserialize(buf, RpcRequest.class);
+    }
+
+    @Benchmark
+    public Object response() {
+        buf.clear();
+        serializer.serialize(response, buf);
+        return serializer.deserialize(buf, RpcResponse.class);
+    }
+
+    @Benchmark
+    public void encodeRequest() {
+        buf.clear();
+        serializer.serialize(request, buf);
+    }
+
+    public static class Order implements Serializable {
+        private long id;
+        private String customer;
+        private int status;
+        private double amount;
+        private boolean paid;
+        private List<OrderLine> lines;
+
+        static Order sample() {
+            Order order = new Order();
+            order.id = 1234567890123L;
+            order.customer = "customer-42@example.com";
+            order.status = 3;
+            order.amount = 249.90;
+            order.paid = true;
+            order.lines = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                OrderLine line = new OrderLine();
+                line.sku = "SKU-" + (100000 + i);
+                line.quantity = i + 1;
+                line.price = 9.99 * (i + 1);
+                order.lines.add(line);
+            }
+            return order;
+        }
+    }
+
+    public static class OrderLine implements Serializable {
+        private String sku;
+        private int quantity;
+        private double price;
+    }
+}
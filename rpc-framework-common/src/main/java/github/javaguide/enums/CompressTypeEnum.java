@@ -11,6 +11,7 @@ import lombok.Getter;
 @Getter
 public enum CompressTypeEnum {
 
+    NONE((byte) 0x00, "none"),
     GZIP((byte) 0x01, "gzip");
 
     private final byte code;
@@ -25,4 +26,13 @@ public enum CompressTypeEnum {
         return null;
     }
 
+    public static byte getCode(String name) {
+        for (CompressTypeEnum c : CompressTypeEnum.values()) {
+            if (c.getName().equals(name)) {
+                return c.code;
+            }
+        }
+        throw new IllegalArgumentException("unknown compress type: " + name);
+    }
+
 }
@@ -13,7 +13,9 @@ public enum LoadBalanceEnum {
 
     LOADBALANCE("loadBalance"),
 
-    LOADBALANCENEW("loadBalanceNew");
+    LOADBALANCENEW("loadBalanceNew"),
+
+    WEIGHTED("weighted");
 
     private final String name;
 }
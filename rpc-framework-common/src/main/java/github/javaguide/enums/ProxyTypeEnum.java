@@ -0,0 +1,18 @@
+package github.javaguide.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@Getter
+public enum ProxyTypeEnum {
+
+    JDK("jdk"),
+    ASM("asm");
+
+    private final String name;
+}
@@ -8,7 +8,47 @@ import lombok.Getter;
 public enum RpcConfigEnum {
 
     RPC_CONFIG_PATH("rpc.properties"),
-    ZK_ADDRESS("rpc.zookeeper.address");
+    ZK_ADDRESS("rpc.zookeeper.address"),
+    ZK_SESSION_TIMEOUT_MILLIS("rpc.zookeeper.session-timeout-millis"),
+    CLIENT_BATCH_ENABLED("rpc.client.batch.enabled"),
+    CLIENT_BATCH_MAX_SIZE("rpc.client.batch.max-size"),
+    CLIENT_BATCH_MAX_DELAY_MICROS("rpc.client.batch.max-delay-micros"),
+    CLIENT_REQUEST_TIMEOUT_MILLIS("rpc.client.request-timeout-millis"),
+    METRICS_LOG_INTERVAL_SECONDS("rpc.metrics.log-interval-seconds"),
+    CODEC_LAZY_DECODE_THRESHOLD("rpc.codec.lazy-decode-threshold"),
+    CODEC_ENCODE_OFFLOAD("rpc.codec.encode-offload"),
+    STREAM_WINDOW("rpc.stream.window"),
+    CODEC_MAX_FRAME_LENGTH("rpc.codec.max-frame-length"),
+    COMPRESS_TYPE("rpc.compress"),
+    SERIALIZE_KRYO_REGISTRATIONS("rpc.serialize.kryo.registrations"),
+    SERIALIZE_KRYO_REGISTER_SERVICES("rpc.serialize.kryo.register-services"),
+    SERIALIZE_KRYO_UNSAFE("rpc.serialize.kryo.unsafe"),
+    SERIALIZE_KRYO_REFERENCES("rpc.serialize.kryo.references"),
+    SERIALIZATION_TYPE("rpc.serialize"),
+    SERIALIZE_HESSIAN2_SESSION("rpc.serialize.hessian2.session"),
+    CODEC_ENVELOPE("rpc.codec.envelope"),
+    SERIALIZE_ADAPTIVE_CANDIDATES("rpc.serialize.adaptive.candidates"),
+    SERIALIZE_ADAPTIVE_SAMPLES("rpc.serialize.adaptive.samples"),
+    SERIALIZE_ADAPTIVE_REEVALUATE_SECONDS("rpc.serialize.adaptive.reevaluate-seconds"),
+    SERIALIZE_ADAPTIVE_NANOS_PER_BYTE("rpc.serialize.adaptive.nanos-per-byte"),
+    PROXY_TYPE("rpc.proxy"),
+    REGISTRY_DEBOUNCE_MILLIS("rpc.registry.debounce-millis"),
+    REGISTRY_SNAPSHOT_FILE("rpc.registry.snapshot-file"),
+    REGISTRY_TYPE("rpc.registry"),
+    REGISTRY_FILE_DIRECTORY("rpc.registry.file.directory"),
+    REGISTRY_GOSSIP_HOST("rpc.registry.gossip.host"),
+    REGISTRY_GOSSIP_PORT("rpc.registry.gossip.port"),
+    REGISTRY_GOSSIP_SEEDS("rpc.registry.gossip.seeds"),
+    REGISTRY_GOSSIP_INTERVAL_MILLIS("rpc.registry.gossip.interval-millis"),
+    REGISTRY_SERVER_ADDRESS("rpc.registry.server.address"),
+    REGISTRY_SERVER_PORT("rpc.registry.server.port"),
+    REGISTRY_SERVER_LEASE_MILLIS("rpc.registry.server.lease-millis"),
+    REGISTRY_SERVER_KEEPALIVE_MILLIS("rpc.registry.server.keepalive-millis"),
+    REGISTRY_SERVER_HISTORY("rpc.registry.server.history"),
+    ZONE("rpc.zone"),
+    LOAD_BALANCE("rpc.loadbalance"),
+    INJVM("rpc.injvm"),
+    INJVM_COPY("rpc.injvm.copy");
 
     private final String propertyValue;
 
@@ -16,7 +16,10 @@ public enum RpcErrorMessageEnum {
     SERVICE_INVOCATION_FAILURE("服务调用失败"),
     SERVICE_CAN_NOT_BE_FOUND("没有找到指定的服务"),
     SERVICE_NOT_IMPLEMENT_ANY_INTERFACE("注册的服务没有实现任何接口"),
-    REQUEST_NOT_MATCH_RESPONSE("返回结果错误！请求和返回的相应不匹配");
+    REQUEST_NOT_MATCH_RESPONSE("返回结果错误！请求和返回的相应不匹配"),
+    REQUEST_TIMEOUT("请求超时，没有收到服务端的响应"),
+    STREAMING_NOT_SUPPORTED("当前传输方式不支持流式调用"),
+    PROTOCOL_VERSION_NOT_SUPPORTED("服务提供方的协议版本不支持该调用");
 
     private final String message;
 
@@ -13,7 +13,20 @@ public enum SerializationTypeEnum {
 
     KYRO((byte) 0x01, "kyro"),
     PROTOSTUFF((byte) 0x02, "protostuff"),
-    HESSIAN((byte) 0X03, "hessian");
+    HESSIAN((byte) 0X03, "hessian"),
+    HESSIAN2((byte) 0x04, "hessian2"),
+    /**
+     * hessian2 with the class definitions kept across the messages of a connection, encoded by the codec itself
+     */
+    HESSIAN2_SESSION((byte) 0x05, "hessian2-session"),
+    /**
+     * picks one of the other serializers per payload type, the frame carries the code of the one picked
+     */
+    ADAPTIVE((byte) 0x06, "adaptive"),
+    /**
+     * codecs generated at runtime for every class
+     */
+    CODEGEN((byte) 0x07, "codegen");
 
     private final byte code;
     private final String name;
@@ -27,4 +40,13 @@ public enum SerializationTypeEnum {
         return null;
     }
 
+    public static byte getCode(String name) {
+        for (SerializationTypeEnum c : SerializationTypeEnum.values()) {
+            if (c.getName().equals(name)) {
+                return c.code;
+            }
+        }
+        throw new IllegalArgumentException("unknown serialization type: " + name);
+    }
+
 }
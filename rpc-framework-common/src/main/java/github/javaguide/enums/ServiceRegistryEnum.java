@@ -11,7 +11,10 @@ import lombok.Getter;
 @Getter
 public enum ServiceRegistryEnum {
 
-    ZK("zk");
+    ZK("zk"),
+    FILE("file"),
+    GOSSIP("gossip"),
+    SERVER("server");
 
     private final String name;
 }
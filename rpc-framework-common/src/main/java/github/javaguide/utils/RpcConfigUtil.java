@@ -0,0 +1,66 @@
+package github.javaguide.utils;
+
+import github.javaguide.enums.RpcConfigEnum;
+
+import java.util.Properties;
+
+/**
+ * Read the values configured in rpc.properties.
+ * The file is only read once, and a JVM system property with the same key takes precedence over it.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class RpcConfigUtil {
+    private static volatile Properties properties;
+
+    private RpcConfigUtil() {
+    }
+
+    public static String getProperty(RpcConfigEnum rpcConfigEnum) {
+        String key = rpcConfigEnum.getPropertyValue();
+        String value = System.getProperty(key);
+        if (value != null) {
+            return value.trim();
+        }
+        value = getProperties().getProperty(key);
+        return value == null ? null : value.trim();
+    }
+
+    public static String getProperty(RpcConfigEnum rpcConfigEnum, String defaultValue) {
+        String value = getProperty(rpcConfigEnum);
+        return StringUtil.isBlank(value) ? defaultValue : value;
+    }
+
+    public static int getInt(RpcConfigEnum rpcConfigEnum, int defaultValue) {
+        String value = getProperty(rpcConfigEnum);
+        return StringUtil.isBlank(value) ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static long getLong(RpcConfigEnum rpcConfigEnum, long defaultValue) {
+        String value = getProperty(rpcConfigEnum);
+        return StringUtil.isBlank(value) ? defaultValue : Long.parseLong(value);
+    }
+
+    public static boolean getBoolean(RpcConfigEnum rpcConfigEnum, boolean defaultValue) {
+        String value = getProperty(rpcConfigEnum);
+        return StringUtil.isBlank(value) ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static Properties getProperties() {
+        Properties result = properties;
+        if (result == null) {
+            synchronized (RpcConfigUtil.class) {
+                result = properties;
+                if (result == null) {
+                    result = PropertiesFileUtil.readPropertiesFile(RpcConfigEnum.RPC_CONFIG_PATH.getPropertyValue());
+                    if (result == null) {
+                        result = new Properties();
+                    }
+                    properties = result;
+                }
+            }
+        }
+        return result;
+    }
+}
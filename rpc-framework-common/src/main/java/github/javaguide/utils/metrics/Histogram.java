@@ -0,0 +1,82 @@
+package github.javaguide.utils.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values.
+ * Values are counted in power-of-two buckets, so percentiles are approximate (upper bound of the bucket).
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class Histogram {
+    private static final int BUCKET_COUNT = 64;
+
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram(String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        // bucket i holds values in [2^(i-1), 2^i)
+        buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) sum.sum() / c;
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return the upper bound of the bucket that contains the given percentile
+     */
+    public long getPercentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i].sum();
+            if (seen >= threshold) {
+                return i == 0 ? 0 : Math.min((1L << i) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{count=%d, mean=%.2f, p50=%d, p90=%d, p99=%d, max=%d}",
+                name, getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,66 @@
+package github.javaguide.utils.metrics;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the metrics of the framework by name.
+ * If rpc.metrics.log-interval-seconds is configured, all metrics are logged periodically.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class MetricRegistry {
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService reporter;
+
+    private MetricRegistry() {
+    }
+
+    public static Histogram histogram(String name) {
+        Histogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null) {
+            histogram = HISTOGRAMS.computeIfAbsent(name, Histogram::new);
+            startReporterIfConfigured();
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the current value of every metric, sorted by name
+     */
+    public static Map<String, String> snapshot() {
+        Map<String, String> snapshot = new TreeMap<>();
+        HISTOGRAMS.forEach((name, histogram) -> snapshot.put(name, histogram.toString()));
+        return snapshot;
+    }
+
+    private static void startReporterIfConfigured() {
+        if (reporter != null) {
+            return;
+        }
+        long interval = RpcConfigUtil.getLong(RpcConfigEnum.METRICS_LOG_INTERVAL_SECONDS, 0);
+        if (interval <= 0) {
+            return;
+        }
+        synchronized (MetricRegistry.class) {
+            if (reporter == null) {
+                ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+                        ThreadPoolFactoryUtil.createThreadFactory("metrics-reporter", true));
+                executor.scheduleAtFixedRate(() -> snapshot().values().forEach(m -> log.info("metric: {}", m)),
+                        interval, interval, TimeUnit.SECONDS);
+                reporter = executor;
+            }
+        }
+    }
+}
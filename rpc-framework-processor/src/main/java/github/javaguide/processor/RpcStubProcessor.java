@@ -0,0 +1,93 @@
+package github.javaguide.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generates, at compile time, a server skeleton for every interface of a class annotated with RpcService and a
+ * client stub for the type of every field annotated with RpcReference.
+ * <p>
+ * The stub implements the interface and sends each call through RpcClientProxy with the parameter types of the
+ * method kept in static fields, the skeleton finds the method of a request by its index and calls it directly.
+ * Both are put next to the interface, named after it with the suffix {@value #STUB_SUFFIX} or
+ * {@value #SKELETON_SUFFIX}, where RpcStubs looks them up at runtime. Generic interfaces are left to the proxy and
+ * to reflection.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@SupportedAnnotationTypes({RpcStubProcessor.RPC_SERVICE, RpcStubProcessor.RPC_REFERENCE})
+public class RpcStubProcessor extends AbstractProcessor {
+    static final String RPC_SERVICE = "github.javaguide.annotation.RpcService";
+    static final String RPC_REFERENCE = "github.javaguide.annotation.RpcReference";
+    /**
+     * the same suffixes as in RpcStubs
+     */
+    static final String STUB_SUFFIX = "_RpcStub";
+    static final String SKELETON_SUFFIX = "_RpcSkeleton";
+
+    /**
+     * the classes generated by this compilation, an interface may be referenced and published many times
+     */
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            String annotationName = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (RPC_SERVICE.equals(annotationName) && element.getKind() == ElementKind.CLASS) {
+                    for (TypeMirror anInterface : ((TypeElement) element).getInterfaces()) {
+                        generate(anInterface, SKELETON_SUFFIX, element);
+                    }
+                } else if (RPC_REFERENCE.equals(annotationName) && element.getKind() == ElementKind.FIELD) {
+                    generate(element.asType(), STUB_SUFFIX, element);
+                }
+            }
+        }
+        // other processors, lombok among them, may handle the same annotations
+        return false;
+    }
+
+    private void generate(TypeMirror type, String suffix, Element originatingElement) {
+        Element element = processingEnv.getTypeUtils().asElement(type);
+        if (element == null || element.getKind() != ElementKind.INTERFACE) {
+            return;
+        }
+        TypeElement serviceInterface = (TypeElement) element;
+        if (!serviceInterface.getTypeParameters().isEmpty() || serviceInterface.getModifiers().contains(Modifier.PRIVATE)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "No " + suffix + " for generic or private interface " + serviceInterface.getQualifiedName(), originatingElement);
+            return;
+        }
+        StubWriter stubWriter = new StubWriter(processingEnv, serviceInterface);
+        String className = stubWriter.className(suffix);
+        // the class of an earlier build is found on the source path, it is generated again with the interface as it is now
+        if (!generated.add(className)) {
+            return;
+        }
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className, originatingElement).openWriter()) {
+            writer.write(STUB_SUFFIX.equals(suffix) ? stubWriter.stub() : stubWriter.skeleton());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Can not generate " + className + ": " + e.getMessage(), originatingElement);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package github.javaguide.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the source of the stub and of the skeleton of a service interface. The methods are those a JDK proxy of
+ * the interface sends to the server: every method of the interface and of its super interfaces but the static ones,
+ * numbered in the order the compiler lists them.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+class StubWriter {
+    private static final String STREAM_OBSERVER = "github.javaguide.remoting.stream.StreamObserver";
+
+    private final ProcessingEnvironment processingEnv;
+    private final Types types;
+    private final TypeElement serviceInterface;
+    private final String packageName;
+    private final List<ServiceMethod> methods;
+
+    StubWriter(ProcessingEnvironment processingEnv, TypeElement serviceInterface) {
+        this.processingEnv = processingEnv;
+        this.types = processingEnv.getTypeUtils();
+        this.serviceInterface = serviceInterface;
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(serviceInterface);
+        this.packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        this.methods = collectMethods();
+    }
+
+    /**
+     * the qualified name of the generated class, Outer.Inner gets Outer_Inner + suffix
+     */
+    String className(String suffix) {
+        return qualify(simpleName(suffix));
+    }
+
+    private String simpleName(String suffix) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(serviceInterface).toString();
+        String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        return simpleName.replace('$', '_') + suffix;
+    }
+
+    private String qualify(String simpleName) {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    private List<ServiceMethod> collectMethods() {
+        DeclaredType interfaceType = (DeclaredType) serviceInterface.asType();
+        Map<String, ServiceMethod> methodMap = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(serviceInterface))) {
+            if (method.getModifiers().contains(Modifier.STATIC) || method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            ServiceMethod serviceMethod = new ServiceMethod(method, (ExecutableType) types.asMemberOf(interfaceType, method));
+            methodMap.putIfAbsent(serviceMethod.name + serviceMethod.parameterClasses, serviceMethod);
+        }
+        return new ArrayList<>(methodMap.values());
+    }
+
+    String stub() {
+        String simpleName = simpleName(RpcStubProcessor.STUB_SUFFIX);
+        StringBuilder source = header();
+        source.append("/**\n * Client stub of {@link ").append(serviceInterface.getQualifiedName())
+                .append("}, generated by RpcStubProcessor.\n */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleName).append(" implements ").append(serviceInterface.getQualifiedName()).append(" {\n");
+        parameterTypeFields(source);
+        source.append("    private final github.javaguide.proxy.RpcClientProxy rpcClientProxy;\n\n");
+        source.append("    public ").append(simpleName).append("(github.javaguide.proxy.RpcClientProxy rpcClientProxy) {\n");
+        source.append("        this.rpcClientProxy = rpcClientProxy;\n");
+        source.append("    }\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ServiceMethod method = methods.get(i);
+            source.append("\n    @Override\n    public ").append(method.typeParameters()).append(method.type.getReturnType())
+                    .append(' ').append(method.name).append('(');
+            List<? extends TypeMirror> parameterTypes = method.type.getParameterTypes();
+            for (int j = 0; j < parameterTypes.size(); j++) {
+                source.append(j == 0 ? "" : ", ").append(parameterTypes.get(j)).append(" arg").append(j);
+            }
+            source.append(") {\n        ");
+            TypeMirror returnType = method.type.getReturnType();
+            if (returnType.getKind() != TypeKind.VOID) {
+                source.append("return (").append(returnType.getKind().isPrimitive()
+                        ? types.boxedClass((PrimitiveType) returnType).getQualifiedName() : returnType.toString()).append(") ");
+            }
+            source.append("rpcClientProxy.").append(method.isStream() ? "invokeStream" : "invokeRemote").append("(\"")
+                    .append(processingEnv.getElementUtils().getBinaryName((TypeElement) method.element.getEnclosingElement()))
+                    .append("\", \"").append(method.name).append("\", ");
+            if (parameterTypes.isEmpty()) {
+                // as a JDK proxy passes the arguments of a method without parameters
+                source.append("null");
+            } else {
+                source.append("new Object[]{");
+                for (int j = 0; j < parameterTypes.size(); j++) {
+                    source.append(j == 0 ? "" : ", ").append("arg").append(j);
+                }
+                source.append('}');
+            }
+            source.append(", PARAMETER_TYPES_").append(i).append(", ").append(erasure(returnType)).append(".class);\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    String skeleton() {
+        String simpleName = simpleName(RpcStubProcessor.SKELETON_SUFFIX);
+        StringBuilder source = header();
+        source.append("/**\n * Server skeleton of {@link ").append(serviceInterface.getQualifiedName())
+                .append("}, generated by RpcStubProcessor.\n */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleName).append(" implements github.javaguide.stub.RpcSkeleton {\n");
+        parameterTypeFields(source);
+        source.append("    @Override\n    public int methodIndex(String methodName, Class<?>[] parameterTypes) {\n");
+        source.append("        switch (methodName) {\n");
+        Map<String, List<Integer>> overloads = new LinkedHashMap<>();
+        for (int i = 0; i < methods.size(); i++) {
+            overloads.computeIfAbsent(methods.get(i).name, name -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : overloads.entrySet()) {
+            source.append("            case \"").append(entry.getKey()).append("\":\n");
+            for (int i : entry.getValue()) {
+                source.append("                if (java.util.Arrays.equals(parameterTypes, PARAMETER_TYPES_").append(i).append(")) {\n");
+                source.append("                    return ").append(i).append(";\n                }\n");
+            }
+            source.append("                break;\n");
+        }
+        source.append("            default:\n                break;\n        }\n        return -1;\n    }\n\n");
+        source.append("    @Override\n    public Object invoke(Object service, int methodIndex, Object[] parameters) throws Throwable {\n");
+        source.append("        ").append(serviceInterface.getQualifiedName()).append(" target = (")
+                .append(serviceInterface.getQualifiedName()).append(") service;\n");
+        source.append("        switch (methodIndex) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ServiceMethod method = methods.get(i);
+            source.append("            case ").append(i).append(":\n                ");
+            boolean isVoid = method.type.getReturnType().getKind() == TypeKind.VOID;
+            if (!isVoid) {
+                source.append("return ");
+            }
+            source.append("target.").append(method.name).append('(');
+            List<? extends TypeMirror> parameterTypes = method.type.getParameterTypes();
+            for (int j = 0; j < parameterTypes.size(); j++) {
+                TypeMirror parameterType = parameterTypes.get(j);
+                source.append(j == 0 ? "" : ", ").append('(').append(parameterType.getKind().isPrimitive()
+                        ? types.boxedClass((PrimitiveType) parameterType).getQualifiedName() : erasure(parameterType))
+                        .append(") parameters[").append(j).append(']');
+            }
+            source.append(");\n");
+            if (isVoid) {
+                source.append("                return null;\n");
+            }
+        }
+        source.append("            default:\n");
+        source.append("                throw new IllegalArgumentException(\"Unknown method index: \" + methodIndex);\n");
+        source.append("        }\n    }\n}\n");
+        return source.toString();
+    }
+
+    private StringBuilder header() {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        return source;
+    }
+
+    private void parameterTypeFields(StringBuilder source) {
+        for (int i = 0; i < methods.size(); i++) {
+            source.append("    private static final Class<?>[] PARAMETER_TYPES_").append(i).append(" = {")
+                    .append(methods.get(i).parameterClasses).append("};\n");
+        }
+        source.append('\n');
+    }
+
+    private String erasure(TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    private class ServiceMethod {
+        private final ExecutableElement element;
+        /**
+         * the method as a member of the service interface, with the type arguments of its super interfaces
+         */
+        private final ExecutableType type;
+        private final String name;
+        /**
+         * the class literals of the parameter types, what Method.getParameterTypes returns
+         */
+        private final String parameterClasses;
+
+        ServiceMethod(ExecutableElement element, ExecutableType type) {
+            this.element = element;
+            this.type = type;
+            this.name = element.getSimpleName().toString();
+            this.parameterClasses = type.getParameterTypes().stream()
+                    .map(parameterType -> erasure(parameterType) + ".class")
+                    .collect(Collectors.joining(", "));
+        }
+
+        /**
+         * a streaming method takes or returns a StreamObserver, see RpcStream
+         */
+        boolean isStream() {
+            if (STREAM_OBSERVER.equals(erasure(type.getReturnType()))) {
+                return true;
+            }
+            return type.getParameterTypes().stream().anyMatch(parameterType -> STREAM_OBSERVER.equals(erasure(parameterType)));
+        }
+
+        String typeParameters() {
+            if (element.getTypeParameters().isEmpty()) {
+                return "";
+            }
+            List<String> typeParameters = new ArrayList<>();
+            for (TypeParameterElement typeParameter : element.getTypeParameters()) {
+                String bounds = typeParameter.getBounds().stream()
+                        .map(TypeMirror::toString)
+                        .filter(bound -> !"java.lang.Object".equals(bound))
+                        .collect(Collectors.joining(" & "));
+                typeParameters.add(bounds.isEmpty() ? typeParameter.getSimpleName().toString()
+                        : typeParameter.getSimpleName() + " extends " + bounds);
+            }
+            return "<" + String.join(", ", typeParameters) + "> ";
+        }
+    }
+}
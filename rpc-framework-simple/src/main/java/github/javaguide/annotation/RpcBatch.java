@@ -0,0 +1,42 @@
+package github.javaguide.annotation;
+
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a single-argument service method whose concurrent calls can be merged into one call of a batch method.
+ * <p>
+ * The batch method is declared on the same service and takes a {@link java.util.List} of the arguments.
+ * It returns either a {@link java.util.List} of results in the same order, or a {@link java.util.Map}
+ * from argument to result. eg:
+ * <pre>
+ * &#64;RpcBatch(target = "getByIds")
+ * User getById(Long id);
+ *
+ * Map&lt;Long, User&gt; getByIds(List&lt;Long&gt; ids);
+ * </pre>
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcBatch {
+
+    /**
+     * Name of the batch method
+     */
+    String target();
+
+    /**
+     * How long the first call waits for other calls to merge with, in microseconds
+     */
+    long windowMicros() default 1000;
+
+    /**
+     * The batch method is called at once when this number of calls are waiting
+     */
+    int maxSize() default 128;
+
+}
@@ -25,4 +25,10 @@ public @interface RpcReference {
      */
     String group() default "";
 
+    /**
+     * Serializer of the requests, empty to use the one advertised by the provider, or rpc.serialize if it
+     * advertises none
+     */
+    String serializer() default "";
+
 }
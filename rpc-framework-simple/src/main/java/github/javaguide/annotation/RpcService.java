@@ -25,4 +25,15 @@ public @interface RpcService {
      */
     String group() default "";
 
+    /**
+     * Serializer the clients should use for this service, e.g. kyro or protostuff, empty for rpc.serialize.
+     * It is advertised in the registry together with the serializers the provider understands.
+     */
+    String serializer() default "";
+
+    /**
+     * Share of the calls this provider gets with the weighted load balancer, 0 for the default weight of 100.
+     */
+    int weight() default 0;
+
 }
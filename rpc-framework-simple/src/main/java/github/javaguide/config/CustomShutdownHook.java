@@ -1,7 +1,11 @@
 package github.javaguide.config;
 
-import github.javaguide.registry.zk.util.CuratorUtils;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.ServiceRegistryEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.registry.ServiceRegistry;
 import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
+import github.javaguide.utils.RpcConfigUtil;
 import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,7 +32,8 @@ public class CustomShutdownHook {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
                 InetSocketAddress inetSocketAddress = new InetSocketAddress(InetAddress.getLocalHost().getHostAddress(), NettyRpcServer.PORT);
-                CuratorUtils.clearRegistry(CuratorUtils.getZkClient(), inetSocketAddress);
+                ExtensionLoader.getExtensionLoader(ServiceRegistry.class).getExtension(
+                        RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_TYPE, ServiceRegistryEnum.ZK.getName())).unregisterServices(inetSocketAddress);
             } catch (UnknownHostException ignored) {
             }
             ThreadPoolFactoryUtil.shutDownAllThreadPool();
@@ -21,6 +21,14 @@ public class RpcServiceConfig {
      * when the interface has multiple implementation classes, distinguish by group
      */
     private String group = "";
+    /**
+     * preferred serializer, empty for the one of rpc.serialize
+     */
+    private String serializer = "";
+    /**
+     * share of the calls among the providers of the service with the weighted load balancer, 0 for the default
+     */
+    private int weight;
 
     /**
      * target service
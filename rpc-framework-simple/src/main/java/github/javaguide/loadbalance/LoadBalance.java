@@ -1,6 +1,9 @@
 package github.javaguide.loadbalance;
 
 import github.javaguide.extension.SPI;
+import github.javaguide.registry.ServiceChangeListener;
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceSnapshot;
 import github.javaguide.remoting.dto.RpcRequest;
 
 import java.util.List;
@@ -12,7 +15,7 @@ import java.util.List;
  * @createTime 2020年06月21日 07:44:00
  */
 @SPI
-public interface LoadBalance {
+public interface LoadBalance extends ServiceChangeListener {
     /**
      * Choose one from the list of existing service addresses list
      *
@@ -21,4 +24,31 @@ public interface LoadBalance {
      * @return target service address
      */
     String selectServiceAddress(List<String> serviceUrlList, RpcRequest rpcRequest);
+
+    /**
+     * Choose one of the providers of a snapshot, the addresses handed to {@link #selectServiceAddress} are the
+     * same list as long as the snapshot is the same
+     *
+     * @param snapshot   the current providers of the service
+     * @param rpcRequest
+     * @return target provider, null if the snapshot is empty
+     */
+    default ServiceEndpoint select(ServiceSnapshot snapshot, RpcRequest rpcRequest) {
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        if (snapshot.getEndpoints().size() == 1) {
+            return snapshot.getEndpoints().get(0);
+        }
+        String address = selectServiceAddress(snapshot.getAddresses(), rpcRequest);
+        return address == null ? null : snapshot.getEndpoint(address);
+    }
+
+    /**
+     * A policy that keeps state per service updates it here with the difference of the snapshots, nothing by
+     * default
+     */
+    @Override
+    default void onServiceChanged(ServiceSnapshot snapshot) {
+    }
 }
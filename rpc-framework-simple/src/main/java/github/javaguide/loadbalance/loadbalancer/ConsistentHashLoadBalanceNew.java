@@ -1,7 +1,8 @@
 package github.javaguide.loadbalance.loadbalancer;
 
-import github.javaguide.factory.SingletonFactory;
 import github.javaguide.loadbalance.AbstractLoadBalance;
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceSnapshot;
 import github.javaguide.remoting.dto.RpcRequest;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,9 +17,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @date: 2025/5/11 14:32
  * @Description: 实现能够动态添加和删除结点的一致性hash负载均衡
  *
- * 1. 单例模式创建对象，减少频繁创建对象带来的负载均衡消耗
+ * 1. 每个服务一个选择器，只在第一次请求时创建，减少频繁创建对象带来的负载均衡消耗
  * 2. 每次重构服务器列表，采用了无锁（自旋锁） + 双锁检测，减少上下文切换的异常
  * 3. 重构服务器列表前，会对整个列表进行检测，减少无用的重构
+ * 4. 服务快照变化时，只按照快照的差异增删结点，快照版本不变时不做任何检测
  */
 @Slf4j
 public class ConsistentHashLoadBalanceNew extends AbstractLoadBalance {
@@ -37,13 +39,8 @@ public class ConsistentHashLoadBalanceNew extends AbstractLoadBalance {
         // 1. 获取hash选择器
         ConsistentHashingLoadBalancer selector = selectors.get(rpcServiceName);
         if (selector == null) {
-            // 2. 如果没有，就新建hash环，使用单例工厂模式进行创建
-            selector = SingletonFactory.getInstance(()-> new ConsistentHashingLoadBalancer(
-                    serviceAddresses,
-                    160,
-                    new ConsistentHashingLoadBalancer.MD5HashFunction()), ConsistentHashingLoadBalancer.class);
-            selectors.put(rpcServiceName, selector);
-
+            // 2. 如果没有，就新建这个服务的hash环，并发时只创建一次
+            selector = selectors.computeIfAbsent(rpcServiceName, name -> newSelector(serviceAddresses));
         }
         else if (selector.hasChanged(serviceAddresses)) {
             // 3. 如果地址变换了，就重构hash环
@@ -54,6 +51,51 @@ public class ConsistentHashLoadBalanceNew extends AbstractLoadBalance {
         return selector.selectNode(rpcServiceName + rpcRequest.getRequestId());
     }
 
+    @Override
+    public ServiceEndpoint select(ServiceSnapshot snapshot, RpcRequest rpcRequest) {
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        if (snapshot.getEndpoints().size() == 1) {
+            return snapshot.getEndpoints().get(0);
+        }
+        String rpcServiceName = snapshot.getRpcServiceName();
+        ConsistentHashingLoadBalancer selector = selectors.get(rpcServiceName);
+        if (selector == null) {
+            selector = selectors.computeIfAbsent(rpcServiceName, name -> {
+                ConsistentHashingLoadBalancer created = newSelector(snapshot.getAddresses());
+                created.version = snapshot.getVersion();
+                return created;
+            });
+        }
+        // 快照的通知还没有到达，或者选择器是由地址列表创建的
+        if (selector.version < snapshot.getVersion()) {
+            selector.update(snapshot);
+        }
+        String key = rpcServiceName + rpcRequest.getRequestId();
+        ServiceEndpoint endpoint = snapshot.getEndpoint(selector.selectNode(key));
+        // 选择器已经是更新的快照了，选中的结点不在这个快照里
+        if (endpoint == null) {
+            endpoint = snapshot.getEndpoints().get(Math.floorMod(key.hashCode(), snapshot.getEndpoints().size()));
+        }
+        return endpoint;
+    }
+
+    /**
+     * 服务快照变化时，按照差异更新已有的hash环
+     */
+    @Override
+    public void onServiceChanged(ServiceSnapshot snapshot) {
+        ConsistentHashingLoadBalancer selector = selectors.get(snapshot.getRpcServiceName());
+        if (selector != null) {
+            selector.update(snapshot);
+        }
+    }
+
+    private static ConsistentHashingLoadBalancer newSelector(List<String> serviceAddresses) {
+        return new ConsistentHashingLoadBalancer(serviceAddresses, 160, new ConsistentHashingLoadBalancer.MD5HashFunction());
+    }
+
 
     /**
      *
@@ -79,6 +121,11 @@ public class ConsistentHashLoadBalanceNew extends AbstractLoadBalance {
          * 防止使用了没有初始化完成的选择器
          * */
         private volatile boolean initFlag = false;
+
+        /**
+         * hash环对应的服务快照版本，由地址列表构建时为0
+         */
+        private volatile long version;
 //        private long identityCode;
         /**
          * 构造函数，在初始化的时候，就需要进行hash环的构建了
@@ -149,6 +196,43 @@ public class ConsistentHashLoadBalanceNew extends AbstractLoadBalance {
 
             log.info("重构服务的选择器");
             count.getAndIncrement();
+            this.rebuild(address);
+
+            // 2. 变量赋值
+            this.initFlag = true;
+            this.version = 0;
+//            this.identityCode = this.physicalNodes.hashCode();
+            log.info("重新构建的列表大小:{}", this.physicalNodes.size());
+        }
+
+        /**
+         * 按照服务快照更新hash环：
+         * 1. 快照是当前版本的下一个版本，只删除和新增快照的差异结点
+         * 2. 否则和整个地址列表比较后重构
+         */
+        public synchronized void update(ServiceSnapshot snapshot) {
+            // 快照版本单调递增，旧的快照不能覆盖新的
+            if (snapshot.getVersion() <= this.version) {
+                return;
+            }
+            this.initFlag = false;
+            count.getAndIncrement();
+            if (this.version != 0 && snapshot.getPreviousVersion() == this.version) {
+                for (ServiceEndpoint endpoint : snapshot.getRemoved()) {
+                    this.removeNode(endpoint.getAddress());
+                }
+                for (ServiceEndpoint endpoint : snapshot.getAdded()) {
+                    this.addNode(endpoint.getAddress());
+                }
+            } else {
+                this.rebuild(snapshot.getAddresses());
+            }
+            this.version = snapshot.getVersion();
+            this.initFlag = true;
+            log.info("服务[{}]的选择器更新到版本{}，列表大小:{}", snapshot.getRpcServiceName(), this.version, this.physicalNodes.size());
+        }
+
+        private void rebuild(List<String> address) {
             // 1. 重构hash环
             // 1.1 获取之前的地址
             Set<String> currentAddress = new HashSet<>(address);
@@ -173,11 +257,6 @@ public class ConsistentHashLoadBalanceNew extends AbstractLoadBalance {
             for (String a : readyToAdd) {
                 this.addNode(a);
             }
-
-            // 2. 变量赋值
-            this.initFlag = true;
-//            this.identityCode = this.physicalNodes.hashCode();
-            log.info("重新构建的列表大小:{}", this.physicalNodes.size());
         }
 
         /**
@@ -0,0 +1,126 @@
+package github.javaguide.loadbalance.loadbalancer;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.loadbalance.AbstractLoadBalance;
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a provider at random in proportion to the weight it registered, among the providers of the zone of the
+ * client (rpc.zone) if the service has any. The table of the weights is built once per snapshot, so a call costs a
+ * random number and a binary search. A provider of weight 0 gets no call, unless all of them have weight 0.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class WeightedLoadBalance extends AbstractLoadBalance {
+    private final String zone;
+    /**
+     * key: rpc service name, value: the table of its latest snapshot
+     */
+    private final ConcurrentHashMap<String, WeightTable> tables = new ConcurrentHashMap<>();
+
+    public WeightedLoadBalance() {
+        this(RpcConfigUtil.getProperty(RpcConfigEnum.ZONE));
+    }
+
+    /**
+     * @param zone the zone of the client, null if none
+     */
+    WeightedLoadBalance(String zone) {
+        this.zone = StringUtil.isBlank(zone) ? null : zone;
+    }
+
+    /**
+     * the addresses carry no weight, so all of them are equal
+     */
+    @Override
+    protected String doSelect(List<String> serviceAddresses, RpcRequest rpcRequest) {
+        return serviceAddresses.get(ThreadLocalRandom.current().nextInt(serviceAddresses.size()));
+    }
+
+    @Override
+    public ServiceEndpoint select(ServiceSnapshot snapshot, RpcRequest rpcRequest) {
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        WeightTable table = tables.get(snapshot.getRpcServiceName());
+        // the notification of the snapshot has not arrived yet
+        if (table == null || table.version < snapshot.getVersion()) {
+            table = update(snapshot);
+        }
+        return table.select();
+    }
+
+    @Override
+    public void onServiceChanged(ServiceSnapshot snapshot) {
+        if (tables.containsKey(snapshot.getRpcServiceName())) {
+            update(snapshot);
+        }
+    }
+
+    private WeightTable update(ServiceSnapshot snapshot) {
+        WeightTable built = new WeightTable(snapshot, zone);
+        // the snapshot versions only grow, an older snapshot does not replace a newer one
+        return tables.merge(snapshot.getRpcServiceName(), built, (current, next) -> next.version > current.version ? next : current);
+    }
+
+    /**
+     * the providers a call may go to with the sums of their weights: provider i gets the calls whose random number
+     * is in [bounds[i - 1], bounds[i])
+     */
+    private static final class WeightTable {
+        private final long version;
+        private final ServiceEndpoint[] endpoints;
+        private final long[] bounds;
+        private final long total;
+
+        private WeightTable(ServiceSnapshot snapshot, String zone) {
+            this.version = snapshot.getVersion();
+            List<ServiceEndpoint> weighted = new ArrayList<>(snapshot.getEndpoints().size());
+            List<ServiceEndpoint> local = new ArrayList<>();
+            for (ServiceEndpoint endpoint : snapshot.getEndpoints()) {
+                if (endpoint.getWeight() > 0) {
+                    weighted.add(endpoint);
+                    if (zone != null && zone.equals(endpoint.getZone())) {
+                        local.add(endpoint);
+                    }
+                }
+            }
+            List<ServiceEndpoint> candidates = !local.isEmpty() ? local : !weighted.isEmpty() ? weighted : snapshot.getEndpoints();
+            this.endpoints = candidates.toArray(new ServiceEndpoint[0]);
+            this.bounds = new long[endpoints.length];
+            long sum = 0;
+            for (int i = 0; i < endpoints.length; i++) {
+                sum += endpoints[i].getWeight();
+                bounds[i] = sum;
+            }
+            this.total = sum;
+            log.info("Weights of [{}] at version [{}]: [{}] providers, total [{}]", snapshot.getRpcServiceName(), version, endpoints.length, total);
+        }
+
+        private ServiceEndpoint select() {
+            if (endpoints.length == 1) {
+                return endpoints[0];
+            }
+            if (total == 0) {
+                return endpoints[ThreadLocalRandom.current().nextInt(endpoints.length)];
+            }
+            long point = ThreadLocalRandom.current().nextLong(total);
+            int index = Arrays.binarySearch(bounds, point);
+            // the bound found is the end of the range of the provider, the point belongs to the next one
+            return endpoints[index >= 0 ? index + 1 : -index - 1];
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package github.javaguide.provider;
 
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.remoting.handler.RpcBatchMethod;
+import github.javaguide.stub.RpcSkeleton;
+
+import java.util.List;
 
 /**
  * store and provide service object.
@@ -22,8 +26,44 @@ public interface ServiceProvider {
     Object getService(String rpcServiceName);
 
     /**
+     * @param rpcServiceName rpc service name
+     * @return whether the service was added in this JVM
+     */
+    boolean hasService(String rpcServiceName);
+
+    /**
+     * @param rpcServiceName rpc service name
+     * @param methodName     method name
+     * @return the batch method the calls of the method are merged into, null if it is not annotated with RpcBatch
+     */
+    RpcBatchMethod getBatchMethod(String rpcServiceName, String methodName);
+
+    /**
+     * @param rpcServiceName rpc service name
+     * @return the skeleton generated for the service interface, null if there is none and methods are called by reflection
+     */
+    RpcSkeleton getSkeleton(String rpcServiceName);
+
+    /**
+     * add the service and register it, the registration waits until the server is bound
+     *
      * @param rpcServiceConfig rpc service related attributes
      */
     void publishService(RpcServiceConfig rpcServiceConfig);
 
+    /**
+     * add the services and register them together, the registration waits until the server is bound
+     *
+     * @param rpcServiceConfigs rpc service related attributes
+     */
+    default void publishServices(List<RpcServiceConfig> rpcServiceConfigs) {
+        rpcServiceConfigs.forEach(this::publishService);
+    }
+
+    /**
+     * Called by the server once it is bound and can answer, the services published so far are warmed up and
+     * registered, those published later are registered at once
+     */
+    void publishPendingServices();
+
 }
@@ -0,0 +1,16 @@
+package github.javaguide.provider;
+
+/**
+ * Implemented by a service that must be warmed up before the clients find it: caches loaded, connections opened,
+ * code paths run. The warmups of the services published together run in parallel, once the server is bound and
+ * before the services are registered.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface ServiceWarmup {
+    /**
+     * @throws Exception the service is not ready, it is not registered
+     */
+    void warmup() throws Exception;
+}
@@ -1,21 +1,49 @@
 package github.javaguide.provider.impl;
 
+import github.javaguide.annotation.RpcBatch;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.enums.ServiceRegistryEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
+import github.javaguide.provider.ServiceWarmup;
 import github.javaguide.registry.ServiceRegistry;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.handler.RpcBatchMethod;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
 import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
+import github.javaguide.serialize.ServiceTypeRegistry;
+import github.javaguide.stub.RpcSkeleton;
+import github.javaguide.stub.RpcStubs;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.RuntimeUtil;
+import github.javaguide.utils.StringUtil;
+import github.javaguide.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * @author shuang.kou
@@ -23,6 +51,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 public class ZkServiceProviderImpl implements ServiceProvider {
+    private static final long START_TIME = ManagementFactory.getRuntimeMXBean().getStartTime();
 
     /**
      * key: rpc service name(interface name + version + group)
@@ -30,12 +59,32 @@ public class ZkServiceProviderImpl implements ServiceProvider {
      */
     private final Map<String, Object> serviceMap;
     private final Set<String> registeredService;
+    /**
+     * key: rpc service name
+     * value: method name -> batch method
+     */
+    private final Map<String, Map<String, RpcBatchMethod>> batchMethodMap;
+    /**
+     * key: rpc service name
+     * value: the skeleton generated for the service interface
+     */
+    private final Map<String, RpcSkeleton> skeletonMap;
     private final ServiceRegistry serviceRegistry;
+    private final ServiceTypeRegistry serviceTypeRegistry;
+    /**
+     * key: rpc service name, value: a service published before the server was bound
+     */
+    private final Map<String, RpcServiceConfig> pendingServices = new LinkedHashMap<>();
+    private boolean serverStarted;
 
     public ZkServiceProviderImpl() {
         serviceMap = new ConcurrentHashMap<>();
         registeredService = ConcurrentHashMap.newKeySet();
-        serviceRegistry = ExtensionLoader.getExtensionLoader(ServiceRegistry.class).getExtension(ServiceRegistryEnum.ZK.getName());
+        batchMethodMap = new ConcurrentHashMap<>();
+        skeletonMap = new ConcurrentHashMap<>();
+        serviceRegistry = ExtensionLoader.getExtensionLoader(ServiceRegistry.class).getExtension(
+                RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_TYPE, ServiceRegistryEnum.ZK.getName()));
+        serviceTypeRegistry = SingletonFactory.getInstance(ServiceTypeRegistry.class);
     }
 
     @Override
@@ -46,6 +95,17 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         }
         registeredService.add(rpcServiceName);
         serviceMap.put(rpcServiceName, rpcServiceConfig.getService());
+        for (Class<?> anInterface : rpcServiceConfig.getService().getClass().getInterfaces()) {
+            serviceTypeRegistry.registerService(anInterface);
+        }
+        Map<String, RpcBatchMethod> batchMethods = findBatchMethods(rpcServiceName, rpcServiceConfig.getService());
+        if (!batchMethods.isEmpty()) {
+            batchMethodMap.put(rpcServiceName, batchMethods);
+        }
+        RpcSkeleton rpcSkeleton = RpcStubs.getSkeleton(rpcServiceConfig.getService().getClass().getInterfaces()[0]);
+        if (rpcSkeleton != null) {
+            skeletonMap.put(rpcServiceName, rpcSkeleton);
+        }
         log.info("Add service: {} and interfaces:{}", rpcServiceName, rpcServiceConfig.getService().getClass().getInterfaces());
     }
 
@@ -58,15 +118,173 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         return service;
     }
 
+    @Override
+    public boolean hasService(String rpcServiceName) {
+        return serviceMap.containsKey(rpcServiceName);
+    }
+
+    @Override
+    public RpcBatchMethod getBatchMethod(String rpcServiceName, String methodName) {
+        Map<String, RpcBatchMethod> batchMethods = batchMethodMap.get(rpcServiceName);
+        return batchMethods == null ? null : batchMethods.get(methodName);
+    }
+
+    @Override
+    public RpcSkeleton getSkeleton(String rpcServiceName) {
+        return skeletonMap.get(rpcServiceName);
+    }
+
+    /**
+     * find the methods annotated with RpcBatch, on the service class or on one of its interfaces
+     */
+    private Map<String, RpcBatchMethod> findBatchMethods(String rpcServiceName, Object service) {
+        Map<String, RpcBatchMethod> batchMethods = new HashMap<>();
+        for (Method method : service.getClass().getMethods()) {
+            RpcBatch rpcBatch = findRpcBatch(service.getClass(), method);
+            if (rpcBatch == null) {
+                continue;
+            }
+            if (method.getParameterCount() != 1) {
+                throw new IllegalArgumentException("RpcBatch method must have exactly one parameter: " + method);
+            }
+            Method batchMethod;
+            try {
+                batchMethod = service.getClass().getMethod(rpcBatch.target(), List.class);
+            } catch (NoSuchMethodException e) {
+                throw new RpcException("RpcBatch target not found: " + rpcBatch.target() + "(java.util.List)", e);
+            }
+            batchMethods.put(method.getName(), new RpcBatchMethod(rpcServiceName + "#" + method.getName(), service,
+                    method.getParameterTypes()[0], batchMethod, rpcBatch.windowMicros(), rpcBatch.maxSize()));
+            log.info("Add batch method: {} -> {}", method.getName(), rpcBatch.target());
+        }
+        return batchMethods.isEmpty() ? Collections.emptyMap() : batchMethods;
+    }
+
+    private RpcBatch findRpcBatch(Class<?> serviceClass, Method method) {
+        RpcBatch rpcBatch = method.getAnnotation(RpcBatch.class);
+        if (rpcBatch != null) {
+            return rpcBatch;
+        }
+        for (Class<?> anInterface : serviceClass.getInterfaces()) {
+            try {
+                rpcBatch = anInterface.getMethod(method.getName(), method.getParameterTypes()).getAnnotation(RpcBatch.class);
+                if (rpcBatch != null) {
+                    return rpcBatch;
+                }
+            } catch (NoSuchMethodException ignored) {
+                // the method is not declared by this interface
+            }
+        }
+        return null;
+    }
+
+    /**
+     * the serializer the clients should use and the serializers the server answers with, a response always uses
+     * the serializer of its request. Then what the clients pick a provider by: its weight, zone, compressors,
+     * protocol version, cpus and start time.
+     */
+    private static Map<String, String> serviceMetadata(RpcServiceConfig rpcServiceConfig) {
+        String serializer = rpcServiceConfig.getSerializer();
+        if (StringUtil.isBlank(serializer)) {
+            serializer = SerializationTypeEnum.getName(RpcMessageEncoder.CODEC_TYPE);
+        } else {
+            // fail on a typo when the service is published rather than on the first call
+            SerializationTypeEnum.getCode(serializer);
+        }
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put(RpcConstants.METADATA_SERIALIZER, serializer);
+        metadata.put(RpcConstants.METADATA_CODECS, Arrays.stream(SerializationTypeEnum.values())
+                .filter(type -> type != SerializationTypeEnum.HESSIAN2_SESSION)
+                .map(SerializationTypeEnum::getName)
+                .collect(Collectors.joining(",")));
+        if (rpcServiceConfig.getWeight() > 0) {
+            metadata.put(RpcConstants.METADATA_WEIGHT, Integer.toString(rpcServiceConfig.getWeight()));
+        }
+        String zone = RpcConfigUtil.getProperty(RpcConfigEnum.ZONE);
+        if (!StringUtil.isBlank(zone)) {
+            metadata.put(RpcConstants.METADATA_ZONE, zone);
+        }
+        metadata.put(RpcConstants.METADATA_COMPRESSORS, Arrays.stream(CompressTypeEnum.values())
+                .map(CompressTypeEnum::getName)
+                .collect(Collectors.joining(",")));
+        metadata.put(RpcConstants.METADATA_PROTOCOL, Byte.toString(RpcConstants.VERSION));
+        metadata.put(RpcConstants.METADATA_CPUS, Integer.toString(RuntimeUtil.cpus()));
+        metadata.put(RpcConstants.METADATA_START_TIME, Long.toString(START_TIME));
+        return metadata;
+    }
+
     @Override
     public void publishService(RpcServiceConfig rpcServiceConfig) {
+        publishServices(Collections.singletonList(rpcServiceConfig));
+    }
+
+    @Override
+    public void publishServices(List<RpcServiceConfig> rpcServiceConfigs) {
+        for (RpcServiceConfig rpcServiceConfig : rpcServiceConfigs) {
+            serviceMetadata(rpcServiceConfig);
+            this.addService(rpcServiceConfig);
+        }
+        synchronized (pendingServices) {
+            if (!serverStarted) {
+                rpcServiceConfigs.forEach(config -> pendingServices.put(config.getRpcServiceName(), config));
+                log.info("[{}] services wait for the server to be bound", pendingServices.size());
+                return;
+            }
+        }
+        registerServices(rpcServiceConfigs);
+    }
+
+    @Override
+    public void publishPendingServices() {
+        List<RpcServiceConfig> rpcServiceConfigs;
+        synchronized (pendingServices) {
+            serverStarted = true;
+            rpcServiceConfigs = new ArrayList<>(pendingServices.values());
+            pendingServices.clear();
+        }
+        registerServices(rpcServiceConfigs);
+    }
+
+    /**
+     * warm the services up in parallel, then register those that are ready at once
+     */
+    private void registerServices(List<RpcServiceConfig> rpcServiceConfigs) {
+        if (rpcServiceConfigs.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, CompletableFuture<Void>> warmups = new LinkedHashMap<>();
+        for (RpcServiceConfig rpcServiceConfig : rpcServiceConfigs) {
+            Object service = rpcServiceConfig.getService();
+            warmups.put(rpcServiceConfig.getRpcServiceName(), !(service instanceof ServiceWarmup) ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.runAsync(() -> warmup((ServiceWarmup) service), ThreadPoolFactoryUtil
+                    .createCustomThreadPoolIfAbsent(new CustomThreadPoolConfig(), "service-warmup", true)));
+        }
+        Map<String, Map<String, String>> serviceMetadata = new LinkedHashMap<>();
+        for (RpcServiceConfig rpcServiceConfig : rpcServiceConfigs) {
+            String rpcServiceName = rpcServiceConfig.getRpcServiceName();
+            try {
+                warmups.get(rpcServiceName).join();
+                serviceMetadata.put(rpcServiceName, serviceMetadata(rpcServiceConfig));
+            } catch (CompletionException e) {
+                log.error("warmup of service [{}] fail, it is not registered", rpcServiceName, e.getCause());
+            }
+        }
         try {
             String host = InetAddress.getLocalHost().getHostAddress();
-            this.addService(rpcServiceConfig);
-            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT));
+            serviceRegistry.registerServices(serviceMetadata, new InetSocketAddress(host, NettyRpcServer.PORT));
+            log.info("Registered [{}] services in [{}] ms", serviceMetadata.size(), System.currentTimeMillis() - start);
         } catch (UnknownHostException e) {
             log.error("occur exception when getHostAddress", e);
         }
     }
 
+    private static void warmup(ServiceWarmup serviceWarmup) {
+        try {
+            serviceWarmup.warmup();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
 }
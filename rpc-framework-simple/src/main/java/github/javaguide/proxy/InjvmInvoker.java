@@ -0,0 +1,122 @@
+package github.javaguide.proxy;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.ServiceProvider;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.transport.netty.codec.BlobAttachments;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Calls a service published in this JVM directly, without the registry, the network and the codec. With
+ * rpc.injvm.copy (true by default) the arguments and the result are copied through the serializer of the reference,
+ * so the caller and the service share no mutable object, as over the network. Without it they are passed by
+ * reference. Strings, boxed primitives and enums are never copied.
+ * <p>
+ * A call with blobs keeps going over the network, the ownership of a blob is defined by the transport.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class InjvmInvoker {
+    private final ServiceProvider serviceProvider;
+    private final RpcRequestHandler rpcRequestHandler;
+    private final boolean copy;
+
+    public InjvmInvoker() {
+        this(SingletonFactory.getInstance(ZkServiceProviderImpl.class), SingletonFactory.getInstance(RpcRequestHandler.class),
+                RpcConfigUtil.getBoolean(RpcConfigEnum.INJVM_COPY, true));
+    }
+
+    InjvmInvoker(ServiceProvider serviceProvider, RpcRequestHandler rpcRequestHandler, boolean copy) {
+        this.serviceProvider = serviceProvider;
+        this.rpcRequestHandler = rpcRequestHandler;
+        this.copy = copy;
+    }
+
+    /**
+     * @return whether the call may be made in this JVM: the service is published here and no blob is passed
+     */
+    public boolean isLocal(String rpcServiceName, Object[] args, Class<?> returnType) {
+        return serviceProvider.hasService(rpcServiceName) && !BlobAttachments.hasBlob(args) && !isBlobType(returnType);
+    }
+
+    /**
+     * @param serializer the serializer of the reference, empty for the one of rpc.serialize
+     * @return the result of the service method
+     */
+    public Object invoke(String interfaceName, String methodName, Object[] args, Class<?>[] paramTypes,
+                         String version, String group, String serializer) {
+        RpcRequest rpcRequest = RpcRequest.newInstance(null, interfaceName, methodName, args, paramTypes, version, group);
+        try {
+            if (!copy || isImmutable(args)) {
+                return copyResult(rpcRequestHandler.handle(rpcRequest), serializer);
+            }
+            Serializer copier = serializer(serializer);
+            RpcRequest copied = copier.deserialize(copier.serialize(rpcRequest), RpcRequest.class);
+            return copyResult(rpcRequestHandler.handle(copied), serializer);
+        } finally {
+            rpcRequest.recycle();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object copyResult(Object result, String serializer) {
+        if (!copy || isImmutable(result)) {
+            return result;
+        }
+        Serializer copier = serializer(serializer);
+        RpcResponse<Object> rpcResponse = RpcResponse.success(result, null);
+        byte[] bytes;
+        try {
+            bytes = copier.serialize(rpcResponse);
+        } finally {
+            rpcResponse.recycle();
+        }
+        return copier.deserialize(bytes, RpcResponse.class).getData();
+    }
+
+    private static Serializer serializer(String name) {
+        byte codec = StringUtil.isBlank(name) ? RpcMessageEncoder.CODEC_TYPE : SerializationTypeEnum.getCode(name);
+        // encoded by the codec itself, its serializer alone is hessian2
+        if (codec == SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+            codec = SerializationTypeEnum.HESSIAN2.getCode();
+        }
+        return ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(SerializationTypeEnum.getName(codec));
+    }
+
+    private static boolean isImmutable(Object[] values) {
+        if (values != null) {
+            for (Object value : values) {
+                if (!isImmutable(value)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value == null || value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Boolean || value instanceof Double || value instanceof Float || value instanceof Short
+                || value instanceof Byte || value instanceof Character || value instanceof Enum;
+    }
+
+    private static boolean isBlobType(Class<?> type) {
+        return ByteBuf.class.isAssignableFrom(type) || ByteBuffer.class.isAssignableFrom(type) || Path.class.isAssignableFrom(type);
+    }
+}
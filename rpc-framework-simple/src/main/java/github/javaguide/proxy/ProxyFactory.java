@@ -0,0 +1,20 @@
+package github.javaguide.proxy;
+
+import github.javaguide.extension.SPI;
+
+/**
+ * Creates the client proxies of the service interfaces without a generated stub, selected with rpc.proxy
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@SPI
+public interface ProxyFactory {
+
+    /**
+     * @param serviceInterface service interface
+     * @param rpcClientProxy   sends the calls of the proxy to the server
+     * @return the proxy implementing the interface
+     */
+    <T> T getProxy(Class<T> serviceInterface, RpcClientProxy rpcClientProxy);
+}
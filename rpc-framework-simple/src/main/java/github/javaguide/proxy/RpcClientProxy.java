@@ -1,18 +1,29 @@
 package github.javaguide.proxy;
 
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.ProxyTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.exception.RpcException;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.factory.SingletonFactory;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.stream.RpcStream;
+import github.javaguide.remoting.stream.StreamObserver;
 import github.javaguide.remoting.transport.RpcRequestTransport;
-import lombok.SneakyThrows;
+import github.javaguide.remoting.transport.RpcStreamTransport;
+import github.javaguide.remoting.transport.netty.codec.BlobAttachments;
+import github.javaguide.serialize.ServiceTypeRegistry;
+import github.javaguide.stub.RpcStubs;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.UUID;
 
 /**
@@ -27,55 +38,136 @@ import java.util.UUID;
 public class RpcClientProxy implements InvocationHandler {
 
     private static final String INTERFACE_NAME = "interfaceName";
+    /**
+     * creates the proxies of the interfaces without a generated stub
+     */
+    private static final String PROXY_TYPE = RpcConfigUtil.getProperty(RpcConfigEnum.PROXY_TYPE, ProxyTypeEnum.JDK.getName());
+    /**
+     * calls the services published in this JVM directly, see {@link InjvmInvoker}
+     */
+    private static final boolean INJVM = RpcConfigUtil.getBoolean(RpcConfigEnum.INJVM, false);
 
     /**
      * Used to send requests to the server.And there are two implementations: socket and netty
      */
     private final RpcRequestTransport rpcRequestTransport;
     private final RpcServiceConfig rpcServiceConfig;
+    /**
+     * null unless rpc.injvm is set
+     */
+    private final InjvmInvoker injvmInvoker;
 
     public RpcClientProxy(RpcRequestTransport rpcRequestTransport, RpcServiceConfig rpcServiceConfig) {
         this.rpcRequestTransport = rpcRequestTransport;
         this.rpcServiceConfig = rpcServiceConfig;
+        this.injvmInvoker = INJVM ? SingletonFactory.getInstance(InjvmInvoker.class) : null;
+        if (!StringUtil.isBlank(rpcServiceConfig.getSerializer())) {
+            // fail on a typo when the reference is created rather than on the first call
+            SerializationTypeEnum.getCode(rpcServiceConfig.getSerializer());
+        }
     }
 
 
     public RpcClientProxy(RpcRequestTransport rpcRequestTransport) {
         this.rpcRequestTransport = rpcRequestTransport;
         this.rpcServiceConfig = new RpcServiceConfig();
+        this.injvmInvoker = INJVM ? SingletonFactory.getInstance(InjvmInvoker.class) : null;
     }
 
     /**
-     * get the proxy object
+     * get the proxy object, the stub generated for the interface if there is one, see {@link RpcStubs}, otherwise
+     * the proxy created by the {@link ProxyFactory} of rpc.proxy
      */
-    @SuppressWarnings("unchecked")
     public <T> T getProxy(Class<T> clazz) {
-        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, this);
+        SingletonFactory.getInstance(ServiceTypeRegistry.class).registerService(clazz);
+        T stub = RpcStubs.newStub(clazz, this);
+        if (stub != null) {
+            return stub;
+        }
+        return ExtensionLoader.getExtensionLoader(ProxyFactory.class).getExtension(PROXY_TYPE).getProxy(clazz, this);
     }
 
     /**
      * This method is actually called when you use a proxy object to call a method.
      * The proxy object is the object you get through the getProxy method.
      */
-    @SneakyThrows
-    @SuppressWarnings("unchecked")
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
+        Class<?>[] paramTypes = method.getParameterTypes();
+        if (method.getReturnType() == StreamObserver.class || RpcStream.streamObserverIndex(paramTypes) >= 0) {
+            return invokeStream(method.getDeclaringClass().getName(), method.getName(), args, paramTypes, method.getReturnType());
+        }
+        return invokeRemote(method.getDeclaringClass().getName(), method.getName(), args, paramTypes, method.getReturnType());
+    }
+
+    /**
+     * Send a call to the server and wait for its result, called by the proxy and by the generated stubs. With
+     * rpc.injvm a service published in this JVM is called directly.
+     *
+     * @param interfaceName the interface declaring the method
+     * @param args          the arguments, null for a method without parameters
+     * @param paramTypes    the parameter types of the method, not modified
+     * @param returnType    the return type of the method
+     */
+    @SuppressWarnings("unchecked")
+    public Object invokeRemote(String interfaceName, String methodName, Object[] args, Class<?>[] paramTypes, Class<?> returnType) {
         // 1. 创建一个PRC请求
-        log.info("invoked method: [{}]", method.getName());
-        RpcRequest rpcRequest = RpcRequest.builder().methodName(method.getName())
-                .parameters(args)
-                .interfaceName(method.getDeclaringClass().getName())
-                .paramTypes(method.getParameterTypes())
+        log.info("invoked method: [{}]", methodName);
+        if (injvmInvoker != null && injvmInvoker.isLocal(interfaceName + rpcServiceConfig.getGroup() + rpcServiceConfig.getVersion(), args, returnType)) {
+            return injvmInvoker.invoke(interfaceName, methodName, args, paramTypes,
+                    rpcServiceConfig.getVersion(), rpcServiceConfig.getGroup(), rpcServiceConfig.getSerializer());
+        }
+        RpcRequest rpcRequest = RpcRequest.newInstance(UUID.randomUUID().toString(), interfaceName,
+                methodName, args, paramTypes, rpcServiceConfig.getVersion(), rpcServiceConfig.getGroup());
+        rpcRequest.setSerializer(rpcServiceConfig.getSerializer());
+        // 2. 发送RPC请求
+        // a call failing here, eg: interrupted, may leave the request queued for a batch or waiting to be encoded,
+        // so it is not recycled but left to the garbage collector
+        RpcResponse<Object> rpcResponse = (RpcResponse<Object>) rpcRequestTransport.sendRpcRequest(rpcRequest);
+        try {
+            this.check(rpcResponse, rpcRequest);
+            return BlobAttachments.toResultType(rpcResponse.getData(), returnType);
+        } finally {
+            // the request has been written and answered, nobody refers to it any more
+            rpcRequest.recycle();
+        }
+    }
+
+    /**
+     * Open a stream for a streaming method, see {@link StreamObserver}, called by the proxy and by the generated stubs
+     *
+     * @return the observer to send items to the server for a bidirectional stream, otherwise null
+     */
+    @SuppressWarnings("unchecked")
+    public Object invokeStream(String interfaceName, String methodName, Object[] args, Class<?>[] paramTypes, Class<?> returnType) {
+        log.info("invoked method: [{}]", methodName);
+        if (!(rpcRequestTransport instanceof RpcStreamTransport)) {
+            throw new RpcException(RpcErrorMessageEnum.STREAMING_NOT_SUPPORTED, rpcRequestTransport.getClass().getName());
+        }
+        int index = RpcStream.streamObserverIndex(paramTypes);
+        if (index < 0) {
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, "no StreamObserver parameter: " + interfaceName + "#" + methodName);
+        }
+        StreamObserver<Object> responseObserver = (StreamObserver<Object>) args[index];
+        Object[] parameters = args.clone();
+        // the observer stays on the client, the server passes its own observer in its place
+        parameters[index] = null;
+        RpcRequest rpcRequest = RpcRequest.builder().methodName(methodName)
+                .parameters(parameters)
+                .interfaceName(interfaceName)
+                .paramTypes(paramTypes)
                 .requestId(UUID.randomUUID().toString())
                 .group(rpcServiceConfig.getGroup())
                 .version(rpcServiceConfig.getVersion())
+                .serializer(rpcServiceConfig.getSerializer())
                 .build();
-        // 2. 发送RPC请求
-        RpcResponse<Object> rpcResponse =  (RpcResponse<Object>) rpcRequestTransport.sendRpcRequest(rpcRequest);
-
-        this.check(rpcResponse, rpcRequest);
-        return rpcResponse.getData();
+        StreamObserver<Object> requestObserver = ((RpcStreamTransport) rpcRequestTransport).openStream(rpcRequest, responseObserver);
+        if (returnType == StreamObserver.class) {
+            return requestObserver;
+        }
+        // the client of a server stream sends no items
+        requestObserver.onCompleted();
+        return null;
     }
 
     private void check(RpcResponse<Object> rpcResponse, RpcRequest rpcRequest) {
@@ -0,0 +1,252 @@
+package github.javaguide.proxy.asm;
+
+import github.javaguide.exception.RpcException;
+import github.javaguide.proxy.ProxyFactory;
+import github.javaguide.proxy.RpcClientProxy;
+import github.javaguide.proxy.jdk.JdkProxyFactory;
+import github.javaguide.remoting.stream.RpcStream;
+import github.javaguide.remoting.stream.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Proxies generated with ASM, once per interface. Every method of the generated class calls
+ * {@link RpcClientProxy#invokeRemote} or {@link RpcClientProxy#invokeStream} directly with its interface name,
+ * method name and parameter types, kept in static fields of the class, so a call does no InvocationHandler
+ * dispatch, no Method lookup and no copy of the parameter types.
+ * <p>
+ * An interface the generated class can not see, non public or with non public return types, gets a JDK proxy.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class AsmProxyFactory implements ProxyFactory {
+    private static final String RPC_CLIENT_PROXY = Type.getInternalName(RpcClientProxy.class);
+    private static final String INVOKE_DESC = "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;[Ljava/lang/Class;Ljava/lang/Class;)Ljava/lang/Object;";
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            if (!isAccessible(type)) {
+                log.info("[{}] is not public, it gets a JDK proxy", type.getName());
+                return null;
+            }
+            return generate(type);
+        }
+    };
+
+    private final JdkProxyFactory jdkProxyFactory = new JdkProxyFactory();
+
+    @Override
+    public <T> T getProxy(Class<T> serviceInterface, RpcClientProxy rpcClientProxy) {
+        Constructor<?> constructor = CONSTRUCTORS.get(serviceInterface);
+        if (constructor == null) {
+            return jdkProxyFactory.getProxy(serviceInterface, rpcClientProxy);
+        }
+        try {
+            return serviceInterface.cast(constructor.newInstance(rpcClientProxy));
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RpcException("Can not create the proxy of " + serviceInterface.getName(), e);
+        }
+    }
+
+    /**
+     * the methods a JDK proxy would send to the server, one per distinct descriptor so that a method inherited
+     * with another return type is implemented too
+     */
+    private static List<Method> methodsOf(Class<?> serviceInterface) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        for (Method method : serviceInterface.getMethods()) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                methods.putIfAbsent(method.getName() + Type.getMethodDescriptor(method), method);
+            }
+        }
+        return new ArrayList<>(methods.values());
+    }
+
+    private static boolean isAccessible(Class<?> serviceInterface) {
+        if (!serviceInterface.isInterface() || !Modifier.isPublic(serviceInterface.getModifiers())) {
+            return false;
+        }
+        for (Method method : serviceInterface.getMethods()) {
+            Class<?> returnType = method.getReturnType();
+            while (returnType.isArray()) {
+                returnType = returnType.getComponentType();
+            }
+            // the result is cast to the return type
+            if (!Modifier.isPublic(returnType.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Constructor<?> generate(Class<?> serviceInterface) {
+        List<Method> methods = methodsOf(serviceInterface);
+        String className = Type.getInternalName(AsmProxyFactory.class).replace("AsmProxyFactory", "")
+                + serviceInterface.getSimpleName() + "$RpcProxy$" + COUNTER.incrementAndGet();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+                "java/lang/Object", new String[]{Type.getInternalName(serviceInterface)});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "rpcClientProxy", "L" + RPC_CLIENT_PROXY + ";", null, null).visitEnd();
+
+        MethodVisitor constructor = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(L" + RPC_CLIENT_PROXY + ";)V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitVarInsn(Opcodes.ALOAD, 1);
+        constructor.visitFieldInsn(Opcodes.PUTFIELD, className, "rpcClientProxy", "L" + RPC_CLIENT_PROXY + ";");
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        for (int i = 0; i < methods.size(); i++) {
+            cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "PARAMETER_TYPES_" + i, "[Ljava/lang/Class;", null, null).visitEnd();
+            cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "RETURN_TYPE_" + i, "Ljava/lang/Class;", null, null).visitEnd();
+            generateMethod(cw, className, methods.get(i), i);
+        }
+        cw.visitEnd();
+
+        try {
+            Class<?> proxyClass = new ProxyClassLoader(serviceInterface.getClassLoader()).define(className.replace('/', '.'), cw.toByteArray());
+            for (int i = 0; i < methods.size(); i++) {
+                proxyClass.getField("PARAMETER_TYPES_" + i).set(null, methods.get(i).getParameterTypes());
+                proxyClass.getField("RETURN_TYPE_" + i).set(null, methods.get(i).getReturnType());
+            }
+            log.info("Generated the proxy of [{}] with [{}] methods", serviceInterface.getName(), methods.size());
+            return proxyClass.getConstructor(RpcClientProxy.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new RpcException("Can not generate the proxy of " + serviceInterface.getName(), e);
+        }
+    }
+
+    /**
+     * return (R) rpcClientProxy.invokeRemote(interfaceName, methodName, new Object[]{args}, PARAMETER_TYPES_i, RETURN_TYPE_i)
+     */
+    private static void generateMethod(ClassWriter cw, String className, Method method, int index) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        String[] exceptions = new String[method.getExceptionTypes().length];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = Type.getInternalName(method.getExceptionTypes()[i]);
+        }
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, exceptions);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, "rpcClientProxy", "L" + RPC_CLIENT_PROXY + ";");
+        mv.visitLdcInsn(method.getDeclaringClass().getName());
+        mv.visitLdcInsn(method.getName());
+        if (parameterTypes.length == 0) {
+            // as a JDK proxy passes the arguments of a method without parameters
+            mv.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            pushInt(mv, parameterTypes.length);
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+            int slot = 1;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Type type = Type.getType(parameterTypes[i]);
+                mv.visitInsn(Opcodes.DUP);
+                pushInt(mv, i);
+                mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot);
+                box(mv, type);
+                mv.visitInsn(Opcodes.AASTORE);
+                slot += type.getSize();
+            }
+        }
+        mv.visitFieldInsn(Opcodes.GETSTATIC, className, "PARAMETER_TYPES_" + index, "[Ljava/lang/Class;");
+        mv.visitFieldInsn(Opcodes.GETSTATIC, className, "RETURN_TYPE_" + index, "Ljava/lang/Class;");
+        boolean stream = method.getReturnType() == StreamObserver.class || RpcStream.streamObserverIndex(parameterTypes) >= 0;
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RPC_CLIENT_PROXY, stream ? "invokeStream" : "invokeRemote", INVOKE_DESC, false);
+        Type returnType = Type.getType(method.getReturnType());
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInsn(Opcodes.RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        String wrapper = wrapperOf(type);
+        if (wrapper != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+        }
+    }
+
+    /**
+     * cast the result to the return type, a primitive is unboxed and a null result fails as with a JDK proxy
+     */
+    private static void unbox(MethodVisitor mv, Type type) {
+        String wrapper = wrapperOf(type);
+        if (wrapper != null) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+        } else if (!"java/lang/Object".equals(type.getInternalName())) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+        }
+    }
+
+    private static String wrapperOf(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return "java/lang/Boolean";
+            case Type.BYTE:
+                return "java/lang/Byte";
+            case Type.CHAR:
+                return "java/lang/Character";
+            case Type.SHORT:
+                return "java/lang/Short";
+            case Type.INT:
+                return "java/lang/Integer";
+            case Type.LONG:
+                return "java/lang/Long";
+            case Type.FLOAT:
+                return "java/lang/Float";
+            case Type.DOUBLE:
+                return "java/lang/Double";
+            default:
+                return null;
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        }
+    }
+
+    /**
+     * a child of the loader of the interface, which also sees RpcClientProxy
+     */
+    private static final class ProxyClassLoader extends ClassLoader {
+        private ProxyClassLoader(ClassLoader parent) {
+            super(parent == null ? AsmProxyFactory.class.getClassLoader() : parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package github.javaguide.proxy.jdk;
+
+import github.javaguide.proxy.ProxyFactory;
+import github.javaguide.proxy.RpcClientProxy;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * JDK dynamic proxies, every call goes through {@link RpcClientProxy#invoke}
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class JdkProxyFactory implements ProxyFactory {
+
+    @Override
+    public <T> T getProxy(Class<T> serviceInterface, RpcClientProxy rpcClientProxy) {
+        return serviceInterface.cast(Proxy.newProxyInstance(serviceInterface.getClassLoader(), new Class<?>[]{serviceInterface}, rpcClientProxy));
+    }
+}
@@ -0,0 +1,56 @@
+package github.javaguide.registry;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Abstract class for a service directory: the listeners, and the {@link ServiceProviders} of each service applying
+ * the changes of a debounce window ({@code rpc.registry.debounce-millis}, 100 by default) together.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public abstract class AbstractServiceDirectory implements ServiceDirectory {
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+    private final Set<ServiceChangeListener> listeners = new CopyOnWriteArraySet<>();
+    private final long debounceMillis;
+    protected final ScheduledExecutorService scheduler;
+
+    /**
+     * @param schedulerThreads the threads applying the changes, and whatever else the directory schedules
+     */
+    protected AbstractServiceDirectory(String threadNamePrefix, int schedulerThreads) {
+        this.debounceMillis = RpcConfigUtil.getLong(RpcConfigEnum.REGISTRY_DEBOUNCE_MILLIS, DEFAULT_DEBOUNCE_MILLIS);
+        this.scheduler = new ScheduledThreadPoolExecutor(schedulerThreads, ThreadPoolFactoryUtil.createThreadFactory(threadNamePrefix, true));
+    }
+
+    @Override
+    public void addListener(ServiceChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    protected ServiceProviders newServiceProviders(String rpcServiceName) {
+        return new ServiceProviders(rpcServiceName, this::onServiceChanged, scheduler, debounceMillis);
+    }
+
+    /**
+     * a snapshot of a service replaced the previous one, the listeners are notified in version order
+     */
+    protected void onServiceChanged(ServiceSnapshot snapshot) {
+        for (ServiceChangeListener listener : listeners) {
+            try {
+                listener.onServiceChanged(snapshot);
+            } catch (RuntimeException e) {
+                log.error("listener [{}] of service [{}] fail", listener, snapshot.getRpcServiceName(), e);
+            }
+        }
+    }
+}
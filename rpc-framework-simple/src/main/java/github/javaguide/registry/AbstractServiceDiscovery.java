@@ -0,0 +1,59 @@
+package github.javaguide.registry;
+
+import github.javaguide.enums.LoadBalanceEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.loadbalance.LoadBalance;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Abstract class for a service discovery reading the snapshots of a {@link ServiceDirectory}, the load balancer
+ * of rpc.loadbalance follows the changes of the snapshots
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public abstract class AbstractServiceDiscovery implements ServiceDiscovery {
+    private final LoadBalance loadBalance;
+    private final ServiceDirectory serviceDirectory;
+
+    protected AbstractServiceDiscovery(ServiceDirectory serviceDirectory) {
+        this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class)
+                .getExtension(RpcConfigUtil.getProperty(RpcConfigEnum.LOAD_BALANCE, LoadBalanceEnum.LOADBALANCENEW.getName()));
+        this.serviceDirectory = serviceDirectory;
+        serviceDirectory.addListener(loadBalance);
+    }
+
+    @Override
+    public InetSocketAddress lookupService(RpcRequest rpcRequest) {
+        String rpcServiceName = rpcRequest.getRpcServiceName();
+        ServiceSnapshot snapshot = serviceDirectory.getSnapshot(rpcServiceName);
+        // load balancing
+        ServiceEndpoint endpoint = loadBalance.select(snapshot, rpcRequest);
+        if (endpoint == null) {
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcServiceName);
+        }
+        log.debug("Successfully found the service address:[{}]", endpoint.getAddress());
+        return endpoint.getSocketAddress();
+    }
+
+    @Override
+    public Map<String, String> getServiceMetadata(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        ServiceEndpoint endpoint = getServiceEndpoint(rpcServiceName, inetSocketAddress);
+        return endpoint == null ? Collections.emptyMap() : endpoint.getMetadata();
+    }
+
+    @Override
+    public ServiceEndpoint getServiceEndpoint(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        return serviceDirectory.getSnapshot(rpcServiceName).getEndpoint(inetSocketAddress);
+    }
+}
@@ -0,0 +1,329 @@
+package github.javaguide.registry;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * The metadata a provider registers with a service, as every registry keeps it: a compact binary blob.
+ * <pre>
+ * 0x00 formatVersion(byte) entry*
+ * entry = tag(byte) length(varint) value
+ *   weight, cpus, protocol, start-time   varint
+ *   zone                                 utf-8
+ *   serializer                           code(byte)
+ *   codecs, compressors                  varint, bit n set if the code n is supported
+ *   any other key                        keyLength(varint) key valueLength(varint) value, utf-8
+ * </pre>
+ * A known key is written with its tag only if its value reads back the same, otherwise as any other key, so the
+ * metadata always decodes to the map it was encoded from. An entry with an unknown tag, written by a later
+ * version, is skipped. The data of the providers registered before, one key=value per line, is still read: it
+ * never starts with 0.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class ProviderMetadata {
+    private static final byte FORMAT = 0;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int TAG_ATTRIBUTE = 0;
+    private static final int TAG_WEIGHT = 1;
+    private static final int TAG_ZONE = 2;
+    private static final int TAG_SERIALIZER = 3;
+    private static final int TAG_CODECS = 4;
+    private static final int TAG_COMPRESSORS = 5;
+    private static final int TAG_PROTOCOL = 6;
+    private static final int TAG_CPUS = 7;
+    private static final int TAG_START_TIME = 8;
+    /**
+     * the codes of both enums are below 64, so a set of codes is a long
+     */
+    private static final SerializationTypeEnum[] SERIALIZERS = SerializationTypeEnum.values();
+    private static final CompressTypeEnum[] COMPRESSORS = CompressTypeEnum.values();
+
+    private ProviderMetadata() {
+    }
+
+    public static byte[] encode(Map<String, String> metadata) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + metadata.size() * 8);
+        out.write(FORMAT);
+        out.write(FORMAT_VERSION);
+        ByteArrayOutputStream value = new ByteArrayOutputStream(16);
+        metadata.forEach((key, text) -> {
+            value.reset();
+            int tag = encodeValue(key, text, value);
+            if (tag == TAG_ATTRIBUTE) {
+                writeString(value, key);
+                writeString(value, text);
+            }
+            out.write(tag);
+            writeVarLong(out, value.size());
+            byte[] bytes = value.toByteArray();
+            out.write(bytes, 0, bytes.length);
+        });
+        return out.toByteArray();
+    }
+
+    /**
+     * @return unmodifiable, empty if the data is empty or malformed
+     */
+    public static Map<String, String> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return Collections.emptyMap();
+        }
+        if (data[0] != FORMAT) {
+            return decodeLines(data);
+        }
+        Map<String, String> metadata = new HashMap<>();
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            // the entries describe themselves, a later format version only adds tags
+            in.position(2);
+            while (in.hasRemaining()) {
+                int tag = in.get() & 0xFF;
+                long length = readVarLong(in);
+                if (length > in.remaining()) {
+                    return Collections.emptyMap();
+                }
+                ByteBuffer value = in.slice();
+                value.limit((int) length);
+                in.position(in.position() + (int) length);
+                decodeValue(tag, value, metadata);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    /**
+     * @return the value of the key as a number, the default value if it is absent or not a number
+     */
+    public static long getLong(Map<String, String> metadata, String key, long defaultValue) {
+        String value = metadata.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param names eg:kyro,protostuff
+     * @return bit n set if the serializer of code n is named, the unknown names are ignored
+     */
+    public static long toCodecSet(String names) {
+        long codes = 0;
+        for (String name : names.split(",")) {
+            for (SerializationTypeEnum serializer : SERIALIZERS) {
+                if (serializer.getName().equals(name.trim())) {
+                    codes |= 1L << serializer.getCode();
+                }
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * @param names eg:none,gzip
+     * @return bit n set if the compressor of code n is named, the unknown names are ignored
+     */
+    public static long toCompressorSet(String names) {
+        long codes = 0;
+        for (String name : names.split(",")) {
+            for (CompressTypeEnum compressor : COMPRESSORS) {
+                if (compressor.getName().equals(name.trim())) {
+                    codes |= 1L << compressor.getCode();
+                }
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * @return the tag the value was written with, {@link #TAG_ATTRIBUTE} if nothing was written
+     */
+    private static int encodeValue(String key, String text, ByteArrayOutputStream value) {
+        switch (key) {
+            case RpcConstants.METADATA_WEIGHT:
+                return encodeNumber(TAG_WEIGHT, text, value);
+            case RpcConstants.METADATA_CPUS:
+                return encodeNumber(TAG_CPUS, text, value);
+            case RpcConstants.METADATA_PROTOCOL:
+                return encodeNumber(TAG_PROTOCOL, text, value);
+            case RpcConstants.METADATA_START_TIME:
+                return encodeNumber(TAG_START_TIME, text, value);
+            case RpcConstants.METADATA_ZONE:
+                writeUtf8(value, text);
+                return TAG_ZONE;
+            case RpcConstants.METADATA_SERIALIZER:
+                for (SerializationTypeEnum serializer : SERIALIZERS) {
+                    if (serializer.getName().equals(text)) {
+                        value.write(serializer.getCode());
+                        return TAG_SERIALIZER;
+                    }
+                }
+                return TAG_ATTRIBUTE;
+            case RpcConstants.METADATA_CODECS: {
+                long codes = toCodecSet(text);
+                if (!codecNames(codes).equals(text)) {
+                    return TAG_ATTRIBUTE;
+                }
+                writeVarLong(value, codes);
+                return TAG_CODECS;
+            }
+            case RpcConstants.METADATA_COMPRESSORS: {
+                long codes = toCompressorSet(text);
+                if (!compressorNames(codes).equals(text)) {
+                    return TAG_ATTRIBUTE;
+                }
+                writeVarLong(value, codes);
+                return TAG_COMPRESSORS;
+            }
+            default:
+                return TAG_ATTRIBUTE;
+        }
+    }
+
+    private static int encodeNumber(int tag, String text, ByteArrayOutputStream value) {
+        long number;
+        try {
+            number = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return TAG_ATTRIBUTE;
+        }
+        if (number < 0 || !Long.toString(number).equals(text)) {
+            return TAG_ATTRIBUTE;
+        }
+        writeVarLong(value, number);
+        return tag;
+    }
+
+    private static void decodeValue(int tag, ByteBuffer value, Map<String, String> metadata) {
+        switch (tag) {
+            case TAG_ATTRIBUTE:
+                metadata.put(readString(value), readString(value));
+                break;
+            case TAG_WEIGHT:
+                metadata.put(RpcConstants.METADATA_WEIGHT, Long.toString(readVarLong(value)));
+                break;
+            case TAG_CPUS:
+                metadata.put(RpcConstants.METADATA_CPUS, Long.toString(readVarLong(value)));
+                break;
+            case TAG_PROTOCOL:
+                metadata.put(RpcConstants.METADATA_PROTOCOL, Long.toString(readVarLong(value)));
+                break;
+            case TAG_START_TIME:
+                metadata.put(RpcConstants.METADATA_START_TIME, Long.toString(readVarLong(value)));
+                break;
+            case TAG_ZONE:
+                metadata.put(RpcConstants.METADATA_ZONE, StandardCharsets.UTF_8.decode(value).toString());
+                break;
+            case TAG_SERIALIZER: {
+                String name = SerializationTypeEnum.getName(value.get());
+                if (name != null) {
+                    metadata.put(RpcConstants.METADATA_SERIALIZER, name);
+                }
+                break;
+            }
+            case TAG_CODECS:
+                metadata.put(RpcConstants.METADATA_CODECS, codecNames(readVarLong(value)));
+                break;
+            case TAG_COMPRESSORS:
+                metadata.put(RpcConstants.METADATA_COMPRESSORS, compressorNames(readVarLong(value)));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static String codecNames(long codes) {
+        StringJoiner names = new StringJoiner(",");
+        for (SerializationTypeEnum serializer : SERIALIZERS) {
+            if ((codes & 1L << serializer.getCode()) != 0) {
+                names.add(serializer.getName());
+            }
+        }
+        return names.toString();
+    }
+
+    private static String compressorNames(long codes) {
+        StringJoiner names = new StringJoiner(",");
+        for (CompressTypeEnum compressor : COMPRESSORS) {
+            if ((codes & 1L << compressor.getCode()) != 0) {
+                names.add(compressor.getName());
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * the data of the providers registered before the binary format
+     */
+    private static Map<String, String> decodeLines(byte[] data) {
+        Map<String, String> metadata = new HashMap<>();
+        for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+            int separator = line.indexOf('=');
+            if (separator > 0) {
+                metadata.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+            }
+        }
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeUtf8(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        long length = readVarLong(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("string length " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 7 bits per byte, the lowest first, the high bit set on all but the last byte
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
@@ -0,0 +1,18 @@
+package github.javaguide.registry;
+
+/**
+ * Notified when the providers of a service change
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface ServiceChangeListener {
+    /**
+     * Called on the thread of the directory with each new snapshot but the first of a service, in version order.
+     * {@link ServiceSnapshot#getAdded()} and {@link ServiceSnapshot#getRemoved()} are the difference with the
+     * snapshot of {@link ServiceSnapshot#getPreviousVersion()}.
+     *
+     * @param snapshot the new providers of the service
+     */
+    void onServiceChanged(ServiceSnapshot snapshot);
+}
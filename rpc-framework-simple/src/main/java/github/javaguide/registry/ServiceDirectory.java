@@ -0,0 +1,22 @@
+package github.javaguide.registry;
+
+/**
+ * The providers of the services a client calls, kept up to date by a registry, so a lookup only reads the
+ * current snapshot of a service.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface ServiceDirectory {
+
+    /**
+     * @param rpcServiceName rpc service name eg:github.javaguide.HelloServicetest2version1
+     * @return the current providers of the service, an empty snapshot if it has none
+     */
+    ServiceSnapshot getSnapshot(String rpcServiceName);
+
+    /**
+     * @param listener notified of the changes of every service looked up, once however often it is added
+     */
+    void addListener(ServiceChangeListener listener);
+}
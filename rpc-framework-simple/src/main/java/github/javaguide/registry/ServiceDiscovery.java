@@ -4,6 +4,8 @@ import github.javaguide.extension.SPI;
 import github.javaguide.remoting.dto.RpcRequest;
 
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * service discovery
@@ -20,4 +22,26 @@ public interface ServiceDiscovery {
      * @return service address
      */
     InetSocketAddress lookupService(RpcRequest rpcRequest);
+
+    /**
+     * metadata a provider registered with the service
+     *
+     * @param rpcServiceName    rpc service name
+     * @param inetSocketAddress address of the provider, as returned by {@link #lookupService}
+     * @return the metadata, empty if the provider registered none
+     */
+    default Map<String, String> getServiceMetadata(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * a provider of the service with its metadata parsed
+     *
+     * @param rpcServiceName    rpc service name
+     * @param inetSocketAddress address of the provider, as returned by {@link #lookupService}
+     * @return the provider, null if the discovery keeps no metadata or no longer has the provider
+     */
+    default ServiceEndpoint getServiceEndpoint(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        return null;
+    }
 }
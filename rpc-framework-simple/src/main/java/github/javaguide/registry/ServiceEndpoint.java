@@ -0,0 +1,118 @@
+package github.javaguide.registry;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * A provider of a service as the clients see it: its address, resolved once, and the metadata it registered, parsed
+ * once too so the load balancer and the codec negotiation read fields on every call
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Getter
+@ToString
+public final class ServiceEndpoint {
+    /**
+     * the serializers and compressors of a provider registered before they were advertised
+     */
+    private static final long BASELINE_CODECS = 1L << SerializationTypeEnum.KYRO.getCode()
+            | 1L << SerializationTypeEnum.PROTOSTUFF.getCode() | 1L << SerializationTypeEnum.HESSIAN.getCode();
+    private static final long BASELINE_COMPRESSORS = 1L << CompressTypeEnum.GZIP.getCode();
+    /**
+     * eg:127.0.0.1:9998, the name of the provider in the registry
+     */
+    private final String address;
+    private final InetSocketAddress socketAddress;
+    /**
+     * unmodifiable, empty if the provider registered none
+     */
+    private final Map<String, String> metadata;
+    /**
+     * {@link RpcConstants#DEFAULT_WEIGHT} if the provider registered none
+     */
+    private final int weight;
+    /**
+     * null if the provider registered none
+     */
+    private final String zone;
+    /**
+     * the code of the serializer the provider asks the clients to use, 0 if none
+     */
+    private final byte serializer;
+    /**
+     * the version of the protocol of the provider, 0 if it registered none, see {@link #getFrameVersion()}
+     */
+    private final int protocolVersion;
+    /**
+     * 0 if the provider registered none
+     */
+    private final int cpus;
+    /**
+     * the start time of the provider in milliseconds, 0 if it registered none
+     */
+    private final long startTime;
+    /**
+     * bit n set if the provider understands the serializer of code n, kyro, protostuff and hessian if it registered none
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final long codecs;
+    /**
+     * bit n set if the provider understands the compressor of code n, gzip alone if it registered none
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final long compressors;
+
+    public ServiceEndpoint(String address, InetSocketAddress socketAddress, Map<String, String> metadata) {
+        this.address = address;
+        this.socketAddress = socketAddress;
+        this.metadata = metadata;
+        this.weight = (int) Math.max(0, Math.min(Integer.MAX_VALUE,
+                ProviderMetadata.getLong(metadata, RpcConstants.METADATA_WEIGHT, RpcConstants.DEFAULT_WEIGHT)));
+        this.zone = metadata.get(RpcConstants.METADATA_ZONE);
+        this.serializer = serializerCode(metadata.get(RpcConstants.METADATA_SERIALIZER));
+        this.protocolVersion = (int) ProviderMetadata.getLong(metadata, RpcConstants.METADATA_PROTOCOL, 0);
+        this.cpus = (int) ProviderMetadata.getLong(metadata, RpcConstants.METADATA_CPUS, 0);
+        this.startTime = ProviderMetadata.getLong(metadata, RpcConstants.METADATA_START_TIME, 0);
+        String codecNames = metadata.get(RpcConstants.METADATA_CODECS);
+        this.codecs = codecNames == null ? BASELINE_CODECS : ProviderMetadata.toCodecSet(codecNames);
+        String compressorNames = metadata.get(RpcConstants.METADATA_COMPRESSORS);
+        this.compressors = compressorNames == null ? BASELINE_COMPRESSORS : ProviderMetadata.toCompressorSet(compressorNames);
+    }
+
+    private static byte serializerCode(String name) {
+        if (name == null) {
+            return 0;
+        }
+        try {
+            return SerializationTypeEnum.getCode(name);
+        } catch (IllegalArgumentException e) {
+            // a serializer of a later version
+            return 0;
+        }
+    }
+
+    /**
+     * @return the version of the frames sent to the provider, the baseline one unless it advertised the current one
+     */
+    public byte getFrameVersion() {
+        return protocolVersion >= RpcConstants.VERSION ? RpcConstants.VERSION : RpcConstants.BASELINE_VERSION;
+    }
+
+    public boolean supportsCodec(byte codec) {
+        return (codecs & 1L << codec) != 0;
+    }
+
+    public boolean supportsCompressor(byte compressor) {
+        return (compressors & 1L << compressor) != 0;
+    }
+}
@@ -0,0 +1,249 @@
+package github.javaguide.registry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The providers of one service as a registry reports them, turned into {@link ServiceSnapshot}s. A registry
+ * reports either all the providers ({@link #reset}) or one provider that was added, updated or removed
+ * ({@link #change}). The changes of a debounce window are applied together to the current snapshot, so a rolling
+ * restart of many providers does not rebuild the list, nor the load balancers, once per change. Only the providers
+ * whose data changed are parsed and resolved again.
+ * <p>
+ * Each snapshot but the first goes to the listener, in version order.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class ServiceProviders {
+    private static final AtomicLong VERSION = new AtomicLong();
+    /**
+     * marks a removed provider among the pending changes
+     */
+    private static final byte[] REMOVED = new byte[0];
+    private final String rpcServiceName;
+    private final ServiceChangeListener listener;
+    private final ScheduledExecutorService scheduler;
+    private final long debounceMillis;
+    /**
+     * the data each endpoint of the current snapshot was built from, absent for the endpoints not confirmed by
+     * the registry yet
+     */
+    private final Map<String, byte[]> endpointData = new HashMap<>();
+    /**
+     * key: address of a provider, value: its last data since the snapshot
+     */
+    private final Map<String, byte[]> pendingChanges = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private volatile ServiceSnapshot snapshot;
+
+    /**
+     * @param scheduler      applies the changes once the debounce window is over
+     * @param debounceMillis 0 to apply each change at once
+     */
+    public ServiceProviders(String rpcServiceName, ServiceChangeListener listener, ScheduledExecutorService scheduler, long debounceMillis) {
+        this.rpcServiceName = rpcServiceName;
+        this.listener = listener;
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * @return the current snapshot, null until the providers were reset or restored
+     */
+    public ServiceSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * the providers known before the registry answers, saved by an earlier run. The snapshot is stale.
+     *
+     * @param endpoints key: address eg:127.0.0.1:9998, value: metadata
+     */
+    public synchronized ServiceSnapshot restore(Map<String, Map<String, String>> endpoints) {
+        List<ServiceEndpoint> restored = new ArrayList<>(endpoints.size());
+        endpoints.forEach((address, metadata) -> {
+            ServiceEndpoint endpoint = toEndpoint(address, metadata);
+            if (endpoint != null) {
+                restored.add(endpoint);
+            }
+        });
+        snapshot = new ServiceSnapshot(rpcServiceName, VERSION.incrementAndGet(), restored, 0, restored, Collections.emptyList(), true);
+        return snapshot;
+    }
+
+    /**
+     * all the providers, as the registry lists them. The endpoints of the current snapshot that did not change are
+     * kept, the listener gets the difference unless this is the first snapshot.
+     *
+     * @param providers key: address eg:127.0.0.1:9998, value: the data of the provider
+     */
+    public synchronized ServiceSnapshot reset(Map<String, byte[]> providers) {
+        ServiceSnapshot previous = snapshot;
+        List<ServiceEndpoint> endpoints = new ArrayList<>(providers.size());
+        List<ServiceEndpoint> added = new ArrayList<>();
+        List<ServiceEndpoint> removed = new ArrayList<>();
+        Set<String> addresses = new HashSet<>();
+        for (Map.Entry<String, byte[]> provider : providers.entrySet()) {
+            String address = provider.getKey();
+            ServiceEndpoint current = previous == null ? null : previous.getEndpoint(address);
+            ServiceEndpoint endpoint = rebuild(current, address, provider.getValue());
+            if (current != null && endpoint != current) {
+                removed.add(current);
+            }
+            if (endpoint != null) {
+                endpoints.add(endpoint);
+                addresses.add(address);
+                endpointData.put(address, provider.getValue());
+                if (endpoint != current) {
+                    added.add(endpoint);
+                }
+            }
+        }
+        endpointData.keySet().retainAll(addresses);
+        ServiceSnapshot next;
+        if (previous == null) {
+            next = new ServiceSnapshot(rpcServiceName, VERSION.incrementAndGet(), endpoints);
+        } else {
+            for (ServiceEndpoint endpoint : previous.getEndpoints()) {
+                if (!addresses.contains(endpoint.getAddress())) {
+                    removed.add(endpoint);
+                }
+            }
+            next = new ServiceSnapshot(rpcServiceName, VERSION.incrementAndGet(), endpoints, previous.getVersion(), added, removed);
+        }
+        snapshot = next;
+        log.info("Service [{}] has [{}] providers", rpcServiceName, endpoints.size());
+        if (previous != null) {
+            listener.onServiceChanged(next);
+        }
+        // the changes reported before the first snapshot
+        if (!pendingChanges.isEmpty() && !flushScheduled) {
+            scheduleFlush();
+        }
+        return next;
+    }
+
+    /**
+     * a provider was added, updated or removed, applied with the other changes of the debounce window
+     *
+     * @param address eg:127.0.0.1:9998
+     * @param data    the data of the provider, null if it was removed
+     */
+    public void change(String address, byte[] data) {
+        synchronized (this) {
+            pendingChanges.put(address, data == null ? REMOVED : data);
+            if (flushScheduled || snapshot == null) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        if (debounceMillis <= 0) {
+            flush();
+        } else {
+            scheduler.schedule(this::flush, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param stale whether the registry can not confirm the providers any more, a snapshot with the same version
+     *              replaces the current one
+     */
+    public synchronized void markStale(boolean stale) {
+        if (snapshot != null) {
+            snapshot = snapshot.withStale(stale);
+        }
+    }
+
+    private void scheduleFlush() {
+        flushScheduled = true;
+        scheduler.schedule(this::flush, Math.max(debounceMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * applies the changes of the debounce window to the current snapshot
+     */
+    private synchronized void flush() {
+        flushScheduled = false;
+        ServiceSnapshot previous = snapshot;
+        Map<String, ServiceEndpoint> endpoints = new LinkedHashMap<>();
+        for (ServiceEndpoint endpoint : previous.getEndpoints()) {
+            endpoints.put(endpoint.getAddress(), endpoint);
+        }
+        List<ServiceEndpoint> added = new ArrayList<>();
+        List<ServiceEndpoint> removed = new ArrayList<>();
+        for (Map.Entry<String, byte[]> change : pendingChanges.entrySet()) {
+            String address = change.getKey();
+            byte[] data = change.getValue();
+            ServiceEndpoint current = endpoints.get(address);
+            ServiceEndpoint endpoint = data == REMOVED ? null : rebuild(current, address, data);
+            if (endpoint == current) {
+                if (current != null) {
+                    endpointData.put(address, data);
+                }
+                continue;
+            }
+            if (current != null) {
+                endpoints.remove(address);
+                endpointData.remove(address);
+                removed.add(current);
+            }
+            if (endpoint != null) {
+                endpoints.put(address, endpoint);
+                endpointData.put(address, data);
+                added.add(endpoint);
+            }
+        }
+        pendingChanges.clear();
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        ServiceSnapshot next = new ServiceSnapshot(rpcServiceName, VERSION.incrementAndGet(), new ArrayList<>(endpoints.values()),
+                previous.getVersion(), added, removed, previous.isStale());
+        snapshot = next;
+        log.info("Service [{}] has [{}] providers, [{}] added, [{}] removed", rpcServiceName,
+                endpoints.size(), added.size(), removed.size());
+        listener.onServiceChanged(next);
+    }
+
+    /**
+     * @return the current endpoint if its data or its metadata did not change, a new one otherwise, null if the
+     * address is not a host:port
+     */
+    private ServiceEndpoint rebuild(ServiceEndpoint current, String address, byte[] data) {
+        if (current != null && Arrays.equals(endpointData.get(address), data)) {
+            return current;
+        }
+        Map<String, String> metadata = ProviderMetadata.decode(data);
+        return current != null && current.getMetadata().equals(metadata) ? current : toEndpoint(address, metadata);
+    }
+
+    private ServiceEndpoint toEndpoint(String address, Map<String, String> metadata) {
+        int separator = address.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("ignore provider [{}] of service [{}], not a host:port", address, rpcServiceName);
+            return null;
+        }
+        try {
+            int port = Integer.parseInt(address.substring(separator + 1));
+            return new ServiceEndpoint(address, new InetSocketAddress(address.substring(0, separator), port), metadata);
+        } catch (IllegalArgumentException e) {
+            log.warn("ignore provider [{}] of service [{}], not a host:port", address, rpcServiceName);
+            return null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package github.javaguide.registry;
 import github.javaguide.extension.SPI;
 
 import java.net.InetSocketAddress;
+import java.util.Map;
 
 /**
  * service registration
@@ -20,4 +21,33 @@ public interface ServiceRegistry {
      */
     void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress);
 
+    /**
+     * register service together with metadata the clients can read through {@link ServiceDiscovery#getServiceMetadata}
+     *
+     * @param rpcServiceName    rpc service name
+     * @param inetSocketAddress service address
+     * @param metadata          provider metadata, a registry which cannot keep it drops it
+     */
+    default void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, Map<String, String> metadata) {
+        registerService(rpcServiceName, inetSocketAddress);
+    }
+
+    /**
+     * register services of the same address at once
+     *
+     * @param serviceMetadata   key: rpc service name, value: provider metadata
+     * @param inetSocketAddress service address
+     */
+    default void registerServices(Map<String, Map<String, String>> serviceMetadata, InetSocketAddress inetSocketAddress) {
+        serviceMetadata.forEach((rpcServiceName, metadata) -> registerService(rpcServiceName, inetSocketAddress, metadata));
+    }
+
+    /**
+     * unregister all the services of an address registered by this process, when the server shuts down
+     *
+     * @param inetSocketAddress service address
+     */
+    default void unregisterServices(InetSocketAddress inetSocketAddress) {
+    }
+
 }
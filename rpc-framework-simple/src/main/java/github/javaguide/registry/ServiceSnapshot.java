@@ -0,0 +1,109 @@
+package github.javaguide.registry;
+
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The providers of a service at one point in time. A snapshot never changes, the directory replaces it by a new
+ * one with a higher version when the providers change, so a load balancer may keep what it derived from a snapshot
+ * as long as the version is the same. A snapshot also tells what changed since the previous one, so what was
+ * derived from the previous snapshot can be updated instead of built again.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Getter
+public final class ServiceSnapshot {
+    private final String rpcServiceName;
+    private final long version;
+    private final List<ServiceEndpoint> endpoints;
+    /**
+     * the addresses of the endpoints in the same order, the same list for the life of the snapshot
+     */
+    private final List<String> addresses;
+    /**
+     * the version {@link #added} and {@link #removed} are relative to, 0 for the first snapshot of a service
+     */
+    private final long previousVersion;
+    /**
+     * the endpoints that are new in this snapshot, all of them for the first snapshot of a service
+     */
+    private final List<ServiceEndpoint> added;
+    /**
+     * the endpoints of the previous snapshot that are not in this one. A provider whose metadata changed is
+     * removed and added again.
+     */
+    private final List<ServiceEndpoint> removed;
+    /**
+     * the providers were not confirmed by the registry: loaded from disk, or the registry is unreachable
+     */
+    private final boolean stale;
+    @Getter(lombok.AccessLevel.NONE)
+    private final Map<String, ServiceEndpoint> endpointsByAddress;
+    @Getter(lombok.AccessLevel.NONE)
+    private final Map<InetSocketAddress, ServiceEndpoint> endpointsBySocketAddress;
+
+    /**
+     * the first snapshot of a service
+     */
+    public ServiceSnapshot(String rpcServiceName, long version, List<ServiceEndpoint> endpoints) {
+        this(rpcServiceName, version, endpoints, 0, endpoints, Collections.emptyList());
+    }
+
+    public ServiceSnapshot(String rpcServiceName, long version, List<ServiceEndpoint> endpoints,
+                           long previousVersion, List<ServiceEndpoint> added, List<ServiceEndpoint> removed) {
+        this(rpcServiceName, version, endpoints, previousVersion, added, removed, false);
+    }
+
+    public ServiceSnapshot(String rpcServiceName, long version, List<ServiceEndpoint> endpoints,
+                           long previousVersion, List<ServiceEndpoint> added, List<ServiceEndpoint> removed, boolean stale) {
+        this.rpcServiceName = rpcServiceName;
+        this.version = version;
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        List<String> addressList = new ArrayList<>(endpoints.size());
+        this.endpointsByAddress = new HashMap<>(endpoints.size() * 2);
+        this.endpointsBySocketAddress = new HashMap<>(endpoints.size() * 2);
+        for (ServiceEndpoint endpoint : endpoints) {
+            addressList.add(endpoint.getAddress());
+            endpointsByAddress.put(endpoint.getAddress(), endpoint);
+            endpointsBySocketAddress.put(endpoint.getSocketAddress(), endpoint);
+        }
+        this.addresses = Collections.unmodifiableList(addressList);
+        this.previousVersion = previousVersion;
+        this.added = Collections.unmodifiableList(new ArrayList<>(added));
+        this.removed = Collections.unmodifiableList(new ArrayList<>(removed));
+        this.stale = stale;
+    }
+
+    /**
+     * @return the same providers with the same version, marked stale or not
+     */
+    public ServiceSnapshot withStale(boolean stale) {
+        return stale == this.stale ? this : new ServiceSnapshot(rpcServiceName, version, endpoints, previousVersion, added, removed, stale);
+    }
+
+    public boolean isEmpty() {
+        return endpoints.isEmpty();
+    }
+
+    /**
+     * @param address eg:127.0.0.1:9998
+     * @return the endpoint, null if the service has no such provider
+     */
+    public ServiceEndpoint getEndpoint(String address) {
+        return endpointsByAddress.get(address);
+    }
+
+    /**
+     * @return the endpoint, null if the service has no such provider
+     */
+    public ServiceEndpoint getEndpoint(InetSocketAddress socketAddress) {
+        return endpointsBySocketAddress.get(socketAddress);
+    }
+}
@@ -0,0 +1,165 @@
+package github.javaguide.registry;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The providers a client discovered, kept on disk so that the next start does not wait for the registry and an
+ * outage of the registry does not leave the client without providers.
+ * <p>
+ * The file is replaced as a whole: written next to the old one, then renamed over it, so a reader sees the old or
+ * the new file, never a part of it. It is read through a memory mapping. Layout, big endian:
+ * <pre>
+ * magic(int) format(int) serviceCount(int)
+ *   service(string) savedAt(long) endpointCount(int)
+ *     address(string) metadataCount(int) (key(string) value(string))*
+ * string = length(int) utf-8 bytes
+ * </pre>
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class ServiceSnapshotFile {
+    private static final int MAGIC = 0x52504353;
+    private static final int FORMAT = 1;
+
+    private ServiceSnapshotFile() {
+    }
+
+    /**
+     * the providers of a service as they were saved
+     */
+    @AllArgsConstructor
+    @Getter
+    public static final class CachedService {
+        /**
+         * when the providers were last seen in the registry, in milliseconds since the epoch
+         */
+        private final long savedAt;
+        /**
+         * key: address eg:127.0.0.1:9998, value: metadata
+         */
+        private final Map<String, Map<String, String>> endpoints;
+    }
+
+    /**
+     * @return key: rpc service name, empty if the file does not exist or can not be read
+     */
+    public static Map<String, CachedService> load(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                log.warn("ignore registry snapshot [{}], unknown format", file);
+                return Collections.emptyMap();
+            }
+            int serviceCount = buffer.getInt();
+            Map<String, CachedService> services = new HashMap<>(serviceCount * 2);
+            for (int i = 0; i < serviceCount; i++) {
+                String rpcServiceName = readString(buffer);
+                long savedAt = buffer.getLong();
+                int endpointCount = buffer.getInt();
+                Map<String, Map<String, String>> endpoints = new LinkedHashMap<>(endpointCount * 2);
+                for (int j = 0; j < endpointCount; j++) {
+                    String address = readString(buffer);
+                    int metadataCount = buffer.getInt();
+                    Map<String, String> metadata = metadataCount == 0 ? Collections.emptyMap() : new HashMap<>(metadataCount * 2);
+                    for (int k = 0; k < metadataCount; k++) {
+                        metadata.put(readString(buffer), readString(buffer));
+                    }
+                    endpoints.put(address, metadataCount == 0 ? metadata : Collections.unmodifiableMap(metadata));
+                }
+                services.put(rpcServiceName, new CachedService(savedAt, endpoints));
+            }
+            log.info("Loaded the providers of [{}] services from [{}]", services.size(), file);
+            return services;
+        } catch (NoSuchFileException e) {
+            return Collections.emptyMap();
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("ignore registry snapshot [{}], it can not be read", file, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * replace the file atomically
+     *
+     * @param services key: rpc service name
+     */
+    public static void save(Path file, Map<String, CachedService> services) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(services.size());
+            for (Map.Entry<String, CachedService> service : services.entrySet()) {
+                writeString(out, service.getKey());
+                out.writeLong(service.getValue().getSavedAt());
+                out.writeInt(service.getValue().getEndpoints().size());
+                for (Map.Entry<String, Map<String, String>> endpoint : service.getValue().getEndpoints().entrySet()) {
+                    writeString(out, endpoint.getKey());
+                    out.writeInt(endpoint.getValue().size());
+                    for (Map.Entry<String, String> metadata : endpoint.getValue().entrySet()) {
+                        writeString(out, metadata.getKey());
+                        writeString(out, metadata.getValue());
+                    }
+                }
+            }
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
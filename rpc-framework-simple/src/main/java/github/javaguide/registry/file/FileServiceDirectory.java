@@ -0,0 +1,147 @@
+package github.javaguide.registry.file;
+
+import github.javaguide.exception.RpcException;
+import github.javaguide.registry.AbstractServiceDirectory;
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceProviders;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.file.util.FileRegistryUtils;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The providers of the services a client calls, read from the file registry and followed through a
+ * {@link WatchService}. The first lookup of a service lists its directory and watches it, later lookups only read
+ * the current snapshot. An entry created, replaced or removed is read again and applied to the snapshot as a
+ * zookeeper event would be.
+ * <p>
+ * The leases of the providers are checked every few seconds, the entries of a provider whose process stopped are
+ * removed. Where the file system has no native watch (macOS), the JDK polls the directories and the changes take
+ * seconds to arrive.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class FileServiceDirectory extends AbstractServiceDirectory {
+    private static final long LEASE_CHECK_MILLIS = 3000;
+    private final Path registryDirectory;
+    private final WatchService watchService;
+    private final Map<String, ServiceProviders> services = new ConcurrentHashMap<>();
+    /**
+     * the services by their directory, known before the directory is watched
+     */
+    private final Map<Path, ServiceProviders> watchedDirectories = new ConcurrentHashMap<>();
+
+    public FileServiceDirectory() {
+        this(FileRegistryUtils.getRegistryDirectory());
+    }
+
+    FileServiceDirectory(Path registryDirectory) {
+        super("registry-file-directory", 1);
+        this.registryDirectory = registryDirectory;
+        try {
+            this.watchService = registryDirectory.getFileSystem().newWatchService();
+        } catch (IOException e) {
+            throw new RpcException("watch registry directory [" + registryDirectory + "] fail", e);
+        }
+        ThreadPoolFactoryUtil.createThreadFactory("registry-file-watcher", true).newThread(this::processEvents).start();
+        scheduler.scheduleWithFixedDelay(this::checkLeases, LEASE_CHECK_MILLIS, LEASE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ServiceSnapshot getSnapshot(String rpcServiceName) {
+        ServiceProviders providers = services.get(rpcServiceName);
+        if (providers == null) {
+            providers = services.computeIfAbsent(rpcServiceName, this::watch);
+        }
+        return providers.getSnapshot();
+    }
+
+    /**
+     * the directory is watched before it is listed, the events of the entries already listed change nothing
+     */
+    private ServiceProviders watch(String rpcServiceName) {
+        Path serviceDirectory = registryDirectory.resolve(rpcServiceName);
+        ServiceProviders providers = newServiceProviders(rpcServiceName);
+        synchronized (providers) {
+            watchedDirectories.put(serviceDirectory, providers);
+            try {
+                Files.createDirectories(serviceDirectory);
+                serviceDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                watchedDirectories.remove(serviceDirectory);
+                throw new RpcException("watch providers in [" + serviceDirectory + "] fail", e);
+            }
+            providers.reset(FileRegistryUtils.readEntries(serviceDirectory));
+        }
+        return providers;
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path serviceDirectory = (Path) watchKey.watchable();
+            ServiceProviders providers = watchedDirectories.get(serviceDirectory);
+            try {
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    processEvent(serviceDirectory, providers, event);
+                }
+            } catch (RuntimeException e) {
+                log.error("process the events of [{}] fail", serviceDirectory, e);
+            }
+            if (!watchKey.reset()) {
+                log.warn("Stop watching [{}], the directory is no longer accessible", serviceDirectory);
+            }
+        }
+    }
+
+    private void processEvent(Path serviceDirectory, ServiceProviders providers, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            log.info("Events of [{}] were lost, read all its providers again", serviceDirectory);
+            providers.reset(FileRegistryUtils.readEntries(serviceDirectory));
+            return;
+        }
+        String fileName = event.context().toString();
+        String address = FileRegistryUtils.toAddress(fileName);
+        if (address != null) {
+            // null if removed meanwhile, the removal is the next event
+            providers.change(address, FileRegistryUtils.readEntry(serviceDirectory.resolve(fileName)));
+        }
+    }
+
+    /**
+     * removing the entries of a provider is an event of every service it provides
+     */
+    private void checkLeases() {
+        Set<String> addresses = new HashSet<>();
+        for (ServiceProviders providers : services.values()) {
+            for (ServiceEndpoint endpoint : providers.getSnapshot().getEndpoints()) {
+                addresses.add(endpoint.getAddress());
+            }
+        }
+        for (String address : addresses) {
+            FileRegistryUtils.removeExpiredProvider(registryDirectory, address);
+        }
+    }
+}
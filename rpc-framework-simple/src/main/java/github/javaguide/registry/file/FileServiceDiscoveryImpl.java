@@ -0,0 +1,17 @@
+package github.javaguide.registry.file;
+
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.registry.AbstractServiceDiscovery;
+
+/**
+ * service discovery based on the file registry
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class FileServiceDiscoveryImpl extends AbstractServiceDiscovery {
+
+    public FileServiceDiscoveryImpl() {
+        super(SingletonFactory.getInstance(FileServiceDirectory.class));
+    }
+}
@@ -0,0 +1,72 @@
+package github.javaguide.registry.file;
+
+import github.javaguide.registry.ProviderMetadata;
+import github.javaguide.registry.ServiceRegistry;
+import github.javaguide.registry.file.util.FileRegistryUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * service registration based on a directory shared by the processes of one host ({@code rpc.registry.file.directory}),
+ * for development and single host deployments that do not run zookeeper. A provider is an entry in the directory
+ * of its service. The process keeps the lease of the provider locked, so the entries of a provider that dies
+ * without unregistering are removed by the clients.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class FileServiceRegistryImpl implements ServiceRegistry {
+    private final Path registryDirectory;
+    /**
+     * the entries written by this process
+     */
+    private final Set<Path> registeredEntries = ConcurrentHashMap.newKeySet();
+
+    public FileServiceRegistryImpl() {
+        this(FileRegistryUtils.getRegistryDirectory());
+    }
+
+    FileServiceRegistryImpl(Path registryDirectory) {
+        this.registryDirectory = registryDirectory;
+    }
+
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        registerService(rpcServiceName, inetSocketAddress, Collections.emptyMap());
+    }
+
+    /**
+     * the metadata is kept as the content of the entry
+     */
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, Map<String, String> metadata) {
+        String address = FileRegistryUtils.toAddress(inetSocketAddress);
+        FileRegistryUtils.acquireLease(registryDirectory, address);
+        Path entry = registryDirectory.resolve(rpcServiceName).resolve(FileRegistryUtils.toFileName(address));
+        FileRegistryUtils.writeEntry(entry, ProviderMetadata.encode(metadata));
+        registeredEntries.add(entry);
+        log.info("Registered provider [{}] of service [{}] in [{}]", address, rpcServiceName, registryDirectory);
+    }
+
+    @Override
+    public void unregisterServices(InetSocketAddress inetSocketAddress) {
+        String address = FileRegistryUtils.toAddress(inetSocketAddress);
+        String fileName = FileRegistryUtils.toFileName(address);
+        registeredEntries.removeIf(entry -> {
+            if (!entry.getFileName().toString().equals(fileName)) {
+                return false;
+            }
+            FileRegistryUtils.deleteEntry(entry);
+            return true;
+        });
+        FileRegistryUtils.releaseLease(registryDirectory, address);
+        log.info("All registered services of [{}] are removed from [{}]", address, registryDirectory);
+    }
+}
@@ -0,0 +1,230 @@
+package github.javaguide.registry.file.util;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utils of the file registry. The registry is a directory shared by the providers and the clients of one host:
+ * <pre>
+ * registry directory
+ *   github.javaguide.HelloServicetest2version1/   one directory per rpc service name
+ *     127.0.0.1_9998                               one entry per provider, its metadata as the content
+ *   .leases/
+ *     127.0.0.1_9998.lock                          locked by the process of the provider as long as it runs
+ * </pre>
+ * An entry is replaced as a whole, written next to the old one and renamed over it, so a reader never sees a part
+ * of it. The files whose name starts with a dot are not entries.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class FileRegistryUtils {
+
+    public static final String LEASE_DIRECTORY = ".leases";
+    private static final String LEASE_SUFFIX = ".lock";
+    /**
+     * key: lease of a provider of this process, value: the channel holding its lock
+     */
+    private static final Map<Path, FileChannel> LEASE_MAP = new ConcurrentHashMap<>();
+
+    private FileRegistryUtils() {
+    }
+
+    /**
+     * @return {@code rpc.registry.file.directory}, guide-rpc-registry in the temporary directory by default
+     */
+    public static Path getRegistryDirectory() {
+        String directory = RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_FILE_DIRECTORY);
+        return StringUtil.isBlank(directory) ? Paths.get(System.getProperty("java.io.tmpdir"), "guide-rpc-registry") : Paths.get(directory);
+    }
+
+    /**
+     * @return the address eg:127.0.0.1:9998, as zookeeper names the provider
+     */
+    public static String toAddress(InetSocketAddress inetSocketAddress) {
+        String address = inetSocketAddress.toString();
+        return address.substring(address.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return the file name of the entry of a provider, eg:127.0.0.1_9998
+     */
+    public static String toFileName(String address) {
+        int separator = address.lastIndexOf(':');
+        return address.substring(0, separator) + '_' + address.substring(separator + 1);
+    }
+
+    /**
+     * @return the address of the provider of an entry, null if the file is not an entry
+     */
+    public static String toAddress(String fileName) {
+        int separator = fileName.lastIndexOf('_');
+        if (fileName.startsWith(".") || separator <= 0) {
+            return null;
+        }
+        return fileName.substring(0, separator) + ':' + fileName.substring(separator + 1);
+    }
+
+    /**
+     * @return key: address of a provider, value: its metadata
+     */
+    public static Map<String, byte[]> readEntries(Path serviceDirectory) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(serviceDirectory)) {
+            for (Path file : files) {
+                String address = toAddress(file.getFileName().toString());
+                byte[] data = address == null ? null : readEntry(file);
+                if (data != null) {
+                    entries.put(address, data);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return entries;
+        } catch (IOException e) {
+            throw new RpcException("read the providers in [" + serviceDirectory + "] fail", e);
+        }
+        return entries;
+    }
+
+    /**
+     * @return the content of the entry, null if it was removed
+     */
+    public static byte[] readEntry(Path entry) {
+        try {
+            return Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("read registry entry [{}] fail", entry, e);
+            return null;
+        }
+    }
+
+    /**
+     * replace the entry atomically, the registry is not meant to survive a crash of the host so it is not forced
+     * to disk
+     */
+    public static void writeEntry(Path entry, byte[] data) {
+        try {
+            Path directory = entry.getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "." + entry.getFileName(), ".tmp");
+            try {
+                Files.write(temp, data);
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new RpcException("write registry entry [" + entry + "] fail", e);
+        }
+    }
+
+    public static void deleteEntry(Path entry) {
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            log.error("delete registry entry [{}] fail", entry, e);
+        }
+    }
+
+    /**
+     * lock the lease of a provider of this process until {@link #releaseLease}, the other processes then know it
+     * is alive
+     */
+    public static void acquireLease(Path registryDirectory, String address) {
+        LEASE_MAP.computeIfAbsent(getLeasePath(registryDirectory, address), lease -> {
+            FileChannel channel = null;
+            try {
+                Files.createDirectories(lease.getParent());
+                channel = FileChannel.open(lease, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                // waits for a client checking the lease at the same time
+                channel.lock();
+                return channel;
+            } catch (IOException e) {
+                closeQuietly(channel);
+                throw new RpcException("lock registry lease [" + lease + "] fail", e);
+            }
+        });
+    }
+
+    public static void releaseLease(Path registryDirectory, String address) {
+        closeQuietly(LEASE_MAP.remove(getLeasePath(registryDirectory, address)));
+    }
+
+    /**
+     * remove the entries of a provider whose process stopped without removing them: its lease is not locked, or
+     * does not exist. The entries are removed under the lock of the lease, so a provider starting again on the
+     * same address writes its entries afterwards.
+     *
+     * @return whether the provider was removed
+     */
+    public static boolean removeExpiredProvider(Path registryDirectory, String address) {
+        Path lease = getLeasePath(registryDirectory, address);
+        if (LEASE_MAP.containsKey(lease)) {
+            return false;
+        }
+        // closing a channel may release every lock of this process on the file, a lease of this process is never opened here
+        try {
+            Files.createDirectories(lease.getParent());
+            try (FileChannel channel = FileChannel.open(lease, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+                if (lock == null) {
+                    return false;
+                }
+                try (DirectoryStream<Path> serviceDirectories = Files.newDirectoryStream(registryDirectory,
+                        path -> !path.getFileName().toString().startsWith("."))) {
+                    for (Path serviceDirectory : serviceDirectories) {
+                        deleteEntry(serviceDirectory.resolve(toFileName(address)));
+                    }
+                }
+                log.info("Removed the provider [{}] from [{}], its process stopped", address, registryDirectory);
+                return true;
+            }
+        } catch (OverlappingFileLockException e) {
+            return false;
+        } catch (IOException e) {
+            log.warn("check registry lease [{}] fail", lease, e);
+            return false;
+        }
+    }
+
+    private static Path getLeasePath(Path registryDirectory, String address) {
+        return registryDirectory.toAbsolutePath().resolve(LEASE_DIRECTORY).resolve(toFileName(address) + LEASE_SUFFIX);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("close registry lease fail", e);
+            }
+        }
+    }
+}
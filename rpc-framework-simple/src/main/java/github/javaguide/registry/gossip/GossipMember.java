@@ -0,0 +1,49 @@
+package github.javaguide.registry.gossip;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * What a node of the gossip registry knows about a member at one incarnation. A member raises its incarnation
+ * each time its services change or it refutes a suspicion, so the state with the higher incarnation wins.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@Getter
+@ToString(exclude = "services")
+public final class GossipMember {
+
+    public enum Status {
+        ALIVE, SUSPECT, DEAD
+    }
+
+    /**
+     * the gossip address of the member eg:127.0.0.1:7946
+     */
+    private final String id;
+    private final InetSocketAddress socketAddress;
+    private final Status status;
+    private final int incarnation;
+    /**
+     * the address of the rpc server of the member eg:127.0.0.1:9998, null if it provides no service
+     */
+    private final String providerAddress;
+    /**
+     * key: rpc service name, value: the metadata of the provider, unmodifiable
+     */
+    private final Map<String, byte[]> services;
+
+    public boolean isLive() {
+        return status != Status.DEAD;
+    }
+
+    public GossipMember withStatus(Status status) {
+        return new GossipMember(id, socketAddress, status, incarnation, providerAddress, services);
+    }
+}
@@ -0,0 +1,188 @@
+package github.javaguide.registry.gossip;
+
+import io.netty.buffer.ByteBuf;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A datagram of the gossip registry. Every message carries member states: the updates piggybacked on a probe, or
+ * a part of the whole membership for a sync. Layout:
+ * <pre>
+ * type(byte) sequence(int) target(string, ping-req only) memberCount(short)
+ *   id(string) status(byte) incarnation(int) providerAddress(string, empty if none) serviceCount(short)
+ *     rpcServiceName(string) metadataLength(int) metadata
+ * string = length(short) utf-8 bytes
+ * </pre>
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@Getter
+final class GossipMessage {
+
+    enum Type {
+        /**
+         * a probe, answered by an ack with the same sequence
+         */
+        PING,
+        ACK,
+        /**
+         * asks the receiver to probe the target and to forward its ack
+         */
+        PING_REQ,
+        /**
+         * the whole membership of the sender, answered by a sync reply with that of the receiver
+         */
+        SYNC,
+        SYNC_REPLY,
+        /**
+         * updates only, not answered
+         */
+        GOSSIP
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final GossipMember.Status[] STATUSES = GossipMember.Status.values();
+
+    private final Type type;
+    private final int sequence;
+    /**
+     * the member to probe, null but for a ping-req
+     */
+    private final String target;
+    private final List<GossipMember> members;
+
+    void encode(ByteBuf out) {
+        out.writeByte(type.ordinal());
+        out.writeInt(sequence);
+        if (type == Type.PING_REQ) {
+            writeString(out, target);
+        }
+        out.writeShort(members.size());
+        for (GossipMember member : members) {
+            encodeMember(out, member);
+        }
+    }
+
+    static void encodeMember(ByteBuf out, GossipMember member) {
+        writeString(out, member.getId());
+        out.writeByte(member.getStatus().ordinal());
+        out.writeInt(member.getIncarnation());
+        writeString(out, member.getProviderAddress() == null ? "" : member.getProviderAddress());
+        out.writeShort(member.getServices().size());
+        for (Map.Entry<String, byte[]> service : member.getServices().entrySet()) {
+            writeString(out, service.getKey());
+            out.writeInt(service.getValue().length);
+            out.writeBytes(service.getValue());
+        }
+    }
+
+    /**
+     * @return about the size of the encoded member, exact for ascii names
+     */
+    static int encodedSize(GossipMember member) {
+        int size = 2 + member.getId().length() + 1 + 4 + 2 + (member.getProviderAddress() == null ? 0 : member.getProviderAddress().length()) + 2;
+        for (Map.Entry<String, byte[]> service : member.getServices().entrySet()) {
+            size += 2 + service.getKey().length() + 4 + service.getValue().length;
+        }
+        return size;
+    }
+
+    /**
+     * @param budget the encoded size of the members of a part
+     * @return the members in consecutive parts within the budget, a member larger than the budget alone in its part,
+     * one empty part if there is no member
+     */
+    static List<List<GossipMember>> split(List<GossipMember> members, int budget) {
+        List<List<GossipMember>> parts = new ArrayList<>();
+        List<GossipMember> part = new ArrayList<>();
+        int size = 0;
+        for (GossipMember member : members) {
+            int memberSize = encodedSize(member);
+            if (size + memberSize > budget && !part.isEmpty()) {
+                parts.add(part);
+                part = new ArrayList<>();
+                size = 0;
+            }
+            part.add(member);
+            size += memberSize;
+        }
+        parts.add(part);
+        return parts;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the datagram is truncated
+     * @throws IllegalArgumentException   if the datagram is not a gossip message
+     */
+    static GossipMessage decode(ByteBuf in) {
+        int typeIndex = in.readUnsignedByte();
+        if (typeIndex >= TYPES.length) {
+            throw new IllegalArgumentException("unknown gossip message type " + typeIndex);
+        }
+        Type type = TYPES[typeIndex];
+        int sequence = in.readInt();
+        String target = type == Type.PING_REQ ? readString(in) : null;
+        int memberCount = in.readUnsignedShort();
+        List<GossipMember> members = memberCount == 0 ? Collections.emptyList() : new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(decodeMember(in));
+        }
+        return new GossipMessage(type, sequence, target, members);
+    }
+
+    private static GossipMember decodeMember(ByteBuf in) {
+        String id = readString(in);
+        int statusIndex = in.readUnsignedByte();
+        if (statusIndex >= STATUSES.length) {
+            throw new IllegalArgumentException("unknown gossip member status " + statusIndex);
+        }
+        int incarnation = in.readInt();
+        String providerAddress = readString(in);
+        int serviceCount = in.readUnsignedShort();
+        Map<String, byte[]> services = new LinkedHashMap<>(serviceCount * 2);
+        for (int i = 0; i < serviceCount; i++) {
+            String rpcServiceName = readString(in);
+            int length = in.readInt();
+            if (length < 0 || length > in.readableBytes()) {
+                throw new IllegalArgumentException("metadata length " + length);
+            }
+            byte[] metadata = new byte[length];
+            in.readBytes(metadata);
+            services.put(rpcServiceName, metadata);
+        }
+        return new GossipMember(id, toSocketAddress(id), STATUSES[statusIndex], incarnation,
+                providerAddress.isEmpty() ? null : providerAddress, Collections.unmodifiableMap(services));
+    }
+
+    /**
+     * @param id eg:127.0.0.1:7946
+     */
+    static InetSocketAddress toSocketAddress(String id) {
+        int separator = id.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("gossip member [" + id + "] is not a host:port");
+        }
+        return new InetSocketAddress(id.substring(0, separator), Integer.parseInt(id.substring(separator + 1)));
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = in.readUnsignedShort();
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,548 @@
+package github.javaguide.registry.gossip;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A member of the gossip registry, SWIM style: every protocol period ({@code rpc.registry.gossip.interval-millis},
+ * 500 by default) the node pings one member, in a shuffled round robin. Without an ack within half a period it asks
+ * {@value #INDIRECT_PROBES} other members to ping it, a member that answers none of them by the next period is
+ * suspected, and declared dead unless it refutes the suspicion in time. The changes of the membership, the services
+ * of the members included, are piggybacked on the pings and the acks, each a few times per member. A node joins
+ * through the seeds ({@code rpc.registry.gossip.seeds}, host:port separated by commas) and exchanges the whole
+ * membership with a random member now and then, so a lost update is eventually repaired. The whole membership is
+ * sent in as many datagrams as it takes, the state of a single member must fit in one.
+ * <p>
+ * The state of a node is only changed on the event loop of its channel, the nodes of a process share one event
+ * loop thread. The membership is readable from any thread.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class GossipNode {
+    public static final int DEFAULT_PORT = 7946;
+    private static final long DEFAULT_INTERVAL_MILLIS = 500;
+    private static final int INDIRECT_PROBES = 3;
+    /**
+     * an update is piggybacked that many times the log10 of the membership size
+     */
+    private static final int RETRANSMIT_MULTIPLIER = 4;
+    /**
+     * a suspect is declared dead after that many periods times the log10 of the membership size
+     */
+    private static final int SUSPICION_MULTIPLIER = 4;
+    private static final int SYNC_PERIODS = 20;
+    /**
+     * a dead member is remembered that long, so the stale updates still gossiped about it are ignored
+     */
+    private static final int DEAD_RETENTION_PERIODS = 120;
+    /**
+     * the updates piggybacked on a message stay below a usual MTU
+     */
+    private static final int PIGGYBACK_BUDGET = 1200;
+    /**
+     * the whole membership of a sync is split in datagrams of about that size, far below the datagram limit
+     */
+    private static final int SYNC_BUDGET = 8 * 1024;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static volatile EventLoopGroup eventLoopGroup;
+
+    private final String id;
+    private final InetSocketAddress socketAddress;
+    private final List<InetSocketAddress> seeds;
+    private final long intervalMillis;
+    private final Channel channel;
+    private final EventLoop eventLoop;
+    /**
+     * key: member id, the node itself included
+     */
+    private final Map<String, GossipMember> members = new ConcurrentHashMap<>();
+    private final Set<MemberListener> listeners = new CopyOnWriteArraySet<>();
+    // the fields below are only used on the event loop
+    /**
+     * key: member id, value: its latest state to gossip and how often it was gossiped
+     */
+    private final Map<String, Broadcast> broadcasts = new HashMap<>();
+    /**
+     * key: member id, value: the period its status last changed
+     */
+    private final Map<String, Long> statusChangedAt = new HashMap<>();
+    /**
+     * key: sequence of a ping waiting for its ack
+     */
+    private final Map<Integer, Probe> probes = new HashMap<>();
+    private final List<String> probeOrder = new ArrayList<>();
+    private int probeIndex;
+    private Probe currentProbe;
+    private int sequence;
+    private long period;
+    private GossipMember self;
+
+    public interface MemberListener {
+        /**
+         * called on the event loop once the membership changed
+         *
+         * @param previous the previous state, null for a new member
+         * @param current  the new state, dead if the member left or failed
+         */
+        void onMemberChanged(GossipMember previous, GossipMember current);
+    }
+
+    /**
+     * the node of this process: {@code rpc.registry.gossip.host} (the local address by default),
+     * {@code rpc.registry.gossip.port} ({@value #DEFAULT_PORT} by default) and {@code rpc.registry.gossip.seeds}
+     */
+    public GossipNode() {
+        this(defaultHost(), RpcConfigUtil.getInt(RpcConfigEnum.REGISTRY_GOSSIP_PORT, DEFAULT_PORT),
+                parseSeeds(RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_GOSSIP_SEEDS)),
+                RpcConfigUtil.getLong(RpcConfigEnum.REGISTRY_GOSSIP_INTERVAL_MILLIS, DEFAULT_INTERVAL_MILLIS));
+    }
+
+    /**
+     * binds the node and starts the protocol
+     *
+     * @param port 0 for any free port
+     */
+    public GossipNode(String host, int port, List<InetSocketAddress> seeds, long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        try {
+            this.channel = new Bootstrap().group(getEventLoopGroup())
+                    .channel(NioDatagramChannel.class)
+                    .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(MAX_DATAGRAM_SIZE))
+                    // the datagrams received before the node is ready are dropped
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .bind(host, port).sync().channel();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException("bind gossip node [" + host + ":" + port + "] interrupted", e);
+        } catch (RuntimeException e) {
+            throw new RpcException("bind gossip node [" + host + ":" + port + "] fail", e);
+        }
+        this.socketAddress = new InetSocketAddress(host, ((InetSocketAddress) channel.localAddress()).getPort());
+        this.id = host + ":" + socketAddress.getPort();
+        this.seeds = new ArrayList<>(seeds);
+        this.seeds.remove(socketAddress);
+        this.eventLoop = channel.eventLoop();
+        this.self = new GossipMember(id, socketAddress, GossipMember.Status.ALIVE, 0, null, Collections.emptyMap());
+        members.put(id, self);
+        channel.pipeline().addLast(new SimpleChannelInboundHandler<DatagramPacket>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+                receive(packet);
+            }
+        });
+        eventLoop.execute(this::tick);
+        eventLoop.scheduleAtFixedRate(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Gossip node [{}] started, seeds {}", id, this.seeds);
+    }
+
+    private static EventLoopGroup getEventLoopGroup() {
+        if (eventLoopGroup == null) {
+            synchronized (GossipNode.class) {
+                if (eventLoopGroup == null) {
+                    eventLoopGroup = new NioEventLoopGroup(1, ThreadPoolFactoryUtil.createThreadFactory("gossip", true));
+                }
+            }
+        }
+        return eventLoopGroup;
+    }
+
+    private static String defaultHost() {
+        String host = RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_GOSSIP_HOST);
+        if (!StringUtil.isBlank(host)) {
+            return host;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new RpcException("resolve the local address of the gossip node fail", e);
+        }
+    }
+
+    static List<InetSocketAddress> parseSeeds(String seeds) {
+        List<InetSocketAddress> result = new ArrayList<>();
+        if (!StringUtil.isBlank(seeds)) {
+            for (String seed : seeds.split(",")) {
+                if (!seed.trim().isEmpty()) {
+                    result.add(GossipMessage.toSocketAddress(seed.trim()));
+                }
+            }
+        }
+        return result;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
+    /**
+     * @return the members not known to be dead, this node included
+     */
+    public List<GossipMember> getLiveMembers() {
+        List<GossipMember> live = new ArrayList<>();
+        for (GossipMember member : members.values()) {
+            if (member.isLive()) {
+                live.add(member);
+            }
+        }
+        return live;
+    }
+
+    public void addListener(MemberListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * announce services this node provides, the others learn them at once, not only with the next probes
+     *
+     * @param providerAddress the address of the rpc server eg:127.0.0.1:9998
+     * @param services        key: rpc service name, value: the metadata of the provider
+     */
+    public void addServices(String providerAddress, Map<String, byte[]> services) {
+        Map<String, byte[]> added = new LinkedHashMap<>(services);
+        eventLoop.execute(() -> {
+            Map<String, byte[]> current = new LinkedHashMap<>(self.getServices());
+            current.putAll(added);
+            announce(providerAddress, current);
+        });
+    }
+
+    /**
+     * withdraw all the services of this node
+     */
+    public void removeServices() {
+        eventLoop.execute(() -> announce(null, Collections.emptyMap()));
+    }
+
+    private void announce(String providerAddress, Map<String, byte[]> services) {
+        update(new GossipMember(id, socketAddress, GossipMember.Status.ALIVE, self.getIncarnation() + 1,
+                providerAddress, Collections.unmodifiableMap(services)));
+        gossip(randomMembers(INDIRECT_PROBES, null));
+    }
+
+    /**
+     * stops the node without telling the others, which then detect its failure
+     */
+    public void close() {
+        channel.close().syncUninterruptibly();
+    }
+
+    /**
+     * one protocol period: the probe of the previous period is concluded, the suspicions that timed out are
+     * confirmed and the next member is probed
+     */
+    private void tick() {
+        if (!channel.isActive()) {
+            return;
+        }
+        period++;
+        if (currentProbe != null && !currentProbe.acked) {
+            GossipMember target = members.get(currentProbe.target);
+            if (target != null && target.getStatus() == GossipMember.Status.ALIVE) {
+                log.info("Gossip node [{}] suspects [{}], no ack", id, target.getId());
+                update(target.withStatus(GossipMember.Status.SUSPECT));
+            }
+        }
+        expireMembers();
+        probes.values().removeIf(probe -> probe.period < period - 1);
+        probeNext();
+        boolean alone = members.size() == 1;
+        if (alone || period % SYNC_PERIODS == 0) {
+            List<GossipMember> targets = randomMembers(1, null);
+            if (targets.isEmpty()) {
+                for (InetSocketAddress seed : seeds) {
+                    sendFullState(GossipMessage.Type.SYNC, nextSequence(), seed);
+                }
+            } else {
+                sendFullState(GossipMessage.Type.SYNC, nextSequence(), targets.get(0).getSocketAddress());
+            }
+        }
+    }
+
+    private void expireMembers() {
+        long suspicionPeriods = (long) SUSPICION_MULTIPLIER * log10(members.size());
+        for (GossipMember member : new ArrayList<>(members.values())) {
+            long changedAt = statusChangedAt.getOrDefault(member.getId(), period);
+            if (member.getStatus() == GossipMember.Status.SUSPECT && period - changedAt >= suspicionPeriods) {
+                log.info("Gossip node [{}] declares [{}] dead", id, member.getId());
+                update(member.withStatus(GossipMember.Status.DEAD));
+            } else if (member.getStatus() == GossipMember.Status.DEAD && period - changedAt >= DEAD_RETENTION_PERIODS) {
+                members.remove(member.getId());
+                statusChangedAt.remove(member.getId());
+                broadcasts.remove(member.getId());
+            }
+        }
+    }
+
+    private void probeNext() {
+        currentProbe = null;
+        GossipMember target = null;
+        for (int i = 0; i <= probeOrder.size() && target == null; i++) {
+            if (probeIndex >= probeOrder.size()) {
+                probeOrder.clear();
+                members.values().stream().filter(member -> member.isLive() && member != self).forEach(member -> probeOrder.add(member.getId()));
+                Collections.shuffle(probeOrder, ThreadLocalRandom.current());
+                probeIndex = 0;
+                if (probeOrder.isEmpty()) {
+                    return;
+                }
+            }
+            GossipMember candidate = members.get(probeOrder.get(probeIndex++));
+            if (candidate != null && candidate.isLive() && candidate != self) {
+                target = candidate;
+            }
+        }
+        if (target == null) {
+            return;
+        }
+        Probe probe = new Probe(target.getId(), period, null, 0);
+        currentProbe = probe;
+        int probeSequence = nextSequence();
+        probes.put(probeSequence, probe);
+        send(new GossipMessage(GossipMessage.Type.PING, probeSequence, null, piggyback()), target.getSocketAddress());
+        GossipMember pinged = target;
+        eventLoop.schedule(() -> {
+            if (!probe.acked && channel.isActive()) {
+                for (GossipMember helper : randomMembers(INDIRECT_PROBES, pinged.getId())) {
+                    send(new GossipMessage(GossipMessage.Type.PING_REQ, probeSequence, pinged.getId(), piggyback()), helper.getSocketAddress());
+                }
+            }
+        }, intervalMillis / 2, TimeUnit.MILLISECONDS);
+    }
+
+    private void receive(DatagramPacket packet) {
+        GossipMessage message;
+        try {
+            message = GossipMessage.decode(packet.content());
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            log.warn("Gossip node [{}] ignores a datagram from [{}]: {}", id, packet.sender(), e.toString());
+            return;
+        }
+        for (GossipMember member : message.getMembers()) {
+            merge(member);
+        }
+        switch (message.getType()) {
+            case PING:
+                send(new GossipMessage(GossipMessage.Type.ACK, message.getSequence(), null, piggyback()), packet.sender());
+                break;
+            case ACK:
+                Probe probe = probes.remove(message.getSequence());
+                if (probe != null) {
+                    probe.acked = true;
+                    if (probe.requester != null) {
+                        send(new GossipMessage(GossipMessage.Type.ACK, probe.requesterSequence, null, piggyback()), probe.requester);
+                    }
+                }
+                break;
+            case PING_REQ:
+                GossipMember target = members.get(message.getTarget());
+                if (target != null) {
+                    int relaySequence = nextSequence();
+                    probes.put(relaySequence, new Probe(target.getId(), period, packet.sender(), message.getSequence()));
+                    send(new GossipMessage(GossipMessage.Type.PING, relaySequence, null, piggyback()), target.getSocketAddress());
+                }
+                break;
+            case SYNC:
+                sendFullState(GossipMessage.Type.SYNC_REPLY, message.getSequence(), packet.sender());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * applies a state received from another member, the newer incarnation wins and at the same incarnation dead
+     * beats suspect beats alive. A suspicion about this node is refuted with a higher incarnation.
+     */
+    private void merge(GossipMember state) {
+        if (id.equals(state.getId())) {
+            if (state.getIncarnation() > self.getIncarnation()
+                    || (state.getIncarnation() == self.getIncarnation() && state.getStatus() != GossipMember.Status.ALIVE)) {
+                log.info("Gossip node [{}] refutes [{}] at incarnation [{}]", id, state.getStatus(), state.getIncarnation());
+                update(new GossipMember(id, socketAddress, GossipMember.Status.ALIVE, state.getIncarnation() + 1,
+                        self.getProviderAddress(), self.getServices()));
+            }
+            return;
+        }
+        GossipMember known = members.get(state.getId());
+        if (known == null) {
+            if (state.isLive()) {
+                update(state);
+            }
+            return;
+        }
+        if (state.getIncarnation() > known.getIncarnation()
+                || (state.getIncarnation() == known.getIncarnation() && state.getStatus().ordinal() > known.getStatus().ordinal())) {
+            update(state);
+        }
+    }
+
+    /**
+     * the state of a member changed: it is gossiped and the listeners are notified
+     */
+    private void update(GossipMember state) {
+        GossipMember previous = members.put(state.getId(), state);
+        if (state.getId().equals(id)) {
+            self = state;
+        }
+        if (previous == null || previous.getStatus() != state.getStatus()) {
+            statusChangedAt.put(state.getId(), period);
+        }
+        broadcasts.put(state.getId(), new Broadcast(state));
+        for (MemberListener listener : listeners) {
+            try {
+                listener.onMemberChanged(previous, state);
+            } catch (RuntimeException e) {
+                log.error("gossip listener [{}] fail", listener, e);
+            }
+        }
+    }
+
+    /**
+     * the updates gossiped the least so far, within the budget of a datagram
+     */
+    private List<GossipMember> piggyback() {
+        if (broadcasts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int retransmitLimit = RETRANSMIT_MULTIPLIER * log10(members.size());
+        List<Broadcast> candidates = new ArrayList<>(broadcasts.values());
+        candidates.sort(Comparator.comparingInt(broadcast -> broadcast.transmits));
+        List<GossipMember> updates = new ArrayList<>();
+        int size = 0;
+        for (Broadcast broadcast : candidates) {
+            int memberSize = GossipMessage.encodedSize(broadcast.state);
+            if (size + memberSize > PIGGYBACK_BUDGET && !updates.isEmpty()) {
+                break;
+            }
+            size += memberSize;
+            updates.add(broadcast.state);
+            if (++broadcast.transmits >= retransmitLimit) {
+                broadcasts.remove(broadcast.state.getId());
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * send the whole membership as a sync or a sync reply. The first datagram is of that type, the next ones of a
+     * sync are gossip messages, so the receiver answers a sync once.
+     */
+    private void sendFullState(GossipMessage.Type type, int messageSequence, InetSocketAddress recipient) {
+        List<List<GossipMember>> parts = GossipMessage.split(new ArrayList<>(members.values()), SYNC_BUDGET);
+        send(new GossipMessage(type, messageSequence, null, parts.get(0)), recipient);
+        for (int i = 1; i < parts.size(); i++) {
+            if (type == GossipMessage.Type.SYNC) {
+                send(new GossipMessage(GossipMessage.Type.GOSSIP, nextSequence(), null, parts.get(i)), recipient);
+            } else {
+                send(new GossipMessage(type, messageSequence, null, parts.get(i)), recipient);
+            }
+        }
+    }
+
+    private void gossip(List<GossipMember> targets) {
+        for (GossipMember target : targets) {
+            send(new GossipMessage(GossipMessage.Type.GOSSIP, nextSequence(), null, piggyback()), target.getSocketAddress());
+        }
+    }
+
+    /**
+     * @param excluded the id of a member not to pick, null if none
+     * @return up to count live members, this node excluded
+     */
+    private List<GossipMember> randomMembers(int count, String excluded) {
+        List<GossipMember> candidates = new ArrayList<>();
+        for (GossipMember member : members.values()) {
+            if (member.isLive() && member != self && !member.getId().equals(excluded)) {
+                candidates.add(member);
+            }
+        }
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+        return candidates.size() > count ? candidates.subList(0, count) : candidates;
+    }
+
+    private void send(GossipMessage message, InetSocketAddress recipient) {
+        ByteBuf content = channel.alloc().buffer();
+        message.encode(content);
+        if (content.readableBytes() > MAX_DATAGRAM_SIZE) {
+            log.warn("Gossip node [{}] drops a [{}] of [{}] bytes to [{}], too large for a datagram", id,
+                    message.getType(), content.readableBytes(), recipient);
+            content.release();
+            return;
+        }
+        channel.writeAndFlush(new DatagramPacket(content, recipient));
+    }
+
+    private int nextSequence() {
+        return ++sequence;
+    }
+
+    private static int log10(int size) {
+        return Math.max(1, (int) Math.ceil(Math.log10(size + 1)));
+    }
+
+    private static final class Broadcast {
+        private final GossipMember state;
+        private int transmits;
+
+        private Broadcast(GossipMember state) {
+            this.state = state;
+        }
+    }
+
+    private static final class Probe {
+        private final String target;
+        private final long period;
+        /**
+         * the member that asked for the probe through a ping-req, null for a probe of this node
+         */
+        private final InetSocketAddress requester;
+        private final int requesterSequence;
+        private boolean acked;
+
+        private Probe(String target, long period, InetSocketAddress requester, int requesterSequence) {
+            this.target = target;
+            this.period = period;
+            this.requester = requester;
+            this.requesterSequence = requesterSequence;
+        }
+    }
+}
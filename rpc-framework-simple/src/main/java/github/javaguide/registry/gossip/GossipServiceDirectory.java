@@ -0,0 +1,87 @@
+package github.javaguide.registry.gossip;
+
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.registry.AbstractServiceDirectory;
+import github.javaguide.registry.ServiceProviders;
+import github.javaguide.registry.ServiceSnapshot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The providers of the services a client calls, as the gossip node of the process knows them: a lookup reads the
+ * current snapshot, and a change of the membership is applied to the snapshots of the services of the member as a
+ * zookeeper event would be. A suspected member still provides its services, a dead one does not.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class GossipServiceDirectory extends AbstractServiceDirectory implements GossipNode.MemberListener {
+    private final GossipNode gossipNode;
+    private final Map<String, ServiceProviders> services = new ConcurrentHashMap<>();
+    /**
+     * the services the membership changes are applied to, known before their first snapshot
+     */
+    private final Map<String, ServiceProviders> watchedServices = new ConcurrentHashMap<>();
+
+    public GossipServiceDirectory() {
+        this(SingletonFactory.getInstance(GossipNode.class));
+    }
+
+    public GossipServiceDirectory(GossipNode gossipNode) {
+        super("registry-gossip-directory", 1);
+        this.gossipNode = gossipNode;
+        gossipNode.addListener(this);
+    }
+
+    @Override
+    public ServiceSnapshot getSnapshot(String rpcServiceName) {
+        ServiceProviders providers = services.get(rpcServiceName);
+        if (providers == null) {
+            providers = services.computeIfAbsent(rpcServiceName, this::watch);
+        }
+        return providers.getSnapshot();
+    }
+
+    /**
+     * the members changed meanwhile are applied after the first snapshot, those already part of it change nothing
+     */
+    private ServiceProviders watch(String rpcServiceName) {
+        ServiceProviders providers = newServiceProviders(rpcServiceName);
+        synchronized (providers) {
+            watchedServices.put(rpcServiceName, providers);
+            Map<String, byte[]> endpoints = new LinkedHashMap<>();
+            for (GossipMember member : gossipNode.getLiveMembers()) {
+                byte[] metadata = member.getServices().get(rpcServiceName);
+                if (metadata != null && member.getProviderAddress() != null) {
+                    endpoints.put(member.getProviderAddress(), metadata);
+                }
+            }
+            providers.reset(endpoints);
+        }
+        return providers;
+    }
+
+    @Override
+    public void onMemberChanged(GossipMember previous, GossipMember current) {
+        if (previous != null && previous.isLive() && previous.getProviderAddress() != null) {
+            for (String rpcServiceName : previous.getServices().keySet()) {
+                boolean kept = current.isLive() && previous.getProviderAddress().equals(current.getProviderAddress())
+                        && current.getServices().containsKey(rpcServiceName);
+                ServiceProviders providers = watchedServices.get(rpcServiceName);
+                if (providers != null && !kept) {
+                    providers.change(previous.getProviderAddress(), null);
+                }
+            }
+        }
+        if (current.isLive() && current.getProviderAddress() != null) {
+            current.getServices().forEach((rpcServiceName, metadata) -> {
+                ServiceProviders providers = watchedServices.get(rpcServiceName);
+                if (providers != null) {
+                    providers.change(current.getProviderAddress(), metadata);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package github.javaguide.registry.gossip;
+
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.registry.AbstractServiceDiscovery;
+
+/**
+ * service discovery based on the gossip registry, a lookup is a read of the memory of this process
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class GossipServiceDiscoveryImpl extends AbstractServiceDiscovery {
+
+    public GossipServiceDiscoveryImpl() {
+        super(SingletonFactory.getInstance(GossipServiceDirectory.class));
+    }
+}
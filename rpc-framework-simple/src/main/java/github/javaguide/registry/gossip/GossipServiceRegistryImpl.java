@@ -0,0 +1,62 @@
+package github.javaguide.registry.gossip;
+
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.registry.ProviderMetadata;
+import github.javaguide.registry.ServiceRegistry;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * service registration based on the gossip registry: the services are part of the state the gossip node of the
+ * process spreads, a provider that dies is removed once the others detect its failure
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class GossipServiceRegistryImpl implements ServiceRegistry {
+    private final GossipNode gossipNode;
+
+    public GossipServiceRegistryImpl() {
+        this(SingletonFactory.getInstance(GossipNode.class));
+    }
+
+    public GossipServiceRegistryImpl(GossipNode gossipNode) {
+        this.gossipNode = gossipNode;
+    }
+
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        registerService(rpcServiceName, inetSocketAddress, Collections.emptyMap());
+    }
+
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, Map<String, String> metadata) {
+        registerServices(Collections.singletonMap(rpcServiceName, metadata), inetSocketAddress);
+    }
+
+    /**
+     * the services are announced in one update
+     */
+    @Override
+    public void registerServices(Map<String, Map<String, String>> serviceMetadata, InetSocketAddress inetSocketAddress) {
+        Map<String, byte[]> services = new LinkedHashMap<>();
+        serviceMetadata.forEach((rpcServiceName, metadata) -> services.put(rpcServiceName, ProviderMetadata.encode(metadata)));
+        gossipNode.addServices(toAddress(inetSocketAddress), services);
+    }
+
+    @Override
+    public void unregisterServices(InetSocketAddress inetSocketAddress) {
+        gossipNode.removeServices();
+    }
+
+    /**
+     * @return eg:127.0.0.1:9998, as zookeeper names the provider
+     */
+    private static String toAddress(InetSocketAddress inetSocketAddress) {
+        String address = inetSocketAddress.toString();
+        return address.substring(address.lastIndexOf('/') + 1);
+    }
+}
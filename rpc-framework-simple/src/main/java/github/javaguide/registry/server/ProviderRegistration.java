@@ -0,0 +1,31 @@
+package github.javaguide.registry.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * services a provider registers with the registry server
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class ProviderRegistration implements Serializable {
+    private static final long serialVersionUID = 4172386951067211514L;
+    /**
+     * eg:127.0.0.1:9998
+     */
+    private String providerAddress;
+    /**
+     * key: rpc service name, value: the metadata of the provider, as encoded by ProviderMetadata
+     */
+    private Map<String, byte[]> services;
+}
@@ -0,0 +1,71 @@
+package github.javaguide.registry.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * An event of the subscription of a client. The events are sent in sequence order, and a keepalive event carries
+ * the last sequence of the server, so the client also knows how far it is when its services do not change.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class RegistryEvent implements Serializable {
+    private static final long serialVersionUID = 7795012356011826425L;
+
+    public enum Type {
+        /**
+         * all the providers of a service
+         */
+        SNAPSHOT,
+        /**
+         * a provider of a service was added, updated or removed
+         */
+        CHANGE,
+        /**
+         * nothing changed, also sent once a watch is answered
+         */
+        KEEPALIVE
+    }
+
+    private Type type;
+    /**
+     * identifies a run of the server, the sequence starts again when it restarts
+     */
+    private long epoch;
+    private long sequence;
+    private String rpcServiceName;
+    /**
+     * the provider that changed, eg:127.0.0.1:9998
+     */
+    private String providerAddress;
+    /**
+     * the metadata of the provider that changed, null if it was removed
+     */
+    private byte[] metadata;
+    /**
+     * key: address of a provider, value: its metadata, the providers of a snapshot
+     */
+    private Map<String, byte[]> providers;
+
+    public static RegistryEvent snapshot(long epoch, long sequence, String rpcServiceName, Map<String, byte[]> providers) {
+        return new RegistryEvent(Type.SNAPSHOT, epoch, sequence, rpcServiceName, null, null, providers);
+    }
+
+    public static RegistryEvent change(long epoch, long sequence, String rpcServiceName, String providerAddress, byte[] metadata) {
+        return new RegistryEvent(Type.CHANGE, epoch, sequence, rpcServiceName, providerAddress, metadata, null);
+    }
+
+    public static RegistryEvent keepalive(long epoch, long sequence) {
+        return new RegistryEvent(Type.KEEPALIVE, epoch, sequence, null, null, null, null);
+    }
+}
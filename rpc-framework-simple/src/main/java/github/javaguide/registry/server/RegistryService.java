@@ -0,0 +1,48 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.remoting.stream.StreamObserver;
+
+/**
+ * The rpc service of the registry server. The providers register their services and keep them with heartbeats,
+ * the clients follow the providers of the services they call over one stream.
+ * <p>
+ * Every change of the registry gets the next sequence number. A client remembers the last one it received, and
+ * after a reconnection asks for the changes that followed it: the server replays them from its history, or sends
+ * the whole list of providers of each service if they are no longer in the history or the server restarted
+ * meanwhile.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface RegistryService {
+
+    /**
+     * register services of a provider, added to the services it registered before
+     *
+     * @return the lease of the provider in milliseconds, its services are removed if no heartbeat arrives for that long
+     */
+    long register(ProviderRegistration registration);
+
+    /**
+     * @param providerAddress eg:127.0.0.1:9998
+     * @return false if the server does not know the provider, because its lease expired or the server restarted:
+     * the provider registers its services again
+     */
+    boolean heartbeat(String providerAddress);
+
+    /**
+     * remove all the services of a provider
+     *
+     * @param providerAddress eg:127.0.0.1:9998
+     */
+    void unregister(String providerAddress);
+
+    /**
+     * follow the providers of services: each {@link RegistryWatch} sent by the client adds services, the server
+     * answers with their providers or the changes the client missed, then streams their changes
+     *
+     * @param events receives the events of the services watched, and a keepalive event every few seconds
+     * @return the observer of the watches of the client
+     */
+    StreamObserver<RegistryWatch> subscribe(StreamObserver<RegistryEvent> events);
+}
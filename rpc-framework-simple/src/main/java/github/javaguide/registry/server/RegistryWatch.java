@@ -0,0 +1,32 @@
+package github.javaguide.registry.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * services a client watches, sent over its subscription
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class RegistryWatch implements Serializable {
+    private static final long serialVersionUID = -2350915573416297041L;
+    /**
+     * the epoch of the server the client received the events from, 0 if it knows nothing of the services yet
+     */
+    private long epoch;
+    /**
+     * the sequence of the last event the client received, it gets the events that followed
+     */
+    private long sequence;
+    private List<String> rpcServiceNames;
+}
@@ -0,0 +1,244 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.registry.AbstractServiceDirectory;
+import github.javaguide.registry.ServiceProviders;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.server.util.RegistryServerUtils;
+import github.javaguide.remoting.stream.StreamObserver;
+import github.javaguide.remoting.stream.StreamSubscription;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The providers of the services a client calls, streamed by the registry server over one subscription. The first
+ * lookup of a service adds it to the subscription and waits for its providers, later lookups only read the current
+ * snapshot. The changes are applied to the snapshots as zookeeper events would be.
+ * <p>
+ * The directory remembers the epoch and the sequence of the last event received. When the subscription is lost, or
+ * no keepalive arrived for three intervals, the snapshots are marked stale and the directory subscribes again from
+ * that sequence: the server replays the changes it missed, or sends the providers of every service again. The
+ * snapshots are confirmed by the keepalive which follows.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class ServerServiceDirectory extends AbstractServiceDirectory {
+    private static final long FIRST_SNAPSHOT_TIMEOUT_MILLIS = 5000;
+    private final RegistryService registryService;
+    /**
+     * the interval of the keepalive events, also the delay before subscribing again
+     */
+    private final long keepaliveMillis;
+    private final Map<String, ServiceWatch> watches = new ConcurrentHashMap<>();
+    /**
+     * the epoch and the sequence of the last event received, guarded by this
+     */
+    private long epoch;
+    private long sequence;
+    /**
+     * null while there is no subscription, guarded by this
+     */
+    private Subscription subscription;
+    private boolean resubscribeScheduled;
+    private boolean stale;
+
+    public ServerServiceDirectory() {
+        this(RegistryServerUtils.getRegistryService(), RegistryServerUtils.getKeepaliveMillis());
+    }
+
+    public ServerServiceDirectory(RegistryService registryService, long keepaliveMillis) {
+        super("registry-server-directory", 1);
+        this.registryService = registryService;
+        this.keepaliveMillis = keepaliveMillis;
+        scheduler.scheduleWithFixedDelay(this::checkSubscription, keepaliveMillis, keepaliveMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ServiceSnapshot getSnapshot(String rpcServiceName) {
+        ServiceWatch watch = watches.get(rpcServiceName);
+        if (watch == null) {
+            ServiceWatch created = new ServiceWatch(rpcServiceName);
+            watch = watches.putIfAbsent(rpcServiceName, created);
+            if (watch == null) {
+                watch = created;
+                watch(rpcServiceName);
+            }
+        }
+        return watch.awaitSnapshot();
+    }
+
+    /**
+     * a service watched while there is no subscription is part of the next one
+     */
+    private synchronized void watch(String rpcServiceName) {
+        if (subscription != null) {
+            send(subscription, new RegistryWatch(0, 0, Collections.singletonList(rpcServiceName)));
+        } else if (!resubscribeScheduled) {
+            subscribe();
+        }
+    }
+
+    /**
+     * subscribe with all the services: those known resume from the last sequence, the others get their providers
+     */
+    private synchronized void subscribe() {
+        resubscribeScheduled = false;
+        Subscription next = new Subscription();
+        try {
+            next.requestObserver = registryService.subscribe(next);
+        } catch (Exception e) {
+            // sneaky checked exceptions of the connection included
+            log.warn("subscribe to the registry server fail, retry in [{}] ms: {}", keepaliveMillis, e.toString());
+            scheduleResubscribe();
+            return;
+        }
+        subscription = next;
+        List<String> known = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        watches.forEach((rpcServiceName, watch) -> (watch.providers.getSnapshot() == null ? unknown : known).add(rpcServiceName));
+        if (!known.isEmpty()) {
+            send(next, new RegistryWatch(epoch, sequence, known));
+        }
+        if (!unknown.isEmpty()) {
+            send(next, new RegistryWatch(0, 0, unknown));
+        }
+        log.info("Subscribed to the registry server, [{}] services from sequence [{}] of epoch [{}], [{}] new services",
+                known.size(), sequence, epoch, unknown.size());
+    }
+
+    private void send(Subscription target, RegistryWatch registryWatch) {
+        try {
+            target.requestObserver.onNext(registryWatch);
+        } catch (RuntimeException e) {
+            onLost(target, e);
+        }
+    }
+
+    private synchronized void onEvent(Subscription source, RegistryEvent event) {
+        if (source != subscription) {
+            return;
+        }
+        source.lastEventMillis = System.currentTimeMillis();
+        epoch = event.getEpoch();
+        sequence = event.getSequence();
+        ServiceWatch watch = event.getRpcServiceName() == null ? null : watches.get(event.getRpcServiceName());
+        switch (event.getType()) {
+            case SNAPSHOT:
+                if (watch != null) {
+                    watch.providers.reset(event.getProviders());
+                    watch.firstSnapshot.countDown();
+                }
+                break;
+            case CHANGE:
+                if (watch != null) {
+                    watch.providers.change(event.getProviderAddress(), event.getMetadata());
+                }
+                break;
+            case KEEPALIVE:
+                if (stale) {
+                    stale = false;
+                    watches.values().forEach(serviceWatch -> serviceWatch.providers.markStale(false));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private synchronized void onLost(Subscription lost, Throwable cause) {
+        if (lost != subscription) {
+            return;
+        }
+        subscription = null;
+        log.warn("Lost the subscription to the registry server, subscribe again in [{}] ms: {}", keepaliveMillis, String.valueOf(cause));
+        stale = true;
+        watches.values().forEach(watch -> watch.providers.markStale(true));
+        scheduleResubscribe();
+    }
+
+    private void scheduleResubscribe() {
+        if (!resubscribeScheduled) {
+            resubscribeScheduled = true;
+            scheduler.schedule(this::subscribe, keepaliveMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * a subscription whose connection is silently broken receives nothing, not even an error
+     */
+    private synchronized void checkSubscription() {
+        Subscription current = subscription;
+        if (current != null && System.currentTimeMillis() - current.lastEventMillis > keepaliveMillis * 3) {
+            StreamSubscription streamSubscription = current.streamSubscription;
+            if (streamSubscription != null) {
+                streamSubscription.cancel();
+            }
+            onLost(current, new IllegalStateException("no keepalive for " + (keepaliveMillis * 3) + " ms"));
+        }
+    }
+
+    private final class Subscription implements StreamObserver<RegistryEvent> {
+        private volatile StreamSubscription streamSubscription;
+        private StreamObserver<RegistryWatch> requestObserver;
+        private volatile long lastEventMillis = System.currentTimeMillis();
+
+        @Override
+        public void onSubscribe(StreamSubscription subscription) {
+            this.streamSubscription = subscription;
+        }
+
+        @Override
+        public void onNext(RegistryEvent value) {
+            onEvent(this, value);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onLost(this, throwable);
+        }
+
+        @Override
+        public void onCompleted() {
+            onLost(this, null);
+        }
+    }
+
+    private final class ServiceWatch {
+        private final String rpcServiceName;
+        private final ServiceProviders providers;
+        private final CountDownLatch firstSnapshot = new CountDownLatch(1);
+
+        private ServiceWatch(String rpcServiceName) {
+            this.rpcServiceName = rpcServiceName;
+            this.providers = newServiceProviders(rpcServiceName);
+        }
+
+        private ServiceSnapshot awaitSnapshot() {
+            ServiceSnapshot snapshot = providers.getSnapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            try {
+                firstSnapshot.await(FIRST_SNAPSHOT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            snapshot = providers.getSnapshot();
+            if (snapshot == null) {
+                throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND,
+                        rpcServiceName + ", the registry server did not send its providers");
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.registry.AbstractServiceDiscovery;
+
+/**
+ * service discovery based on the registry server, a lookup reads the providers streamed by the server
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class ServerServiceDiscoveryImpl extends AbstractServiceDiscovery {
+
+    public ServerServiceDiscoveryImpl() {
+        super(SingletonFactory.getInstance(ServerServiceDirectory.class));
+    }
+}
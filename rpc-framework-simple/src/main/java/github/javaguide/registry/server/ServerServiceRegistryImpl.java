@@ -0,0 +1,109 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.registry.ProviderMetadata;
+import github.javaguide.registry.ServiceRegistry;
+import github.javaguide.registry.server.util.RegistryServerUtils;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * service registration based on the registry server. The services are kept by the server as long as the provider
+ * sends heartbeats, three per lease. A provider the server does not know any more, because its lease expired or
+ * the server restarted, registers its services again; so does a provider which could not reach the server when it
+ * started.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class ServerServiceRegistryImpl implements ServiceRegistry {
+    private final RegistryService registryService;
+    /**
+     * key: address of a provider of this process, value: its services and their metadata
+     */
+    private final Map<String, Map<String, byte[]>> providers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
+            ThreadPoolFactoryUtil.createThreadFactory("registry-server-heartbeat", true));
+    private boolean heartbeatScheduled;
+
+    public ServerServiceRegistryImpl() {
+        this(RegistryServerUtils.getRegistryService());
+    }
+
+    public ServerServiceRegistryImpl(RegistryService registryService) {
+        this.registryService = registryService;
+    }
+
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        registerService(rpcServiceName, inetSocketAddress, Collections.emptyMap());
+    }
+
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, Map<String, String> metadata) {
+        registerServices(Collections.singletonMap(rpcServiceName, metadata), inetSocketAddress);
+    }
+
+    /**
+     * the services are registered in one request
+     */
+    @Override
+    public void registerServices(Map<String, Map<String, String>> serviceMetadata, InetSocketAddress inetSocketAddress) {
+        String address = RegistryServerUtils.toAddress(inetSocketAddress);
+        Map<String, byte[]> services = new LinkedHashMap<>();
+        serviceMetadata.forEach((rpcServiceName, metadata) -> services.put(rpcServiceName, ProviderMetadata.encode(metadata)));
+        providers.computeIfAbsent(address, key -> new ConcurrentHashMap<>()).putAll(services);
+        long leaseMillis;
+        try {
+            leaseMillis = registryService.register(new ProviderRegistration(address, services));
+        } catch (Exception e) {
+            // sneaky checked exceptions of the connection included
+            log.error("register services of [{}] with the registry server fail, retry with the next heartbeat", address, e);
+            leaseMillis = RegistryServerUtils.getKeepaliveMillis() * 3;
+        }
+        scheduleHeartbeat(leaseMillis);
+    }
+
+    @Override
+    public void unregisterServices(InetSocketAddress inetSocketAddress) {
+        String address = RegistryServerUtils.toAddress(inetSocketAddress);
+        if (providers.remove(address) == null) {
+            return;
+        }
+        try {
+            registryService.unregister(address);
+        } catch (Exception e) {
+            log.warn("unregister [{}] from the registry server fail, it is removed once its lease expires: {}", address, e.toString());
+        }
+    }
+
+    private synchronized void scheduleHeartbeat(long leaseMillis) {
+        if (!heartbeatScheduled) {
+            heartbeatScheduled = true;
+            long interval = Math.max(leaseMillis / 3, 1);
+            scheduler.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void heartbeat() {
+        providers.forEach((address, services) -> {
+            try {
+                if (!registryService.heartbeat(address)) {
+                    log.info("The registry server does not know [{}], register its [{}] services again", address, services.size());
+                    registryService.register(new ProviderRegistration(address, new LinkedHashMap<>(services)));
+                }
+            } catch (Exception e) {
+                log.warn("heartbeat of [{}] to the registry server fail: {}", address, e.toString());
+            }
+        });
+    }
+}
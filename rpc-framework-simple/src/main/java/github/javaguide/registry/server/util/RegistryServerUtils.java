@@ -0,0 +1,87 @@
+package github.javaguide.registry.server.util;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.proxy.RpcClientProxy;
+import github.javaguide.registry.server.RegistryService;
+import github.javaguide.remoting.transport.netty.client.NettyRpcClient;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Utils of the registry server: its address ({@code rpc.registry.server.address}, port 9997 of the local host by
+ * default) and the client of its rpc service. The client has its own {@link NettyRpcClient}, which only connects
+ * to the registry server: looking up the registry server in the registry would not end.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class RegistryServerUtils {
+
+    public static final int DEFAULT_PORT = 9997;
+    public static final long DEFAULT_KEEPALIVE_MILLIS = 5000;
+    private static volatile RegistryService registryService;
+
+    private RegistryServerUtils() {
+    }
+
+    /**
+     * @return {@code rpc.registry.server.address} eg:192.168.1.10:9997
+     */
+    public static InetSocketAddress getServerAddress() {
+        String address = RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_SERVER_ADDRESS);
+        try {
+            if (StringUtil.isBlank(address)) {
+                return new InetSocketAddress(InetAddress.getLocalHost().getHostAddress(), DEFAULT_PORT);
+            }
+            int separator = address.lastIndexOf(':');
+            return separator < 0 ? new InetSocketAddress(address.trim(), DEFAULT_PORT)
+                    : new InetSocketAddress(address.substring(0, separator).trim(), Integer.parseInt(address.substring(separator + 1).trim()));
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            throw new RpcException("invalid registry server address [" + address + "]", e);
+        }
+    }
+
+    /**
+     * @return the interval of the keepalive events of a subscription, a client which receives nothing for three
+     * intervals subscribes again
+     */
+    public static long getKeepaliveMillis() {
+        return RpcConfigUtil.getLong(RpcConfigEnum.REGISTRY_SERVER_KEEPALIVE_MILLIS, DEFAULT_KEEPALIVE_MILLIS);
+    }
+
+    /**
+     * @return the client of the configured registry server, shared by the registration and the discovery of the process
+     */
+    public static RegistryService getRegistryService() {
+        RegistryService service = registryService;
+        if (service == null) {
+            synchronized (RegistryServerUtils.class) {
+                service = registryService;
+                if (service == null) {
+                    service = newRegistryService(getServerAddress());
+                    registryService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    public static RegistryService newRegistryService(InetSocketAddress serverAddress) {
+        NettyRpcClient nettyRpcClient = new NettyRpcClient(rpcRequest -> serverAddress);
+        return new RpcClientProxy(nettyRpcClient, new RpcServiceConfig()).getProxy(RegistryService.class);
+    }
+
+    /**
+     * @return eg:127.0.0.1:9998, as zookeeper names the provider
+     */
+    public static String toAddress(InetSocketAddress inetSocketAddress) {
+        String address = inetSocketAddress.toString();
+        return address.substring(address.lastIndexOf('/') + 1);
+    }
+}
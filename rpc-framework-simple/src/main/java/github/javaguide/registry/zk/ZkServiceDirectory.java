@@ -0,0 +1,283 @@
+package github.javaguide.registry.zk;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.registry.AbstractServiceDirectory;
+import github.javaguide.registry.ServiceProviders;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.ServiceSnapshotFile;
+import github.javaguide.registry.zk.util.CuratorUtils;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.utils.CloseableUtils;
+import org.apache.curator.utils.ZKPaths;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The providers of the services a client calls, pushed by zookeeper. The first lookup of a service loads its
+ * providers and watches them, so a lookup only reads the current snapshot: no zookeeper request, no parsing and
+ * no address resolution. The children added, updated and removed by the events are applied to the current
+ * snapshot, not read again.
+ * <p>
+ * The providers are also saved to a {@link ServiceSnapshotFile} ({@code rpc.registry.snapshot-file}, under
+ * ~/.guide-rpc by default, {@code none} to disable it). A service found in the file is served from it at once,
+ * marked stale, while its watch starts in the background, so the first calls do not wait for zookeeper and still
+ * find providers while zookeeper is down. The snapshots are also marked stale while the connection is lost.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class ZkServiceDirectory extends AbstractServiceDirectory {
+    private static final long SAVE_DELAY_MILLIS = 1000;
+    private static final long RETRY_MILLIS = 5000;
+    /**
+     * a service not looked up for that long is dropped from the snapshot file
+     */
+    private static final long MAX_CACHED_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final String NO_SNAPSHOT_FILE = "none";
+    private final Map<String, ServiceWatch> watches = new ConcurrentHashMap<>();
+    /**
+     * null if the providers are not saved
+     */
+    private final Path snapshotFile;
+    /**
+     * key: rpc service name, value: its providers as loaded from the snapshot file or last saved
+     */
+    private final Map<String, ServiceSnapshotFile.CachedService> cachedServices;
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final AtomicBoolean connectionWatched = new AtomicBoolean();
+
+    public ZkServiceDirectory() {
+        this(defaultSnapshotFile());
+    }
+
+    ZkServiceDirectory(Path snapshotFile) {
+        // a watch started in the background may wait for zookeeper, the other thread keeps applying the changes
+        super("registry-directory", 2);
+        this.snapshotFile = snapshotFile;
+        this.cachedServices = new ConcurrentHashMap<>(snapshotFile == null ? Collections.emptyMap() : ServiceSnapshotFile.load(snapshotFile));
+    }
+
+    private static Path defaultSnapshotFile() {
+        String file = RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_SNAPSHOT_FILE);
+        if (StringUtil.isBlank(file)) {
+            String zookeeperAddress = RpcConfigUtil.getProperty(RpcConfigEnum.ZK_ADDRESS, CuratorUtils.DEFAULT_ZOOKEEPER_ADDRESS);
+            return Paths.get(System.getProperty("user.home"), ".guide-rpc",
+                    "registry-" + zookeeperAddress.replaceAll("[^0-9A-Za-z.-]", "_") + ".cache");
+        }
+        return NO_SNAPSHOT_FILE.equals(file) ? null : Paths.get(file);
+    }
+
+    @Override
+    public ServiceSnapshot getSnapshot(String rpcServiceName) {
+        ServiceWatch watch = watches.get(rpcServiceName);
+        if (watch == null) {
+            // started outside of the map, the other lookups of the service wait for its first snapshot
+            ServiceWatch created = new ServiceWatch(rpcServiceName);
+            watch = watches.putIfAbsent(rpcServiceName, created);
+            if (watch == null) {
+                watch = created;
+                watch(created);
+            }
+        }
+        return watch.awaitSnapshot();
+    }
+
+    /**
+     * a service of the snapshot file is watched in the background, another one before its lookup returns. A watch
+     * that fails to start is removed, so the next lookup tries again.
+     */
+    private void watch(ServiceWatch watch) {
+        ServiceSnapshotFile.CachedService cached = cachedServices.get(watch.rpcServiceName);
+        if (cached == null || cached.getEndpoints().isEmpty()) {
+            try {
+                watch.start();
+            } catch (RuntimeException e) {
+                watches.remove(watch.rpcServiceName, watch);
+                watch.fail(e);
+                throw e;
+            }
+            return;
+        }
+        ServiceSnapshot restored = watch.providers.restore(cached.getEndpoints());
+        watch.loaded.countDown();
+        log.info("Service [{}] has [{}] providers from [{}]", watch.rpcServiceName, restored.getEndpoints().size(), snapshotFile);
+        scheduler.execute(watch::startInBackground);
+    }
+
+    @Override
+    protected void onServiceChanged(ServiceSnapshot snapshot) {
+        super.onServiceChanged(snapshot);
+        scheduleSave();
+    }
+
+    private void watchConnection() {
+        if (connectionWatched.compareAndSet(false, true)) {
+            CuratorUtils.getZkClient().getConnectionStateListenable().addListener((curatorFramework, newState) -> {
+                if (newState == ConnectionState.SUSPENDED || newState == ConnectionState.LOST) {
+                    watches.values().forEach(watch -> watch.markStale(true));
+                } else if (newState == ConnectionState.RECONNECTED) {
+                    watches.values().forEach(watch -> watch.markStale(false));
+                }
+            });
+        }
+    }
+
+    private void scheduleSave() {
+        if (snapshotFile != null && saveScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::save, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * the providers confirmed by zookeeper replace those of the file, the services of the file not looked up yet
+     * are kept
+     */
+    private void save() {
+        saveScheduled.set(false);
+        long now = System.currentTimeMillis();
+        for (ServiceWatch watch : watches.values()) {
+            ServiceSnapshot snapshot = watch.providers.getSnapshot();
+            if (!snapshot.isStale()) {
+                Map<String, Map<String, String>> endpoints = new LinkedHashMap<>();
+                snapshot.getEndpoints().forEach(endpoint -> endpoints.put(endpoint.getAddress(), endpoint.getMetadata()));
+                cachedServices.put(snapshot.getRpcServiceName(), new ServiceSnapshotFile.CachedService(now, endpoints));
+            }
+        }
+        cachedServices.values().removeIf(cached -> now - cached.getSavedAt() > MAX_CACHED_AGE_MILLIS);
+        try {
+            ServiceSnapshotFile.save(snapshotFile, new TreeMap<>(cachedServices));
+        } catch (IOException e) {
+            log.warn("save registry snapshot [{}] fail", snapshotFile, e);
+        }
+    }
+
+    private final class ServiceWatch {
+        private final String rpcServiceName;
+        private final ServiceProviders providers;
+        /**
+         * null until the watch started
+         */
+        private PathChildrenCache pathChildrenCache;
+        /**
+         * open once the providers are loaded, from zookeeper or from the snapshot file, or failed to load
+         */
+        private final CountDownLatch loaded = new CountDownLatch(1);
+        private volatile RuntimeException failure;
+
+        private ServiceWatch(String rpcServiceName) {
+            this.rpcServiceName = rpcServiceName;
+            this.providers = newServiceProviders(rpcServiceName);
+        }
+
+        /**
+         * loads the providers from zookeeper and watches them. The snapshot loaded from the file, if any, is
+         * replaced and the listeners get the difference.
+         */
+        private void start() {
+            String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
+            PathChildrenCache cache = new PathChildrenCache(CuratorUtils.getZkClient(), servicePath, true);
+            cache.getListenable().addListener((curatorFramework, pathChildrenCacheEvent) -> onEvent(pathChildrenCacheEvent));
+            // the events received meanwhile wait for the first snapshot, those already part of it change nothing
+            synchronized (providers) {
+                try {
+                    cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+                } catch (Exception e) {
+                    CloseableUtils.closeQuietly(cache);
+                    throw new RpcException("watch providers of [" + servicePath + "] fail", e);
+                }
+                pathChildrenCache = cache;
+                Map<String, byte[]> children = new LinkedHashMap<>();
+                for (ChildData child : cache.getCurrentData()) {
+                    children.put(ZKPaths.getNodeFromPath(child.getPath()), child.getData());
+                }
+                providers.reset(children);
+            }
+            loaded.countDown();
+            watchConnection();
+            scheduleSave();
+        }
+
+        private void fail(RuntimeException e) {
+            failure = e;
+            loaded.countDown();
+        }
+
+        private ServiceSnapshot awaitSnapshot() {
+            ServiceSnapshot snapshot = providers.getSnapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            try {
+                loaded.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RpcException("interrupted while the providers of [" + rpcServiceName + "] load", e);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return providers.getSnapshot();
+        }
+
+        private void startInBackground() {
+            try {
+                start();
+            } catch (RuntimeException e) {
+                log.warn("watch service [{}] fail, its providers from [{}] are used, retry in [{}] ms: {}",
+                        rpcServiceName, snapshotFile, RETRY_MILLIS, e.toString());
+                scheduler.schedule(this::startInBackground, RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * the snapshot of a watch not started yet stays stale
+         */
+        private void markStale(boolean stale) {
+            synchronized (providers) {
+                if (pathChildrenCache != null) {
+                    providers.markStale(stale);
+                }
+            }
+        }
+
+        /**
+         * connection events carry no child, the cache reports the children that changed meanwhile once reconnected
+         */
+        private void onEvent(PathChildrenCacheEvent event) {
+            ChildData child = event.getData();
+            if (child == null) {
+                return;
+            }
+            String address = ZKPaths.getNodeFromPath(child.getPath());
+            switch (event.getType()) {
+                case CHILD_ADDED:
+                case CHILD_UPDATED:
+                    providers.change(address, child.getData());
+                    break;
+                case CHILD_REMOVED:
+                    providers.change(address, null);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -1,19 +1,7 @@
 package github.javaguide.registry.zk;
 
-import github.javaguide.enums.LoadBalanceEnum;
-import github.javaguide.enums.RpcErrorMessageEnum;
-import github.javaguide.exception.RpcException;
-import github.javaguide.extension.ExtensionLoader;
-import github.javaguide.loadbalance.LoadBalance;
-import github.javaguide.registry.ServiceDiscovery;
-import github.javaguide.registry.zk.util.CuratorUtils;
-import github.javaguide.remoting.dto.RpcRequest;
-import github.javaguide.utils.CollectionUtil;
-import lombok.extern.slf4j.Slf4j;
-import org.apache.curator.framework.CuratorFramework;
-
-import java.net.InetSocketAddress;
-import java.util.List;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.registry.AbstractServiceDiscovery;
 
 /**
  * service discovery based on zookeeper
@@ -21,28 +9,9 @@ import java.util.List;
  * @author shuang.kou
  * @createTime 2020年06月01日 15:16:00
  */
-@Slf4j
-public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
-    private final LoadBalance loadBalance;
+public class ZkServiceDiscoveryImpl extends AbstractServiceDiscovery {
 
     public ZkServiceDiscoveryImpl() {
-        this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(LoadBalanceEnum.LOADBALANCENEW.getName());
-    }
-
-    @Override
-    public InetSocketAddress lookupService(RpcRequest rpcRequest) {
-        String rpcServiceName = rpcRequest.getRpcServiceName();
-        CuratorFramework zkClient = CuratorUtils.getZkClient();
-        List<String> serviceUrlList = CuratorUtils.getChildrenNodes(zkClient, rpcServiceName);
-        if (CollectionUtil.isEmpty(serviceUrlList)) {
-            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcServiceName);
-        }
-        // load balancing
-        String targetServiceUrl = loadBalance.selectServiceAddress(serviceUrlList, rpcRequest);
-        log.info("Successfully found the service address:[{}]", targetServiceUrl);
-        String[] socketAddressArray = targetServiceUrl.split(":");
-        String host = socketAddressArray[0];
-        int port = Integer.parseInt(socketAddressArray[1]);
-        return new InetSocketAddress(host, port);
+        super(SingletonFactory.getInstance(ZkServiceDirectory.class));
     }
 }
@@ -1,14 +1,19 @@
 package github.javaguide.registry.zk;
 
+import github.javaguide.registry.ProviderMetadata;
 import github.javaguide.registry.ServiceRegistry;
 import github.javaguide.registry.zk.util.CuratorUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 
 import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * service registration  based on zookeeper
+ * service registration  based on zookeeper. A provider is an ephemeral node, so a provider that dies without
+ * unregistering, killed or out of memory, is removed once its session times out
+ * ({@code rpc.zookeeper.session-timeout-millis}).
  *
  * @author shuang.kou
  * @createTime 2020年05月31日 10:56:00
@@ -20,6 +25,36 @@ public class ZkServiceRegistryImpl implements ServiceRegistry {
     public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress) {
         String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + inetSocketAddress.toString();
         CuratorFramework zkClient = CuratorUtils.getZkClient();
-        CuratorUtils.createPersistentNode(zkClient, servicePath);
+        CuratorUtils.registerEphemeralNode(zkClient, servicePath, new byte[0]);
+    }
+
+    /**
+     * the metadata is kept as the data of the provider node, one key=value per line
+     */
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, Map<String, String> metadata) {
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + inetSocketAddress.toString();
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        CuratorUtils.registerEphemeralNode(zkClient, servicePath, ProviderMetadata.encode(metadata));
+    }
+
+    /**
+     * the nodes of all the services are created in one transaction
+     */
+    @Override
+    public void registerServices(Map<String, Map<String, String>> serviceMetadata, InetSocketAddress inetSocketAddress) {
+        Map<String, byte[]> nodes = new LinkedHashMap<>();
+        serviceMetadata.forEach((rpcServiceName, metadata) -> nodes.put(
+                CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + inetSocketAddress.toString(), ProviderMetadata.encode(metadata)));
+        CuratorUtils.registerEphemeralNodes(CuratorUtils.getZkClient(), nodes);
+    }
+
+    @Override
+    public void unregisterServices(InetSocketAddress inetSocketAddress) {
+        // a process serving without registering, like the registry server, does not wait for zookeeper when it stops
+        if (!CuratorUtils.hasRegisteredNodes()) {
+            return;
+        }
+        CuratorUtils.clearRegistry(CuratorUtils.getZkClient(), inetSocketAddress);
     }
 }
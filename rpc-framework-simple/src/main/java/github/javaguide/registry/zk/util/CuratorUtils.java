@@ -1,21 +1,24 @@
 package github.javaguide.registry.zk.util;
 
 import github.javaguide.enums.RpcConfigEnum;
-import github.javaguide.utils.PropertiesFileUtil;
+import github.javaguide.utils.RpcConfigUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
-import org.apache.curator.framework.recipes.cache.PathChildrenCache;
-import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.ZKPaths;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.data.Stat;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -32,10 +35,14 @@ public final class CuratorUtils {
     private static final int BASE_SLEEP_TIME = 1000;
     private static final int MAX_RETRIES = 3;
     public static final String ZK_REGISTER_ROOT_PATH = "/my-rpc";
-    private static final Map<String, List<String>> SERVICE_ADDRESS_MAP = new ConcurrentHashMap<>();
     private static final Set<String> REGISTERED_PATH_SET = ConcurrentHashMap.newKeySet();
-    private static CuratorFramework zkClient;
-    private static final String DEFAULT_ZOOKEEPER_ADDRESS = "127.0.0.1:2181";
+    /**
+     * key: ephemeral node registered by this process, value: its data
+     */
+    private static final Map<String, byte[]> EPHEMERAL_NODE_MAP = new ConcurrentHashMap<>();
+    private static final int DEFAULT_SESSION_TIMEOUT_MILLIS = 30_000;
+    private static volatile CuratorFramework zkClient;
+    public static final String DEFAULT_ZOOKEEPER_ADDRESS = "127.0.0.1:2181";
 
     private CuratorUtils() {
     }
@@ -61,25 +68,98 @@ public final class CuratorUtils {
     }
 
     /**
-     * Gets the children under a node
+     * Create an ephemeral node holding the given data, removed by zookeeper once the session of this client ends,
+     * even if the process is killed. The node is created again each time the client reconnects, so that it comes
+     * back after the session expired.
      *
-     * @param rpcServiceName rpc service name eg:github.javaguide.HelloServicetest2version1
-     * @return All child nodes under the specified node
+     * @param path node path
+     * @param data node data
      */
-    public static List<String> getChildrenNodes(CuratorFramework zkClient, String rpcServiceName) {
-        if (SERVICE_ADDRESS_MAP.containsKey(rpcServiceName)) {
-            return SERVICE_ADDRESS_MAP.get(rpcServiceName);
+    public static void registerEphemeralNode(CuratorFramework zkClient, String path, byte[] data) {
+        EPHEMERAL_NODE_MAP.put(path, data);
+        REGISTERED_PATH_SET.add(path);
+        ensureEphemeralNode(zkClient, path, data);
+    }
+
+    /**
+     * Create ephemeral nodes as {@link #registerEphemeralNode} does, in one transaction: one read of the children
+     * of the root node to find the missing service nodes, and one multi request, whatever the number of nodes.
+     * If the transaction fails, a node of an earlier session exists for instance, the nodes are created one by one.
+     *
+     * @param nodes key: node path eg:/my-rpc/github.javaguide.HelloService/127.0.0.1:9999, value: node data
+     */
+    public static void registerEphemeralNodes(CuratorFramework zkClient, Map<String, byte[]> nodes) {
+        if (nodes.isEmpty()) {
+            return;
         }
-        List<String> result = null;
-        String servicePath = ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
+        EPHEMERAL_NODE_MAP.putAll(nodes);
+        REGISTERED_PATH_SET.addAll(nodes.keySet());
         try {
-            result = zkClient.getChildren().forPath(servicePath);
-            SERVICE_ADDRESS_MAP.put(rpcServiceName, result);
-            registerWatcher(rpcServiceName, zkClient);
+            List<CuratorOp> operations = new ArrayList<>();
+            Set<String> existingPaths = new HashSet<>();
+            if (zkClient.checkExists().forPath(ZK_REGISTER_ROOT_PATH) == null) {
+                operations.add(zkClient.transactionOp().create().withMode(CreateMode.PERSISTENT).forPath(ZK_REGISTER_ROOT_PATH));
+            } else {
+                for (String child : zkClient.getChildren().forPath(ZK_REGISTER_ROOT_PATH)) {
+                    existingPaths.add(ZKPaths.makePath(ZK_REGISTER_ROOT_PATH, child));
+                }
+            }
+            for (String path : nodes.keySet()) {
+                String parent = ZKPaths.getPathAndNode(path).getPath();
+                if (existingPaths.add(parent)) {
+                    operations.add(zkClient.transactionOp().create().withMode(CreateMode.PERSISTENT).forPath(parent));
+                }
+            }
+            for (Map.Entry<String, byte[]> node : nodes.entrySet()) {
+                operations.add(zkClient.transactionOp().create().withMode(CreateMode.EPHEMERAL).forPath(node.getKey(), node.getValue()));
+            }
+            zkClient.transaction().forOperations(operations);
+            log.info("[{}] nodes were created in one transaction", nodes.size());
         } catch (Exception e) {
-            log.error("get children nodes for path [{}] fail", servicePath);
+            log.info("create [{}] nodes in one transaction fail, create them one by one: {}", nodes.size(), e.toString());
+            nodes.forEach((path, data) -> ensureEphemeralNode(zkClient, path, data));
         }
-        return result;
+    }
+
+    /**
+     * A node left by an earlier session, or a persistent node of an earlier version, is replaced: it would be
+     * removed with its session, or never.
+     */
+    private static void ensureEphemeralNode(CuratorFramework zkClient, String path, byte[] data) {
+        try {
+            long sessionId = zkClient.getZookeeperClient().getZooKeeper().getSessionId();
+            Stat stat = zkClient.checkExists().forPath(path);
+            if (stat != null && stat.getEphemeralOwner() == sessionId) {
+                zkClient.setData().forPath(path, data);
+                log.info("The node already exists, its data was updated. The node is:[{}]", path);
+                return;
+            }
+            if (stat != null) {
+                zkClient.delete().forPath(path);
+            }
+            zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(path, data);
+            log.info("The node was created successfully. The node is:[{}]", path);
+        } catch (Exception e) {
+            log.error("create ephemeral node for path [{}] fail", path, e);
+        }
+    }
+
+    /**
+     * a session expires while the client is disconnected, the client is then reconnected with a new session
+     * and the nodes of the expired session are gone
+     */
+    private static void onConnectionStateChanged(CuratorFramework zkClient, ConnectionState newState) {
+        if (newState == ConnectionState.RECONNECTED) {
+            log.info("Reconnected to zookeeper, register [{}] ephemeral nodes again", EPHEMERAL_NODE_MAP.size());
+            EPHEMERAL_NODE_MAP.forEach((path, data) -> ensureEphemeralNode(zkClient, path, data));
+        }
+    }
+
+    /**
+     * @return whether this process registered a node, a process which did not has nothing to clear
+     */
+    public static boolean hasRegisteredNodes() {
+        return !REGISTERED_PATH_SET.isEmpty();
     }
 
     /**
@@ -89,6 +169,7 @@ public final class CuratorUtils {
         REGISTERED_PATH_SET.stream().parallel().forEach(p -> {
             try {
                 if (p.endsWith(inetSocketAddress.toString())) {
+                    EPHEMERAL_NODE_MAP.remove(p);
                     zkClient.delete().forPath(p);
                 }
             } catch (Exception e) {
@@ -99,20 +180,30 @@ public final class CuratorUtils {
     }
 
     public static CuratorFramework getZkClient() {
-        // check if user has set zk address
-        Properties properties = PropertiesFileUtil.readPropertiesFile(RpcConfigEnum.RPC_CONFIG_PATH.getPropertyValue());
-        String zookeeperAddress = properties != null && properties.getProperty(RpcConfigEnum.ZK_ADDRESS.getPropertyValue()) != null ? properties.getProperty(RpcConfigEnum.ZK_ADDRESS.getPropertyValue()) : DEFAULT_ZOOKEEPER_ADDRESS;
         // if zkClient has been started, return directly
+        CuratorFramework client = zkClient;
+        if (client != null && client.getState() == CuratorFrameworkState.STARTED) {
+            return client;
+        }
+        return startZkClient();
+    }
+
+    private static synchronized CuratorFramework startZkClient() {
         if (zkClient != null && zkClient.getState() == CuratorFrameworkState.STARTED) {
             return zkClient;
         }
+        // check if user has set zk address
+        String zookeeperAddress = RpcConfigUtil.getProperty(RpcConfigEnum.ZK_ADDRESS, DEFAULT_ZOOKEEPER_ADDRESS);
         // Retry strategy. Retry 3 times, and will increase the sleep time between retries.
         RetryPolicy retryPolicy = new ExponentialBackoffRetry(BASE_SLEEP_TIME, MAX_RETRIES);
         zkClient = CuratorFrameworkFactory.builder()
                 // the server to connect to (can be a server list)
                 .connectString(zookeeperAddress)
+                // the ephemeral nodes of a dead provider are removed once its session times out
+                .sessionTimeoutMs(RpcConfigUtil.getInt(RpcConfigEnum.ZK_SESSION_TIMEOUT_MILLIS, DEFAULT_SESSION_TIMEOUT_MILLIS))
                 .retryPolicy(retryPolicy)
                 .build();
+        zkClient.getConnectionStateListenable().addListener(CuratorUtils::onConnectionStateChanged);
         zkClient.start();
         try {
             // wait 30s until connect to the zookeeper
@@ -125,21 +216,6 @@ public final class CuratorUtils {
         return zkClient;
     }
 
-    /**
-     * Registers to listen for changes to the specified node
-     *
-     * @param rpcServiceName rpc service name eg:github.javaguide.HelloServicetest2version
-     */
-    private static void registerWatcher(String rpcServiceName, CuratorFramework zkClient) throws Exception {
-        String servicePath = ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
-        PathChildrenCache pathChildrenCache = new PathChildrenCache(zkClient, servicePath, true);
-        PathChildrenCacheListener pathChildrenCacheListener = (curatorFramework, pathChildrenCacheEvent) -> {
-            List<String> serviceAddresses = curatorFramework.getChildren().forPath(servicePath);
-            SERVICE_ADDRESS_MAP.put(rpcServiceName, serviceAddresses);
-        };
-        pathChildrenCache.getListenable().addListener(pathChildrenCacheListener);
-        pathChildrenCache.start();
-    }
     /**
      * 创建临时结点
      * */
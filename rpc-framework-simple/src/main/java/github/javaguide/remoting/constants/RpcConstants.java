@@ -15,8 +15,10 @@ public class RpcConstants {
      */
     public static final byte[] MAGIC_NUMBER = {(byte) 'g', (byte) 'r', (byte) 'p', (byte) 'c'};
     public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
-    //version information
-    public static final byte VERSION = 1;
+    //version information: 2 adds the envelope codec, blob attachments, batch requests and streams
+    public static final byte VERSION = 2;
+    //the version of the frames of a provider registered without a protocol version, and of heartbeats
+    public static final byte BASELINE_VERSION = 1;
     public static final byte TOTAL_LENGTH = 16;
     public static final byte REQUEST_TYPE = 1;
     public static final byte RESPONSE_TYPE = 2;
@@ -24,9 +26,36 @@ public class RpcConstants {
     public static final byte HEARTBEAT_REQUEST_TYPE = 3;
     //pong
     public static final byte HEARTBEAT_RESPONSE_TYPE = 4;
+    //several requests to the same provider in one frame, answered by one RESPONSE_TYPE message per request
+    public static final byte BATCH_REQUEST_TYPE = 5;
+    //a frame of a stream, the requestId of the header is the stream id
+    public static final byte STREAM_TYPE = 6;
+    //set in the messageType of a message followed by raw blob segments
+    public static final byte ATTACHMENT_FLAG = (byte) 0x80;
+    //set in the messageType of a request or response whose envelope fields are written by the codec itself
+    public static final byte ENVELOPE_FLAG = 0x40;
     public static final int HEAD_LENGTH = 16;
     public static final String PING = "ping";
     public static final String PONG = "pong";
     public static final int MAX_FRAME_LENGTH = 8 * 1024 * 1024;
+    public static final int DEFAULT_BATCH_MAX_SIZE = 32;
+    public static final long DEFAULT_BATCH_MAX_DELAY_MICROS = 200;
+    //a caller stops waiting for the response of its request after 30s
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 30 * 1000;
+    //bodies of at least 16KB are decoded on the consuming thread instead of the IO thread
+    public static final int DEFAULT_LAZY_DECODE_THRESHOLD = 16 * 1024;
+    //items a stream may send before the receiver grants more credit
+    public static final int DEFAULT_STREAM_WINDOW = 64;
+    //provider metadata in the registry: the serializer the clients should use and the serializers it understands
+    public static final String METADATA_SERIALIZER = "serializer";
+    public static final String METADATA_CODECS = "codecs";
+    //and what the clients may pick providers by: its weight, zone, compressors, protocol version, cpus and start time
+    public static final String METADATA_WEIGHT = "weight";
+    public static final String METADATA_ZONE = "zone";
+    public static final String METADATA_COMPRESSORS = "compressors";
+    public static final String METADATA_PROTOCOL = "protocol";
+    public static final String METADATA_CPUS = "cpus";
+    public static final String METADATA_START_TIME = "start-time";
+    public static final int DEFAULT_WEIGHT = 100;
 
 }
@@ -0,0 +1,39 @@
+package github.javaguide.remoting.dto;
+
+import io.netty.util.Recycler;
+
+/**
+ * Base class of the envelope objects which can be taken from a Netty {@link Recycler} instead of being allocated
+ * for every call. The handle is kept out of the subclasses, so it is neither serialized nor part of their builders.
+ * <p>
+ * Objects created with {@code new} or by a serializer have no handle, recycling them does nothing.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public abstract class AbstractRecyclable<T extends AbstractRecyclable<T>> {
+    private transient Recycler.Handle<T> recyclerHandle;
+
+    protected AbstractRecyclable() {
+    }
+
+    protected AbstractRecyclable(Recycler.Handle<T> recyclerHandle) {
+        this.recyclerHandle = recyclerHandle;
+    }
+
+    /**
+     * Return the object to its pool. It must not be used by anyone afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    public void recycle() {
+        if (recyclerHandle != null) {
+            clear();
+            recyclerHandle.recycle((T) this);
+        }
+    }
+
+    /**
+     * reset every field, so that a pooled object does not keep its previous content reachable
+     */
+    protected abstract void clear();
+}
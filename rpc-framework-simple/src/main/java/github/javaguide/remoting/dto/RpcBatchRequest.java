@@ -0,0 +1,27 @@
+package github.javaguide.remoting.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Several requests bound for the same provider, sent in one frame.
+ * The server answers every request with its own {@link RpcResponse}.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@ToString
+public class RpcBatchRequest implements Serializable {
+    private static final long serialVersionUID = -3209436513357845113L;
+    private List<RpcRequest> requests;
+    /**
+     * the message id of every request, in the same order, echoed in the header of its response
+     */
+    private int[] messageIds;
+}
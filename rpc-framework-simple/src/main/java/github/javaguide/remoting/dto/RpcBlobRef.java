@@ -0,0 +1,26 @@
+package github.javaguide.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+/**
+ * Serialized in place of a blob parameter or result, which travels as a raw segment after the body.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class RpcBlobRef implements Serializable {
+    private static final long serialVersionUID = -6015336622512785404L;
+    /**
+     * index of the segment
+     */
+    private int index;
+}
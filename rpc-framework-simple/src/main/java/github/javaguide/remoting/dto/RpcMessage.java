@@ -1,8 +1,11 @@
 package github.javaguide.remoting.dto;
 
 
+import io.netty.util.Recycler;
 import lombok.*;
 
+import java.util.List;
+
 /**
  * @author wangtao
  * @createTime 2020年10月2日 12:33
@@ -13,8 +16,18 @@ import lombok.*;
 @Setter
 @Builder
 @ToString
-public class RpcMessage {
+public class RpcMessage extends AbstractRecyclable<RpcMessage> {
+    private static final Recycler<RpcMessage> RECYCLER = new Recycler<RpcMessage>() {
+        @Override
+        protected RpcMessage newObject(Handle<RpcMessage> handle) {
+            return new RpcMessage(handle);
+        }
+    };
 
+    /**
+     * protocol version of the frame, 0 for {@link github.javaguide.remoting.constants.RpcConstants#VERSION}
+     */
+    private byte version;
     /**
      * rpc message type
      */
@@ -35,5 +48,31 @@ public class RpcMessage {
      * request data
      */
     private Object data;
+    /**
+     * blobs sent as raw segments after the body, see BlobAttachments
+     */
+    private List<Object> attachments;
+
+    private RpcMessage(Recycler.Handle<RpcMessage> handle) {
+        super(handle);
+    }
+
+    /**
+     * @return an empty message from the pool of the current thread, see {@link #recycle()}
+     */
+    public static RpcMessage newInstance() {
+        return RECYCLER.get();
+    }
+
+    @Override
+    protected void clear() {
+        version = 0;
+        messageType = 0;
+        codec = 0;
+        compress = 0;
+        requestId = 0;
+        data = null;
+        attachments = null;
+    }
 
 }
@@ -0,0 +1,24 @@
+package github.javaguide.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * The user part of an envelope encoded message: the parameters of a request or the data of a response.
+ * It is the only object handed to the serializer, the envelope fields are written by the codec itself.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RpcPayload implements Serializable {
+    private static final long serialVersionUID = 4207155112838207541L;
+    private Object value;
+}
@@ -1,5 +1,6 @@
 package github.javaguide.remoting.dto;
 
+import io.netty.util.Recycler;
 import lombok.*;
 
 import java.io.Serializable;
@@ -13,8 +14,14 @@ import java.io.Serializable;
 @Getter
 @Builder
 @ToString
-public class RpcRequest implements Serializable {
+public class RpcRequest extends AbstractRecyclable<RpcRequest> implements Serializable {
     private static final long serialVersionUID = 1905122041950251207L;
+    private static final Recycler<RpcRequest> RECYCLER = new Recycler<RpcRequest>() {
+        @Override
+        protected RpcRequest newObject(Handle<RpcRequest> handle) {
+            return new RpcRequest(handle);
+        }
+    };
     private String requestId;
     private String interfaceName;
     private String methodName;
@@ -22,8 +29,45 @@ public class RpcRequest implements Serializable {
     private Class<?>[] paramTypes;
     private String version;
     private String group;
+    /**
+     * serializer the client prefers for this request, not written to the wire
+     */
+    @Setter
+    private transient String serializer;
+
+    private RpcRequest(Recycler.Handle<RpcRequest> handle) {
+        super(handle);
+    }
+
+    /**
+     * @return a request from the pool of the current thread, see {@link #recycle()}
+     */
+    public static RpcRequest newInstance(String requestId, String interfaceName, String methodName, Object[] parameters,
+                                         Class<?>[] paramTypes, String version, String group) {
+        RpcRequest rpcRequest = RECYCLER.get();
+        rpcRequest.requestId = requestId;
+        rpcRequest.interfaceName = interfaceName;
+        rpcRequest.methodName = methodName;
+        rpcRequest.parameters = parameters;
+        rpcRequest.paramTypes = paramTypes;
+        rpcRequest.version = version;
+        rpcRequest.group = group;
+        return rpcRequest;
+    }
 
     public String getRpcServiceName() {
         return this.getInterfaceName() + this.getGroup() + this.getVersion();
     }
+
+    @Override
+    protected void clear() {
+        requestId = null;
+        interfaceName = null;
+        methodName = null;
+        parameters = null;
+        paramTypes = null;
+        version = null;
+        group = null;
+        serializer = null;
+    }
 }
@@ -1,6 +1,7 @@
 package github.javaguide.remoting.dto;
 
 import github.javaguide.enums.RpcResponseCodeEnum;
+import io.netty.util.Recycler;
 import lombok.*;
 
 import java.io.Serializable;
@@ -15,9 +16,16 @@ import java.io.Serializable;
 @Setter
 @Builder
 @ToString
-public class RpcResponse<T> implements Serializable {
+public class RpcResponse<T> extends AbstractRecyclable<RpcResponse<T>> implements Serializable {
 
     private static final long serialVersionUID = 715745410605631233L;
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final Recycler<RpcResponse> RECYCLER = new Recycler<RpcResponse>() {
+        @Override
+        protected RpcResponse newObject(Handle<RpcResponse> handle) {
+            return new RpcResponse((Handle) handle);
+        }
+    };
     private String requestId;
     /**
      * response code
@@ -32,8 +40,20 @@ public class RpcResponse<T> implements Serializable {
      */
     private T data;
 
+    private RpcResponse(Recycler.Handle<RpcResponse<T>> handle) {
+        super(handle);
+    }
+
+    /**
+     * @return an empty response from the pool of the current thread, see {@link #recycle()}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RpcResponse<T> newInstance() {
+        return (RpcResponse<T>) RECYCLER.get();
+    }
+
     public static <T> RpcResponse<T> success(T data, String requestId) {
-        RpcResponse<T> response = new RpcResponse<>();
+        RpcResponse<T> response = newInstance();
         response.setCode(RpcResponseCodeEnum.SUCCESS.getCode());
         response.setMessage(RpcResponseCodeEnum.SUCCESS.getMessage());
         response.setRequestId(requestId);
@@ -44,10 +64,24 @@ public class RpcResponse<T> implements Serializable {
     }
 
     public static <T> RpcResponse<T> fail(RpcResponseCodeEnum rpcResponseCodeEnum) {
-        RpcResponse<T> response = new RpcResponse<>();
+        RpcResponse<T> response = newInstance();
         response.setCode(rpcResponseCodeEnum.getCode());
         response.setMessage(rpcResponseCodeEnum.getMessage());
         return response;
     }
 
+    public static <T> RpcResponse<T> fail(RpcResponseCodeEnum rpcResponseCodeEnum, String requestId) {
+        RpcResponse<T> response = fail(rpcResponseCodeEnum);
+        response.setRequestId(requestId);
+        return response;
+    }
+
+    @Override
+    protected void clear() {
+        requestId = null;
+        code = null;
+        message = null;
+        data = null;
+    }
+
 }
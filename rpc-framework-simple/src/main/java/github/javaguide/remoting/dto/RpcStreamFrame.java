@@ -0,0 +1,41 @@
+package github.javaguide.remoting.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * A frame of a stream, the stream id is the requestId of the message header.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class RpcStreamFrame implements Serializable {
+    private static final long serialVersionUID = 4432760916583125073L;
+    /**
+     * client -> server, payload: the RpcRequest, credit: the items the server may send
+     */
+    public static final byte OPEN = 1;
+    /**
+     * payload: an item
+     */
+    public static final byte DATA = 2;
+    /**
+     * credit: the additional items the peer may send
+     */
+    public static final byte REQUEST = 3;
+    public static final byte COMPLETE = 4;
+    /**
+     * payload: the error message
+     */
+    public static final byte ERROR = 5;
+    public static final byte CANCEL = 6;
+
+    private byte kind;
+    private long credit;
+    private Object payload;
+}
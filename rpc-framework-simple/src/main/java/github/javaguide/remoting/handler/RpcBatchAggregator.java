@@ -0,0 +1,131 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.exception.RpcException;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import github.javaguide.utils.metrics.Histogram;
+import github.javaguide.utils.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges the calls of a {@link github.javaguide.annotation.RpcBatch} method that arrive within its window,
+ * from any connection, into one call of the batch method, and fans the results back out.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class RpcBatchAggregator {
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService invoker;
+    private final Histogram batchSizeHistogram = MetricRegistry.histogram("rpc.server.aggregate.size");
+
+    public RpcBatchAggregator() {
+        this(ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("rpc-batch-invoker"));
+    }
+
+    RpcBatchAggregator(ExecutorService invoker) {
+        this.scheduler = new ScheduledThreadPoolExecutor(1, ThreadPoolFactoryUtil.createThreadFactory("rpc-batch-aggregator", true));
+        this.invoker = invoker;
+    }
+
+    public CompletableFuture<Object> submit(RpcBatchMethod rpcBatchMethod, Object argument) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Window window = windows.computeIfAbsent(rpcBatchMethod.getKey(), k -> new Window());
+        Window.Calls ready = null;
+        boolean opened;
+        synchronized (window) {
+            opened = window.calls.arguments.isEmpty();
+            window.calls.arguments.add(argument);
+            window.calls.futures.add(future);
+            if (window.calls.arguments.size() >= rpcBatchMethod.getMaxSize()) {
+                ready = window.drain();
+            }
+        }
+        if (ready != null) {
+            execute(rpcBatchMethod, ready);
+        } else if (opened) {
+            scheduler.schedule(() -> flush(rpcBatchMethod, window), rpcBatchMethod.getWindowMicros(), TimeUnit.MICROSECONDS);
+        }
+        return future;
+    }
+
+    private void flush(RpcBatchMethod rpcBatchMethod, Window window) {
+        Window.Calls ready;
+        synchronized (window) {
+            if (window.calls.arguments.isEmpty()) {
+                return;
+            }
+            ready = window.drain();
+        }
+        execute(rpcBatchMethod, ready);
+    }
+
+    /**
+     * invoke the batch method on the invoker pool, or on the calling thread when the pool is full, so the merged
+     * calls are always answered
+     */
+    private void execute(RpcBatchMethod rpcBatchMethod, Window.Calls calls) {
+        try {
+            invoker.execute(() -> invoke(rpcBatchMethod, calls));
+        } catch (RejectedExecutionException e) {
+            log.warn("[{}] invoker pool is full, invoke [{}] merged calls on the calling thread", rpcBatchMethod.getKey(), calls.arguments.size());
+            invoke(rpcBatchMethod, calls);
+        }
+    }
+
+    private void invoke(RpcBatchMethod rpcBatchMethod, Window.Calls calls) {
+        batchSizeHistogram.record(calls.arguments.size());
+        try {
+            Object results = rpcBatchMethod.getBatchMethod().invoke(rpcBatchMethod.getService(), calls.arguments);
+            log.info("[{}] merged [{}] calls", rpcBatchMethod.getKey(), calls.arguments.size());
+            for (int i = 0; i < calls.futures.size(); i++) {
+                calls.futures.get(i).complete(resultOf(rpcBatchMethod, results, i, calls.arguments.get(i)));
+            }
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+            RpcException rpcException = new RpcException(e.getMessage(), e);
+            calls.futures.forEach(f -> f.completeExceptionally(rpcException));
+        }
+    }
+
+    private Object resultOf(RpcBatchMethod rpcBatchMethod, Object results, int index, Object argument) {
+        if (results instanceof List) {
+            List<?> list = (List<?>) results;
+            if (index >= list.size()) {
+                throw new IllegalStateException(rpcBatchMethod.getKey() + " returned fewer results than arguments");
+            }
+            return list.get(index);
+        }
+        if (results instanceof Map) {
+            return ((Map<?, ?>) results).get(argument);
+        }
+        throw new IllegalStateException(rpcBatchMethod.getKey() + " must return a List or a Map");
+    }
+
+    private static class Window {
+        private Calls calls = new Calls();
+
+        private Calls drain() {
+            Calls drained = calls;
+            calls = new Calls();
+            return drained;
+        }
+
+        private static class Calls {
+            private final List<Object> arguments = new ArrayList<>();
+            private final List<CompletableFuture<Object>> futures = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcBatch;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.lang.reflect.Method;
+
+/**
+ * A service method annotated with {@link RpcBatch}, and the batch method its calls are merged into
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class RpcBatchMethod {
+    /**
+     * rpc service name + method name, calls with the same key are merged
+     */
+    private final String key;
+    private final Object service;
+    /**
+     * the parameter type of the single method
+     */
+    private final Class<?> parameterType;
+    private final Method batchMethod;
+    private final long windowMicros;
+    private final int maxSize;
+}
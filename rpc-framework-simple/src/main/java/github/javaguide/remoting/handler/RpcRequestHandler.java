@@ -1,14 +1,19 @@
 package github.javaguide.remoting.handler;
 
+import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.stream.RpcStream;
+import github.javaguide.remoting.stream.StreamObserver;
+import github.javaguide.stub.RpcSkeleton;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * RpcRequest processor
@@ -19,9 +24,30 @@ import java.lang.reflect.Method;
 @Slf4j
 public class RpcRequestHandler {
     private final ServiceProvider serviceProvider;
+    private final RpcBatchAggregator rpcBatchAggregator;
 
     public RpcRequestHandler() {
         serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        rpcBatchAggregator = SingletonFactory.getInstance(RpcBatchAggregator.class);
+    }
+
+    /**
+     * Processing rpcRequest asynchronously: calls of a method annotated with RpcBatch are merged with other calls
+     * arriving within its window, other calls are executed at once on the calling thread
+     */
+    public CompletableFuture<Object> handleAsync(RpcRequest rpcRequest) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            RpcBatchMethod rpcBatchMethod = serviceProvider.getBatchMethod(rpcRequest.getRpcServiceName(), rpcRequest.getMethodName());
+            if (rpcBatchMethod != null && rpcRequest.getParamTypes().length == 1
+                    && rpcRequest.getParamTypes()[0] == rpcBatchMethod.getParameterType()) {
+                return rpcBatchAggregator.submit(rpcBatchMethod, rpcRequest.getParameters()[0]);
+            }
+            future.complete(handle(rpcRequest));
+        } catch (RpcException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     /**
@@ -29,9 +55,44 @@ public class RpcRequestHandler {
      */
     public Object handle(RpcRequest rpcRequest) {
         Object service = serviceProvider.getService(rpcRequest.getRpcServiceName());
+        RpcSkeleton rpcSkeleton = serviceProvider.getSkeleton(rpcRequest.getRpcServiceName());
+        if (rpcSkeleton != null) {
+            int methodIndex = rpcSkeleton.methodIndex(rpcRequest.getMethodName(), rpcRequest.getParamTypes());
+            if (methodIndex >= 0) {
+                return invokeSkeleton(rpcRequest, service, rpcSkeleton, methodIndex);
+            }
+        }
         return invokeTargetMethod(rpcRequest, service);
     }
 
+    /**
+     * Processing the request of a streaming method: pass the observer sending items to the client as its StreamObserver parameter
+     *
+     * @return the observer of the client's items for a bidirectional stream
+     */
+    public Object handleStream(RpcRequest rpcRequest, StreamObserver<Object> responseObserver) {
+        int index = RpcStream.streamObserverIndex(rpcRequest.getParamTypes());
+        if (index < 0) {
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, "not a streaming method: " + rpcRequest.getMethodName());
+        }
+        rpcRequest.getParameters()[index] = responseObserver;
+        return handle(rpcRequest);
+    }
+
+    /**
+     * call the method through the generated skeleton, without reflection
+     */
+    private Object invokeSkeleton(RpcRequest rpcRequest, Object service, RpcSkeleton rpcSkeleton, int methodIndex) {
+        Object result;
+        try {
+            result = rpcSkeleton.invoke(service, methodIndex, rpcRequest.getParameters());
+            log.info("service:[{}] successful invoke method:[{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+        } catch (Throwable e) {
+            throw new RpcException(e.getMessage(), e);
+        }
+        return result;
+    }
+
     /**
      * get method execution results
      *
@@ -0,0 +1,350 @@
+package github.javaguide.remoting.stream;
+
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcStreamFrame;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One end of a stream, the same on the client and on the server.
+ * <p>
+ * Outbound: {@link #getOutboundObserver()} sends DATA frames while the peer has granted credit and blocks otherwise.
+ * Inbound: frames are delivered in order to the inbound observer on the stream-observer pool, never on the IO thread.
+ * Every consumed item is counted, and credit for them is granted back to the peer once half of the window is consumed.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class RpcStream implements StreamSubscription {
+    private static final ExecutorService OBSERVER_EXECUTOR = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("stream-observer");
+
+    private final Channel channel;
+    @Getter
+    private final int streamId;
+    private final int window;
+    /**
+     * serializer and compression of every frame of the stream, the server answers with those of the OPEN frame
+     */
+    private final byte codec;
+    private final byte compress;
+    private final RpcStreamRegistry registry;
+    private final StreamObserver<Object> outboundObserver = new OutboundObserver();
+    /**
+     * received frames (decoded or LazyPayload) waiting to be delivered
+     */
+    private final Queue<Object> inbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile StreamObserver<Object> inboundObserver;
+    /**
+     * items the peer still accepts, guarded by this
+     */
+    private long outboundCredit;
+    /**
+     * cancelled by either side or the connection is closed, guarded by this
+     */
+    private boolean cancelled;
+    private volatile boolean outboundDone;
+    private volatile boolean inboundDone;
+    /**
+     * only accessed by the delivering thread
+     */
+    private int consumed;
+
+    public RpcStream(Channel channel, int streamId, int window, byte codec, byte compress) {
+        this.channel = channel;
+        this.streamId = streamId;
+        this.window = window;
+        this.codec = codec;
+        this.compress = compress;
+        this.registry = RpcStreamRegistry.of(channel);
+        registry.put(this);
+    }
+
+    /**
+     * @param paramTypes parameter types of a service method
+     * @return index of the StreamObserver parameter, -1 if there is none
+     */
+    public static int streamObserverIndex(Class<?>[] paramTypes) {
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (paramTypes[i] == StreamObserver.class) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * the observer used to send items to the peer
+     */
+    public StreamObserver<Object> getOutboundObserver() {
+        return outboundObserver;
+    }
+
+    /**
+     * set the observer receiving the items of the peer, the frames received before are delivered to it
+     */
+    public void setInboundObserver(StreamObserver<Object> observer) {
+        observer.onSubscribe(this);
+        this.inboundObserver = observer;
+        drain();
+    }
+
+    /**
+     * open the stream on the client side
+     *
+     * @param rpcRequest the request of the streaming method, its StreamObserver parameter is null
+     */
+    public void open(Object rpcRequest) {
+        write(RpcStreamFrame.OPEN, window, rpcRequest);
+    }
+
+    /**
+     * accept the stream on the server side: take the credit granted by the OPEN frame and grant the client the credit of a whole window
+     */
+    public void accept(long initialCredit) {
+        addCredit(initialCredit);
+        write(RpcStreamFrame.REQUEST, window, null);
+    }
+
+    /**
+     * handle the data of a STREAM message received for this stream
+     */
+    public void onMessage(Object data) {
+        if (data instanceof RpcStreamFrame) {
+            RpcStreamFrame frame = (RpcStreamFrame) data;
+            if (frame.getKind() == RpcStreamFrame.REQUEST) {
+                // credit must arrive even if the inbound observer is blocked
+                addCredit(frame.getCredit());
+                return;
+            }
+            if (frame.getKind() == RpcStreamFrame.CANCEL) {
+                markCancelled();
+            }
+        }
+        inbound.add(data);
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n > 0) {
+            write(RpcStreamFrame.REQUEST, n, null);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if (markCancelled()) {
+            write(RpcStreamFrame.CANCEL, 0, null);
+        }
+        registry.remove(streamId);
+    }
+
+    /**
+     * the connection is closed or a frame cannot be written
+     */
+    void fail(Throwable cause) {
+        markCancelled();
+        registry.remove(streamId);
+        inbound.add(new RpcStreamFrame(RpcStreamFrame.ERROR, 0, String.valueOf(cause)));
+        drain();
+    }
+
+    private synchronized void addCredit(long credit) {
+        outboundCredit += credit;
+        notifyAll();
+    }
+
+    /**
+     * @return false if the stream was already cancelled
+     */
+    private synchronized boolean markCancelled() {
+        if (cancelled) {
+            return false;
+        }
+        cancelled = true;
+        notifyAll();
+        return true;
+    }
+
+    private synchronized void awaitCredit() {
+        boolean interrupted = false;
+        try {
+            while (outboundCredit == 0 && !cancelled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException("stream " + streamId + " is cancelled");
+        }
+        outboundCredit--;
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        try {
+            OBSERVER_EXECUTOR.execute(this::drainLoop);
+        } catch (RejectedExecutionException e) {
+            drainLoop();
+        }
+    }
+
+    private void drainLoop() {
+        int missed = 1;
+        do {
+            StreamObserver<Object> observer = inboundObserver;
+            if (observer != null) {
+                Object data;
+                while ((data = inbound.poll()) != null) {
+                    deliver(observer, data);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void deliver(StreamObserver<Object> observer, Object data) {
+        if (inboundDone) {
+            LazyPayload.release(data);
+            return;
+        }
+        RpcStreamFrame frame;
+        try {
+            frame = (RpcStreamFrame) LazyPayload.resolve(data);
+        } catch (RuntimeException e) {
+            log.error("decode frame of stream [{}] fail", streamId, e);
+            inboundDone = true;
+            cancel();
+            observer.onError(e);
+            return;
+        }
+        switch (frame.getKind()) {
+            case RpcStreamFrame.DATA:
+                try {
+                    observer.onNext(frame.getPayload());
+                } catch (RuntimeException e) {
+                    log.error("observer of stream [{}] fail", streamId, e);
+                    inboundDone = true;
+                    cancel();
+                    return;
+                }
+                if (++consumed >= Math.max(1, window / 2) && !isCancelled()) {
+                    write(RpcStreamFrame.REQUEST, consumed, null);
+                    consumed = 0;
+                }
+                break;
+            case RpcStreamFrame.REQUEST:
+                addCredit(frame.getCredit());
+                break;
+            case RpcStreamFrame.COMPLETE:
+                inboundDone = true;
+                observer.onCompleted();
+                closeIfDone();
+                break;
+            case RpcStreamFrame.ERROR:
+                // the stream is gone before the observer hears of it
+                inboundDone = true;
+                registry.remove(streamId);
+                observer.onError(new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, String.valueOf(frame.getPayload())));
+                break;
+            case RpcStreamFrame.CANCEL:
+                inboundDone = true;
+                registry.remove(streamId);
+                observer.onError(new CancellationException("stream " + streamId + " is cancelled by the peer"));
+                break;
+            default:
+                log.error("unknown frame of stream [{}]: [{}]", streamId, frame);
+        }
+    }
+
+    private synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void closeIfDone() {
+        if (outboundDone && inboundDone) {
+            registry.remove(streamId);
+        }
+    }
+
+    private void write(byte kind, long credit, Object payload) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setMessageType(RpcConstants.STREAM_TYPE);
+        rpcMessage.setCodec(codec);
+        rpcMessage.setCompress(compress);
+        rpcMessage.setRequestId(streamId);
+        rpcMessage.setData(new RpcStreamFrame(kind, credit, payload));
+        try {
+            RpcMessageEncoder.encodeBodyEagerly(rpcMessage);
+        } catch (RuntimeException e) {
+            rpcMessage.recycle();
+            throw e;
+        }
+        channel.writeAndFlush(rpcMessage).addListener((ChannelFutureListener) future -> {
+            rpcMessage.recycle();
+            if (!future.isSuccess()) {
+                log.error("write frame of stream [{}] fail", streamId, future.cause());
+                fail(future.cause());
+            }
+        });
+    }
+
+    private class OutboundObserver implements StreamObserver<Object> {
+        @Override
+        public void onNext(Object value) {
+            if (outboundDone) {
+                throw new IllegalStateException("stream " + streamId + " is already completed");
+            }
+            awaitCredit();
+            write(RpcStreamFrame.DATA, 0, value);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (outboundDone || isCancelled()) {
+                return;
+            }
+            outboundDone = true;
+            write(RpcStreamFrame.ERROR, 0, throwable.getMessage());
+            registry.remove(streamId);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (outboundDone || isCancelled()) {
+                return;
+            }
+            outboundDone = true;
+            write(RpcStreamFrame.COMPLETE, 0, null);
+            if (inboundDone) {
+                registry.remove(streamId);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package github.javaguide.remoting.stream;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The open streams of a connection, stored as an attribute of its channel.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class RpcStreamRegistry {
+    private static final AttributeKey<RpcStreamRegistry> STREAMS = AttributeKey.valueOf("rpcStreams");
+
+    /**
+     * key: stream id
+     */
+    private final Map<Integer, RpcStream> streams = new ConcurrentHashMap<>();
+
+    private RpcStreamRegistry() {
+    }
+
+    public static RpcStreamRegistry of(Channel channel) {
+        RpcStreamRegistry registry = channel.attr(STREAMS).get();
+        if (registry == null) {
+            channel.attr(STREAMS).setIfAbsent(new RpcStreamRegistry());
+            registry = channel.attr(STREAMS).get();
+        }
+        return registry;
+    }
+
+    /**
+     * fail every open stream of a closed connection
+     */
+    public static void closeAll(Channel channel) {
+        RpcStreamRegistry registry = channel.attr(STREAMS).get();
+        if (registry != null) {
+            for (RpcStream stream : new ArrayList<>(registry.streams.values())) {
+                stream.fail(new IllegalStateException("connection closed: " + channel.remoteAddress()));
+            }
+        }
+    }
+
+    public RpcStream get(int streamId) {
+        return streams.get(streamId);
+    }
+
+    void put(RpcStream stream) {
+        streams.put(stream.getStreamId(), stream);
+    }
+
+    void remove(int streamId) {
+        streams.remove(streamId);
+    }
+}
@@ -0,0 +1,32 @@
+package github.javaguide.remoting.stream;
+
+/**
+ * Receives the items of a stream.
+ * <p>
+ * A service method is a streaming method if it returns a StreamObserver (bidirectional stream) or if its
+ * last parameter is a StreamObserver (server stream). eg:
+ * <pre>
+ * void export(Query query, StreamObserver&lt;Row&gt; rows);
+ *
+ * StreamObserver&lt;Command&gt; chat(StreamObserver&lt;Reply&gt; replies);
+ * </pre>
+ * The implementation handed to the caller blocks in {@link #onNext(Object)} while the peer has not granted credit,
+ * so memory is bounded by the window size (rpc.stream.window items) instead of the size of the result.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface StreamObserver<T> {
+
+    /**
+     * called once before any other method, the subscription can be used to request more items or to cancel the stream
+     */
+    default void onSubscribe(StreamSubscription subscription) {
+    }
+
+    void onNext(T value);
+
+    void onError(Throwable throwable);
+
+    void onCompleted();
+}
@@ -0,0 +1,21 @@
+package github.javaguide.remoting.stream;
+
+/**
+ * The receiving side of a stream.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface StreamSubscription {
+
+    /**
+     * Grant the peer credit for n more items, in addition to the credit granted automatically as items are consumed
+     */
+    void request(long n);
+
+    /**
+     * Stop the stream: no item is delivered afterwards and the peer's next onNext throws
+     * {@link java.util.concurrent.CancellationException}
+     */
+    void cancel();
+}
@@ -0,0 +1,21 @@
+package github.javaguide.remoting.transport;
+
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.stream.StreamObserver;
+
+/**
+ * A transport which supports streaming methods, see {@link StreamObserver}
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface RpcStreamTransport {
+    /**
+     * open a stream to the server
+     *
+     * @param rpcRequest       request of the streaming method, its StreamObserver parameter is null
+     * @param responseObserver receives the items sent by the server
+     * @return the observer to send items to the server
+     */
+    StreamObserver<Object> openStream(RpcRequest rpcRequest, StreamObserver<Object> responseObserver);
+}
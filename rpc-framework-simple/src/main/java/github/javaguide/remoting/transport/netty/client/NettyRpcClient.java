@@ -2,18 +2,29 @@ package github.javaguide.remoting.transport.netty.client;
 
 
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.enums.ServiceDiscoveryEnum;
+import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.registry.ServiceDiscovery;
+import github.javaguide.registry.ServiceEndpoint;
 import github.javaguide.remoting.constants.RpcConstants;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.stream.RpcStream;
+import github.javaguide.remoting.stream.StreamObserver;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.remoting.transport.RpcStreamTransport;
+import github.javaguide.remoting.transport.netty.codec.BlobAttachments;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -29,6 +40,8 @@ import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * initialize and close Bootstrap object
@@ -37,14 +50,30 @@ import java.util.concurrent.TimeUnit;
  * @createTime 2020年05月29日 17:51:00
  */
 @Slf4j
-public final class NettyRpcClient implements RpcRequestTransport {
+public final class NettyRpcClient implements RpcRequestTransport, RpcStreamTransport {
+    private static final AtomicInteger MESSAGE_ID = new AtomicInteger(0);
     private final ServiceDiscovery serviceDiscovery;
     private final UnprocessedRequests unprocessedRequests;
     private final ChannelProvider channelProvider;
     private final Bootstrap bootstrap;
     private final EventLoopGroup eventLoopGroup;
+    /**
+     * null if client side batching is not enabled
+     */
+    private final RpcRequestBatcher requestBatcher;
+    private final int streamWindow;
+    private final long requestTimeoutMillis;
 
     public NettyRpcClient() {
+        this(ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(
+                RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_TYPE, ServiceDiscoveryEnum.ZK.getName())));
+    }
+
+    /**
+     * @param serviceDiscovery finds the servers of the requests, eg: the client of the registry server only talks
+     *                         to the registry server
+     */
+    public NettyRpcClient(ServiceDiscovery serviceDiscovery) {
         // 1. 初始化客户端启动器
         eventLoopGroup = new NioEventLoopGroup();
         bootstrap = new Bootstrap();
@@ -65,9 +94,30 @@ public final class NettyRpcClient implements RpcRequestTransport {
                         p.addLast(new NettyRpcClientHandler());
                     }
                 });
-        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
+        this.serviceDiscovery = serviceDiscovery;
         this.unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
         this.channelProvider = SingletonFactory.getInstance(ChannelProvider.class);
+        if (RpcConfigUtil.getBoolean(RpcConfigEnum.CLIENT_BATCH_ENABLED, false)) {
+            int maxBatchSize = (int) positive(RpcConfigEnum.CLIENT_BATCH_MAX_SIZE, RpcConstants.DEFAULT_BATCH_MAX_SIZE);
+            long maxDelayMicros = positive(RpcConfigEnum.CLIENT_BATCH_MAX_DELAY_MICROS, RpcConstants.DEFAULT_BATCH_MAX_DELAY_MICROS);
+            this.requestBatcher = new RpcRequestBatcher(this, maxBatchSize, maxDelayMicros);
+        } else {
+            this.requestBatcher = null;
+        }
+        this.streamWindow = RpcConfigUtil.getInt(RpcConfigEnum.STREAM_WINDOW, RpcConstants.DEFAULT_STREAM_WINDOW);
+        this.requestTimeoutMillis = positive(RpcConfigEnum.CLIENT_REQUEST_TIMEOUT_MILLIS, RpcConstants.DEFAULT_REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return the configured value, or the default if it is not set or not positive
+     */
+    private static long positive(RpcConfigEnum rpcConfigEnum, long defaultValue) {
+        long value = RpcConfigUtil.getLong(rpcConfigEnum, defaultValue);
+        if (value > 0 && value <= Integer.MAX_VALUE) {
+            return value;
+        }
+        log.warn("Invalid [{}] value [{}], using [{}]", rpcConfigEnum.getPropertyValue(), value, defaultValue);
+        return defaultValue;
     }
 
     /**
@@ -84,47 +134,191 @@ public final class NettyRpcClient implements RpcRequestTransport {
                 log.info("The client has connected [{}] successful!", inetSocketAddress.toString());
                 completableFuture.complete(future.channel());
             } else {
-                throw new IllegalStateException();
+                completableFuture.completeExceptionally(future.cause());
             }
         });
         return completableFuture.get();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Object sendRpcRequest(RpcRequest rpcRequest) {
-        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        CompletableFuture<RpcMessage> resultFuture = new CompletableFuture<>();
         // 1. 获取服务的地址
         InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
         // 2. 获取channel
         Channel channel = getChannel(inetSocketAddress);
+        int messageId = MESSAGE_ID.getAndIncrement();
         if (channel.isActive()) {
             // 3.发送请求
-            unprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
-            RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
-                    .codec(SerializationTypeEnum.HESSIAN.getCode())
-                    .compress(CompressTypeEnum.GZIP.getCode())
-                    .messageType(RpcConstants.REQUEST_TYPE).build();
-
-            channel.writeAndFlush(rpcMessage).addListener((ChannelFutureListener) future -> {
-                if (future.isSuccess()) {
-                    log.info("client send message: [{}]", rpcMessage);
-                } else {
-                    future.channel().close();
-                    resultFuture.completeExceptionally(future.cause());
-                    log.error("Send failed:", future.cause());
-                }
-            });
+            ServiceEndpoint endpoint = serviceDiscovery.getServiceEndpoint(rpcRequest.getRpcServiceName(), inetSocketAddress);
+            byte version = endpoint == null ? RpcConstants.VERSION : endpoint.getFrameVersion();
+            byte codec = selectCodec(rpcRequest, endpoint);
+            byte compress = selectCompress(endpoint);
+            boolean hasBlob = BlobAttachments.hasBlob(rpcRequest.getParameters());
+            if (hasBlob && version == RpcConstants.BASELINE_VERSION) {
+                throw new RpcException(RpcErrorMessageEnum.PROTOCOL_VERSION_NOT_SUPPORTED, "blobs to " + inetSocketAddress);
+            }
+            if (version == RpcConstants.BASELINE_VERSION) {
+                // a baseline provider does not echo the message id, its response is matched by the requestId
+                unprocessedRequests.putBaseline(messageId, rpcRequest.getRequestId(), resultFuture);
+            } else {
+                unprocessedRequests.put(messageId, resultFuture);
+            }
+            // a request with blobs is not batched, its blobs travel as segments of its own frame,
+            // a batch is written with the default serializer and compressor, and only to providers of the current version
+            if (requestBatcher != null && version == RpcConstants.VERSION && codec == RpcMessageEncoder.CODEC_TYPE
+                    && compress == RpcMessageEncoder.COMPRESS_TYPE && !hasBlob) {
+                requestBatcher.add(channel, messageId, rpcRequest);
+            } else {
+                writeRequestMessage(channel, RpcConstants.REQUEST_TYPE, messageId, version, codec, compress, rpcRequest,
+                        new int[]{messageId});
+            }
         } else {
             throw new IllegalStateException();
         }
-        // 4. 得到响应的结果
+        // 4. 得到响应的结果，在调用线程上解码
         try {
-            return resultFuture.get();
+            RpcMessage responseMessage = awaitResponse(messageId, resultFuture);
+            try {
+                Object data = LazyPayload.resolve(responseMessage.getData());
+                if (data instanceof RpcResponse) {
+                    RpcResponse<Object> rpcResponse = (RpcResponse<Object>) data;
+                    rpcResponse.setData(BlobAttachments.resolveResult(rpcResponse.getData(), responseMessage.getAttachments()));
+                }
+                return data;
+            } finally {
+                BlobAttachments.release(responseMessage.getAttachments());
+                responseMessage.recycle();
+            }
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException("rpc请求失败," + e.getMessage());
         }
     }
 
+    /**
+     * wait rpc.client.request-timeout-millis at most for the response, then forget the request
+     */
+    private RpcMessage awaitResponse(int messageId, CompletableFuture<RpcMessage> resultFuture)
+            throws InterruptedException, ExecutionException {
+        try {
+            return resultFuture.get(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (unprocessedRequests.fail(messageId, e)) {
+                throw new RpcException(RpcErrorMessageEnum.REQUEST_TIMEOUT, requestTimeoutMillis + "ms");
+            }
+            // the response arrived meanwhile and is being handed over, or the request failed to be written
+            return resultFuture.get();
+        } catch (InterruptedException e) {
+            if (!unprocessedRequests.fail(messageId, e)) {
+                resultFuture.thenAccept(UnprocessedRequests::discard);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public StreamObserver<Object> openStream(RpcRequest rpcRequest, StreamObserver<Object> responseObserver) {
+        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
+        Channel channel = getChannel(inetSocketAddress);
+        if (!channel.isActive()) {
+            throw new IllegalStateException();
+        }
+        // stream ids and message ids share the sequence, so a stream id is never mistaken for a pending request
+        ServiceEndpoint endpoint = serviceDiscovery.getServiceEndpoint(rpcRequest.getRpcServiceName(), inetSocketAddress);
+        if (endpoint != null && endpoint.getFrameVersion() == RpcConstants.BASELINE_VERSION) {
+            throw new RpcException(RpcErrorMessageEnum.PROTOCOL_VERSION_NOT_SUPPORTED, "streams to " + inetSocketAddress);
+        }
+        RpcStream stream = new RpcStream(channel, MESSAGE_ID.getAndIncrement(), streamWindow,
+                selectCodec(rpcRequest, endpoint), selectCompress(endpoint));
+        stream.setInboundObserver(responseObserver);
+        stream.open(rpcRequest);
+        return stream.getOutboundObserver();
+    }
+
+    /**
+     * The serializer of a request: the one of its reference, else the one advertised by the provider, else the one
+     * of rpc.serialize. A serializer the provider does not advertise is not used, the one of rpc.serialize replaces
+     * it, or hessian if the provider does not advertise that one either.
+     *
+     * @param endpoint the provider, null if the discovery keeps no metadata
+     */
+    private byte selectCodec(RpcRequest rpcRequest, ServiceEndpoint endpoint) {
+        byte codec;
+        if (!StringUtil.isBlank(rpcRequest.getSerializer())) {
+            codec = SerializationTypeEnum.getCode(rpcRequest.getSerializer());
+        } else if (endpoint != null && endpoint.getSerializer() != 0) {
+            codec = endpoint.getSerializer();
+        } else {
+            codec = RpcMessageEncoder.CODEC_TYPE;
+        }
+        // a provider without metadata was registered before codecs were advertised, it understands the baseline ones
+        if (endpoint == null || endpoint.supportsCodec(codec)) {
+            return codec;
+        }
+        byte fallback = endpoint.supportsCodec(RpcMessageEncoder.CODEC_TYPE) ? RpcMessageEncoder.CODEC_TYPE
+                : SerializationTypeEnum.HESSIAN.getCode();
+        log.warn("Provider [{}] of [{}] does not support serializer [{}], using [{}]", endpoint.getAddress(),
+                rpcRequest.getRpcServiceName(), SerializationTypeEnum.getName(codec), SerializationTypeEnum.getName(fallback));
+        return fallback;
+    }
+
+    /**
+     * The compressor of rpc.compress. If the provider does not advertise it: none, or gzip for a provider which does
+     * not advertise none either.
+     */
+    private static byte selectCompress(ServiceEndpoint endpoint) {
+        if (endpoint == null || endpoint.supportsCompressor(RpcMessageEncoder.COMPRESS_TYPE)) {
+            return RpcMessageEncoder.COMPRESS_TYPE;
+        }
+        return endpoint.supportsCompressor(CompressTypeEnum.NONE.getCode()) ? CompressTypeEnum.NONE.getCode() : CompressTypeEnum.GZIP.getCode();
+    }
+
+    /**
+     * write a request or batch request message, and fail the requests it carries if it cannot be sent.
+     * The body is serialized on the calling thread.
+     *
+     * @param version    the protocol version of the message
+     * @param codec      the serializer of the message
+     * @param compress   the compressor of the message
+     * @param messageIds the message ids of the requests carried by the message
+     */
+    void writeRequestMessage(Channel channel, byte messageType, int messageId, byte version, byte codec, byte compress,
+                             Object data, int[] messageIds) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setVersion(version);
+        rpcMessage.setData(data);
+        rpcMessage.setCodec(codec);
+        rpcMessage.setCompress(compress);
+        rpcMessage.setRequestId(messageId);
+        rpcMessage.setMessageType(messageType);
+        try {
+            RpcMessageEncoder.encodeBodyEagerly(rpcMessage);
+        } catch (RuntimeException e) {
+            log.error("Encode request error!", e);
+            BlobAttachments.release(rpcMessage.getAttachments());
+            rpcMessage.recycle();
+            for (int id : messageIds) {
+                unprocessedRequests.fail(id, e);
+            }
+            return;
+        }
+        channel.writeAndFlush(rpcMessage).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                log.info("client send message: [{}]", rpcMessage);
+            }
+            // the encoder is done with the message
+            rpcMessage.recycle();
+            if (!future.isSuccess()) {
+                future.channel().close();
+                for (int id : messageIds) {
+                    unprocessedRequests.fail(id, future.cause());
+                }
+                log.error("Send failed:", future.cause());
+            }
+        });
+    }
+
     public Channel getChannel(InetSocketAddress inetSocketAddress) {
         Channel channel = channelProvider.get(inetSocketAddress);
         if (channel == null) {
@@ -1,11 +1,12 @@
 package github.javaguide.remoting.transport.netty.client;
 
-import github.javaguide.enums.CompressTypeEnum;
-import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.remoting.constants.RpcConstants;
 import github.javaguide.remoting.dto.RpcMessage;
-import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.stream.RpcStream;
+import github.javaguide.remoting.stream.RpcStreamRegistry;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
 import io.netty.channel.*;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
@@ -47,10 +48,19 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
                 if (messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
                     // 处理心跳响应
                     log.info("heart [{}]", tmp.getData());
+                    tmp.recycle();
                 } else if (messageType == RpcConstants.RESPONSE_TYPE) {
-                    // 处理RPC响应
-                    RpcResponse<Object> rpcResponse = (RpcResponse<Object>) tmp.getData();
-                    unprocessedRequests.complete(rpcResponse);
+                    // 处理RPC响应，响应体由等待结果的调用线程解码
+                    unprocessedRequests.complete(tmp);
+                } else if (messageType == RpcConstants.STREAM_TYPE) {
+                    // 处理流式调用的帧，由流在 stream-observer 线程池上解码和交付
+                    RpcStream stream = RpcStreamRegistry.of(ctx.channel()).get(tmp.getRequestId());
+                    if (stream != null) {
+                        stream.onMessage(tmp.getData());
+                    } else {
+                        LazyPayload.release(tmp.getData());
+                    }
+                    tmp.recycle();
                 }
             }
         } finally {
@@ -66,8 +76,10 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
                 log.info("write idle happen [{}]", ctx.channel().remoteAddress());
                 Channel channel = nettyRpcClient.getChannel((InetSocketAddress) ctx.channel().remoteAddress());
                 RpcMessage rpcMessage = new RpcMessage();
-                rpcMessage.setCodec(SerializationTypeEnum.PROTOSTUFF.getCode());
-                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+                // the same in every version, so providers of any version answer it
+                rpcMessage.setVersion(RpcConstants.BASELINE_VERSION);
+                rpcMessage.setCodec(RpcMessageEncoder.CODEC_TYPE);
+                rpcMessage.setCompress(RpcMessageEncoder.COMPRESS_TYPE);
                 rpcMessage.setMessageType(RpcConstants.HEARTBEAT_REQUEST_TYPE);
                 rpcMessage.setData(RpcConstants.PING);
                 channel.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
@@ -77,6 +89,12 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        RpcStreamRegistry.closeAll(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
     /**
      * Called when an exception occurs in processing a client message
      */
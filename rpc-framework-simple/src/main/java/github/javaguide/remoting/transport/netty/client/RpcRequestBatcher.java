@@ -0,0 +1,117 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.metrics.Histogram;
+import github.javaguide.utils.metrics.MetricRegistry;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the requests bound for the same provider (channel) and sends them as one batch frame,
+ * once maxBatchSize requests are pending or the first pending request has waited maxDelayMicros.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class RpcRequestBatcher {
+    private static final AttributeKey<PendingBatch> PENDING_BATCH = AttributeKey.valueOf("pendingBatch");
+
+    private final NettyRpcClient nettyRpcClient;
+    private final int maxBatchSize;
+    private final long maxDelayMicros;
+    private final Histogram batchSizeHistogram = MetricRegistry.histogram("rpc.client.batch.size");
+    private final Histogram batchWaitHistogram = MetricRegistry.histogram("rpc.client.batch.wait.micros");
+
+    public RpcRequestBatcher(NettyRpcClient nettyRpcClient, int maxBatchSize, long maxDelayMicros) {
+        this.nettyRpcClient = nettyRpcClient;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    public void add(Channel channel, int messageId, RpcRequest rpcRequest) {
+        PendingBatch batch = channel.attr(PENDING_BATCH).get();
+        if (batch == null) {
+            channel.attr(PENDING_BATCH).setIfAbsent(new PendingBatch());
+            batch = channel.attr(PENDING_BATCH).get();
+        }
+        RpcBatchRequest ready = null;
+        long startNanos;
+        long generation = -1;
+        synchronized (batch) {
+            batch.requests.add(rpcRequest);
+            batch.messageIds.add(messageId);
+            startNanos = batch.startNanos;
+            if (batch.requests.size() == 1) {
+                // the first request opens a new window
+                batch.startNanos = startNanos = System.nanoTime();
+                generation = batch.generation;
+            }
+            if (batch.requests.size() >= maxBatchSize) {
+                ready = batch.drain();
+            }
+        }
+        if (ready != null) {
+            send(channel, ready, startNanos);
+        } else if (generation >= 0) {
+            long windowGeneration = generation;
+            PendingBatch pendingBatch = batch;
+            channel.eventLoop().schedule(() -> flush(channel, pendingBatch, windowGeneration), maxDelayMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void flush(Channel channel, PendingBatch batch, long windowGeneration) {
+        RpcBatchRequest ready;
+        long startNanos;
+        synchronized (batch) {
+            // the window has already been sent because it was full
+            if (batch.generation != windowGeneration || batch.requests.isEmpty()) {
+                return;
+            }
+            startNanos = batch.startNanos;
+            ready = batch.drain();
+        }
+        send(channel, ready, startNanos);
+    }
+
+    private void send(Channel channel, RpcBatchRequest batchRequest, long startNanos) {
+        List<RpcRequest> requests = batchRequest.getRequests();
+        int[] messageIds = batchRequest.getMessageIds();
+        batchSizeHistogram.record(requests.size());
+        batchWaitHistogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        if (requests.size() == 1) {
+            nettyRpcClient.writeRequestMessage(channel, RpcConstants.REQUEST_TYPE, messageIds[0], RpcConstants.VERSION,
+                    RpcMessageEncoder.CODEC_TYPE, RpcMessageEncoder.COMPRESS_TYPE, requests.get(0), messageIds);
+        } else {
+            nettyRpcClient.writeRequestMessage(channel, RpcConstants.BATCH_REQUEST_TYPE, messageIds[0], RpcConstants.VERSION,
+                    RpcMessageEncoder.CODEC_TYPE, RpcMessageEncoder.COMPRESS_TYPE, batchRequest, messageIds);
+        }
+    }
+
+    private static class PendingBatch {
+        private List<RpcRequest> requests = new ArrayList<>();
+        private List<Integer> messageIds = new ArrayList<>();
+        private long startNanos;
+        private long generation;
+
+        private RpcBatchRequest drain() {
+            int[] ids = new int[messageIds.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = messageIds.get(i);
+            }
+            RpcBatchRequest drained = RpcBatchRequest.builder().requests(requests).messageIds(ids).build();
+            requests = new ArrayList<>();
+            messageIds = new ArrayList<>();
+            generation++;
+            return drained;
+        }
+    }
+}
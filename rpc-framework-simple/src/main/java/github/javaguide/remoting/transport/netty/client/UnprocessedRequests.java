@@ -1,6 +1,11 @@
 package github.javaguide.remoting.transport.netty.client;
 
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.codec.BlobAttachments;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -8,23 +13,94 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * unprocessed requests by the server.
+ * <p>
+ * key: the requestId of the message header, so a response can be matched without deserializing its body.
+ * A provider of the baseline protocol version numbers its responses itself, so its responses are matched by the
+ * requestId of their body instead.
  *
  * @author shuang.kou
  * @createTime 2020年06月04日 17:30:00
  */
+@Slf4j
 public class UnprocessedRequests {
-    private static final Map<String, CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
+    private static final Map<Integer, CompletableFuture<RpcMessage>> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
+    /**
+     * key: the requestId of a request sent to a baseline provider, value: its message id
+     */
+    private static final Map<String, Integer> BASELINE_MESSAGE_IDS = new ConcurrentHashMap<>();
+    /**
+     * key: the message id of a request sent to a baseline provider, value: its requestId
+     */
+    private static final Map<Integer, String> BASELINE_REQUEST_IDS = new ConcurrentHashMap<>();
 
-    public void put(String requestId, CompletableFuture<RpcResponse<Object>> future) {
-        UNPROCESSED_RESPONSE_FUTURES.put(requestId, future);
+    public void put(int messageId, CompletableFuture<RpcMessage> future) {
+        UNPROCESSED_RESPONSE_FUTURES.put(messageId, future);
     }
 
-    public void complete(RpcResponse<Object> rpcResponse) {
-        CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(rpcResponse.getRequestId());
+    /**
+     * @param requestId the requestId of a request sent to a baseline provider, echoed in the body of its response
+     */
+    public void putBaseline(int messageId, String requestId, CompletableFuture<RpcMessage> future) {
+        BASELINE_MESSAGE_IDS.put(requestId, messageId);
+        BASELINE_REQUEST_IDS.put(messageId, requestId);
+        UNPROCESSED_RESPONSE_FUTURES.put(messageId, future);
+    }
+
+    /**
+     * hand the response message over to the caller waiting for it, which recycles it once decoded.
+     * A response nobody waits for any more, eg: its caller timed out, is dropped.
+     */
+    @SuppressWarnings("unchecked")
+    public void complete(RpcMessage rpcMessage) {
+        Integer messageId = rpcMessage.getRequestId();
+        if (rpcMessage.getVersion() == RpcConstants.BASELINE_VERSION) {
+            // decoded on the IO thread, the header of a baseline response does not tell whom it is for
+            Object data;
+            try {
+                data = LazyPayload.resolve(rpcMessage.getData());
+            } catch (RuntimeException e) {
+                BlobAttachments.release(rpcMessage.getAttachments());
+                rpcMessage.recycle();
+                throw e;
+            }
+            rpcMessage.setData(data);
+            String requestId = data instanceof RpcResponse ? ((RpcResponse<Object>) data).getRequestId() : null;
+            messageId = requestId == null ? null : BASELINE_MESSAGE_IDS.remove(requestId);
+            if (messageId != null) {
+                BASELINE_REQUEST_IDS.remove(messageId);
+            }
+        }
+        CompletableFuture<RpcMessage> future = messageId == null ? null : UNPROCESSED_RESPONSE_FUTURES.remove(messageId);
+        if (null == future || !future.complete(rpcMessage)) {
+            log.warn("no request waits for the response [{}], dropped", rpcMessage);
+            discard(rpcMessage);
+        }
+    }
+
+    /**
+     * release and recycle a response message nobody consumes
+     */
+    static void discard(RpcMessage rpcMessage) {
+        LazyPayload.release(rpcMessage.getData());
+        BlobAttachments.release(rpcMessage.getAttachments());
+        rpcMessage.recycle();
+    }
+
+    /**
+     * the request could not be sent, or its caller stopped waiting, so its response is not expected any more
+     *
+     * @return false if the response is already being handed over to the caller
+     */
+    public boolean fail(int messageId, Throwable cause) {
+        String requestId = BASELINE_REQUEST_IDS.remove(messageId);
+        if (requestId != null) {
+            BASELINE_MESSAGE_IDS.remove(requestId);
+        }
+        CompletableFuture<RpcMessage> future = UNPROCESSED_RESPONSE_FUTURES.remove(messageId);
         if (null != future) {
-            future.complete(rpcResponse);
-        } else {
-            throw new IllegalStateException();
+            future.completeExceptionally(cause);
+            return true;
         }
+        return false;
     }
 }
@@ -0,0 +1,207 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBlobRef;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blob parameters and results ({@link ByteBuf}, {@link ByteBuffer} and {@link Path}) bypass the serializer and the
+ * compressor: they are replaced by an {@link RpcBlobRef} and sent as raw segments after the body of the frame,
+ * a file by sendfile and a buffer without copy. The receiver gets retained slices of the frame.
+ * <p>
+ * Ownership: a ByteBuf handed to the framework is released once written. On the server a blob parameter is only
+ * valid during the call, a service retains a ByteBuf parameter to keep or return it. On the client a ByteBuf result
+ * belongs to the caller, which must release it, a ByteBuffer result is copied to the heap and a Path result is a
+ * temporary file the caller should delete.
+ * <p>
+ * Limits: only the sender avoids copies. The receiver aggregates the whole frame, blobs included, so a frame is
+ * limited by rpc.codec.max-frame-length (8MB by default), and a received Path is copied to a temporary file.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class BlobAttachments {
+
+    private BlobAttachments() {
+    }
+
+    public static boolean isBlob(Object value) {
+        return value instanceof ByteBuf || value instanceof ByteBuffer || value instanceof Path;
+    }
+
+    public static boolean hasBlob(Object[] values) {
+        if (values != null) {
+            for (Object value : values) {
+                if (isBlob(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace the blobs of a request or response message by references and keep them as attachments of the message
+     */
+    @SuppressWarnings("unchecked")
+    static void extract(RpcMessage rpcMessage) {
+        byte messageType = rpcMessage.getMessageType();
+        if (messageType == RpcConstants.REQUEST_TYPE && rpcMessage.getData() instanceof RpcRequest) {
+            Object[] parameters = ((RpcRequest) rpcMessage.getData()).getParameters();
+            if (hasBlob(parameters)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    parameters[i] = extract(rpcMessage, parameters[i]);
+                }
+            }
+        } else if (messageType == RpcConstants.RESPONSE_TYPE && rpcMessage.getData() instanceof RpcResponse) {
+            RpcResponse<Object> rpcResponse = (RpcResponse<Object>) rpcMessage.getData();
+            rpcResponse.setData(extract(rpcMessage, rpcResponse.getData()));
+        }
+    }
+
+    private static Object extract(RpcMessage rpcMessage, Object value) {
+        if (!isBlob(value)) {
+            return value;
+        }
+        if (rpcMessage.getAttachments() == null) {
+            rpcMessage.setAttachments(new ArrayList<>());
+        }
+        rpcMessage.getAttachments().add(toSegment(value));
+        return new RpcBlobRef(rpcMessage.getAttachments().size() - 1);
+    }
+
+    /**
+     * @return a ByteBuf or a FileRegion, a file is opened at once so that a missing file fails the caller
+     */
+    private static Object toSegment(Object blob) {
+        if (blob instanceof ByteBuf) {
+            return blob;
+        }
+        if (blob instanceof ByteBuffer) {
+            return Unpooled.wrappedBuffer(((ByteBuffer) blob).duplicate());
+        }
+        try {
+            FileChannel fileChannel = FileChannel.open((Path) blob, StandardOpenOption.READ);
+            // the region closes the file once written or released
+            return new DefaultFileRegion(fileChannel, 0, fileChannel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replace the references of the parameters by the received segments, converted to the parameter types
+     *
+     * @return the temporary files created for Path parameters, to delete after the call
+     * @throws RuntimeException if a reference cannot be resolved, the temporary files created so far are deleted
+     */
+    public static List<Path> resolveParameters(RpcRequest rpcRequest, List<Object> attachments) {
+        List<Path> tempFiles = new ArrayList<>();
+        Object[] parameters = rpcRequest.getParameters();
+        if (parameters == null || attachments == null) {
+            return tempFiles;
+        }
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                if (parameters[i] instanceof RpcBlobRef) {
+                    ByteBuf segment = (ByteBuf) attachments.get(((RpcBlobRef) parameters[i]).getIndex());
+                    Class<?> type = rpcRequest.getParamTypes()[i];
+                    if (type == Path.class) {
+                        Path path = toTempFile(segment.duplicate());
+                        tempFiles.add(path);
+                        parameters[i] = path;
+                    } else if (ByteBuf.class.isAssignableFrom(type)) {
+                        parameters[i] = segment;
+                    } else {
+                        parameters[i] = segment.nioBuffer();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            deleteQuietly(tempFiles);
+            throw e;
+        }
+        return tempFiles;
+    }
+
+    /**
+     * @return the received segment referenced by the result of the response, retained for the caller,
+     * or the result itself
+     */
+    public static Object resolveResult(Object result, List<Object> attachments) {
+        if (!(result instanceof RpcBlobRef) || attachments == null) {
+            return result;
+        }
+        return ((ByteBuf) attachments.get(((RpcBlobRef) result).getIndex())).retain();
+    }
+
+    /**
+     * Convert a received segment owned by the caller to the declared result type,
+     * releasing it unless it is returned as is
+     */
+    public static Object toResultType(Object result, Class<?> type) {
+        if (!(result instanceof ByteBuf) || ByteBuf.class.isAssignableFrom(type)) {
+            return result;
+        }
+        ByteBuf segment = (ByteBuf) result;
+        try {
+            if (type == Path.class) {
+                return toTempFile(segment);
+            }
+            ByteBuffer copy = ByteBuffer.allocate(segment.readableBytes());
+            segment.readBytes(copy);
+            copy.flip();
+            return copy;
+        } finally {
+            segment.release();
+        }
+    }
+
+    public static void release(List<Object> attachments) {
+        if (attachments != null) {
+            attachments.forEach(ReferenceCountUtil::release);
+        }
+    }
+
+    public static void deleteQuietly(List<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("delete temp file [{}] fail", path, e);
+            }
+        }
+    }
+
+    private static Path toTempFile(ByteBuf segment) {
+        try {
+            Path path = Files.createTempFile("rpc-blob-", ".bin");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                while (segment.isReadable()) {
+                    segment.readBytes(channel, segment.readableBytes());
+                }
+            }
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
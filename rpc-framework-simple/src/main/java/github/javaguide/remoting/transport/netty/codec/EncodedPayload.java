@@ -0,0 +1,22 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A message body which has already been serialized and compressed by the thread writing the message,
+ * so the encoder only has to copy it on the IO thread.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@AllArgsConstructor
+@Getter
+public final class EncodedPayload {
+    private final byte[] bytes;
+
+    @Override
+    public String toString() {
+        return "EncodedPayload(" + bytes.length + " bytes)";
+    }
+}
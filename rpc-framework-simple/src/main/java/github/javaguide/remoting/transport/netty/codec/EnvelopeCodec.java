@@ -0,0 +1,211 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcPayload;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the fields of a RpcRequest or RpcResponse directly, only the parameters of a request and the data of a
+ * response are wrapped in a {@link RpcPayload} and handed to the serializer. A message encoded this way has the
+ * {@link RpcConstants#ENVELOPE_FLAG} bit set in its messageType.
+ * <pre>
+ *   request:  | requestId | interfaceName | methodName | group | version | paramType count | paramType * count | payload |
+ *   response: | requestId | code 1B | message (unless the code is SUCCESS) | payload |
+ * </pre>
+ * A string is a varint of its UTF-8 length plus one (0 for null) followed by its bytes. A paramType is a varint,
+ * the index plus one of a primitive, wrapper or common JDK type in {@link #WELL_KNOWN_TYPES}, or 0 followed by the
+ * string of its class name. The payload takes the rest of the body and is left out if there is nothing to send.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+final class EnvelopeCodec {
+    private static final byte CODE_NULL = 0;
+    private static final byte CODE_SUCCESS = 1;
+    private static final byte CODE_FAIL = 2;
+    /**
+     * followed by the code as a varint
+     */
+    private static final byte CODE_OTHER = 3;
+    private static final Class<?>[] NO_TYPES = new Class<?>[0];
+    /**
+     * part of the protocol: a type may only be appended
+     */
+    private static final Class<?>[] WELL_KNOWN_TYPES = {boolean.class, byte.class, char.class, short.class, int.class,
+            long.class, float.class, double.class, Boolean.class, Byte.class, Character.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, String.class, Object.class, byte[].class, int[].class, long[].class,
+            Object[].class, String[].class, List.class, Map.class, Set.class, Collection.class, Date.class,
+            BigDecimal.class, BigInteger.class};
+    private static final Map<Class<?>, Integer> WELL_KNOWN_INDEXES = new HashMap<>();
+    private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < WELL_KNOWN_TYPES.length; i++) {
+            WELL_KNOWN_INDEXES.put(WELL_KNOWN_TYPES[i], i);
+        }
+    }
+
+    private EnvelopeCodec() {
+    }
+
+    static boolean supports(byte messageType) {
+        return messageType == RpcConstants.REQUEST_TYPE || messageType == RpcConstants.RESPONSE_TYPE;
+    }
+
+    static void encode(Serializer serializer, Object body, ByteBuf out) {
+        Object payload;
+        if (body instanceof RpcRequest) {
+            RpcRequest rpcRequest = (RpcRequest) body;
+            writeString(out, rpcRequest.getRequestId());
+            writeString(out, rpcRequest.getInterfaceName());
+            writeString(out, rpcRequest.getMethodName());
+            writeString(out, rpcRequest.getGroup());
+            writeString(out, rpcRequest.getVersion());
+            Class<?>[] paramTypes = rpcRequest.getParamTypes() == null ? NO_TYPES : rpcRequest.getParamTypes();
+            writeVarInt(out, paramTypes.length);
+            for (Class<?> paramType : paramTypes) {
+                writeType(out, paramType);
+            }
+            payload = rpcRequest.getParameters();
+        } else {
+            RpcResponse<?> rpcResponse = (RpcResponse<?>) body;
+            writeString(out, rpcResponse.getRequestId());
+            Integer code = rpcResponse.getCode();
+            if (code == null) {
+                out.writeByte(CODE_NULL);
+            } else if (code == RpcResponseCodeEnum.SUCCESS.getCode()) {
+                out.writeByte(CODE_SUCCESS);
+            } else if (code == RpcResponseCodeEnum.FAIL.getCode()) {
+                out.writeByte(CODE_FAIL);
+            } else {
+                out.writeByte(CODE_OTHER);
+                writeVarInt(out, code);
+            }
+            if (code == null || code != RpcResponseCodeEnum.SUCCESS.getCode()) {
+                writeString(out, rpcResponse.getMessage());
+            }
+            payload = rpcResponse.getData();
+        }
+        if (payload != null) {
+            serializer.serialize(new RpcPayload(payload), out);
+        }
+    }
+
+    static Object decode(Serializer serializer, Class<?> bodyClass, ByteBuf in) {
+        if (bodyClass == RpcRequest.class) {
+            String requestId = readString(in);
+            String interfaceName = readString(in);
+            String methodName = readString(in);
+            String group = readString(in);
+            String version = readString(in);
+            Class<?>[] paramTypes = new Class<?>[readVarInt(in)];
+            for (int i = 0; i < paramTypes.length; i++) {
+                paramTypes[i] = readType(in);
+            }
+            Object[] parameters = (Object[]) readPayload(serializer, in);
+            return RpcRequest.newInstance(requestId, interfaceName, methodName, parameters, paramTypes, version, group);
+        }
+        RpcResponse<Object> rpcResponse = RpcResponse.newInstance();
+        rpcResponse.setRequestId(readString(in));
+        byte code = in.readByte();
+        if (code == CODE_SUCCESS) {
+            rpcResponse.setCode(RpcResponseCodeEnum.SUCCESS.getCode());
+            rpcResponse.setMessage(RpcResponseCodeEnum.SUCCESS.getMessage());
+        } else {
+            if (code == CODE_FAIL) {
+                rpcResponse.setCode(RpcResponseCodeEnum.FAIL.getCode());
+            } else if (code == CODE_OTHER) {
+                rpcResponse.setCode(readVarInt(in));
+            }
+            rpcResponse.setMessage(readString(in));
+        }
+        rpcResponse.setData(readPayload(serializer, in));
+        return rpcResponse;
+    }
+
+    private static Object readPayload(Serializer serializer, ByteBuf in) {
+        return in.isReadable() ? serializer.deserialize(in, RpcPayload.class).getValue() : null;
+    }
+
+    private static void writeType(ByteBuf out, Class<?> type) {
+        Integer index = WELL_KNOWN_INDEXES.get(type);
+        if (index != null) {
+            writeVarInt(out, index + 1);
+        } else {
+            writeVarInt(out, 0);
+            writeString(out, type.getName());
+        }
+    }
+
+    private static Class<?> readType(ByteBuf in) {
+        int index = readVarInt(in);
+        if (index > 0) {
+            return WELL_KNOWN_TYPES[index - 1];
+        }
+        // the class of a name is looked up once, and not initialized, the name comes from the peer
+        return CLASSES.computeIfAbsent(readString(in), key -> {
+            try {
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                return Class.forName(key, false, classLoader == null ? EnvelopeCodec.class.getClassLoader() : classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("parameter type not found: " + key, e);
+            }
+        });
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        int length = ByteBufUtil.utf8Bytes(value);
+        writeVarInt(out, length + 1);
+        ByteBufUtil.reserveAndWriteUtf8(out, value, length);
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    static void writeVarInt(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
@@ -0,0 +1,69 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * The still compressed and serialized body of a received message. The decoder hands it over instead of the
+ * deserialized object so that decompression and deserialization run on the thread that consumes the message
+ * (the service handler thread on the server, the calling thread on the client) instead of the IO thread.
+ * <p>
+ * A payload is owned by one thread at a time and must be either {@link #decode() decoded} or {@link #release() released}.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class LazyPayload {
+    private final byte codec;
+    private final byte compress;
+    private final boolean envelope;
+    private final Class<?> bodyClass;
+    private ByteBuf body;
+
+    LazyPayload(byte codec, byte compress, boolean envelope, Class<?> bodyClass, ByteBuf body) {
+        this.codec = codec;
+        this.compress = compress;
+        this.envelope = envelope;
+        this.bodyClass = bodyClass;
+        this.body = body;
+    }
+
+    /**
+     * @param data the data of a received message
+     * @return the deserialized object if data is a lazy payload, otherwise data itself
+     */
+    public static Object resolve(Object data) {
+        return data instanceof LazyPayload ? ((LazyPayload) data).decode() : data;
+    }
+
+    /**
+     * release the body if data is a lazy payload which has not been decoded
+     */
+    public static void release(Object data) {
+        if (data instanceof LazyPayload) {
+            ((LazyPayload) data).release();
+        }
+    }
+
+    public Object decode() {
+        if (body == null) {
+            throw new IllegalStateException("payload has already been decoded or released");
+        }
+        try {
+            return RpcMessageDecoder.decodeBody(codec, compress, envelope, bodyClass, body);
+        } finally {
+            release();
+        }
+    }
+
+    public void release() {
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyPayload(" + bodyClass.getSimpleName() + ", " + (body == null ? "released" : body.readableBytes() + " bytes") + ")";
+    }
+}
@@ -2,19 +2,27 @@ package github.javaguide.remoting.transport.netty.codec;
 
 import github.javaguide.compress.Compress;
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.dto.RpcStreamFrame;
 import github.javaguide.serialize.Serializer;
+import github.javaguide.serialize.hessian.Hessian2Session;
+import github.javaguide.utils.RpcConfigUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * custom protocol decoder
@@ -35,6 +43,10 @@ import java.util.Arrays;
  * <p>
  * {@link LengthFieldBasedFrameDecoder} is a length-based decoder , used to solve TCP unpacking and sticking problems.
  * </p>
+ * <p>
+ * Bodies of at least {@code rpc.codec.lazy-decode-threshold} bytes are not decoded on the IO thread, they are handed
+ * over as a {@link LazyPayload}.
+ * </p>
  *
  * @author wangtao
  * @createTime on 2020/10/2
@@ -42,12 +54,21 @@ import java.util.Arrays;
  */
 @Slf4j
 public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
+    /**
+     * bodies at least this long are decoded lazily, negative to always decode on the IO thread
+     */
+    private final int lazyDecodeThreshold;
+    /**
+     * the hessian2 session of the connection, only used on its IO thread
+     */
+    private final Hessian2Session hessian2Session = new Hessian2Session();
+
     public RpcMessageDecoder() {
         // lengthFieldOffset: magic code is 4B, and version is 1B, and then full length. so value is 5
         // lengthFieldLength: full length is 4B. so value is 4
         // lengthAdjustment: full length include all data and read 9 bytes before, so the left length is (fullLength-9). so values is -9
         // initialBytesToStrip: we will check magic code and version manually, so do not strip any bytes. so values is 0
-        this(RpcConstants.MAX_FRAME_LENGTH, 5, 4, -9, 0);
+        this(RpcConfigUtil.getInt(RpcConfigEnum.CODEC_MAX_FRAME_LENGTH, RpcConstants.MAX_FRAME_LENGTH), 5, 4, -9, 0);
     }
 
     /**
@@ -63,6 +84,7 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
     public RpcMessageDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength,
                              int lengthAdjustment, int initialBytesToStrip) {
         super(maxFrameLength, lengthFieldOffset, lengthFieldLength, lengthAdjustment, initialBytesToStrip);
+        this.lazyDecodeThreshold = RpcConfigUtil.getInt(RpcConfigEnum.CODEC_LAZY_DECODE_THRESHOLD, RpcConstants.DEFAULT_LAZY_DECODE_THRESHOLD);
     }
 
     @Override
@@ -89,17 +111,28 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
     private Object decodeFrame(ByteBuf in) {
         // note: must read ByteBuf in order
         checkMagicNumber(in);
-        checkVersion(in);
+        byte version = checkVersion(in);
         int fullLength = in.readInt();
         // build RpcMessage object
         byte messageType = in.readByte();
+        boolean hasAttachments = false;
+        boolean envelope = false;
+        // the flags are only set by peers of a later version than the baseline one
+        if (version > RpcConstants.BASELINE_VERSION) {
+            hasAttachments = (messageType & RpcConstants.ATTACHMENT_FLAG) != 0;
+            envelope = (messageType & RpcConstants.ENVELOPE_FLAG) != 0;
+            messageType &= ~(RpcConstants.ATTACHMENT_FLAG | RpcConstants.ENVELOPE_FLAG);
+        }
         byte codecType = in.readByte();
         byte compressType = in.readByte();
         int requestId = in.readInt();
-        RpcMessage rpcMessage = RpcMessage.builder()
-                .codec(codecType)
-                .requestId(requestId)
-                .messageType(messageType).build();
+        // recycled by the handler consuming the message
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setVersion(version);
+        rpcMessage.setCodec(codecType);
+        rpcMessage.setCompress(compressType);
+        rpcMessage.setRequestId(requestId);
+        rpcMessage.setMessageType(messageType);
         if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
             rpcMessage.setData(RpcConstants.PING);
             return rpcMessage;
@@ -109,37 +142,102 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
             return rpcMessage;
         }
         int bodyLength = fullLength - RpcConstants.HEAD_LENGTH;
+        int[] segmentLengths = null;
+        if (hasAttachments) {
+            bodyLength = in.readInt();
+            segmentLengths = new int[in.readInt()];
+            for (int i = 0; i < segmentLengths.length; i++) {
+                segmentLengths[i] = in.readInt();
+            }
+        }
         if (bodyLength > 0) {
-            byte[] bs = new byte[bodyLength];
-            in.readBytes(bs);
-            // decompress the bytes
-            String compressName = CompressTypeEnum.getName(compressType);
-            Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
-                    .getExtension(compressName);
-            bs = compress.decompress(bs);
-            // deserialize the object
-            String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
-            log.info("codec name: [{}] ", codecName);
-            Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
-                    .getExtension(codecName);
-            if (messageType == RpcConstants.REQUEST_TYPE) {
-                RpcRequest tmpValue = serializer.deserialize(bs, RpcRequest.class);
-                rpcMessage.setData(tmpValue);
+            if (codecType == SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+                // decoded in the order the messages are received, the handlers see a plain hessian2 message
+                rpcMessage.setCodec(SerializationTypeEnum.HESSIAN2.getCode());
+                rpcMessage.setData(decodeSessionBody(compressType, in.readSlice(bodyLength)));
+            } else if (lazyDecodeThreshold >= 0 && bodyLength >= lazyDecodeThreshold) {
+                // the frame is released after decoding, so the payload keeps its own reference to the body
+                rpcMessage.setData(new LazyPayload(codecType, compressType, envelope, bodyClass(messageType), in.readRetainedSlice(bodyLength)));
             } else {
-                RpcResponse tmpValue = serializer.deserialize(bs, RpcResponse.class);
-                rpcMessage.setData(tmpValue);
+                rpcMessage.setData(decodeBody(codecType, compressType, envelope, bodyClass(messageType), in.readSlice(bodyLength)));
+            }
+        }
+        if (segmentLengths != null) {
+            // retained slices of the frame, released by the consumer of the message
+            List<Object> attachments = new ArrayList<>(segmentLengths.length);
+            for (int segmentLength : segmentLengths) {
+                attachments.add(in.readRetainedSlice(segmentLength));
             }
+            rpcMessage.setAttachments(attachments);
         }
         return rpcMessage;
 
     }
 
-    private void checkVersion(ByteBuf in) {
+    /**
+     * decompress and deserialize the readable bytes of body
+     */
+    static Object decodeBody(byte codecType, byte compressType, boolean envelope, Class<?> bodyClass, ByteBuf body) {
+        if (envelope) {
+            ByteBuf plain = compressType == CompressTypeEnum.NONE.getCode() ? body : Unpooled.wrappedBuffer(decompress(compressType, body));
+            return EnvelopeCodec.decode(serializer(codecType), bodyClass, plain);
+        }
+        if (compressType == CompressTypeEnum.NONE.getCode()) {
+            // nothing to decompress, the serializer reads the frame directly
+            return serializer(codecType).deserialize(body, bodyClass);
+        }
+        byte[] bs = decompress(compressType, body);
+        // deserialize the object
+        return serializer(codecType).deserialize(bs, bodyClass);
+    }
+
+    private static byte[] decompress(byte compressType, ByteBuf body) {
+        byte[] bs = new byte[body.readableBytes()];
+        body.readBytes(bs);
+        // decompress the bytes
+        String compressName = CompressTypeEnum.getName(compressType);
+        Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                .getExtension(compressName);
+        return compress.decompress(bs);
+    }
+
+    private Object decodeSessionBody(byte compressType, ByteBuf body) {
+        if (compressType == CompressTypeEnum.NONE.getCode()) {
+            return hessian2Session.deserialize(body);
+        }
+        return hessian2Session.deserialize(Unpooled.wrappedBuffer(decompress(compressType, body)));
+    }
+
+    private static Serializer serializer(byte codecType) {
+        String codecName = SerializationTypeEnum.getName(codecType);
+        log.info("codec name: [{}] ", codecName);
+        return ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(codecName);
+    }
+
+    private Class<?> bodyClass(byte messageType) {
+        if (messageType == RpcConstants.REQUEST_TYPE) {
+            return RpcRequest.class;
+        }
+        if (messageType == RpcConstants.BATCH_REQUEST_TYPE) {
+            return RpcBatchRequest.class;
+        }
+        if (messageType == RpcConstants.STREAM_TYPE) {
+            return RpcStreamFrame.class;
+        }
+        return RpcResponse.class;
+    }
+
+    /**
+     * @return the version of the frame, any version from the baseline one to the current one is read
+     */
+    private byte checkVersion(ByteBuf in) {
         // read the version and compare
         byte version = in.readByte();
-        if (version != RpcConstants.VERSION) {
+        if (version < RpcConstants.BASELINE_VERSION || version > RpcConstants.VERSION) {
             throw new RuntimeException("version isn't compatible" + version);
         }
+        return version;
     }
 
     private void checkMagicNumber(ByteBuf in) {
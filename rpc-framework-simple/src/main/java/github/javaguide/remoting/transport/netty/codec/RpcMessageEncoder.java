@@ -3,17 +3,27 @@ package github.javaguide.remoting.transport.netty.codec;
 
 import github.javaguide.compress.Compress;
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.remoting.constants.RpcConstants;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.serialize.Serializer;
+import github.javaguide.serialize.adaptive.AdaptiveSerializer;
+import github.javaguide.serialize.hessian.Hessian2Session;
+import github.javaguide.utils.RpcConfigUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.PromiseCombiner;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 
 /**
@@ -34,6 +44,26 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 1B compress（压缩类型） 1B codec（序列化类型）    4B  requestId（请求的Id）
  * body（object类型数据）
  * </pre>
+ * <p>
+ * The requestId is assigned by the client and echoed by the server, it correlates a response with its request.
+ * A body already serialized by {@link #encodeBodyEagerly(RpcMessage)} is copied as is.
+ * </p>
+ * <p>
+ * A message with blob attachments (see {@link BlobAttachments}) has the {@link RpcConstants#ATTACHMENT_FLAG} bit set
+ * in its messageType, and its body is preceded by a segment table and followed by the raw segments:
+ * <pre>
+ *   | header 16B | body length 4B | segment count 4B | segment length 4B * count | body | segment 0 | segment 1 | ...
+ * </pre>
+ * The segments are written as they are, a file as a {@link io.netty.channel.DefaultFileRegion}, and the whole
+ * frame is limited to 2GB.
+ * </p>
+ * <p>
+ * The body of a request or response is written by the {@link EnvelopeCodec} unless rpc.codec.envelope is false.
+ * </p>
+ * <p>
+ * A message is written in the protocol version it is set to, the current one by default. A frame of
+ * {@link RpcConstants#BASELINE_VERSION} has neither the envelope nor attachments, so a peer of that version reads it.
+ * </p>
  *
  * @author WangTao
  * @createTime on 2020/10/2
@@ -42,49 +72,251 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class RpcMessageEncoder extends MessageToByteEncoder<RpcMessage> {
-    private static final AtomicInteger ATOMIC_INTEGER = new AtomicInteger(0);
+    private static final boolean ENCODE_OFFLOAD = RpcConfigUtil.getBoolean(RpcConfigEnum.CODEC_ENCODE_OFFLOAD, true);
+    /**
+     * the compress type of the messages sent by this process, rpc.compress is gzip or none
+     */
+    public static final byte COMPRESS_TYPE = CompressTypeEnum.getCode(RpcConfigUtil.getProperty(RpcConfigEnum.COMPRESS_TYPE,
+            CompressTypeEnum.GZIP.getName()));
+    /**
+     * the codec of the messages sent by this process, rpc.serialize is the name of a serializer, hessian2 by default
+     */
+    public static final byte CODEC_TYPE = SerializationTypeEnum.getCode(RpcConfigUtil.getProperty(RpcConfigEnum.SERIALIZATION_TYPE,
+            SerializationTypeEnum.HESSIAN2.getName()));
+    /**
+     * whether hessian2 messages are sent as hessian2-session messages, see {@link Hessian2Session}
+     */
+    private static final boolean HESSIAN2_SESSION = RpcConfigUtil.getBoolean(RpcConfigEnum.SERIALIZE_HESSIAN2_SESSION, false);
+    /**
+     * whether requests and responses are written with the {@link EnvelopeCodec}
+     */
+    private static final boolean ENVELOPE = RpcConfigUtil.getBoolean(RpcConfigEnum.CODEC_ENVELOPE, true);
+
+    /**
+     * the hessian2 session of the connection, only used on its IO thread
+     */
+    private final Hessian2Session hessian2Session = new Hessian2Session();
+
+    /**
+     * Serialize and compress the body on the calling thread, so that the IO thread the message is written on
+     * only has to copy it. Does nothing if rpc.codec.encode-offload is false, or if the message is serialized with
+     * the hessian2 session of the connection, which must happen in the order the messages are written.
+     */
+    public static void encodeBodyEagerly(RpcMessage rpcMessage) {
+        if (ENCODE_OFFLOAD && !(rpcMessage.getData() instanceof EncodedPayload)) {
+            BlobAttachments.extract(rpcMessage);
+            selectAdaptiveCodec(rpcMessage);
+            if (!isSessionMessage(rpcMessage)) {
+                rpcMessage.setData(new EncodedPayload(encodeBody(rpcMessage)));
+            }
+        }
+    }
+
+    /**
+     * replace the adaptive codec of a message with the serializer the {@link AdaptiveSerializer} picks for its data,
+     * so the frame carries the code of a serializer the peer decodes with
+     */
+    private static void selectAdaptiveCodec(RpcMessage rpcMessage) {
+        if (rpcMessage.getCodec() != SerializationTypeEnum.ADAPTIVE.getCode()) {
+            return;
+        }
+        AdaptiveSerializer adaptiveSerializer = (AdaptiveSerializer) ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(SerializationTypeEnum.ADAPTIVE.getName());
+        byte messageType = rpcMessage.getMessageType();
+        boolean heartbeat = messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE || messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE;
+        rpcMessage.setCodec(adaptiveSerializer.select(heartbeat ? null : rpcMessage.getData()));
+    }
+
+    private static boolean isSessionMessage(RpcMessage rpcMessage) {
+        return HESSIAN2_SESSION && rpcMessage.getCodec() == SerializationTypeEnum.HESSIAN2.getCode();
+    }
+
+    private static byte version(RpcMessage rpcMessage) {
+        return rpcMessage.getVersion() == 0 ? RpcConstants.VERSION : rpcMessage.getVersion();
+    }
+
+    /**
+     * a hessian2-session message carries its own class definitions, it is never written with the envelope codec
+     */
+    private static boolean isEnvelopeMessage(RpcMessage rpcMessage) {
+        return ENVELOPE && version(rpcMessage) > RpcConstants.BASELINE_VERSION && EnvelopeCodec.supports(rpcMessage.getMessageType())
+                && rpcMessage.getCodec() != SerializationTypeEnum.HESSIAN2_SESSION.getCode();
+    }
+
+    private static byte headerMessageType(RpcMessage rpcMessage) {
+        return isEnvelopeMessage(rpcMessage) ? (byte) (rpcMessage.getMessageType() | RpcConstants.ENVELOPE_FLAG) : rpcMessage.getMessageType();
+    }
+
+    private static byte[] encodeBody(RpcMessage rpcMessage) {
+        if (isEnvelopeMessage(rpcMessage)) {
+            ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+            try {
+                EnvelopeCodec.encode(serializer(rpcMessage), rpcMessage.getData(), buf);
+                return compress(rpcMessage.getCompress(), ByteBufUtil.getBytes(buf));
+            } finally {
+                buf.release();
+            }
+        }
+        // serialize the object
+        byte[] bodyBytes = serializer(rpcMessage).serialize(rpcMessage.getData());
+        return compress(rpcMessage.getCompress(), bodyBytes);
+    }
+
+    private static byte[] compress(byte compressType, byte[] bodyBytes) {
+        if (compressType == CompressTypeEnum.NONE.getCode()) {
+            return bodyBytes;
+        }
+        // compress the bytes
+        String compressName = CompressTypeEnum.getName(compressType);
+        Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                .getExtension(compressName);
+        return compress.compress(bodyBytes);
+    }
+
+    /**
+     * @return the serialized and compressed body of a message which has not been encoded eagerly
+     */
+    private byte[] encodeBody(ChannelHandlerContext ctx, RpcMessage rpcMessage) {
+        if (rpcMessage.getData() instanceof EncodedPayload) {
+            return ((EncodedPayload) rpcMessage.getData()).getBytes();
+        }
+        if (rpcMessage.getCodec() != SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+            return encodeBody(rpcMessage);
+        }
+        ByteBuf buf = ctx.alloc().heapBuffer();
+        try {
+            hessian2Session.serialize(rpcMessage.getData(), buf);
+            return compress(rpcMessage.getCompress(), ByteBufUtil.getBytes(buf));
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static Serializer serializer(RpcMessage rpcMessage) {
+        String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
+        log.info("codec name: [{}] ", codecName);
+        return ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(codecName);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof RpcMessage) {
+            RpcMessage rpcMessage = (RpcMessage) msg;
+            if (!(rpcMessage.getData() instanceof EncodedPayload)) {
+                BlobAttachments.extract(rpcMessage);
+                selectAdaptiveCodec(rpcMessage);
+                if (isSessionMessage(rpcMessage)) {
+                    rpcMessage.setCodec(SerializationTypeEnum.HESSIAN2_SESSION.getCode());
+                }
+            }
+            if (rpcMessage.getAttachments() != null && !rpcMessage.getAttachments().isEmpty()) {
+                writeWithAttachments(ctx, rpcMessage, promise);
+                return;
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    /**
+     * write the header, segment table and body as one buffer, followed by every segment (ByteBuf or FileRegion)
+     * without copying it
+     */
+    private void writeWithAttachments(ChannelHandlerContext ctx, RpcMessage rpcMessage, ChannelPromise promise) {
+        List<Object> attachments = rpcMessage.getAttachments();
+        try {
+            if (version(rpcMessage) == RpcConstants.BASELINE_VERSION) {
+                throw new IllegalArgumentException("a peer of protocol version " + RpcConstants.BASELINE_VERSION + " does not accept blobs");
+            }
+            int[] segmentLengths = new int[attachments.size()];
+            long fullLength = RpcConstants.HEAD_LENGTH + 8L + 4L * attachments.size();
+            for (int i = 0; i < attachments.size(); i++) {
+                Object segment = attachments.get(i);
+                long length = segment instanceof ByteBuf ? ((ByteBuf) segment).readableBytes() : ((FileRegion) segment).count();
+                if (length > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("attachment larger than 2GB is not supported");
+                }
+                segmentLengths[i] = (int) length;
+                fullLength += length;
+            }
+            byte[] bodyBytes = encodeBody(ctx, rpcMessage);
+            fullLength += bodyBytes.length;
+            if (fullLength > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("frame larger than 2GB is not supported: " + fullLength);
+            }
+            ByteBuf head = ctx.alloc().ioBuffer(RpcConstants.HEAD_LENGTH + 8 + 4 * segmentLengths.length + bodyBytes.length);
+            writeHeader(head, rpcMessage, (byte) (headerMessageType(rpcMessage) | RpcConstants.ATTACHMENT_FLAG), (int) fullLength);
+            head.writeInt(bodyBytes.length);
+            head.writeInt(segmentLengths.length);
+            for (int segmentLength : segmentLengths) {
+                head.writeInt(segmentLength);
+            }
+            head.writeBytes(bodyBytes);
+            PromiseCombiner combiner = new PromiseCombiner();
+            combiner.add(ctx.write(head));
+            for (Object segment : attachments) {
+                combiner.add(ctx.write(segment));
+            }
+            combiner.finish(promise);
+        } catch (Exception e) {
+            log.error("Encode request error!", e);
+            attachments.forEach(ReferenceCountUtil::release);
+            promise.setFailure(e);
+            if (rpcMessage.getCodec() == SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+                ctx.close();
+            }
+        }
+    }
+
+    private static void writeHeader(ByteBuf out, RpcMessage rpcMessage, byte messageType, int fullLength) {
+        out.writeBytes(RpcConstants.MAGIC_NUMBER);
+        out.writeByte(version(rpcMessage));
+        out.writeInt(fullLength);
+        out.writeByte(messageType);
+        out.writeByte(rpcMessage.getCodec());
+        out.writeByte(rpcMessage.getCompress());
+        out.writeInt(rpcMessage.getRequestId());
+    }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, RpcMessage rpcMessage, ByteBuf out) {
         try {
             out.writeBytes(RpcConstants.MAGIC_NUMBER);
-            out.writeByte(RpcConstants.VERSION);
+            out.writeByte(version(rpcMessage));
             // leave a place to write the value of full length
             out.writerIndex(out.writerIndex() + 4);
             byte messageType = rpcMessage.getMessageType();
-            out.writeByte(messageType);
+            out.writeByte(headerMessageType(rpcMessage));
             out.writeByte(rpcMessage.getCodec());
-            out.writeByte(CompressTypeEnum.GZIP.getCode());
-            out.writeInt(ATOMIC_INTEGER.getAndIncrement());
-            // build full length
-            byte[] bodyBytes = null;
-            int fullLength = RpcConstants.HEAD_LENGTH;
+            out.writeByte(rpcMessage.getCompress());
+            out.writeInt(rpcMessage.getRequestId());
+            int bodyStart = out.writerIndex();
             // if messageType is not heartbeat message,fullLength = head length + body length
             if (messageType != RpcConstants.HEARTBEAT_REQUEST_TYPE
                     && messageType != RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
-                // serialize the object
-                String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
-                log.info("codec name: [{}] ", codecName);
-                Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
-                        .getExtension(codecName);
-                bodyBytes = serializer.serialize(rpcMessage.getData());
-                // compress the bytes
-                String compressName = CompressTypeEnum.getName(rpcMessage.getCompress());
-                Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
-                        .getExtension(compressName);
-                bodyBytes = compress.compress(bodyBytes);
-                fullLength += bodyBytes.length;
-            }
-
-            if (bodyBytes != null) {
-                out.writeBytes(bodyBytes);
+                if (rpcMessage.getData() instanceof EncodedPayload || rpcMessage.getCompress() != CompressTypeEnum.NONE.getCode()) {
+                    out.writeBytes(encodeBody(ctx, rpcMessage));
+                } else if (rpcMessage.getCodec() == SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+                    hessian2Session.serialize(rpcMessage.getData(), out);
+                } else if (isEnvelopeMessage(rpcMessage)) {
+                    EnvelopeCodec.encode(serializer(rpcMessage), rpcMessage.getData(), out);
+                } else {
+                    // nothing to compress, the serializer writes into the frame directly
+                    serializer(rpcMessage).serialize(rpcMessage.getData(), out);
+                }
             }
+            // build full length
+            int fullLength = RpcConstants.HEAD_LENGTH + out.writerIndex() - bodyStart;
             int writeIndex = out.writerIndex();
             out.writerIndex(writeIndex - fullLength + RpcConstants.MAGIC_NUMBER.length + 1);
             out.writeInt(fullLength);
             out.writerIndex(writeIndex);
         } catch (Exception e) {
             log.error("Encode request error!", e);
+            if (rpcMessage.getCodec() == SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+                // the peer would not know the class definitions written so far
+                ctx.close();
+            }
         }
 
     }
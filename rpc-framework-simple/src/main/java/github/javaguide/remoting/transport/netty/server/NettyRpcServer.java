@@ -42,6 +42,19 @@ public class NettyRpcServer {
     public static final int PORT = 9998;
 
     private final ServiceProvider serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+    private final int port;
+
+    public NettyRpcServer() {
+        this(PORT);
+    }
+
+    /**
+     * @param port the port to listen on, the services are still registered with {@link #PORT}: only a server
+     *             whose services are not registered, like the registry server, listens on another port
+     */
+    public NettyRpcServer(int port) {
+        this.port = port;
+    }
 
     public void registerService(RpcServiceConfig rpcServiceConfig) {
         serviceProvider.publishService(rpcServiceConfig);
@@ -86,7 +99,9 @@ public class NettyRpcServer {
                     });
 
             // 绑定端口，同步等待绑定成功
-            ChannelFuture f = b.bind(host, PORT).sync();
+            ChannelFuture f = b.bind(host, port).sync();
+            // 绑定成功后才注册服务，客户端发现服务时服务端已经可以处理请求了
+            serviceProvider.publishPendingServices();
             // 等待服务端监听端口关闭
             f.channel().closeFuture().sync();
         } catch (InterruptedException e) {
@@ -1,14 +1,24 @@
 package github.javaguide.remoting.transport.netty.server;
 
-import github.javaguide.enums.CompressTypeEnum;
 import github.javaguide.enums.RpcResponseCodeEnum;
-import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.dto.RpcStreamFrame;
 import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.stream.RpcStream;
+import github.javaguide.remoting.stream.RpcStreamRegistry;
+import github.javaguide.remoting.stream.StreamObserver;
+import github.javaguide.remoting.transport.netty.codec.BlobAttachments;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -18,6 +28,17 @@ import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Customize the ChannelHandler of the server to process the data sent by the client.
  * <p>
@@ -31,49 +52,229 @@ import lombok.extern.slf4j.Slf4j;
 public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
 
     private final RpcRequestHandler rpcRequestHandler;
+    /**
+     * executes the requests of a batch in parallel
+     */
+    private final ExecutorService batchExecutor;
+    /**
+     * executes streaming methods, which block while the client has not granted credit
+     */
+    private final ExecutorService streamExecutor;
+    private final int streamWindow;
 
     public NettyRpcServerHandler() {
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.batchExecutor = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("batch-request-handler");
+        this.streamExecutor = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("stream-request-handler");
+        this.streamWindow = RpcConfigUtil.getInt(RpcConfigEnum.STREAM_WINDOW, RpcConstants.DEFAULT_STREAM_WINDOW);
     }
 
+    /**
+     * runs on the service handler thread, which also decodes lazily decoded request bodies
+     */
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         try {
             if (msg instanceof RpcMessage) {
                 log.info("server receive msg: [{}] ", msg);
-                byte messageType = ((RpcMessage) msg).getMessageType();
-                RpcMessage rpcMessage = new RpcMessage();
-                rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
-                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
-
+                RpcMessage requestMessage = (RpcMessage) msg;
+                byte messageType = requestMessage.getMessageType();
                 if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
-                    // 处理心跳请求
+                    // 处理心跳请求，响应使用请求的协议版本、序列化方式和压缩方式
+                    RpcMessage rpcMessage = new RpcMessage();
+                    rpcMessage.setVersion(requestMessage.getVersion());
+                    rpcMessage.setCodec(requestMessage.getCodec());
+                    rpcMessage.setCompress(requestMessage.getCompress());
                     rpcMessage.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
+                    rpcMessage.setRequestId(requestMessage.getRequestId());
                     rpcMessage.setData(RpcConstants.PONG);
-                } else {
-                    // 处理RPC请求
-                    RpcRequest rpcRequest = (RpcRequest) ((RpcMessage) msg).getData();
-                    // Execute the target method (the method the client needs to execute) and return the method result
-                    Object result = rpcRequestHandler.handle(rpcRequest);
-                    log.info(String.format("server get result: %s", result.toString()));
-                    rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
-                    if (ctx.channel().isActive() && ctx.channel().isWritable()) {
-                        RpcResponse<Object> rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
-                        rpcMessage.setData(rpcResponse);
-                    } else {
-                        RpcResponse<Object> rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL);
-                        rpcMessage.setData(rpcResponse);
-                        log.error("not writable now, message dropped");
+                    ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                } else if (messageType == RpcConstants.BATCH_REQUEST_TYPE) {
+                    // 并行处理批量请求，每个请求单独返回响应
+                    RpcBatchRequest rpcBatchRequest = (RpcBatchRequest) LazyPayload.resolve(requestMessage.getData());
+                    byte version = requestMessage.getVersion();
+                    byte codec = requestMessage.getCodec();
+                    byte compress = requestMessage.getCompress();
+                    for (int i = 0; i < rpcBatchRequest.getRequests().size(); i++) {
+                        RpcRequest rpcRequest = rpcBatchRequest.getRequests().get(i);
+                        int messageId = rpcBatchRequest.getMessageIds()[i];
+                        try {
+                            batchExecutor.execute(() -> handleRequest(ctx, messageId, version, codec, compress, rpcRequest, null));
+                        } catch (RejectedExecutionException e) {
+                            handleRequest(ctx, messageId, version, codec, compress, rpcRequest, null);
+                        }
                     }
+                } else if (messageType == RpcConstants.STREAM_TYPE) {
+                    // 处理流式调用的帧，帧的所有权交给流
+                    Object data = requestMessage.getData();
+                    requestMessage.setData(null);
+                    handleStreamFrame(ctx, requestMessage, data);
+                } else {
+                    // 处理RPC请求，附件的所有权交给请求的处理过程
+                    RpcRequest rpcRequest = (RpcRequest) LazyPayload.resolve(requestMessage.getData());
+                    List<Object> attachments = requestMessage.getAttachments();
+                    requestMessage.setAttachments(null);
+                    handleRequest(ctx, requestMessage.getRequestId(), requestMessage.getVersion(), requestMessage.getCodec(),
+                            requestMessage.getCompress(), rpcRequest, attachments);
                 }
-                ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
             }
         } finally {
+            if (msg instanceof RpcMessage) {
+                LazyPayload.release(((RpcMessage) msg).getData());
+                BlobAttachments.release(((RpcMessage) msg).getAttachments());
+                ((RpcMessage) msg).recycle();
+            }
             //Ensure that ByteBuf is released, otherwise there may be memory leaks
             ReferenceCountUtil.release(msg);
         }
     }
 
+    /**
+     * Execute the target method (the method the client needs to execute) and write the method result back.
+     * The response is serialized on the thread completing the call, not on the IO thread, in the protocol version
+     * and with the serializer and compression of the request.
+     *
+     * @param messageId   the requestId of the request message header, echoed in the response header
+     * @param version     the protocol version of the request message
+     * @param codec       the serializer of the request message
+     * @param compress    the compression of the request message
+     * @param rpcRequest  the request, recycled once answered
+     * @param attachments the blob segments referenced by the parameters, released once the call completes. The
+     *                    request is answered with a failure if they cannot be passed to the parameters
+     */
+    private void handleRequest(ChannelHandlerContext ctx, int messageId, byte version, byte codec, byte compress,
+                               RpcRequest rpcRequest, List<Object> attachments) {
+        List<Path> tempFiles = new ArrayList<>();
+        CompletableFuture<Object> call;
+        try {
+            tempFiles.addAll(BlobAttachments.resolveParameters(rpcRequest, attachments));
+            call = rpcRequestHandler.handleAsync(rpcRequest);
+        } catch (RuntimeException e) {
+            // answered with a failure below, the client waits for the response of the message
+            call = new CompletableFuture<>();
+            call.completeExceptionally(e);
+        }
+        call.whenComplete((result, throwable) -> {
+            BlobAttachments.release(attachments);
+            RpcMessage rpcMessage = RpcMessage.newInstance();
+            rpcMessage.setVersion(version);
+            rpcMessage.setCodec(responseCodec(version, codec));
+            rpcMessage.setCompress(compress);
+            rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+            rpcMessage.setRequestId(messageId);
+            RpcResponse<Object> rpcResponse;
+            if (throwable != null) {
+                log.error("handle request [{}] fail", rpcRequest.getRequestId(), throwable);
+                rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId());
+            } else if (ctx.channel().isActive() && ctx.channel().isWritable()) {
+                log.info("server get result: [{}]", result);
+                rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
+            } else {
+                ReferenceCountUtil.release(result);
+                rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId());
+                log.error("not writable now, message dropped");
+            }
+            rpcMessage.setData(rpcResponse);
+            try {
+                RpcMessageEncoder.encodeBodyEagerly(rpcMessage);
+            } catch (RuntimeException e) {
+                log.error("encode response [{}] fail", rpcRequest.getRequestId(), e);
+                BlobAttachments.release(rpcMessage.getAttachments());
+                rpcMessage.setAttachments(null);
+                rpcResponse.recycle();
+                rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId());
+                rpcMessage.setData(rpcResponse);
+            }
+            RpcResponse<Object> writtenResponse = rpcResponse;
+            ctx.writeAndFlush(rpcMessage).addListener((ChannelFutureListener) future -> {
+                // the encoder is done with the message and the response, which may refer to a temporary file,
+                // and the call with the request, which the envelope codec took from the pool
+                BlobAttachments.deleteQuietly(tempFiles);
+                writtenResponse.recycle();
+                rpcMessage.recycle();
+                rpcRequest.recycle();
+                if (!future.isSuccess()) {
+                    future.channel().close();
+                }
+            });
+        });
+    }
+
+    /**
+     * a server using the adaptive serializer picks the serializer of its responses itself, any other one answers
+     * with the serializer of the request, and so does every server to a client of the baseline version
+     */
+    private static byte responseCodec(byte version, byte requestCodec) {
+        return RpcMessageEncoder.CODEC_TYPE == SerializationTypeEnum.ADAPTIVE.getCode() && version != RpcConstants.BASELINE_VERSION
+                ? RpcMessageEncoder.CODEC_TYPE : requestCodec;
+    }
+
+    /**
+     * Route a frame to its stream, an OPEN frame starts a new stream and invokes the streaming method.
+     * The frames of the server are written with the serializer and compression of the OPEN frame.
+     */
+    private void handleStreamFrame(ChannelHandlerContext ctx, RpcMessage frameMessage, Object data) {
+        int streamId = frameMessage.getRequestId();
+        RpcStream stream = RpcStreamRegistry.of(ctx.channel()).get(streamId);
+        if (stream != null) {
+            stream.onMessage(data);
+            return;
+        }
+        RpcStreamFrame frame = (RpcStreamFrame) LazyPayload.resolve(data);
+        if (frame.getKind() != RpcStreamFrame.OPEN) {
+            log.info("drop frame of closed stream [{}]: [{}]", streamId, frame);
+            return;
+        }
+        RpcRequest rpcRequest = (RpcRequest) frame.getPayload();
+        RpcStream newStream = new RpcStream(ctx.channel(), streamId, streamWindow, responseCodec(frameMessage.getVersion(), frameMessage.getCodec()),
+                frameMessage.getCompress());
+        newStream.accept(frame.getCredit());
+        try {
+            streamExecutor.execute(() -> invokeStreamingMethod(newStream, rpcRequest));
+        } catch (RejectedExecutionException e) {
+            newStream.setInboundObserver(NoopStreamObserver.INSTANCE);
+            newStream.getOutboundObserver().onError(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invokeStreamingMethod(RpcStream stream, RpcRequest rpcRequest) {
+        try {
+            Object requestObserver = rpcRequestHandler.handleStream(rpcRequest, stream.getOutboundObserver());
+            // a server stream method returns when it is done, a bidirectional one returns the observer of the client's items
+            stream.setInboundObserver(requestObserver instanceof StreamObserver
+                    ? (StreamObserver<Object>) requestObserver : NoopStreamObserver.INSTANCE);
+        } catch (RuntimeException e) {
+            if (isCancellation(e)) {
+                log.info("stream [{}] is cancelled by the client", stream.getStreamId());
+            } else {
+                log.error("handle stream [{}] fail", stream.getStreamId(), e);
+            }
+            stream.setInboundObserver(NoopStreamObserver.INSTANCE);
+            stream.getOutboundObserver().onError(e);
+        }
+    }
+
+    /**
+     * @return whether the cause chain holds the CancellationException thrown to a streaming method when the client
+     * cancels, however the method invocation wrapped it
+     */
+    private static boolean isCancellation(Throwable throwable) {
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Throwable cause = throwable; cause != null && seen.add(cause); cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        RpcStreamRegistry.closeAll(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent) {
@@ -93,4 +294,23 @@ public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
         cause.printStackTrace();
         ctx.close();
     }
+
+    /**
+     * the client of a server stream sends no items
+     */
+    private enum NoopStreamObserver implements StreamObserver<Object> {
+        INSTANCE;
+
+        @Override
+        public void onNext(Object value) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
 }
@@ -1,11 +1,13 @@
 package github.javaguide.remoting.transport.socket;
 
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.ServiceDiscoveryEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.registry.ServiceDiscovery;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.utils.RpcConfigUtil;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -27,7 +29,8 @@ public class SocketRpcClient implements RpcRequestTransport {
     private final ServiceDiscovery serviceDiscovery;
 
     public SocketRpcClient() {
-        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
+        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(
+                RpcConfigUtil.getProperty(RpcConfigEnum.REGISTRY_TYPE, ServiceDiscoveryEnum.ZK.getName()));
     }
 
     @Override
@@ -1,6 +1,7 @@
 package github.javaguide.serialize;
 
 import github.javaguide.extension.SPI;
+import io.netty.buffer.ByteBuf;
 
 /**
  * 序列化接口，所有序列化类都要实现这个接口
@@ -28,4 +29,27 @@ public interface Serializer {
      * @return 反序列化的对象
      */
     <T> T deserialize(byte[] bytes, Class<T> clazz);
+
+    /**
+     * 序列化并直接写入 ByteBuf，默认实现先序列化为字节数组再复制
+     *
+     * @param obj 要序列化的对象
+     * @param out 写入的目标
+     */
+    default void serialize(Object obj, ByteBuf out) {
+        out.writeBytes(serialize(obj));
+    }
+
+    /**
+     * 从 ByteBuf 的可读字节中反序列化，默认实现先复制为字节数组
+     *
+     * @param in    序列化后的字节
+     * @param clazz 目标类
+     * @return 反序列化的对象
+     */
+    default <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        return deserialize(bytes, clazz);
+    }
 }
@@ -0,0 +1,118 @@
+package github.javaguide.serialize;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The application types reachable from the rpc service interfaces: the parameter and return types of their methods
+ * and, for every such type, the types of its fields. A serializer may register them up front so that their class
+ * names are not written into every message.
+ * <p>
+ * The server adds the interfaces of the services it publishes and the client the interfaces it creates proxies for,
+ * so both sides see the same types as long as they share the service interfaces. JDK and Netty types, interfaces
+ * and abstract classes are left out.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class ServiceTypeRegistry {
+    private final Set<Class<?>> serviceInterfaces = ConcurrentHashMap.newKeySet();
+    private final Set<Class<?>> knownTypes = ConcurrentHashMap.newKeySet();
+    /**
+     * in the order the types were found, a serializer remembers how many of them it has registered already
+     */
+    private final List<Class<?>> types = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Class<?>>> subscribers = new CopyOnWriteArrayList<>();
+
+    public void registerService(Class<?> serviceInterface) {
+        if (!serviceInterfaces.add(serviceInterface)) {
+            return;
+        }
+        int before;
+        List<Class<?>> found;
+        synchronized (this) {
+            before = types.size();
+            for (Method method : serviceInterface.getMethods()) {
+                for (Type parameterType : method.getGenericParameterTypes()) {
+                    collect(parameterType);
+                }
+                collect(method.getGenericReturnType());
+            }
+            found = new ArrayList<>(types.subList(before, types.size()));
+            for (Consumer<Class<?>> subscriber : subscribers) {
+                found.forEach(subscriber);
+            }
+        }
+        log.info("Found [{}] serializable types in service [{}]", found.size(), serviceInterface.getName());
+    }
+
+    /**
+     * call the consumer with every type found so far and with every type found later, on the thread which finds it
+     */
+    public synchronized void subscribe(Consumer<Class<?>> subscriber) {
+        types.forEach(subscriber);
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * @return the types found so far, a later call returns the same types followed by the new ones
+     */
+    public List<Class<?>> getTypes() {
+        return types;
+    }
+
+    private void collect(Type type) {
+        if (type instanceof ParameterizedType) {
+            collect(((ParameterizedType) type).getRawType());
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                collect(argument);
+            }
+        } else if (type instanceof GenericArrayType) {
+            collect(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            for (Type upperBound : ((WildcardType) type).getUpperBounds()) {
+                collect(upperBound);
+            }
+        } else if (type instanceof Class) {
+            collect((Class<?>) type);
+        }
+    }
+
+    private void collect(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || isExcluded(clazz) || !knownTypes.add(clazz)) {
+            return;
+        }
+        if (!clazz.isInterface() && (clazz.isEnum() || !Modifier.isAbstract(clazz.getModifiers()))) {
+            types.add(clazz);
+        }
+        for (Class<?> current = clazz; current != null && !isExcluded(current); current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                    collect(field.getGenericType());
+                }
+            }
+        }
+    }
+
+    private static boolean isExcluded(Class<?> clazz) {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("io.netty.");
+    }
+}
@@ -0,0 +1,248 @@
+package github.javaguide.serialize.adaptive;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.exception.SerializeException;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.metrics.Histogram;
+import github.javaguide.utils.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Picks the serializer of a message by its payload type: a request by its service method, a response by the type of
+ * its data, any other message by the type of its data.
+ * <p>
+ * The first rpc.serialize.adaptive.samples messages of a type are serialized and deserialized with every candidate
+ * of rpc.serialize.adaptive.candidates, and the candidate with the lowest encode time + decode time + size *
+ * rpc.serialize.adaptive.nanos-per-byte is used from then on. Every rpc.serialize.adaptive.reevaluate-seconds the
+ * type is sampled again. A candidate failing on a type is never picked for it.
+ * <p>
+ * The encoder asks {@link #select(Object)} for the serializer and writes its code into the frame, so the peer
+ * decodes the frame with that serializer and never needs this one. Used on its own, this serializer prefixes the
+ * body with the code of the serializer it picked.
+ * <p>
+ * The costs of the samples are recorded in the rpc.serialize.adaptive.cost.[name] histograms and every decision in
+ * the rpc.serialize.adaptive.decision.[name] histogram, see {@link #getDecisions()} for the current ones.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class AdaptiveSerializer implements Serializer {
+    private static final String DEFAULT_CANDIDATES = "kyro,protostuff,hessian,hessian2,codegen";
+    private static final int DEFAULT_SAMPLES = 5;
+    private static final long DEFAULT_REEVALUATE_SECONDS = 300;
+    private static final long DEFAULT_NANOS_PER_BYTE = 1;
+
+    private final Candidate[] candidates;
+    private final int samples;
+    private final long reevaluateNanos;
+    private final long nanosPerByte;
+    /**
+     * key: payload type, see {@link #typeOf(Object)}
+     */
+    private final Map<String, TypeStats> typeStats = new ConcurrentHashMap<>();
+
+    public AdaptiveSerializer() {
+        this(RpcConfigUtil.getProperty(RpcConfigEnum.SERIALIZE_ADAPTIVE_CANDIDATES, DEFAULT_CANDIDATES).split(","),
+                RpcConfigUtil.getInt(RpcConfigEnum.SERIALIZE_ADAPTIVE_SAMPLES, DEFAULT_SAMPLES),
+                RpcConfigUtil.getLong(RpcConfigEnum.SERIALIZE_ADAPTIVE_REEVALUATE_SECONDS, DEFAULT_REEVALUATE_SECONDS),
+                RpcConfigUtil.getLong(RpcConfigEnum.SERIALIZE_ADAPTIVE_NANOS_PER_BYTE, DEFAULT_NANOS_PER_BYTE));
+    }
+
+    AdaptiveSerializer(String[] candidateNames, int samples, long reevaluateSeconds, long nanosPerByte) {
+        this.candidates = Arrays.stream(candidateNames).map(String::trim).map(Candidate::new).toArray(Candidate[]::new);
+        if (candidates.length == 0) {
+            throw new IllegalArgumentException("no candidate serializer for the adaptive serializer");
+        }
+        this.samples = Math.max(1, samples);
+        this.reevaluateNanos = TimeUnit.SECONDS.toNanos(reevaluateSeconds);
+        this.nanosPerByte = nanosPerByte;
+    }
+
+    /**
+     * @param data the object to serialize
+     * @return the code of the serializer to serialize it with
+     */
+    public byte select(Object data) {
+        if (data == null) {
+            return candidates[0].code;
+        }
+        TypeStats stats = typeStats.computeIfAbsent(typeOf(data), TypeStats::new);
+        if (stats.needsSample() && stats.sampling.compareAndSet(false, true)) {
+            try {
+                sample(stats, data);
+            } finally {
+                stats.sampling.set(false);
+            }
+        }
+        int selected = stats.selected;
+        // not decided yet while another thread takes the first sample
+        return candidates[selected < 0 ? 0 : selected].code;
+    }
+
+    /**
+     * @return the serializer picked for every payload type sampled so far, sorted by type
+     */
+    public Map<String, String> getDecisions() {
+        Map<String, String> decisions = new TreeMap<>();
+        typeStats.forEach((type, stats) -> {
+            if (stats.selected >= 0) {
+                decisions.put(type, candidates[stats.selected].name);
+            }
+        });
+        return decisions;
+    }
+
+    private static String typeOf(Object data) {
+        if (data instanceof RpcRequest) {
+            RpcRequest rpcRequest = (RpcRequest) data;
+            return rpcRequest.getInterfaceName() + "#" + rpcRequest.getMethodName();
+        }
+        if (data instanceof RpcResponse) {
+            Object result = ((RpcResponse<?>) data).getData();
+            return RpcResponse.class.getName() + "<" + (result == null ? "null" : result.getClass().getName()) + ">";
+        }
+        return data.getClass().getName();
+    }
+
+    /**
+     * only called by one thread at a time for a type
+     */
+    private void sample(TypeStats stats, Object data) {
+        if (stats.sampled >= samples) {
+            // a new round, the serializer picked in the last one is used until it is done
+            stats.sampled = 0;
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            if (stats.costs[i] == Long.MAX_VALUE && stats.sampled > 0) {
+                // failed on this type before
+                continue;
+            }
+            long cost = candidates[i].measure(data, nanosPerByte);
+            // the cheapest sample is kept, a slower one is most likely a GC pause or a cold JIT
+            stats.costs[i] = stats.sampled == 0 ? cost : Math.min(stats.costs[i], cost);
+            if (cost != Long.MAX_VALUE) {
+                candidates[i].costHistogram.record(cost);
+            }
+        }
+        int best = stats.best();
+        if (best < 0) {
+            throw new SerializeException("no candidate serializer can serialize " + stats.type);
+        }
+        if (stats.sampled + 1 < samples) {
+            if (stats.selected < 0) {
+                stats.selected = best;
+            }
+        } else {
+            if (!stats.decided || best != stats.selected) {
+                log.info("Adaptive serializer picked [{}] for [{}], costs in nanos: {}", candidates[best].name, stats.type,
+                        Arrays.toString(stats.costs));
+            }
+            candidates[best].decisionHistogram.record(stats.costs[best]);
+            stats.selected = best;
+            stats.decided = true;
+            stats.nextEvaluation = System.nanoTime() + reevaluateNanos;
+        }
+        stats.sampled++;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        byte code = select(obj);
+        byte[] body = serializer(code).serialize(obj);
+        byte[] bytes = new byte[body.length + 1];
+        bytes[0] = code;
+        System.arraycopy(body, 0, bytes, 1, body.length);
+        return bytes;
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        return serializer(bytes[0]).deserialize(Arrays.copyOfRange(bytes, 1, bytes.length), clazz);
+    }
+
+    private static Serializer serializer(byte code) {
+        String name = SerializationTypeEnum.getName(code);
+        if (name == null || code == SerializationTypeEnum.ADAPTIVE.getCode()) {
+            throw new SerializeException("unknown serializer code: " + code);
+        }
+        return ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(name);
+    }
+
+    private static final class Candidate {
+        private final String name;
+        private final byte code;
+        private final Serializer serializer;
+        private final Histogram costHistogram;
+        private final Histogram decisionHistogram;
+
+        private Candidate(String name) {
+            this.name = name;
+            this.code = SerializationTypeEnum.getCode(name);
+            if (code == SerializationTypeEnum.ADAPTIVE.getCode() || code == SerializationTypeEnum.HESSIAN2_SESSION.getCode()) {
+                throw new IllegalArgumentException("not a candidate of the adaptive serializer: " + name);
+            }
+            this.serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(name);
+            this.costHistogram = MetricRegistry.histogram("rpc.serialize.adaptive.cost." + name);
+            this.decisionHistogram = MetricRegistry.histogram("rpc.serialize.adaptive.decision." + name);
+        }
+
+        /**
+         * @return encode nanos + decode nanos + size * nanosPerByte, Long.MAX_VALUE if the serializer fails
+         */
+        private long measure(Object data, long nanosPerByte) {
+            try {
+                long start = System.nanoTime();
+                byte[] bytes = serializer.serialize(data);
+                serializer.deserialize(bytes, data.getClass());
+                return System.nanoTime() - start + bytes.length * nanosPerByte;
+            } catch (RuntimeException e) {
+                log.warn("Serializer [{}] can not serialize [{}]: {}", name, data.getClass().getName(), e.toString());
+                return Long.MAX_VALUE;
+            }
+        }
+    }
+
+    private final class TypeStats {
+        private final String type;
+        private final AtomicBoolean sampling = new AtomicBoolean();
+        /**
+         * the cheapest cost of every candidate in the current round of samples
+         */
+        private final long[] costs = new long[candidates.length];
+        private volatile int sampled;
+        private volatile int selected = -1;
+        private boolean decided;
+        private volatile long nextEvaluation;
+
+        private TypeStats(String type) {
+            this.type = type;
+        }
+
+        private boolean needsSample() {
+            return sampled < samples || System.nanoTime() - nextEvaluation >= 0;
+        }
+
+        private int best() {
+            int best = -1;
+            for (int i = 0; i < costs.length; i++) {
+                if (costs[i] != Long.MAX_VALUE && (best < 0 || costs[i] < costs[best])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+}
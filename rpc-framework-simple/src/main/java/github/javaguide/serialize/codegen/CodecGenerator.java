@@ -0,0 +1,218 @@
+package github.javaguide.serialize.codegen;
+
+import github.javaguide.exception.SerializeException;
+import lombok.extern.slf4j.Slf4j;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a {@link GeneratedCodec} for a class, once per class.
+ * <p>
+ * The fields are the non static, non transient fields of the class and its superclasses, superclass fields first and
+ * sorted by name within a class, so both sides agree on the order as long as they have the same version of the class.
+ * A primitive field is written with the method of its type, a String field with {@link CodegenOutput#writeString},
+ * any other field with {@link CodegenOutput#writeObject}, which writes the type of the value.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+final class CodecGenerator {
+    private static final String CODEC = Type.getInternalName(GeneratedCodec.class);
+    private static final String OUTPUT = Type.getInternalName(CodegenOutput.class);
+    private static final String INPUT = Type.getInternalName(CodegenInput.class);
+    private static final String UNSAFE = "sun/misc/Unsafe";
+    private static final String UNSAFE_DESC = "Lsun/misc/Unsafe;";
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final CodecClassLoader CLASS_LOADER = new CodecClassLoader(CodecGenerator.class.getClassLoader());
+
+    private static final ClassValue<GeneratedCodec> CODECS = new ClassValue<GeneratedCodec>() {
+        @Override
+        protected GeneratedCodec computeValue(Class<?> type) {
+            return generate(type);
+        }
+    };
+
+    private CodecGenerator() {
+    }
+
+    static GeneratedCodec codecOf(Class<?> type) {
+        return CODECS.get(type);
+    }
+
+    private static GeneratedCodec generate(Class<?> type) {
+        List<Field> fields = fieldsOf(type);
+        String className = CODEC + "$" + type.getSimpleName() + "$" + COUNTER.incrementAndGet();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, CODEC, null);
+
+        MethodVisitor constructor = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Class;)V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitVarInsn(Opcodes.ALOAD, 1);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, CODEC, "<init>", "([Ljava/lang/Class;)V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        Class<?>[] fieldTypes = new Class<?>[fields.size()];
+        MethodVisitor write = cw.visitMethod(Opcodes.ACC_PUBLIC, "write", "(Ljava/lang/Object;L" + OUTPUT + ";)V", null, null);
+        MethodVisitor read = cw.visitMethod(Opcodes.ACC_PUBLIC, "read", "(Ljava/lang/Object;L" + INPUT + ";)V", null, null);
+        write.visitCode();
+        read.visitCode();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            fieldTypes[i] = field.getType();
+            long offset = GeneratedCodec.UNSAFE.objectFieldOffset(field);
+            Accessor accessor = Accessor.of(field.getType());
+            // out.writeX(UNSAFE.getX(obj, offset))
+            write.visitVarInsn(Opcodes.ALOAD, 2);
+            write.visitFieldInsn(Opcodes.GETSTATIC, CODEC, "UNSAFE", UNSAFE_DESC);
+            write.visitVarInsn(Opcodes.ALOAD, 1);
+            write.visitLdcInsn(offset);
+            write.visitMethodInsn(Opcodes.INVOKEVIRTUAL, UNSAFE, "get" + accessor.unsafeName, "(Ljava/lang/Object;J)" + accessor.unsafeDesc, false);
+            if (accessor == Accessor.STRING) {
+                write.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+            }
+            write.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OUTPUT, accessor.writeName, "(" + accessor.valueDesc + ")V", false);
+            // UNSAFE.putX(obj, offset, in.readX())
+            read.visitFieldInsn(Opcodes.GETSTATIC, CODEC, "UNSAFE", UNSAFE_DESC);
+            read.visitVarInsn(Opcodes.ALOAD, 1);
+            read.visitLdcInsn(offset);
+            read.visitVarInsn(Opcodes.ALOAD, 2);
+            if (accessor == Accessor.OBJECT) {
+                // in.readObject(fieldTypes[i]) checks the type of the value
+                read.visitVarInsn(Opcodes.ALOAD, 0);
+                read.visitFieldInsn(Opcodes.GETFIELD, CODEC, "fieldTypes", "[Ljava/lang/Class;");
+                pushInt(read, i);
+                read.visitInsn(Opcodes.AALOAD);
+                read.visitMethodInsn(Opcodes.INVOKEVIRTUAL, INPUT, accessor.readName, "(Ljava/lang/Class;)" + accessor.valueDesc, false);
+            } else {
+                read.visitMethodInsn(Opcodes.INVOKEVIRTUAL, INPUT, accessor.readName, "()" + accessor.valueDesc, false);
+            }
+            read.visitMethodInsn(Opcodes.INVOKEVIRTUAL, UNSAFE, "put" + accessor.unsafeName, "(Ljava/lang/Object;J" + accessor.unsafeDesc + ")V", false);
+        }
+        write.visitInsn(Opcodes.RETURN);
+        write.visitMaxs(0, 0);
+        write.visitEnd();
+        read.visitInsn(Opcodes.RETURN);
+        read.visitMaxs(0, 0);
+        read.visitEnd();
+        cw.visitEnd();
+
+        try {
+            Class<?> codecClass = CLASS_LOADER.define(className.replace('/', '.'), cw.toByteArray());
+            log.info("Generated the codec of [{}] with [{}] fields", type.getName(), fields.size());
+            return (GeneratedCodec) codecClass.getConstructor(Class[].class).newInstance((Object) fieldTypes);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new SerializeException("Can not generate the codec of " + type.getName(), e);
+        }
+    }
+
+    private static List<Field> fieldsOf(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current : hierarchy) {
+            List<Field> declared = new ArrayList<>();
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                    declared.add(field);
+                }
+            }
+            declared.sort(Comparator.comparing(Field::getName));
+            fields.addAll(declared);
+        }
+        return fields;
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * the Unsafe accessor and the output / input methods of a field type
+     */
+    private enum Accessor {
+        BOOLEAN("Boolean", "Z", "writeBoolean", "readBoolean"),
+        BYTE("Byte", "B", "writeByte", "readByte"),
+        CHAR("Char", "C", "writeChar", "readChar"),
+        SHORT("Short", "S", "writeShort", "readShort"),
+        INT("Int", "I", "writeVarInt", "readVarInt"),
+        LONG("Long", "J", "writeVarLong", "readVarLong"),
+        FLOAT("Float", "F", "writeFloat", "readFloat"),
+        DOUBLE("Double", "D", "writeDouble", "readDouble"),
+        STRING("Object", "Ljava/lang/Object;", "Ljava/lang/String;", "writeString", "readString"),
+        OBJECT("Object", "Ljava/lang/Object;", "writeObject", "readObject");
+
+        private final String unsafeName;
+        private final String unsafeDesc;
+        private final String valueDesc;
+        private final String writeName;
+        private final String readName;
+
+        Accessor(String unsafeName, String desc, String writeName, String readName) {
+            this(unsafeName, desc, desc, writeName, readName);
+        }
+
+        Accessor(String unsafeName, String unsafeDesc, String valueDesc, String writeName, String readName) {
+            this.unsafeName = unsafeName;
+            this.unsafeDesc = unsafeDesc;
+            this.valueDesc = valueDesc;
+            this.writeName = writeName;
+            this.readName = readName;
+        }
+
+        static Accessor of(Class<?> type) {
+            if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == byte.class) {
+                return BYTE;
+            } else if (type == char.class) {
+                return CHAR;
+            } else if (type == short.class) {
+                return SHORT;
+            } else if (type == int.class) {
+                return INT;
+            } else if (type == long.class) {
+                return LONG;
+            } else if (type == float.class) {
+                return FLOAT;
+            } else if (type == double.class) {
+                return DOUBLE;
+            } else if (type == String.class) {
+                return STRING;
+            }
+            return OBJECT;
+        }
+    }
+
+    private static final class CodecClassLoader extends ClassLoader {
+        private CodecClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package github.javaguide.serialize.codegen;
+
+import github.javaguide.exception.SerializeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reads what {@link CodegenOutput} writes, from a byte array it does not copy. Reused by the messages of a thread.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class CodegenInput {
+    private static final byte[] EMPTY_BUFFER = new byte[0];
+
+    private byte[] buffer = EMPTY_BUFFER;
+    private int position;
+    private int limit;
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    void setBuffer(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+        classes.clear();
+    }
+
+    void clear() {
+        buffer = EMPTY_BUFFER;
+        classes.clear();
+    }
+
+    int position() {
+        return position;
+    }
+
+    private void require(int size) {
+        if (limit - position < size) {
+            throw new SerializeException("Unexpected end of the serialized data");
+        }
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public byte readByte() {
+        require(1);
+        return buffer[position++];
+    }
+
+    public char readChar() {
+        return (char) readUnsignedVarInt();
+    }
+
+    public short readShort() {
+        return (short) readVarInt();
+    }
+
+    public int readVarInt() {
+        int v = readUnsignedVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public long readVarLong() {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new SerializeException("Malformed varlong");
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    public double readDouble() {
+        long low = readFixedInt() & 0xFFFFFFFFL;
+        long high = readFixedInt() & 0xFFFFFFFFL;
+        return Double.longBitsToDouble(low | (high << 32));
+    }
+
+    private int readFixedInt() {
+        require(4);
+        int value = (buffer[position] & 0xFF) | (buffer[position + 1] & 0xFF) << 8
+                | (buffer[position + 2] & 0xFF) << 16 | (buffer[position + 3] & 0xFF) << 24;
+        position += 4;
+        return value;
+    }
+
+    int readUnsignedVarInt() {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new SerializeException("Malformed varint");
+    }
+
+    public String readString() {
+        int header = readUnsignedVarInt();
+        if (header == 0) {
+            return null;
+        }
+        header--;
+        int length = header >>> 1;
+        require(length);
+        String value = new String(buffer, position, length, (header & 1) != 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    Class<?> readClass() {
+        int id = readUnsignedVarInt();
+        if (id > 0) {
+            if (id > classes.size()) {
+                throw new SerializeException("Unknown class reference: " + id);
+            }
+            return classes.get(id - 1);
+        }
+        Class<?> type = CodegenTypes.forName(readString());
+        classes.add(type);
+        return type;
+    }
+
+    /**
+     * read the fields of an object of a class with a generated codec, written without its type
+     */
+    <T> T readFields(Class<T> type) {
+        if (CodegenTypes.isJdkType(type) || type.isInterface() || type.isArray() || type.isEnum()
+                || Modifier.isAbstract(type.getModifiers())) {
+            throw new SerializeException("No generated codec for " + type.getName());
+        }
+        Object value;
+        try {
+            value = GeneratedCodec.allocateInstance(type);
+        } catch (InstantiationException e) {
+            throw new SerializeException("Can not create an instance of " + type.getName(), e);
+        }
+        CodecGenerator.codecOf(type).read(value, this);
+        return type.cast(value);
+    }
+
+    /**
+     * read a value written by {@link CodegenOutput#writeObject}
+     *
+     * @param expectedType the declared type of the field the value is read for
+     */
+    public Object readObject(Class<?> expectedType) {
+        Object value = readObject();
+        if (value != null && !expectedType.isInstance(value)) {
+            throw new SerializeException("Can not assign " + value.getClass().getName() + " to a field of type " + expectedType.getName());
+        }
+        return value;
+    }
+
+    public Object readObject() {
+        byte tag = readByte();
+        switch (tag) {
+            case CodegenTypes.NULL:
+                return null;
+            case CodegenTypes.STRING:
+                return readString();
+            case CodegenTypes.INTEGER:
+                return readVarInt();
+            case CodegenTypes.LONG:
+                return readVarLong();
+            case CodegenTypes.BOOLEAN:
+                return readBoolean();
+            case CodegenTypes.DOUBLE:
+                return readDouble();
+            case CodegenTypes.FLOAT:
+                return readFloat();
+            case CodegenTypes.SHORT:
+                return readShort();
+            case CodegenTypes.BYTE:
+                return readByte();
+            case CodegenTypes.CHARACTER:
+                return readChar();
+            case CodegenTypes.CLASS:
+                return readClass();
+            case CodegenTypes.ENUM:
+                return readEnum();
+            case CodegenTypes.BYTE_ARRAY:
+                return readByteArray();
+            case CodegenTypes.PRIMITIVE_ARRAY:
+                return readPrimitiveArray();
+            case CodegenTypes.OBJECT_ARRAY:
+                return readObjectArray();
+            case CodegenTypes.ARRAY_LIST:
+                return readCollection(new ArrayList<>(readLength()));
+            case CodegenTypes.LINKED_LIST:
+                return readCollection(new LinkedList<>());
+            case CodegenTypes.HASH_SET:
+                return readCollection(new HashSet<>());
+            case CodegenTypes.LINKED_HASH_SET:
+                return readCollection(new LinkedHashSet<>());
+            case CodegenTypes.TREE_SET:
+                return readCollection(new TreeSet<>());
+            case CodegenTypes.HASH_MAP:
+                return readMap(new HashMap<>());
+            case CodegenTypes.LINKED_HASH_MAP:
+                return readMap(new LinkedHashMap<>());
+            case CodegenTypes.TREE_MAP:
+                return readMap(new TreeMap<>());
+            case CodegenTypes.OBJECT:
+                return readFields(readClass());
+            case CodegenTypes.JAVA:
+                return readJavaSerialized();
+            default:
+                throw new SerializeException("Unknown type tag: " + tag);
+        }
+    }
+
+    /**
+     * a length which is about to be read again by the collection, peeked to size an ArrayList
+     */
+    private int readLength() {
+        int start = position;
+        int length = readUnsignedVarInt();
+        position = start;
+        return Math.min(length, limit - position);
+    }
+
+    private Object readEnum() {
+        Class<?> type = readClass();
+        Object[] constants = type.getEnumConstants();
+        int ordinal = readUnsignedVarInt();
+        if (constants == null || ordinal >= constants.length) {
+            throw new SerializeException("Unknown constant " + ordinal + " of " + type.getName());
+        }
+        return constants[ordinal];
+    }
+
+    private byte[] readByteArray() {
+        int length = readUnsignedVarInt();
+        require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    private Object readPrimitiveArray() {
+        Class<?> componentType = readClass();
+        int length = readUnsignedVarInt();
+        // every element takes at least one byte
+        require(length);
+        if (componentType == int.class) {
+            int[] array = new int[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readVarInt();
+            }
+            return array;
+        } else if (componentType == long.class) {
+            long[] array = new long[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readVarLong();
+            }
+            return array;
+        } else if (componentType == double.class) {
+            double[] array = new double[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readDouble();
+            }
+            return array;
+        } else if (componentType == float.class) {
+            float[] array = new float[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readFloat();
+            }
+            return array;
+        } else if (componentType == boolean.class) {
+            boolean[] array = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readBoolean();
+            }
+            return array;
+        } else if (componentType == char.class) {
+            char[] array = new char[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readChar();
+            }
+            return array;
+        } else if (componentType == short.class) {
+            short[] array = new short[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readShort();
+            }
+            return array;
+        }
+        throw new SerializeException("Not a primitive array type: " + componentType.getName());
+    }
+
+    private Object readObjectArray() {
+        Class<?> componentType = readClass();
+        int length = readUnsignedVarInt();
+        require(length);
+        Object[] array = (Object[]) Array.newInstance(componentType, length);
+        for (int i = 0; i < length; i++) {
+            array[i] = readObject(componentType);
+        }
+        return array;
+    }
+
+    private Collection<Object> readCollection(Collection<Object> collection) {
+        int size = readUnsignedVarInt();
+        require(size);
+        for (int i = 0; i < size; i++) {
+            collection.add(readObject());
+        }
+        return collection;
+    }
+
+    private Map<Object, Object> readMap(Map<Object, Object> map) {
+        int size = readUnsignedVarInt();
+        require(size);
+        for (int i = 0; i < size; i++) {
+            Object key = readObject();
+            map.put(key, readObject());
+        }
+        return map;
+    }
+
+    private Object readJavaSerialized() {
+        int length = readUnsignedVarInt();
+        require(length);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer, position, length))) {
+            position += length;
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializeException("Deserialization failed", e);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package github.javaguide.serialize.codegen;
+
+import github.javaguide.exception.SerializeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The buffer a message is written into, reused by the messages of a thread.
+ * <p>
+ * Numbers are written as zigzag varints, floating point numbers as their bits in little endian. A value of a field
+ * whose type is not primitive or String starts with one of the {@link CodegenTypes} tags. The classes of the values
+ * are written by name once per message and by index afterwards.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public final class CodegenOutput {
+    private static final int INITIAL_SIZE = 512;
+    /**
+     * the values are written recursively, a cycle in the object graph stops here
+     */
+    private static final int MAX_DEPTH = 512;
+
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    private int position;
+    private final Map<Class<?>, Integer> classIds = new IdentityHashMap<>();
+    private int depth;
+
+    void reset() {
+        position = 0;
+        depth = 0;
+        if (!classIds.isEmpty()) {
+            classIds.clear();
+        }
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int position() {
+        return position;
+    }
+
+    byte[] toBytes() {
+        byte[] bytes = new byte[position];
+        System.arraycopy(buffer, 0, bytes, 0, position);
+        return bytes;
+    }
+
+    private void ensure(int size) {
+        if (position + size > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length << 1, position + size)];
+            System.arraycopy(buffer, 0, grown, 0, position);
+            buffer = grown;
+        }
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? (byte) 1 : 0);
+    }
+
+    public void writeByte(byte value) {
+        ensure(1);
+        buffer[position++] = value;
+    }
+
+    public void writeChar(char value) {
+        writeUnsignedVarInt(value);
+    }
+
+    public void writeShort(short value) {
+        writeVarInt(value);
+    }
+
+    public void writeVarInt(int value) {
+        writeUnsignedVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeVarLong(long value) {
+        long v = (value << 1) ^ (value >> 63);
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[position++] = (byte) v;
+    }
+
+    public void writeFloat(float value) {
+        writeFixedInt(Float.floatToRawIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        writeFixedInt((int) bits);
+        writeFixedInt((int) (bits >>> 32));
+    }
+
+    private void writeFixedInt(int value) {
+        ensure(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    void writeUnsignedVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 0 for null, otherwise (length << 1 | ascii) + 1 followed by the characters, one byte each if they are all
+     * ascii, UTF-8 otherwise
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeUnsignedVarInt(0);
+            return;
+        }
+        int length = value.length();
+        int start = position;
+        // optimistically write the characters as ascii after the largest possible length prefix
+        ensure(5 + length);
+        position += varIntSize(((length << 1) | 1) + 1);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                position = start;
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                writeUnsignedVarInt((utf8.length << 1) + 1);
+                writeBytes(utf8, 0, utf8.length);
+                return;
+            }
+            buffer[position++] = (byte) c;
+        }
+        int end = position;
+        position = start;
+        writeUnsignedVarInt(((length << 1) | 1) + 1);
+        position = end;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    void writeClass(Class<?> type) {
+        Integer id = classIds.get(type);
+        if (id != null) {
+            writeUnsignedVarInt(id + 1);
+            return;
+        }
+        classIds.put(type, classIds.size());
+        writeUnsignedVarInt(0);
+        writeString(type.getName());
+    }
+
+    /**
+     * write the fields of an object of a class with a generated codec, without its type
+     */
+    void writeFields(Object value) {
+        if (++depth > MAX_DEPTH) {
+            throw new SerializeException("Object graph deeper than " + MAX_DEPTH + ", cycles are not supported");
+        }
+        CodecGenerator.codecOf(value.getClass()).write(value, this);
+        depth--;
+    }
+
+    /**
+     * write a value of any type, preceded by its type
+     */
+    public void writeObject(Object value) {
+        if (value == null) {
+            writeByte(CodegenTypes.NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            writeByte(CodegenTypes.STRING);
+            writeString((String) value);
+        } else if (type == Integer.class) {
+            writeByte(CodegenTypes.INTEGER);
+            writeVarInt((Integer) value);
+        } else if (type == Long.class) {
+            writeByte(CodegenTypes.LONG);
+            writeVarLong((Long) value);
+        } else if (type == Boolean.class) {
+            writeByte(CodegenTypes.BOOLEAN);
+            writeBoolean((Boolean) value);
+        } else if (type == Double.class) {
+            writeByte(CodegenTypes.DOUBLE);
+            writeDouble((Double) value);
+        } else if (type == Float.class) {
+            writeByte(CodegenTypes.FLOAT);
+            writeFloat((Float) value);
+        } else if (type == Short.class) {
+            writeByte(CodegenTypes.SHORT);
+            writeShort((Short) value);
+        } else if (type == Byte.class) {
+            writeByte(CodegenTypes.BYTE);
+            writeByte((Byte) value);
+        } else if (type == Character.class) {
+            writeByte(CodegenTypes.CHARACTER);
+            writeChar((Character) value);
+        } else if (type == Class.class) {
+            writeByte(CodegenTypes.CLASS);
+            writeClass((Class<?>) value);
+        } else if (type.isArray()) {
+            writeArray(value, type.getComponentType());
+        } else if (value instanceof Enum) {
+            writeByte(CodegenTypes.ENUM);
+            writeClass(((Enum<?>) value).getDeclaringClass());
+            writeUnsignedVarInt(((Enum<?>) value).ordinal());
+        } else if (!CodegenTypes.isJdkType(type)) {
+            writeByte(CodegenTypes.OBJECT);
+            writeClass(type);
+            writeFields(value);
+        } else if (!writeCollection(value, type)) {
+            writeJavaSerialized(value);
+        }
+    }
+
+    private void writeArray(Object array, Class<?> componentType) {
+        if (componentType == byte.class) {
+            byte[] bytes = (byte[]) array;
+            writeByte(CodegenTypes.BYTE_ARRAY);
+            writeUnsignedVarInt(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+            return;
+        }
+        int length = Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            writeByte(CodegenTypes.PRIMITIVE_ARRAY);
+            writeClass(componentType);
+            writeUnsignedVarInt(length);
+            if (componentType == int.class) {
+                for (int v : (int[]) array) {
+                    writeVarInt(v);
+                }
+            } else if (componentType == long.class) {
+                for (long v : (long[]) array) {
+                    writeVarLong(v);
+                }
+            } else if (componentType == double.class) {
+                for (double v : (double[]) array) {
+                    writeDouble(v);
+                }
+            } else if (componentType == float.class) {
+                for (float v : (float[]) array) {
+                    writeFloat(v);
+                }
+            } else if (componentType == boolean.class) {
+                for (boolean v : (boolean[]) array) {
+                    writeBoolean(v);
+                }
+            } else if (componentType == char.class) {
+                for (char v : (char[]) array) {
+                    writeChar(v);
+                }
+            } else {
+                for (short v : (short[]) array) {
+                    writeShort(v);
+                }
+            }
+            return;
+        }
+        writeByte(CodegenTypes.OBJECT_ARRAY);
+        writeClass(componentType);
+        writeUnsignedVarInt(length);
+        for (Object element : (Object[]) array) {
+            writeObject(element);
+        }
+    }
+
+    /**
+     * the common JDK collections are written element by element, other lists, sets and maps too unless they are
+     * Serializable, so that their class is kept
+     *
+     * @return false if the value is not written as a collection
+     */
+    private boolean writeCollection(Object value, Class<?> type) {
+        byte kind;
+        if (type == ArrayList.class) {
+            kind = CodegenTypes.ARRAY_LIST;
+        } else if (type == HashMap.class) {
+            kind = CodegenTypes.HASH_MAP;
+        } else if (type == LinkedHashMap.class) {
+            kind = CodegenTypes.LINKED_HASH_MAP;
+        } else if (type == HashSet.class) {
+            kind = CodegenTypes.HASH_SET;
+        } else if (type == LinkedHashSet.class) {
+            kind = CodegenTypes.LINKED_HASH_SET;
+        } else if (type == LinkedList.class) {
+            kind = CodegenTypes.LINKED_LIST;
+        } else if (type == TreeMap.class && ((TreeMap<?, ?>) value).comparator() == null) {
+            kind = CodegenTypes.TREE_MAP;
+        } else if (type == TreeSet.class && ((TreeSet<?>) value).comparator() == null) {
+            kind = CodegenTypes.TREE_SET;
+        } else if (value instanceof Serializable) {
+            return false;
+        } else if (value instanceof List) {
+            kind = CodegenTypes.ARRAY_LIST;
+        } else if (value instanceof Set) {
+            kind = CodegenTypes.LINKED_HASH_SET;
+        } else if (value instanceof Map) {
+            kind = CodegenTypes.LINKED_HASH_MAP;
+        } else {
+            return false;
+        }
+        if (++depth > MAX_DEPTH) {
+            throw new SerializeException("Object graph deeper than " + MAX_DEPTH + ", cycles are not supported");
+        }
+        writeByte(kind);
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeUnsignedVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeObject(entry.getKey());
+                writeObject(entry.getValue());
+            }
+        } else {
+            Collection<?> collection = (Collection<?>) value;
+            writeUnsignedVarInt(collection.size());
+            for (Object element : collection) {
+                writeObject(element);
+            }
+        }
+        depth--;
+        return true;
+    }
+
+    private void writeJavaSerialized(Object value) {
+        if (!(value instanceof Serializable)) {
+            throw new SerializeException("Can not serialize " + value.getClass().getName() + ", it is neither Serializable nor supported");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new SerializeException("Serialization of " + value.getClass().getName() + " failed", e);
+        }
+        writeByte(CodegenTypes.JAVA);
+        writeUnsignedVarInt(bytes.size());
+        writeBytes(bytes.toByteArray(), 0, bytes.size());
+    }
+}
@@ -0,0 +1,130 @@
+package github.javaguide.serialize.codegen;
+
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.remoting.dto.RpcPayload;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.serialize.ServiceTypeRegistry;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serializes with codecs generated at runtime for every class, see {@link CodecGenerator}: the fields of a class
+ * are written one after the other by straight-line code, with no reflection, no schema lookup per field and no field
+ * names or numbers on the wire.
+ * <p>
+ * The codecs of RpcRequest, RpcResponse and RpcPayload are generated when the serializer is created, those of the
+ * service types (see {@link ServiceTypeRegistry}) when the services are published or referenced. Both sides must
+ * have the same fields in their classes. Object graphs are written as trees: a shared object is written once per
+ * reference and a cycle fails.
+ * <p>
+ * The object passed to serialize is written without its class and must be read with its own class.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class CodegenSerializer implements Serializer {
+    /**
+     * a buffer which has grown larger than this is not kept for the next message
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<CodegenOutput> OUTPUT = ThreadLocal.withInitial(CodegenOutput::new);
+    private static final ThreadLocal<CodegenInput> INPUT = ThreadLocal.withInitial(CodegenInput::new);
+    /**
+     * a direct ByteBuf is copied here before it is read
+     */
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+
+    public CodegenSerializer() {
+        CodecGenerator.codecOf(RpcRequest.class);
+        CodecGenerator.codecOf(RpcResponse.class);
+        CodecGenerator.codecOf(RpcPayload.class);
+        SingletonFactory.getInstance(ServiceTypeRegistry.class).subscribe(CodegenSerializer::warmUp);
+    }
+
+    private static void warmUp(Class<?> type) {
+        if (type.isEnum() || CodegenTypes.isJdkType(type)) {
+            return;
+        }
+        try {
+            CodecGenerator.codecOf(type);
+        } catch (RuntimeException e) {
+            log.warn("Can not generate the codec of [{}]", type.getName(), e);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        CodegenOutput output = write(obj);
+        try {
+            return output.toBytes();
+        } finally {
+            release(output);
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        CodegenOutput output = write(obj);
+        try {
+            out.writeBytes(output.getBuffer(), 0, output.position());
+        } finally {
+            release(output);
+        }
+    }
+
+    private static CodegenOutput write(Object obj) {
+        CodegenOutput output = OUTPUT.get();
+        output.reset();
+        try {
+            output.writeFields(obj);
+        } catch (RuntimeException e) {
+            release(output);
+            throw e;
+        }
+        return output;
+    }
+
+    private static void release(CodegenOutput output) {
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+            OUTPUT.remove();
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        return read(bytes, 0, bytes.length, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        int length = in.readableBytes();
+        if (in.hasArray()) {
+            // read the backing array in place
+            T obj = read(in.array(), in.arrayOffset() + in.readerIndex(), length, clazz);
+            in.skipBytes(length);
+            return obj;
+        }
+        byte[] copy = COPY_BUFFER.get();
+        if (copy.length < length) {
+            copy = new byte[length];
+            if (length <= MAX_POOLED_BUFFER_SIZE) {
+                COPY_BUFFER.set(copy);
+            }
+        }
+        in.readBytes(copy, 0, length);
+        return read(copy, 0, length, clazz);
+    }
+
+    private static <T> T read(byte[] bytes, int offset, int length, Class<T> clazz) {
+        CodegenInput input = INPUT.get();
+        input.setBuffer(bytes, offset, length);
+        try {
+            return input.readFields(clazz);
+        } finally {
+            input.clear();
+        }
+    }
+}
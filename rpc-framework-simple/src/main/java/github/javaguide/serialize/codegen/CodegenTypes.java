@@ -0,0 +1,85 @@
+package github.javaguide.serialize.codegen;
+
+import github.javaguide.exception.SerializeException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tags written before a value whose type is not known from its field, and the resolution of class names.
+ * A class outside the JDK is written with its generated codec, a JDK class without a tag of its own with Java
+ * serialization.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+final class CodegenTypes {
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte INTEGER = 2;
+    static final byte LONG = 3;
+    static final byte BOOLEAN = 4;
+    static final byte DOUBLE = 5;
+    static final byte FLOAT = 6;
+    static final byte SHORT = 7;
+    static final byte BYTE = 8;
+    static final byte CHARACTER = 9;
+    static final byte CLASS = 10;
+    static final byte ENUM = 11;
+    static final byte BYTE_ARRAY = 12;
+    static final byte PRIMITIVE_ARRAY = 13;
+    static final byte OBJECT_ARRAY = 14;
+    static final byte ARRAY_LIST = 15;
+    static final byte LINKED_LIST = 16;
+    static final byte HASH_SET = 17;
+    static final byte LINKED_HASH_SET = 18;
+    static final byte TREE_SET = 19;
+    static final byte HASH_MAP = 20;
+    static final byte LINKED_HASH_MAP = 21;
+    static final byte TREE_MAP = 22;
+    /**
+     * an object of a class with a generated codec: its class, then its fields
+     */
+    static final byte OBJECT = 23;
+    /**
+     * an object written with Java serialization
+     */
+    static final byte JAVA = 24;
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+    private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+
+    static {
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class, long.class,
+                float.class, double.class, void.class}) {
+            PRIMITIVES.put(type.getName(), type);
+        }
+    }
+
+    private CodegenTypes() {
+    }
+
+    static boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+
+    static Class<?> forName(String name) {
+        Class<?> type = CLASSES.get(name);
+        if (type != null) {
+            return type;
+        }
+        type = PRIMITIVES.get(name);
+        if (type == null) {
+            try {
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                type = Class.forName(name, false, classLoader == null ? CodegenTypes.class.getClassLoader() : classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new SerializeException("Class not found: " + name, e);
+            }
+        }
+        CLASSES.put(name, type);
+        return type;
+    }
+}
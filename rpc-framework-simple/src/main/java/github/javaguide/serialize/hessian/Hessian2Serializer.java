@@ -0,0 +1,94 @@
+package github.javaguide.serialize.hessian;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.SerializerFactory;
+import github.javaguide.exception.SerializeException;
+import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Hessian 2 serialization. The SerializerFactory, which caches the serializer of every class, is shared, and every
+ * thread reuses its own Hessian2Output, Hessian2Input and output buffer.
+ * <p>
+ * Every message carries its own class definitions, see {@link Hessian2Session} to send them once per connection.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class Hessian2Serializer implements Serializer {
+    static final SerializerFactory SERIALIZER_FACTORY = new SerializerFactory();
+
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<Streams> STREAMS = ThreadLocal.withInitial(Streams::new);
+
+    private static final class Streams {
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        private final Hessian2Output output = new Hessian2Output();
+        private final Hessian2Input input = new Hessian2Input();
+
+        private Streams() {
+            output.setSerializerFactory(SERIALIZER_FACTORY);
+            input.setSerializerFactory(SERIALIZER_FACTORY);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        Streams streams = STREAMS.get();
+        try {
+            streams.bytes.reset();
+            // init resets the references and class definitions of the previous message
+            streams.output.init(streams.bytes);
+            streams.output.writeObject(obj);
+            streams.output.flush();
+            return streams.bytes.toByteArray();
+        } catch (Exception e) {
+            throw new SerializeException("Serialization failed", e);
+        } finally {
+            if (streams.bytes.size() > MAX_POOLED_BUFFER_SIZE) {
+                streams.bytes = new ByteArrayOutputStream(1024);
+            }
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        Streams streams = STREAMS.get();
+        try {
+            streams.output.init(new ByteBufOutputStream(out));
+            streams.output.writeObject(obj);
+            streams.output.flush();
+        } catch (Exception e) {
+            throw new SerializeException("Serialization failed", e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        Streams streams = STREAMS.get();
+        try {
+            streams.input.init(new ByteArrayInputStream(bytes));
+            return clazz.cast(streams.input.readObject());
+        } catch (Exception e) {
+            throw new SerializeException("Deserialization failed", e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        Streams streams = STREAMS.get();
+        try {
+            streams.input.init(new ByteBufInputStream(in));
+            return clazz.cast(streams.input.readObject());
+        } catch (Exception e) {
+            throw new SerializeException("Deserialization failed", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package github.javaguide.serialize.hessian;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import github.javaguide.exception.SerializeException;
+import io.netty.buffer.ByteBuf;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Hessian 2 serialization which keeps the class definitions across the messages of one connection: a class is
+ * described in the first message containing it and referred to by its index afterwards. Object references are still
+ * reset after every message.
+ * <p>
+ * The messages must be read in the order they are written, so each side of a connection serializes on its IO thread
+ * with its own instance, and the connection must be closed once a message fails, since the two sides no longer agree
+ * on the definitions. Not thread safe.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class Hessian2Session {
+    private ByteBuf out;
+    private ByteBuf in;
+    private Hessian2Output output;
+    private Hessian2Input input;
+
+    public void serialize(Object obj, ByteBuf buf) {
+        if (output == null) {
+            output = new Hessian2Output(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    out.writeByte(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    out.writeBytes(b, off, len);
+                }
+            });
+            output.setSerializerFactory(Hessian2Serializer.SERIALIZER_FACTORY);
+        }
+        out = buf;
+        try {
+            output.writeObject(obj);
+            output.flushBuffer();
+            output.resetReferences();
+        } catch (Exception e) {
+            throw new SerializeException("Serialization failed", e);
+        } finally {
+            out = null;
+        }
+    }
+
+    public Object deserialize(ByteBuf buf) {
+        if (input == null) {
+            input = new Hessian2Input(new InputStream() {
+                @Override
+                public int read() {
+                    return in.isReadable() ? in.readByte() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!in.isReadable()) {
+                        return -1;
+                    }
+                    len = Math.min(len, in.readableBytes());
+                    in.readBytes(b, off, len);
+                    return len;
+                }
+            });
+            input.setSerializerFactory(Hessian2Serializer.SERIALIZER_FACTORY);
+        }
+        in = buf;
+        try {
+            Object obj = input.readObject();
+            input.resetReferences();
+            // fails if the message has not been read completely
+            input.resetBuffer();
+            return obj;
+        } catch (Exception e) {
+            throw new SerializeException("Deserialization failed", e);
+        } finally {
+            in = null;
+        }
+    }
+}
@@ -3,59 +3,237 @@ package github.javaguide.serialize.kyro;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.remoting.dto.RpcPayload;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
 import github.javaguide.serialize.Serializer;
+import github.javaguide.serialize.ServiceTypeRegistry;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.StringUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Kryo serialization class, Kryo serialization efficiency is very high, but only compatible with Java language
+ * <p>
+ * Kryo instances are borrowed from a {@link KryoPool} and every thread reuses its own Output and Input buffers.
+ * Besides RpcRequest and RpcResponse the classes listed in rpc.serialize.kryo.registrations are registered, and the
+ * types of the service interfaces (see {@link ServiceTypeRegistry}) if rpc.serialize.kryo.register-services is true.
+ * Their ids are derived from the class names, so they do not depend on the order in which the classes are found,
+ * but a class must be registered on both sides: only enable register-services if client and server share the
+ * service interfaces they use. rpc.serialize.kryo.unsafe and rpc.serialize.kryo.references must be the same on
+ * both sides as well.
  *
  * @author shuang.kou
  * @createTime 2020年05月13日 19:29:00
  */
 @Slf4j
 public class KryoSerializer implements Serializer {
+    private static final boolean UNSAFE = RpcConfigUtil.getBoolean(RpcConfigEnum.SERIALIZE_KRYO_UNSAFE, false);
+    private static final boolean REFERENCES = RpcConfigUtil.getBoolean(RpcConfigEnum.SERIALIZE_KRYO_REFERENCES, true);
+    private static final boolean REGISTER_SERVICES = RpcConfigUtil.getBoolean(RpcConfigEnum.SERIALIZE_KRYO_REGISTER_SERVICES, false);
+    private static final String REGISTERED_COUNT = "rpc.registered";
+    private static final int ID_BASE = 1024;
+    private static final int ID_RANGE = 1 << 27;
+    private static final int BUFFER_SIZE = 4096;
+    private static final byte[] EMPTY_BUFFER = new byte[0];
+    /**
+     * a buffer which has grown larger than this is not kept for the next message
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
 
+    private final KryoPool kryoPool = new KryoPool.Builder(this::newKryo).softReferences().build();
+    private final ThreadLocal<Output> outputThreadLocal = ThreadLocal.withInitial(KryoSerializer::newOutput);
+    /**
+     * reads a byte array in place
+     */
+    private final ThreadLocal<Input> inputThreadLocal = ThreadLocal.withInitial(() -> UNSAFE ? new UnsafeInput() : new Input());
+    /**
+     * reads a direct ByteBuf through its own buffer
+     */
+    private final ThreadLocal<Input> streamInputThreadLocal = ThreadLocal.withInitial(() -> UNSAFE ? new UnsafeInput(BUFFER_SIZE) : new Input(BUFFER_SIZE));
     /**
-     * Because Kryo is not thread safe. So, use ThreadLocal to store Kryo objects
+     * registrations in addition to RpcRequest and RpcResponse, a pooled Kryo applies the ones added since it was
+     * last borrowed
      */
-    private final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
+    private final List<Class<?>> registeredClasses = new CopyOnWriteArrayList<>();
+    private final List<Integer> registeredIds = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Class<?>> classById = new HashMap<>();
+    private final ServiceTypeRegistry serviceTypeRegistry;
+    private volatile int scannedTypes;
+
+    public KryoSerializer() {
+        serviceTypeRegistry = REGISTER_SERVICES ? SingletonFactory.getInstance(ServiceTypeRegistry.class) : null;
+        String registrations = RpcConfigUtil.getProperty(RpcConfigEnum.SERIALIZE_KRYO_REGISTRATIONS);
+        if (!StringUtil.isBlank(registrations)) {
+            for (String className : registrations.split(",")) {
+                try {
+                    register(Class.forName(className.trim()));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("Kryo registration class not found: " + className, e);
+                }
+            }
+        }
+    }
+
+    private Kryo newKryo() {
         Kryo kryo = new Kryo();
+        kryo.setReferences(REFERENCES);
         kryo.register(RpcResponse.class);
         kryo.register(RpcRequest.class);
+        kryo.register(RpcPayload.class);
+        kryo.register(Object[].class);
+        kryo.register(Class[].class);
         return kryo;
-    });
+    }
+
+    private static Output newOutput() {
+        return UNSAFE ? new UnsafeOutput(BUFFER_SIZE, -1) : new Output(BUFFER_SIZE, -1);
+    }
 
     @Override
     public byte[] serialize(Object obj) {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             Output output = new Output(byteArrayOutputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        Kryo kryo = borrow();
+        Output output = outputThreadLocal.get();
+        try {
+            output.clear();
             // Object->byte:将对象序列化为byte数组
             kryo.writeObject(output, obj);
+            return output.toBytes();
+        } catch (Exception e) {
+            log.error("Serialization failed", e);
+            throw new SerializeException("Serialization failed", e);
+        } finally {
+            releaseOutput(output);
+            kryoPool.release(kryo);
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        Kryo kryo = borrow();
+        Output output = outputThreadLocal.get();
+        try {
+            // the buffer of the output is flushed into the ByteBuf, no intermediate byte array is created
+            output.setOutputStream(new ByteBufOutputStream(out));
+            kryo.writeObject(output, obj);
             output.flush();
-            return byteArrayOutputStream.toByteArray();
         } catch (Exception e) {
             log.error("Serialization failed", e);
             throw new SerializeException("Serialization failed", e);
+        } finally {
+            output.setOutputStream(null);
+            releaseOutput(output);
+            kryoPool.release(kryo);
         }
     }
 
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-             Input input = new Input(byteArrayInputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        Kryo kryo = borrow();
+        Input input = inputThreadLocal.get();
+        try {
+            input.setBuffer(bytes);
             // byte->Object:从byte数组中反序列化出对对象
             return kryo.readObject(input, clazz);
         } catch (Exception e) {
             log.error("Deserialization failed", e);
             throw new SerializeException("Deserialization failed", e);
+        } finally {
+            input.setBuffer(EMPTY_BUFFER);
+            kryoPool.release(kryo);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        Kryo kryo = borrow();
+        boolean inPlace = in.hasArray();
+        Input input;
+        int start = 0;
+        if (inPlace) {
+            // read the backing array in place
+            input = inputThreadLocal.get();
+            start = in.arrayOffset() + in.readerIndex();
+            input.setBuffer(in.array(), start, in.readableBytes());
+        } else {
+            // a direct buffer is copied chunk by chunk into the buffer of the input
+            input = streamInputThreadLocal.get();
+            input.setInputStream(new ByteBufInputStream(in));
+        }
+        try {
+            return kryo.readObject(input, clazz);
+        } catch (Exception e) {
+            log.error("Deserialization failed", e);
+            throw new SerializeException("Deserialization failed", e);
+        } finally {
+            if (inPlace) {
+                in.skipBytes(input.position() - start);
+                input.setBuffer(EMPTY_BUFFER);
+            } else {
+                input.setInputStream(null);
+            }
+            kryoPool.release(kryo);
+        }
+    }
+
+    private void releaseOutput(Output output) {
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+            outputThreadLocal.set(newOutput());
+        }
+    }
+
+    /**
+     * borrow a Kryo from the pool which knows every registration made so far
+     */
+    private Kryo borrow() {
+        if (serviceTypeRegistry != null && scannedTypes < serviceTypeRegistry.getTypes().size()) {
+            registerServiceTypes();
+        }
+        Kryo kryo = kryoPool.borrow();
+        Integer registered = (Integer) kryo.getContext().get(REGISTERED_COUNT);
+        int applied = registered == null ? 0 : registered;
+        if (applied < registeredClasses.size()) {
+            for (int i = applied; i < registeredClasses.size(); i++) {
+                kryo.register(registeredClasses.get(i), registeredIds.get(i));
+            }
+            kryo.getContext().put(REGISTERED_COUNT, registeredClasses.size());
+        }
+        return kryo;
+    }
+
+    private synchronized void registerServiceTypes() {
+        List<Class<?>> types = serviceTypeRegistry.getTypes();
+        for (; scannedTypes < types.size(); scannedTypes++) {
+            register(types.get(scannedTypes));
+        }
+    }
+
+    private synchronized void register(Class<?> clazz) {
+        if (registeredClasses.contains(clazz)) {
+            return;
+        }
+        int id = ID_BASE + (clazz.getName().hashCode() & Integer.MAX_VALUE) % ID_RANGE;
+        Class<?> owner = classById.putIfAbsent(id, clazz);
+        if (owner != null) {
+            log.warn("Kryo registration id of [{}] is taken by [{}], it is written by name", clazz.getName(), owner.getName());
+            return;
         }
+        // the id is appended before the class, so a reader seeing the class also sees its id
+        registeredIds.add(id);
+        registeredClasses.add(clazz);
     }
 
     public class SerializeException extends RuntimeException {
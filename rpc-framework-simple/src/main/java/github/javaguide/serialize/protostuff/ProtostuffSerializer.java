@@ -1,40 +1,116 @@
 package github.javaguide.serialize.protostuff;
 
+import github.javaguide.exception.SerializeException;
+import github.javaguide.factory.SingletonFactory;
 import github.javaguide.serialize.Serializer;
+import github.javaguide.serialize.ServiceTypeRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
 
 /**
+ * Every thread serializes into its own LinkedBuffer, so the serializer can be used by all the event loops at once.
+ * The schemas of the service types (see {@link ServiceTypeRegistry}) are built when the services are published or
+ * referenced instead of on their first message.
+ *
  * @author TangMinXuan
  * @createTime 2020年11月09日 20:13
  */
+@Slf4j
 public class ProtostuffSerializer implements Serializer {
 
     /**
-     * Avoid re applying buffer space every time serialization
+     * Avoid re applying buffer space every time serialization, a LinkedBuffer is not thread safe
      */
-    private static final LinkedBuffer BUFFER = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+    private static final ThreadLocal<LinkedBuffer> BUFFER = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
+    private static final ClassValue<Schema<?>> SCHEMAS = new ClassValue<Schema<?>>() {
+        @Override
+        protected Schema<?> computeValue(Class<?> type) {
+            return RuntimeSchema.getSchema(type);
+        }
+    };
+
+    public ProtostuffSerializer() {
+        SingletonFactory.getInstance(ServiceTypeRegistry.class).subscribe(ProtostuffSerializer::warmUp);
+    }
+
+    private static void warmUp(Class<?> type) {
+        if (type.isEnum()) {
+            return;
+        }
+        try {
+            SCHEMAS.get(type);
+        } catch (RuntimeException e) {
+            log.warn("Can not build the protostuff schema of [{}]", type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> getSchema(Class<T> clazz) {
+        return (Schema<T>) SCHEMAS.get(clazz);
+    }
 
     @Override
+    @SuppressWarnings("unchecked")
     public byte[] serialize(Object obj) {
-        Class<?> clazz = obj.getClass();
-        Schema schema = RuntimeSchema.getSchema(clazz);
-        byte[] bytes;
+        Schema<Object> schema = getSchema((Class<Object>) obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
         try {
-            bytes = ProtostuffIOUtil.toByteArray(obj, schema, BUFFER);
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
         } finally {
-            BUFFER.clear();
+            buffer.clear();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void serialize(Object obj, ByteBuf out) {
+        Schema<Object> schema = getSchema((Class<Object>) obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            // the buffer is flushed into the ByteBuf whenever it is full
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new SerializeException("Serialization failed", e);
+        } finally {
+            buffer.clear();
         }
-        return bytes;
     }
 
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
-        Schema<T> schema = RuntimeSchema.getSchema(clazz);
+        Schema<T> schema = getSchema(clazz);
         T obj = schema.newMessage();
         ProtostuffIOUtil.mergeFrom(bytes, obj, schema);
         return obj;
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        Schema<T> schema = getSchema(clazz);
+        T obj = schema.newMessage();
+        if (in.hasArray()) {
+            // read the backing array in place
+            ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(), obj, schema);
+            in.skipBytes(in.readableBytes());
+            return obj;
+        }
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(in), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new SerializeException("Deserialization failed", e);
+        } finally {
+            buffer.clear();
+        }
+        return obj;
+    }
 }
@@ -14,9 +14,13 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * call this method before creating the bean to see if the class is annotated
@@ -26,10 +30,15 @@ import java.lang.reflect.Field;
  */
 @Slf4j
 @Component
-public class SpringBeanPostProcessor implements BeanPostProcessor {
+public class SpringBeanPostProcessor implements BeanPostProcessor, ApplicationListener<ContextRefreshedEvent> {
 
     private final ServiceProvider serviceProvider;
     private final RpcRequestTransport rpcClient;
+    /**
+     * the services found while the context is refreshed, published together once it is refreshed
+     */
+    private final List<RpcServiceConfig> pendingServices = new ArrayList<>();
+    private boolean contextRefreshed;
 
     public SpringBeanPostProcessor() {
         this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
@@ -38,8 +47,8 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
 
 
     /**
-     * 对带有@RpcSerivce注解的类进行代理，直接将类发布到ZK上
-     * 注意是在初始化之前，将类注册到zk上
+     * 对带有@RpcSerivce注解的类进行代理，将类发布到ZK上
+     * 注意容器刷新完成之前只是记录下来，刷新完成后一起发布，此时bean已经初始化完成了
      * */
     @SneakyThrows
     @Override
@@ -52,12 +61,36 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
             RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
                     .group(rpcService.group())
                     .version(rpcService.version())
+                    .serializer(rpcService.serializer())
+                    .weight(rpcService.weight())
                     .service(bean).build();
+            synchronized (pendingServices) {
+                if (!contextRefreshed) {
+                    pendingServices.add(rpcServiceConfig);
+                    return bean;
+                }
+            }
             serviceProvider.publishService(rpcServiceConfig);
         }
         return bean;
     }
 
+    /**
+     * 容器刷新完成后一起发布服务，服务端绑定端口之后才会注册到zk上
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        List<RpcServiceConfig> rpcServiceConfigs;
+        synchronized (pendingServices) {
+            contextRefreshed = true;
+            rpcServiceConfigs = new ArrayList<>(pendingServices);
+            pendingServices.clear();
+        }
+        if (!rpcServiceConfigs.isEmpty()) {
+            serviceProvider.publishServices(rpcServiceConfigs);
+        }
+    }
+
     /**
      * 客户端进行rpc调用的时候，让clientProxy帮忙调用而不是真正自己进行通信调用
      *
@@ -77,7 +110,8 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
                 // 2. 针对含有rpcReference注解的示例进行处理
                 RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
                         .group(rpcReference.group())
-                        .version(rpcReference.version()).build();
+                        .version(rpcReference.version())
+                        .serializer(rpcReference.serializer()).build();
                 // 3. 创建代理对象
                 RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcClient, rpcServiceConfig);
                 Object clientProxy = rpcClientProxy.getProxy(declaredField.getType());
@@ -0,0 +1,27 @@
+package github.javaguide.stub;
+
+/**
+ * Calls the methods of a service interface without reflection, generated at compile time by the
+ * rpc-framework-processor module, see {@link RpcStubs}
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public interface RpcSkeleton {
+
+    /**
+     * @param methodName     method name of the request
+     * @param parameterTypes parameter types of the request
+     * @return the index of the method, -1 if the interface has no such method
+     */
+    int methodIndex(String methodName, Class<?>[] parameterTypes);
+
+    /**
+     * @param service     service object
+     * @param methodIndex the index returned by methodIndex
+     * @param parameters  parameters of the request
+     * @return the result of the method, null for a void method
+     * @throws Throwable what the method throws
+     */
+    Object invoke(Object service, int methodIndex, Object[] parameters) throws Throwable;
+}
@@ -0,0 +1,96 @@
+package github.javaguide.stub;
+
+import github.javaguide.exception.RpcException;
+import github.javaguide.proxy.RpcClientProxy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Finds the stubs and skeletons generated for the service interfaces. With rpc-framework-processor on the compile
+ * classpath, a class Foo_RpcStub is generated next to the interface Foo of every RpcReference field and a class
+ * Foo_RpcSkeleton next to the interface Foo of every RpcService class. RpcClientProxy returns the stub instead of a
+ * JDK proxy and the server calls the skeleton instead of Method.invoke when they exist.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public final class RpcStubs {
+    /**
+     * the same suffixes as in RpcStubProcessor
+     */
+    private static final String STUB_SUFFIX = "_RpcStub";
+    private static final String SKELETON_SUFFIX = "_RpcSkeleton";
+
+    private static final ClassValue<Constructor<?>> STUB_CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            Class<?> stubClass = generatedClass(type, STUB_SUFFIX);
+            if (stubClass == null) {
+                return null;
+            }
+            try {
+                return stubClass.getConstructor(RpcClientProxy.class);
+            } catch (NoSuchMethodException e) {
+                log.warn("[{}] is not a stub of [{}]", stubClass.getName(), type.getName());
+                return null;
+            }
+        }
+    };
+    private static final ClassValue<RpcSkeleton> SKELETONS = new ClassValue<RpcSkeleton>() {
+        @Override
+        protected RpcSkeleton computeValue(Class<?> type) {
+            Class<?> skeletonClass = generatedClass(type, SKELETON_SUFFIX);
+            if (skeletonClass == null || !RpcSkeleton.class.isAssignableFrom(skeletonClass)) {
+                return null;
+            }
+            try {
+                return (RpcSkeleton) skeletonClass.newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                log.warn("Can not create the skeleton [{}]", skeletonClass.getName(), e);
+                return null;
+            }
+        }
+    };
+
+    private RpcStubs() {
+    }
+
+    /**
+     * @return the stub of the interface sending its calls through the proxy, null if none was generated
+     */
+    public static <T> T newStub(Class<T> serviceInterface, RpcClientProxy rpcClientProxy) {
+        Constructor<?> constructor = STUB_CONSTRUCTORS.get(serviceInterface);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return serviceInterface.cast(constructor.newInstance(rpcClientProxy));
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RpcException("Can not create the stub of " + serviceInterface.getName(), e);
+        }
+    }
+
+    /**
+     * @return the skeleton of the interface, null if none was generated
+     */
+    public static RpcSkeleton getSkeleton(Class<?> serviceInterface) {
+        return SKELETONS.get(serviceInterface);
+    }
+
+    private static Class<?> generatedClass(Class<?> serviceInterface, String suffix) {
+        if (!serviceInterface.isInterface()) {
+            return null;
+        }
+        String packageName = serviceInterface.getPackage() == null ? "" : serviceInterface.getPackage().getName();
+        String simpleName = packageName.isEmpty() ? serviceInterface.getName() : serviceInterface.getName().substring(packageName.length() + 1);
+        String className = (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_') + suffix;
+        try {
+            return Class.forName(className, true, serviceInterface.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
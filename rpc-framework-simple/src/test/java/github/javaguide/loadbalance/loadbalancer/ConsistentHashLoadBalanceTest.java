@@ -5,6 +5,9 @@ import github.javaguide.DemoRpcServiceImpl;
 import github.javaguide.config.RpcServiceConfig;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.loadbalance.LoadBalance;
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.zk.ZkServiceDirectory;
 import github.javaguide.registry.zk.util.CuratorUtils;
 import github.javaguide.remoting.dto.RpcRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * 估计一下QPS
  * 100个任务，每一个线程访问了2001次的zk + 进行了2000次的负载均衡，服务器的列表的大小为100个 执行时间为10s
@@ -31,6 +37,10 @@ import java.util.concurrent.TimeUnit;
  * */
 @Slf4j
 class ConsistentHashLoadBalanceTest {
+    /**
+     * follows the providers registered by the tests, as the clients do
+     */
+    private static final ZkServiceDirectory SERVICE_DIRECTORY = new ZkServiceDirectory();
 
     @Test
     void TestZk() {
@@ -104,6 +114,36 @@ class ConsistentHashLoadBalanceTest {
 
     }
 
+    @Test
+    void TestSnapshotDiff() {
+        ConsistentHashLoadBalanceNew loadBalance = new ConsistentHashLoadBalanceNew();
+        List<ServiceEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            endpoints.add(endpoint(i));
+        }
+        ServiceSnapshot first = new ServiceSnapshot("snapshotService", 1, endpoints);
+        RpcRequest rpcRequest = RpcRequest.builder().requestId(UUID.randomUUID().toString()).build();
+        assertTrue(endpoints.contains(loadBalance.select(first, rpcRequest)));
+
+        // 下线结点3，上线结点10
+        List<ServiceEndpoint> next = new ArrayList<>(endpoints);
+        next.remove(3);
+        next.add(endpoint(10));
+        ServiceSnapshot second = new ServiceSnapshot("snapshotService", 2, next, 1,
+                Collections.singletonList(endpoint(10)), Collections.singletonList(endpoints.get(3)));
+        loadBalance.onServiceChanged(second);
+        Map<ServiceEndpoint, Integer> loadDistribution = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            rpcRequest = RpcRequest.builder().requestId(UUID.randomUUID().toString()).build();
+            loadDistribution.merge(loadBalance.select(second, rpcRequest), 1, Integer::sum);
+        }
+        assertEquals(new HashSet<>(next), loadDistribution.keySet());
+    }
+
+    private static ServiceEndpoint endpoint(int port) {
+        return new ServiceEndpoint("127.0.0.1:" + port, new InetSocketAddress("127.0.0.1", port), Collections.emptyMap());
+    }
+
     @Slf4j
     static class GetServiceTask implements Runnable {
         @Override
@@ -197,9 +237,7 @@ class ConsistentHashLoadBalanceTest {
     }
 
     private static List<String> getAddrs(RpcRequest rpcRequest) {
-        String rpcServiceName = rpcRequest.getRpcServiceName();
-        CuratorFramework zkClient = CuratorUtils.getZkClient();
-        return CuratorUtils.getChildrenNodes(zkClient, rpcServiceName);
+        return SERVICE_DIRECTORY.getSnapshot(rpcRequest.getRpcServiceName()).getAddresses();
     }
 
     private static void removeInstance(int i) {
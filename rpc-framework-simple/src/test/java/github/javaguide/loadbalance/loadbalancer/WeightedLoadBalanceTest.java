@@ -0,0 +1,80 @@
+package github.javaguide.loadbalance.loadbalancer;
+
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcRequest;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedLoadBalanceTest {
+    private static final String RPC_SERVICE_NAME = "weightedService";
+    private static final int CALLS = 40000;
+
+    @Test
+    void selectByWeightTest() {
+        WeightedLoadBalance loadBalance = new WeightedLoadBalance(null);
+        ServiceEndpoint light = endpoint(1, "10", null);
+        ServiceEndpoint heavy = endpoint(2, "30", null);
+        ServiceEndpoint drained = endpoint(3, "0", null);
+        Map<ServiceEndpoint, Integer> calls = select(loadBalance,
+                new ServiceSnapshot(RPC_SERVICE_NAME, 1, Arrays.asList(light, heavy, drained)));
+        assertEquals(2, calls.size());
+        double share = calls.get(heavy) / (double) CALLS;
+        assertTrue(share > 0.72 && share < 0.78, "share of the heavy provider " + share);
+
+        // the next snapshot is followed, the provider of weight 0 gets calls once all of them have weight 0
+        ServiceSnapshot second = new ServiceSnapshot(RPC_SERVICE_NAME, 2, Collections.singletonList(drained), 1,
+                Collections.emptyList(), Arrays.asList(light, heavy));
+        loadBalance.onServiceChanged(second);
+        assertEquals(Collections.singleton(drained), select(loadBalance, second).keySet());
+    }
+
+    @Test
+    void selectInZoneTest() {
+        WeightedLoadBalance loadBalance = new WeightedLoadBalance("east-1a");
+        ServiceEndpoint local = endpoint(1, "10", "east-1a");
+        ServiceEndpoint remote = endpoint(2, "100", "east-1b");
+        assertEquals(Collections.singleton(local),
+                select(loadBalance, new ServiceSnapshot(RPC_SERVICE_NAME, 1, Arrays.asList(local, remote))).keySet());
+
+        // no provider left in the zone
+        ServiceEndpoint other = endpoint(3, null, null);
+        ServiceSnapshot second = new ServiceSnapshot(RPC_SERVICE_NAME, 2, Arrays.asList(remote, other), 1,
+                Collections.singletonList(other), Collections.singletonList(local));
+        Map<ServiceEndpoint, Integer> calls = select(loadBalance, second);
+        assertEquals(2, calls.size());
+        // the default weight
+        double share = calls.get(other) / (double) CALLS;
+        assertTrue(share > 0.47 && share < 0.53, "share of the provider of default weight " + share);
+    }
+
+    private static Map<ServiceEndpoint, Integer> select(WeightedLoadBalance loadBalance, ServiceSnapshot snapshot) {
+        RpcRequest rpcRequest = RpcRequest.builder().requestId("1").build();
+        Map<ServiceEndpoint, Integer> calls = new HashMap<>();
+        for (int i = 0; i < CALLS; i++) {
+            calls.merge(loadBalance.select(snapshot, rpcRequest), 1, Integer::sum);
+        }
+        return calls;
+    }
+
+    private static ServiceEndpoint endpoint(int port, String weight, String zone) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        if (weight != null) {
+            metadata.put(RpcConstants.METADATA_WEIGHT, weight);
+        }
+        if (zone != null) {
+            metadata.put(RpcConstants.METADATA_ZONE, zone);
+        }
+        return new ServiceEndpoint("127.0.0.1:" + port, new InetSocketAddress("127.0.0.1", port), metadata);
+    }
+}
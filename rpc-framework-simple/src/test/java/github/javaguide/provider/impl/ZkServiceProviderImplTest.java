@@ -0,0 +1,71 @@
+package github.javaguide.provider.impl;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.provider.ServiceWarmup;
+import github.javaguide.registry.zk.util.CuratorUtils;
+import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ZkServiceProviderImplTest {
+
+    static class WarmDemoService implements DemoRpcService, ServiceWarmup {
+        private final AtomicInteger warmups = new AtomicInteger();
+        private final boolean ready;
+
+        WarmDemoService(boolean ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public String hello() {
+            return "hello";
+        }
+
+        @Override
+        public void warmup() {
+            warmups.incrementAndGet();
+            if (!ready) {
+                throw new IllegalStateException("not ready");
+            }
+        }
+    }
+
+    @Test
+    void servicesAreRegisteredOnceTheServerIsBoundTest() throws Exception {
+        WarmDemoService ready = new WarmDemoService(true);
+        WarmDemoService notReady = new WarmDemoService(false);
+        String suffix = String.valueOf(System.nanoTime());
+        RpcServiceConfig readyConfig = RpcServiceConfig.builder().group("ready" + suffix).version("v").service(ready).build();
+        RpcServiceConfig notReadyConfig = RpcServiceConfig.builder().group("notReady" + suffix).version("v").service(notReady).build();
+        String address = "/" + InetAddress.getLocalHost().getHostAddress() + ":" + NettyRpcServer.PORT;
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+
+        ZkServiceProviderImpl serviceProvider = new ZkServiceProviderImpl();
+        serviceProvider.publishServices(Arrays.asList(readyConfig, notReadyConfig));
+        // added at once, registered and warmed up once the server is bound
+        assertEquals(ready, serviceProvider.getService(readyConfig.getRpcServiceName()));
+        assertNull(zkClient.checkExists().forPath(CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + readyConfig.getRpcServiceName() + address));
+        assertEquals(0, ready.warmups.get());
+
+        serviceProvider.publishPendingServices();
+        assertEquals(1, ready.warmups.get());
+        assertEquals(1, notReady.warmups.get());
+        assertNotNull(zkClient.checkExists().forPath(CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + readyConfig.getRpcServiceName() + address));
+        assertNull(zkClient.checkExists().forPath(CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + notReadyConfig.getRpcServiceName() + address));
+
+        // published after the server is bound, registered at once
+        RpcServiceConfig lateConfig = RpcServiceConfig.builder().group("late" + suffix).version("v").service(new WarmDemoService(true)).build();
+        serviceProvider.publishService(lateConfig);
+        assertNotNull(zkClient.checkExists().forPath(CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + lateConfig.getRpcServiceName() + address));
+    }
+}
@@ -0,0 +1,78 @@
+package github.javaguide.proxy;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.handler.RpcRequestHandler;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InjvmInvokerTest {
+    private static final Class<?>[] APPEND_TYPES = {List.class, String.class};
+
+    public interface ListService {
+        List<String> append(List<String> values, String value);
+    }
+
+    public static class ListServiceImpl implements ListService {
+        private List<String> last;
+
+        @Override
+        public List<String> append(List<String> values, String value) {
+            values.add(value);
+            last = values;
+            return values;
+        }
+    }
+
+    @Test
+    void copyTest() {
+        ListServiceImpl service = publish("copy");
+        InjvmInvoker injvmInvoker = new InjvmInvoker(SingletonFactory.getInstance(ZkServiceProviderImpl.class),
+                SingletonFactory.getInstance(RpcRequestHandler.class), true);
+        List<String> values = new ArrayList<>(Arrays.asList("a", "b"));
+        Object result = injvmInvoker.invoke(ListService.class.getCanonicalName(), "append", new Object[]{values, "c"}, APPEND_TYPES,
+                "copy", "injvm", "");
+        // the service got a copy of the list and the caller a copy of the result
+        assertEquals(Arrays.asList("a", "b"), values);
+        assertEquals(Arrays.asList("a", "b", "c"), result);
+        assertNotSame(service.last, result);
+    }
+
+    @Test
+    void byReferenceTest() {
+        ListServiceImpl service = publish("reference");
+        InjvmInvoker injvmInvoker = new InjvmInvoker(SingletonFactory.getInstance(ZkServiceProviderImpl.class),
+                SingletonFactory.getInstance(RpcRequestHandler.class), false);
+        List<String> values = new ArrayList<>(Arrays.asList("a", "b"));
+        Object result = injvmInvoker.invoke(ListService.class.getCanonicalName(), "append", new Object[]{values, "c"}, APPEND_TYPES,
+                "reference", "injvm", "");
+        assertSame(values, result);
+        assertSame(service.last, result);
+        assertEquals(Arrays.asList("a", "b", "c"), values);
+
+        String rpcServiceName = ListService.class.getCanonicalName() + "injvm" + "reference";
+        assertTrue(injvmInvoker.isLocal(rpcServiceName, new Object[]{values, "c"}, List.class));
+        // blobs keep going over the network
+        assertFalse(injvmInvoker.isLocal(rpcServiceName, null, Path.class));
+        assertFalse(injvmInvoker.isLocal(ListService.class.getCanonicalName() + "injvm" + "other", null, List.class));
+    }
+
+    private static ListServiceImpl publish(String version) {
+        ListServiceImpl service = new ListServiceImpl();
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
+                .group("injvm").version(version).serializer("").service(service).build();
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(rpcServiceConfig);
+        return service;
+    }
+}
@@ -0,0 +1,43 @@
+package github.javaguide.proxy;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RpcClientProxyTest {
+    private static final RpcServiceConfig SERVICE_CONFIG = RpcServiceConfig.builder().group("test").version("1").build();
+
+    @Test
+    void recycleAnsweredRequestTest() {
+        AtomicReference<RpcRequest> sent = new AtomicReference<>();
+        RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcRequest -> {
+            sent.set(rpcRequest);
+            return RpcResponse.success("hello", rpcRequest.getRequestId());
+        }, SERVICE_CONFIG);
+        assertEquals("hello", rpcClientProxy.invokeRemote("github.javaguide.HelloService", "hello", new Object[]{"a"},
+                new Class<?>[]{String.class}, String.class));
+        // the transport is done with an answered request, it went back to the pool
+        assertNull(sent.get().getInterfaceName());
+    }
+
+    @Test
+    void keepFailedRequestTest() {
+        AtomicReference<RpcRequest> sent = new AtomicReference<>();
+        RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcRequest -> {
+            sent.set(rpcRequest);
+            throw new IllegalStateException("interrupted");
+        }, SERVICE_CONFIG);
+        assertThrows(IllegalStateException.class, () -> rpcClientProxy.invokeRemote("github.javaguide.HelloService", "hello",
+                new Object[]{"a"}, new Class<?>[]{String.class}, String.class));
+        // the transport may still refer to it, eg: in a pending batch
+        assertEquals("github.javaguide.HelloService", sent.get().getInterfaceName());
+        assertEquals("a", sent.get().getParameters()[0]);
+    }
+}
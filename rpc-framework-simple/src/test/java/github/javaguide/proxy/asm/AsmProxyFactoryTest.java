@@ -0,0 +1,99 @@
+package github.javaguide.proxy.asm;
+
+import github.javaguide.proxy.RpcClientProxy;
+import github.javaguide.proxy.jdk.JdkProxyFactory;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsmProxyFactoryTest {
+
+    public interface Named {
+        String name();
+    }
+
+    public interface Calculator extends Named {
+        long add(int a, long b, double c);
+
+        void reset();
+
+        String[] split(String value, char separator);
+
+        boolean isEmpty(List<String> values);
+    }
+
+    interface Hidden {
+        String hello();
+    }
+
+    @Test
+    void asmProxyTest() {
+        List<String> asmRequests = new ArrayList<>();
+        List<String> jdkRequests = new ArrayList<>();
+        Calculator asmProxy = new AsmProxyFactory().getProxy(Calculator.class, new RpcClientProxy(rpcRequest -> answer(rpcRequest, asmRequests)));
+        Calculator jdkProxy = new JdkProxyFactory().getProxy(Calculator.class, new RpcClientProxy(rpcRequest -> answer(rpcRequest, jdkRequests)));
+        assertFalse(Proxy.isProxyClass(asmProxy.getClass()));
+        for (Calculator calculator : Arrays.asList(asmProxy, jdkProxy)) {
+            assertEquals(7L, calculator.add(1, 2L, 4.0));
+            calculator.reset();
+            assertArrayEquals(new String[]{"a", "b"}, calculator.split("a,b", ','));
+            assertTrue(calculator.isEmpty(new ArrayList<>()));
+            assertEquals("calculator", calculator.name());
+        }
+        assertEquals(jdkRequests, asmRequests);
+        // the same generated class for every proxy of an interface
+        assertEquals(asmProxy.getClass(), new AsmProxyFactory().getProxy(Calculator.class, new RpcClientProxy(rpcRequest -> null)).getClass());
+    }
+
+    @Test
+    void nullPrimitiveResultTest() {
+        Calculator asmProxy = new AsmProxyFactory().getProxy(Calculator.class,
+                new RpcClientProxy(rpcRequest -> RpcResponse.success(null, rpcRequest.getRequestId())));
+        assertNull(asmProxy.name());
+        assertThrows(NullPointerException.class, () -> asmProxy.add(1, 2L, 3.0));
+    }
+
+    @Test
+    void nonPublicInterfaceTest() {
+        Hidden hidden = new AsmProxyFactory().getProxy(Hidden.class,
+                new RpcClientProxy(rpcRequest -> RpcResponse.success("hello", rpcRequest.getRequestId())));
+        assertTrue(Proxy.isProxyClass(hidden.getClass()));
+        assertEquals("hello", hidden.hello());
+    }
+
+    private static RpcResponse<Object> answer(RpcRequest rpcRequest, List<String> requests) {
+        requests.add(rpcRequest.getInterfaceName() + "#" + rpcRequest.getMethodName() + Arrays.toString(rpcRequest.getParamTypes())
+                + Arrays.deepToString(rpcRequest.getParameters()));
+        Object[] parameters = rpcRequest.getParameters();
+        Object result;
+        switch (rpcRequest.getMethodName()) {
+            case "add":
+                result = (Integer) parameters[0] + (Long) parameters[1] + (long) (double) (Double) parameters[2];
+                break;
+            case "split":
+                result = ((String) parameters[0]).split(String.valueOf(parameters[1]));
+                break;
+            case "isEmpty":
+                result = ((List<?>) parameters[0]).isEmpty();
+                break;
+            case "name":
+                result = "calculator";
+                break;
+            default:
+                result = null;
+        }
+        return RpcResponse.success(result, rpcRequest.getRequestId());
+    }
+}
@@ -0,0 +1,101 @@
+package github.javaguide.registry;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderMetadataTest {
+
+    @Test
+    void encodeAndDecodeTest() {
+        Map<String, String> metadata = providerMetadata();
+        byte[] data = ProviderMetadata.encode(metadata);
+        assertEquals(metadata, ProviderMetadata.decode(data));
+        // smaller than the key=value lines of the same metadata
+        int lines = metadata.entrySet().stream().mapToInt(entry -> entry.getKey().length() + entry.getValue().length() + 2).sum();
+        assertTrue(data.length * 3 < lines, data.length + " bytes");
+
+        // values that do not read back the same with their tag are kept as they are
+        Map<String, String> unusual = new LinkedHashMap<>();
+        unusual.put(RpcConstants.METADATA_WEIGHT, "007");
+        unusual.put(RpcConstants.METADATA_CPUS, "many");
+        unusual.put(RpcConstants.METADATA_SERIALIZER, "thrift");
+        unusual.put(RpcConstants.METADATA_CODECS, "protostuff,kyro");
+        unusual.put("owner", "订单组");
+        assertEquals(unusual, ProviderMetadata.decode(ProviderMetadata.encode(unusual)));
+        assertEquals(Collections.emptyMap(), ProviderMetadata.decode(ProviderMetadata.encode(Collections.emptyMap())));
+    }
+
+    @Test
+    void decodeOtherDataTest() {
+        byte[] lines = "serializer=kyro\ncodecs=kyro,protostuff\n".getBytes(StandardCharsets.UTF_8);
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put(RpcConstants.METADATA_SERIALIZER, "kyro");
+        expected.put(RpcConstants.METADATA_CODECS, "kyro,protostuff");
+        assertEquals(expected, ProviderMetadata.decode(lines));
+
+        // an entry with a tag of a later version is skipped
+        byte[] data = ProviderMetadata.encode(Collections.singletonMap(RpcConstants.METADATA_WEIGHT, "5"));
+        byte[] later = Arrays.copyOf(data, data.length + 4);
+        later[data.length] = 100;
+        later[data.length + 1] = 2;
+        assertEquals(Collections.singletonMap(RpcConstants.METADATA_WEIGHT, "5"), ProviderMetadata.decode(later));
+
+        assertEquals(Collections.emptyMap(), ProviderMetadata.decode(Arrays.copyOf(data, data.length - 1)));
+        assertEquals(Collections.emptyMap(), ProviderMetadata.decode(null));
+    }
+
+    @Test
+    void endpointTest() {
+        ServiceEndpoint endpoint = new ServiceEndpoint("127.0.0.1:9998", new InetSocketAddress("127.0.0.1", 9998),
+                ProviderMetadata.decode(ProviderMetadata.encode(providerMetadata())));
+        assertEquals(30, endpoint.getWeight());
+        assertEquals("east-1a", endpoint.getZone());
+        assertEquals(SerializationTypeEnum.PROTOSTUFF.getCode(), endpoint.getSerializer());
+        assertTrue(endpoint.supportsCodec(SerializationTypeEnum.KYRO.getCode()));
+        assertFalse(endpoint.supportsCodec(SerializationTypeEnum.HESSIAN.getCode()));
+        assertTrue(endpoint.supportsCompressor(CompressTypeEnum.GZIP.getCode()));
+        assertEquals(RpcConstants.VERSION, endpoint.getProtocolVersion());
+        assertEquals(16, endpoint.getCpus());
+        assertEquals(1792380000000L, endpoint.getStartTime());
+
+        assertEquals(RpcConstants.VERSION, endpoint.getFrameVersion());
+
+        // a provider registered without metadata understands the baseline serializers, gzip and frames
+        ServiceEndpoint bare = new ServiceEndpoint("127.0.0.1:9999", new InetSocketAddress("127.0.0.1", 9999), Collections.emptyMap());
+        assertEquals(RpcConstants.DEFAULT_WEIGHT, bare.getWeight());
+        assertNull(bare.getZone());
+        assertEquals(0, bare.getSerializer());
+        assertTrue(bare.supportsCodec(SerializationTypeEnum.HESSIAN.getCode()));
+        assertFalse(bare.supportsCodec(SerializationTypeEnum.HESSIAN2.getCode()));
+        assertTrue(bare.supportsCompressor(CompressTypeEnum.GZIP.getCode()));
+        assertFalse(bare.supportsCompressor(CompressTypeEnum.NONE.getCode()));
+        assertEquals(RpcConstants.BASELINE_VERSION, bare.getFrameVersion());
+    }
+
+    private static Map<String, String> providerMetadata() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put(RpcConstants.METADATA_SERIALIZER, "protostuff");
+        metadata.put(RpcConstants.METADATA_CODECS, "kyro,protostuff");
+        metadata.put(RpcConstants.METADATA_WEIGHT, "30");
+        metadata.put(RpcConstants.METADATA_ZONE, "east-1a");
+        metadata.put(RpcConstants.METADATA_COMPRESSORS, "gzip");
+        metadata.put(RpcConstants.METADATA_PROTOCOL, Byte.toString(RpcConstants.VERSION));
+        metadata.put(RpcConstants.METADATA_CPUS, "16");
+        metadata.put(RpcConstants.METADATA_START_TIME, "1792380000000");
+        return metadata;
+    }
+}
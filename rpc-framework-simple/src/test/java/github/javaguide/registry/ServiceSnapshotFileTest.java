@@ -0,0 +1,44 @@
+package github.javaguide.registry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceSnapshotFileTest {
+
+    @Test
+    void saveAndLoadTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("registry.cache");
+        assertTrue(ServiceSnapshotFile.load(file).isEmpty());
+
+        Map<String, Map<String, String>> endpoints = new LinkedHashMap<>();
+        endpoints.put("127.0.0.1:9998", Collections.singletonMap("weight", "3"));
+        endpoints.put("127.0.0.1:9999", Collections.emptyMap());
+        Map<String, ServiceSnapshotFile.CachedService> services = new LinkedHashMap<>();
+        services.put("github.javaguide.HelloServicetest1version1", new ServiceSnapshotFile.CachedService(42, endpoints));
+        ServiceSnapshotFile.save(file, services);
+        // saved again over the previous file, no temporary file left behind
+        ServiceSnapshotFile.save(file, services);
+        assertEquals(1, directory.toFile().list().length);
+
+        Map<String, ServiceSnapshotFile.CachedService> loaded = ServiceSnapshotFile.load(file);
+        ServiceSnapshotFile.CachedService cached = loaded.get("github.javaguide.HelloServicetest1version1");
+        assertEquals(42, cached.getSavedAt());
+        assertEquals(endpoints, cached.getEndpoints());
+
+        // a truncated file is ignored
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertTrue(ServiceSnapshotFile.load(file).isEmpty());
+    }
+}
@@ -5,13 +5,27 @@ import github.javaguide.DemoRpcServiceImpl;
 import github.javaguide.config.RpcServiceConfig;
 import github.javaguide.registry.zk.ZkServiceDiscoveryImpl;
 import github.javaguide.registry.zk.ZkServiceRegistryImpl;
+import github.javaguide.registry.zk.util.CuratorUtils;
+import github.javaguide.remoting.constants.RpcConstants;
 import github.javaguide.remoting.dto.RpcRequest;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
 import org.junit.jupiter.api.Test;
 
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -40,4 +54,82 @@ class ZkServiceRegistryImplTest {
         InetSocketAddress acquiredInetSocketAddress = zkServiceDiscovery.lookupService(rpcRequest);
         assertEquals(givenInetSocketAddress.toString(), acquiredInetSocketAddress.toString());
     }
+
+    @Test
+    void should_register_service_metadata_and_read_it_by_provider_address() {
+        ServiceRegistry zkServiceRegistry = new ZkServiceRegistryImpl();
+        InetSocketAddress givenInetSocketAddress = new InetSocketAddress("127.0.0.1", 9334);
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
+                .group("test3").version("version3").service(new DemoRpcServiceImpl()).build();
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(RpcConstants.METADATA_SERIALIZER, "kyro");
+        metadata.put(RpcConstants.METADATA_CODECS, "kyro,protostuff");
+        zkServiceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), givenInetSocketAddress, metadata);
+        ServiceDiscovery zkServiceDiscovery = new ZkServiceDiscoveryImpl();
+        RpcRequest rpcRequest = RpcRequest.builder()
+                .interfaceName(rpcServiceConfig.getServiceName())
+                .requestId(UUID.randomUUID().toString())
+                .group(rpcServiceConfig.getGroup())
+                .version(rpcServiceConfig.getVersion())
+                .build();
+        InetSocketAddress acquiredInetSocketAddress = zkServiceDiscovery.lookupService(rpcRequest);
+        assertEquals(metadata, zkServiceDiscovery.getServiceMetadata(rpcServiceConfig.getRpcServiceName(), acquiredInetSocketAddress));
+    }
+
+    @Test
+    void should_register_services_together_even_over_nodes_of_an_earlier_session() throws Exception {
+        ServiceRegistry zkServiceRegistry = new ZkServiceRegistryImpl();
+        InetSocketAddress givenInetSocketAddress = new InetSocketAddress("127.0.0.1", 9336);
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        long sessionId = zkClient.getZookeeperClient().getZooKeeper().getSessionId();
+        String suffix = String.valueOf(System.nanoTime());
+        Map<String, Map<String, String>> serviceMetadata = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            serviceMetadata.put("github.javaguide.DemoRpcServicebatch" + i + "version" + suffix,
+                    Collections.singletonMap(RpcConstants.METADATA_SERIALIZER, "kyro"));
+        }
+        // a persistent node as left by an earlier version makes the transaction fail
+        String stale = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/github.javaguide.DemoRpcServicebatch2version" + suffix + "/127.0.0.1:9336";
+        CuratorUtils.createPersistentNode(zkClient, stale);
+
+        zkServiceRegistry.registerServices(serviceMetadata, givenInetSocketAddress);
+        for (String rpcServiceName : serviceMetadata.keySet()) {
+            String path = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + "/127.0.0.1:9336";
+            assertEquals(sessionId, zkClient.checkExists().forPath(path).getEphemeralOwner());
+            assertEquals(Collections.singletonMap(RpcConstants.METADATA_SERIALIZER, "kyro"), ProviderMetadata.decode(zkClient.getData().forPath(path)));
+        }
+    }
+
+    @Test
+    void should_register_ephemeral_node_again_after_session_expired() throws Exception {
+        ServiceRegistry zkServiceRegistry = new ZkServiceRegistryImpl();
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
+                .group("test4").version("version4").service(new DemoRpcServiceImpl()).build();
+        zkServiceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress("127.0.0.1", 9335),
+                Collections.singletonMap(RpcConstants.METADATA_SERIALIZER, "kyro"));
+        String path = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceConfig.getRpcServiceName() + "/127.0.0.1:9335";
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        ZooKeeper zooKeeper = zkClient.getZookeeperClient().getZooKeeper();
+        long sessionId = zooKeeper.getSessionId();
+        assertEquals(sessionId, zkClient.checkExists().forPath(path).getEphemeralOwner());
+
+        // another connection with the same session closes the session
+        CountDownLatch connected = new CountDownLatch(1);
+        ZooKeeper other = new ZooKeeper(zkClient.getZookeeperClient().getCurrentConnectionString(), 30_000,
+                event -> connected.countDown(), sessionId, zooKeeper.getSessionPasswd());
+        assertTrue(connected.await(10, TimeUnit.SECONDS));
+        other.close();
+
+        Stat stat = null;
+        for (int i = 0; i < 100; i++) {
+            stat = zkClient.checkExists().forPath(path);
+            if (stat != null && stat.getEphemeralOwner() != sessionId) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertNotNull(stat);
+        assertNotEquals(sessionId, stat.getEphemeralOwner());
+        assertEquals(Collections.singletonMap(RpcConstants.METADATA_SERIALIZER, "kyro"), ProviderMetadata.decode(zkClient.getData().forPath(path)));
+    }
 }
@@ -0,0 +1,67 @@
+package github.javaguide.registry.file;
+
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.file.util.FileRegistryUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileServiceDirectoryTest {
+    private static final String RPC_SERVICE_NAME = "github.javaguide.HelloServicetest1version1";
+
+    @Test
+    void snapshotFollowsEntriesTest(@TempDir Path registryDirectory) throws InterruptedException {
+        FileServiceRegistryImpl serviceRegistry = new FileServiceRegistryImpl(registryDirectory);
+        serviceRegistry.registerService(RPC_SERVICE_NAME, new InetSocketAddress("127.0.0.1", 9701), Collections.singletonMap("weight", "3"));
+        FileServiceDirectory serviceDirectory = new FileServiceDirectory(registryDirectory);
+        List<ServiceSnapshot> notified = new CopyOnWriteArrayList<>();
+        serviceDirectory.addListener(notified::add);
+
+        ServiceSnapshot first = serviceDirectory.getSnapshot(RPC_SERVICE_NAME);
+        assertEquals(Collections.singletonList("127.0.0.1:9701"), first.getAddresses());
+        assertEquals(Collections.singletonMap("weight", "3"), first.getEndpoint("127.0.0.1:9701").getMetadata());
+
+        serviceRegistry.registerService(RPC_SERVICE_NAME, new InetSocketAddress("127.0.0.1", 9702));
+        ServiceSnapshot second = awaitSize(serviceDirectory, 2);
+        assertEquals(first.getVersion(), second.getPreviousVersion());
+        assertEquals(Collections.singletonList(second.getEndpoint("127.0.0.1:9702")), second.getAdded());
+        assertSame(first.getEndpoint("127.0.0.1:9701"), second.getEndpoint("127.0.0.1:9701"));
+        assertEquals(Collections.singletonList(second), notified);
+
+        serviceRegistry.unregisterServices(new InetSocketAddress("127.0.0.1", 9701));
+        ServiceSnapshot third = awaitSize(serviceDirectory, 1);
+        assertEquals(Collections.singletonList("127.0.0.1:9702"), third.getAddresses());
+    }
+
+    @Test
+    void entriesOfStoppedProviderAreRemovedTest(@TempDir Path registryDirectory) throws InterruptedException {
+        // written without holding the lease, as left behind by a provider that was killed
+        FileRegistryUtils.writeEntry(registryDirectory.resolve(RPC_SERVICE_NAME).resolve("127.0.0.1_9703"),
+                "weight=1".getBytes(StandardCharsets.UTF_8));
+        FileServiceDirectory serviceDirectory = new FileServiceDirectory(registryDirectory);
+        assertEquals(Collections.singletonList("127.0.0.1:9703"), serviceDirectory.getSnapshot(RPC_SERVICE_NAME).getAddresses());
+        for (int i = 0; i < 100 && !serviceDirectory.getSnapshot(RPC_SERVICE_NAME).isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(serviceDirectory.getSnapshot(RPC_SERVICE_NAME).isEmpty());
+    }
+
+    private static ServiceSnapshot awaitSize(FileServiceDirectory serviceDirectory, int size) throws InterruptedException {
+        for (int i = 0; i < 100 && serviceDirectory.getSnapshot(RPC_SERVICE_NAME).getEndpoints().size() != size; i++) {
+            Thread.sleep(50);
+        }
+        ServiceSnapshot snapshot = serviceDirectory.getSnapshot(RPC_SERVICE_NAME);
+        assertEquals(size, snapshot.getEndpoints().size());
+        return snapshot;
+    }
+}
@@ -0,0 +1,51 @@
+package github.javaguide.registry.gossip;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GossipMessageTest {
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int BUDGET = 8 * 1024;
+
+    @Test
+    void splitFullStateTest() {
+        List<GossipMember> members = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String id = "127.0.0.1:" + (7000 + i);
+            members.add(new GossipMember(id, GossipMessage.toSocketAddress(id), GossipMember.Status.ALIVE, i, "127.0.0.1:" + (9000 + i),
+                    Collections.singletonMap("github.javaguide.GossipServicetest1version1", new byte[1000])));
+        }
+        ByteBuf whole = Unpooled.buffer();
+        new GossipMessage(GossipMessage.Type.SYNC, 1, null, members).encode(whole);
+        // too large for one datagram
+        assertTrue(whole.readableBytes() > MAX_DATAGRAM_SIZE);
+        whole.release();
+
+        List<List<GossipMember>> parts = GossipMessage.split(members, BUDGET);
+        assertTrue(parts.size() > 1);
+        List<String> received = new ArrayList<>();
+        for (List<GossipMember> part : parts) {
+            ByteBuf datagram = Unpooled.buffer();
+            try {
+                new GossipMessage(GossipMessage.Type.SYNC_REPLY, 1, null, part).encode(datagram);
+                assertTrue(datagram.readableBytes() <= BUDGET + 7, "part of " + datagram.readableBytes() + " bytes");
+                GossipMessage.decode(datagram).getMembers().forEach(member -> received.add(member.getId()));
+            } finally {
+                datagram.release();
+            }
+        }
+        List<String> sent = new ArrayList<>();
+        members.forEach(member -> sent.add(member.getId()));
+        assertEquals(sent, received);
+
+        assertEquals(Collections.singletonList(Collections.emptyList()), GossipMessage.split(Collections.emptyList(), BUDGET));
+    }
+}
@@ -0,0 +1,69 @@
+package github.javaguide.registry.gossip;
+
+import github.javaguide.registry.ServiceSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GossipNodeTest {
+    private static final int NODES = 8;
+    private static final long INTERVAL_MILLIS = 100;
+    private static final String RPC_SERVICE_NAME = "github.javaguide.GossipServicetest1version1";
+    private final List<GossipNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void closeNodes() {
+        nodes.forEach(GossipNode::close);
+    }
+
+    @Test
+    void membersLearnServicesAndDetectFailureTest() throws InterruptedException {
+        GossipNode seed = new GossipNode("127.0.0.1", 0, Collections.emptyList(), INTERVAL_MILLIS);
+        nodes.add(seed);
+        List<InetSocketAddress> seeds = Collections.singletonList(seed.getSocketAddress());
+        for (int i = 1; i < NODES; i++) {
+            nodes.add(new GossipNode("127.0.0.1", 0, seeds, INTERVAL_MILLIS));
+        }
+        await(() -> nodes.stream().allMatch(node -> node.getLiveMembers().size() == NODES), "all the nodes join");
+
+        List<GossipServiceDirectory> directories = new ArrayList<>();
+        for (GossipNode node : nodes) {
+            GossipServiceDirectory directory = new GossipServiceDirectory(node);
+            // watched before the service is registered
+            assertTrue(directory.getSnapshot(RPC_SERVICE_NAME).isEmpty());
+            directories.add(directory);
+        }
+        GossipNode provider = nodes.get(3);
+        new GossipServiceRegistryImpl(provider).registerService(RPC_SERVICE_NAME, new InetSocketAddress("127.0.0.1", 9801),
+                Collections.singletonMap("weight", "2"));
+        await(() -> directories.stream().allMatch(directory -> directory.getSnapshot(RPC_SERVICE_NAME).getEndpoints().size() == 1),
+                "every node learns the provider");
+        ServiceSnapshot snapshot = directories.get(0).getSnapshot(RPC_SERVICE_NAME);
+        assertEquals(Collections.singletonList("127.0.0.1:9801"), snapshot.getAddresses());
+        assertEquals(Collections.singletonMap("weight", "2"), snapshot.getEndpoint("127.0.0.1:9801").getMetadata());
+        // watched after the service is registered
+        assertEquals(snapshot.getAddresses(), new GossipServiceDirectory(nodes.get(5)).getSnapshot(RPC_SERVICE_NAME).getAddresses());
+
+        // fails without a word, the others detect it through the probes
+        provider.close();
+        nodes.remove(provider);
+        await(() -> directories.stream().filter(directory -> directory != directories.get(3))
+                .allMatch(directory -> directory.getSnapshot(RPC_SERVICE_NAME).isEmpty()), "every node removes the failed provider");
+        await(() -> nodes.stream().allMatch(node -> node.getLiveMembers().size() == NODES - 1), "every node declares the failed node dead");
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean(), what);
+    }
+}
@@ -0,0 +1,162 @@
+package github.javaguide.registry.zk;
+
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.zk.util.CuratorUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZkServiceDirectoryTest {
+
+    @Test
+    void snapshotFollowsProvidersTest() throws InterruptedException {
+        String rpcServiceName = "github.javaguide.DirectoryServicetest" + System.nanoTime();
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        CuratorUtils.createEphemeralNode(zkClient, servicePath + "/127.0.0.1:9401");
+        ZkServiceDirectory serviceDirectory = new ZkServiceDirectory();
+
+        ServiceSnapshot first = serviceDirectory.getSnapshot(rpcServiceName);
+        assertSame(first, serviceDirectory.getSnapshot(rpcServiceName));
+        assertEquals(Collections.singletonList("127.0.0.1:9401"), first.getAddresses());
+        ServiceEndpoint endpoint = first.getEndpoint("127.0.0.1:9401");
+        assertEquals(new InetSocketAddress("127.0.0.1", 9401), endpoint.getSocketAddress());
+        assertSame(endpoint, first.getEndpoint(new InetSocketAddress("127.0.0.1", 9401)));
+        // the node data is not key=value lines
+        assertTrue(endpoint.getMetadata().isEmpty());
+
+        CuratorUtils.createEphemeralNode(zkClient, servicePath + "/127.0.0.1:9402");
+        ServiceSnapshot second = awaitSize(serviceDirectory, rpcServiceName, 2);
+        assertEquals(first.getVersion(), second.getPreviousVersion());
+        assertEquals(Collections.singletonList(second.getEndpoint("127.0.0.1:9402")), second.getAdded());
+        assertTrue(second.getRemoved().isEmpty());
+        // the provider that did not change is not parsed nor resolved again
+        assertSame(endpoint, second.getEndpoint("127.0.0.1:9401"));
+
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath + "/127.0.0.1:9401");
+        ServiceSnapshot third = awaitSize(serviceDirectory, rpcServiceName, 1);
+        assertEquals(Collections.singletonList("127.0.0.1:9402"), third.getAddresses());
+        assertEquals(Collections.singletonList(endpoint), third.getRemoved());
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath);
+    }
+
+    @Test
+    void concurrentFirstLookupsTest() throws Exception {
+        String rpcServiceName = "github.javaguide.DirectoryServicetest" + System.nanoTime();
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        CuratorUtils.createEphemeralNode(zkClient, servicePath + "/127.0.0.1:9601");
+        ZkServiceDirectory serviceDirectory = new ZkServiceDirectory(null);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ServiceSnapshot>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(pool.submit(() -> serviceDirectory.getSnapshot(rpcServiceName)));
+            }
+            // the lookups waiting for the watch started by another one get its first snapshot
+            ServiceSnapshot first = lookups.get(0).get(10, TimeUnit.SECONDS);
+            assertEquals(Collections.singletonList("127.0.0.1:9601"), first.getAddresses());
+            for (Future<ServiceSnapshot> lookup : lookups) {
+                assertSame(first, lookup.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath + "/127.0.0.1:9601");
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath);
+    }
+
+    @Test
+    void burstOfChangesMakesFewSnapshotsTest() throws InterruptedException {
+        String rpcServiceName = "github.javaguide.DirectoryServicetest" + System.nanoTime();
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        CuratorUtils.createEphemeralNode(zkClient, servicePath + "/127.0.0.1:9500");
+        ZkServiceDirectory serviceDirectory = new ZkServiceDirectory();
+        List<ServiceSnapshot> notified = new CopyOnWriteArrayList<>();
+        serviceDirectory.addListener(notified::add);
+        ServiceSnapshot first = serviceDirectory.getSnapshot(rpcServiceName);
+
+        for (int i = 1; i <= 50; i++) {
+            CuratorUtils.createEphemeralNode(zkClient, servicePath + "/127.0.0.1:" + (9500 + i));
+        }
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath + "/127.0.0.1:9500");
+        ServiceSnapshot last = awaitSize(serviceDirectory, rpcServiceName, 50);
+        assertTrue(notified.size() < 50, "snapshots: " + notified.size());
+
+        // the differences lead from the first snapshot to the last one
+        Set<String> addresses = new HashSet<>(first.getAddresses());
+        long version = first.getVersion();
+        for (ServiceSnapshot snapshot : notified) {
+            assertEquals(version, snapshot.getPreviousVersion());
+            snapshot.getRemoved().forEach(removed -> addresses.remove(removed.getAddress()));
+            snapshot.getAdded().forEach(added -> addresses.add(added.getAddress()));
+            version = snapshot.getVersion();
+        }
+        assertEquals(last.getVersion(), version);
+        assertEquals(new HashSet<>(last.getAddresses()), addresses);
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath);
+    }
+
+    @Test
+    void providersFromSnapshotFileTest(@TempDir Path directory) throws InterruptedException {
+        String rpcServiceName = "github.javaguide.DirectoryServicetest" + System.nanoTime();
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName;
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        CuratorUtils.registerEphemeralNode(zkClient, servicePath + "/127.0.0.1:9601", "weight=3".getBytes(StandardCharsets.UTF_8));
+        Path snapshotFile = directory.resolve("registry.cache");
+        ServiceSnapshot confirmed = new ZkServiceDirectory(snapshotFile).getSnapshot(rpcServiceName);
+        assertFalse(confirmed.isStale());
+        for (int i = 0; i < 100 && !Files.exists(snapshotFile); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(snapshotFile));
+
+        // the next client serves the saved providers before zookeeper answers, then those of zookeeper
+        ZkServiceDirectory serviceDirectory = new ZkServiceDirectory(snapshotFile);
+        ServiceSnapshot cached = serviceDirectory.getSnapshot(rpcServiceName);
+        assertTrue(cached.isStale());
+        assertEquals(confirmed.getAddresses(), cached.getAddresses());
+        assertEquals(Collections.singletonMap("weight", "3"), cached.getEndpoint("127.0.0.1:9601").getMetadata());
+        for (int i = 0; i < 100 && serviceDirectory.getSnapshot(rpcServiceName).isStale(); i++) {
+            Thread.sleep(50);
+        }
+        ServiceSnapshot watched = serviceDirectory.getSnapshot(rpcServiceName);
+        assertFalse(watched.isStale());
+        assertEquals(cached.getVersion(), watched.getPreviousVersion());
+        // the provider did not change while the client was down
+        assertSame(cached.getEndpoint("127.0.0.1:9601"), watched.getEndpoint("127.0.0.1:9601"));
+        assertTrue(watched.getAdded().isEmpty() && watched.getRemoved().isEmpty());
+        CuratorUtils.deleteEphemeralNode(zkClient, servicePath);
+    }
+
+    private static ServiceSnapshot awaitSize(ZkServiceDirectory serviceDirectory, String rpcServiceName, int size) throws InterruptedException {
+        for (int i = 0; i < 100 && serviceDirectory.getSnapshot(rpcServiceName).getEndpoints().size() != size; i++) {
+            Thread.sleep(50);
+        }
+        ServiceSnapshot snapshot = serviceDirectory.getSnapshot(rpcServiceName);
+        assertEquals(size, snapshot.getEndpoints().size());
+        return snapshot;
+    }
+}
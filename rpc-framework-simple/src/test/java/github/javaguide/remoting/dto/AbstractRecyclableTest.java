@@ -0,0 +1,87 @@
+package github.javaguide.remoting.dto;
+
+import github.javaguide.enums.RpcResponseCodeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AbstractRecyclableTest {
+
+    private static RpcRequest newRequest() {
+        return RpcRequest.newInstance("r1", "github.javaguide.HelloService", "hello", new Object[]{"a"},
+                new Class<?>[]{String.class}, "version1", "group1");
+    }
+
+    @Test
+    void clearRecycledObjectsTest() {
+        RpcRequest rpcRequest = newRequest();
+        rpcRequest.recycle();
+        assertNull(rpcRequest.getRequestId());
+        assertNull(rpcRequest.getInterfaceName());
+        assertNull(rpcRequest.getParameters());
+        assertNull(rpcRequest.getParamTypes());
+
+        RpcResponse<String> rpcResponse = RpcResponse.success("hello", "r1");
+        rpcResponse.recycle();
+        assertNull(rpcResponse.getRequestId());
+        assertNull(rpcResponse.getCode());
+        assertNull(rpcResponse.getData());
+
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setVersion((byte) 1);
+        rpcMessage.setRequestId(7);
+        rpcMessage.setData("hello");
+        rpcMessage.setAttachments(Collections.emptyList());
+        rpcMessage.recycle();
+        assertEquals(0, rpcMessage.getVersion());
+        assertEquals(0, rpcMessage.getRequestId());
+        assertNull(rpcMessage.getData());
+        assertNull(rpcMessage.getAttachments());
+    }
+
+    @Test
+    void reuseRecycledObjectTest() {
+        // the pool keeps one in eight of the objects it has never seen before, then always takes them back
+        RpcRequest recycled = null;
+        for (int i = 0; i < 8 && recycled == null; i++) {
+            RpcRequest rpcRequest = newRequest();
+            rpcRequest.recycle();
+            RpcRequest next = newRequest();
+            if (next == rpcRequest) {
+                recycled = next;
+            }
+            next.recycle();
+        }
+        assertNotNull(recycled);
+        for (int i = 0; i < 3; i++) {
+            RpcRequest rpcRequest = newRequest();
+            assertSame(recycled, rpcRequest);
+            assertEquals("github.javaguide.HelloService", rpcRequest.getInterfaceName());
+            rpcRequest.recycle();
+        }
+    }
+
+    @Test
+    void keepUnpooledObjectsTest() {
+        // objects built by the caller or by a serializer are not pooled, recycling them does not touch them
+        RpcRequest rpcRequest = RpcRequest.builder().requestId("r1").interfaceName("github.javaguide.HelloService").build();
+        rpcRequest.recycle();
+        assertEquals("r1", rpcRequest.getRequestId());
+        assertEquals("github.javaguide.HelloService", rpcRequest.getInterfaceName());
+
+        RpcResponse<String> rpcResponse = new RpcResponse<>();
+        rpcResponse.setCode(RpcResponseCodeEnum.SUCCESS.getCode());
+        rpcResponse.recycle();
+        assertEquals(RpcResponseCodeEnum.SUCCESS.getCode(), rpcResponse.getCode());
+
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setRequestId(7);
+        rpcMessage.recycle();
+        assertEquals(7, rpcMessage.getRequestId());
+    }
+}
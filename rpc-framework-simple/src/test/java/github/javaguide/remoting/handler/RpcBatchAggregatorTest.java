@@ -0,0 +1,110 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.exception.RpcException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcBatchAggregatorTest {
+
+    public static class BatchService {
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        public synchronized List<String> echoAll(List<Integer> ids) {
+            batchSizes.add(ids.size());
+            List<String> results = new ArrayList<>();
+            ids.forEach(id -> results.add("echo-" + id));
+            return results;
+        }
+
+        public Map<Integer, String> echoByKey(List<Integer> ids) {
+            Map<Integer, String> results = new HashMap<>();
+            ids.forEach(id -> results.put(id, "key-" + id));
+            return results;
+        }
+
+        public String wrongType(List<Integer> ids) {
+            return "wrong";
+        }
+    }
+
+    private final RpcBatchAggregator aggregator = new RpcBatchAggregator();
+    private final BatchService service = new BatchService();
+
+    private RpcBatchMethod batchMethod(String target, long windowMicros, int maxSize) throws NoSuchMethodException {
+        return new RpcBatchMethod("BatchService#" + target, service, Integer.class,
+                BatchService.class.getMethod(target, List.class), windowMicros, maxSize);
+    }
+
+    @Test
+    void mergeCallsWithinWindow() throws Exception {
+        RpcBatchMethod rpcBatchMethod = batchMethod("echoAll", 50_000, 128);
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(aggregator.submit(rpcBatchMethod, i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("echo-" + i, futures.get(i).get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, service.batchSizes.size());
+        assertEquals(10, service.batchSizes.get(0));
+    }
+
+    @Test
+    void flushWhenMaxSizeReached() throws Exception {
+        RpcBatchMethod rpcBatchMethod = batchMethod("echoAll", TimeUnit.SECONDS.toMicros(60), 4);
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(aggregator.submit(rpcBatchMethod, i));
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals("echo-" + i, futures.get(i).get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(2, service.batchSizes.size());
+    }
+
+    @Test
+    void mapResultsAreMatchedByArgument() throws Exception {
+        RpcBatchMethod rpcBatchMethod = batchMethod("echoByKey", 1000, 128);
+        CompletableFuture<Object> first = aggregator.submit(rpcBatchMethod, 7);
+        CompletableFuture<Object> second = aggregator.submit(rpcBatchMethod, 3);
+        assertEquals("key-7", first.get(1, TimeUnit.SECONDS));
+        assertEquals("key-3", second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void invokeOnCallingThreadWhenInvokerRejects() throws Exception {
+        ThreadPoolExecutor full = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        full.shutdown();
+        RpcBatchAggregator rejecting = new RpcBatchAggregator(full);
+        // flushed by the window
+        CompletableFuture<Object> flushed = rejecting.submit(batchMethod("echoAll", 1000, 128), 1);
+        assertEquals("echo-1", flushed.get(1, TimeUnit.SECONDS));
+        // flushed by the max size
+        RpcBatchMethod rpcBatchMethod = batchMethod("echoAll", TimeUnit.SECONDS.toMicros(60), 2);
+        CompletableFuture<Object> first = rejecting.submit(rpcBatchMethod, 2);
+        CompletableFuture<Object> second = rejecting.submit(rpcBatchMethod, 3);
+        assertEquals("echo-2", first.get(1, TimeUnit.SECONDS));
+        assertEquals("echo-3", second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failAllCallsWhenResultTypeIsWrong() throws Exception {
+        RpcBatchMethod rpcBatchMethod = batchMethod("wrongType", 1000, 128);
+        CompletableFuture<Object> future = aggregator.submit(rpcBatchMethod, 1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RpcException);
+    }
+}
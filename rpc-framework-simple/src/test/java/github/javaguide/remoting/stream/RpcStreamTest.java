@@ -0,0 +1,277 @@
+package github.javaguide.remoting.stream;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcStreamFrame;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcStreamTest {
+    private static final byte CODEC = SerializationTypeEnum.HESSIAN2.getCode();
+    private static final byte COMPRESS = CompressTypeEnum.NONE.getCode();
+
+    private final SerializedWrites serializedWrites = new SerializedWrites();
+    private final EmbeddedChannel channel = new EmbeddedChannel(new RpcMessageEncoder(), serializedWrites);
+    private final EmbeddedChannel peer = new EmbeddedChannel(new RpcMessageDecoder());
+
+    @AfterEach
+    void close() {
+        channel.finishAndReleaseAll();
+        peer.finishAndReleaseAll();
+    }
+
+    /**
+     * The embedded channel is not thread safe, frames are written by the sending thread and by the stream-observer pool
+     */
+    private static class SerializedWrites extends ChannelOutboundHandlerAdapter {
+        @Override
+        public synchronized void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public synchronized void flush(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    /**
+     * @return the frames written to the peer so far, decoded as the peer decodes them
+     */
+    private List<RpcStreamFrame> written() {
+        synchronized (serializedWrites) {
+            for (Object frame = channel.readOutbound(); frame != null; frame = channel.readOutbound()) {
+                peer.writeInbound((ByteBuf) frame);
+            }
+        }
+        List<RpcStreamFrame> frames = new ArrayList<>();
+        for (Object message = peer.readInbound(); message != null; message = peer.readInbound()) {
+            RpcMessage rpcMessage = (RpcMessage) message;
+            assertEquals(RpcConstants.STREAM_TYPE, rpcMessage.getMessageType());
+            assertEquals(1, rpcMessage.getRequestId());
+            frames.add((RpcStreamFrame) LazyPayload.resolve(rpcMessage.getData()));
+        }
+        return frames;
+    }
+
+    /**
+     * @return the frames written to the peer, once there are count of them or after 5 seconds
+     */
+    private List<RpcStreamFrame> awaitWritten(int count) throws InterruptedException {
+        List<RpcStreamFrame> frames = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (frames.size() < count && System.nanoTime() < deadline) {
+            frames.addAll(written());
+            Thread.sleep(5);
+        }
+        return frames;
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    private static CompletableFuture<Void> sendAsync(StreamObserver<Object> observer, int count, AtomicReference<Thread> sender) {
+        return CompletableFuture.runAsync(() -> {
+            sender.set(Thread.currentThread());
+            for (int i = 0; i < count; i++) {
+                observer.onNext("item" + i);
+            }
+        }, runnable -> new Thread(runnable, "stream-sender").start());
+    }
+
+    @Test
+    void sendWithinCreditTest() throws Exception {
+        RpcStream rpcStream = new RpcStream(channel, 1, 4, CODEC, COMPRESS);
+        rpcStream.accept(2);
+        List<RpcStreamFrame> frames = written();
+        assertEquals(1, frames.size());
+        assertEquals(RpcStreamFrame.REQUEST, frames.get(0).getKind());
+        assertEquals(4, frames.get(0).getCredit());
+
+        AtomicReference<Thread> sender = new AtomicReference<>();
+        CompletableFuture<Void> sent = sendAsync(rpcStream.getOutboundObserver(), 3, sender);
+        while (sender.get() == null) {
+            Thread.sleep(5);
+        }
+        // the third item waits for the peer to grant more credit
+        awaitBlocked(sender.get());
+        frames = written();
+        assertEquals(2, frames.size());
+        assertEquals("item0", frames.get(0).getPayload());
+        assertEquals("item1", frames.get(1).getPayload());
+
+        rpcStream.onMessage(new RpcStreamFrame(RpcStreamFrame.REQUEST, 1, null));
+        sent.get(5, TimeUnit.SECONDS);
+        frames = written();
+        assertEquals(1, frames.size());
+        assertEquals(RpcStreamFrame.DATA, frames.get(0).getKind());
+        assertEquals("item2", frames.get(0).getPayload());
+    }
+
+    @Test
+    void requestCreditTest() throws Exception {
+        RpcStream rpcStream = new RpcStream(channel, 1, 4, CODEC, COMPRESS);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        AtomicReference<StreamSubscription> subscription = new AtomicReference<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        rpcStream.setInboundObserver(new StreamObserver<Object>() {
+            @Override
+            public void onSubscribe(StreamSubscription streamSubscription) {
+                subscription.set(streamSubscription);
+            }
+
+            @Override
+            public void onNext(Object value) {
+                received.add(value);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onCompleted() {
+                completed.countDown();
+            }
+        });
+        assertSame(rpcStream, subscription.get());
+        // explicit credit on top of the window
+        subscription.get().request(5);
+        subscription.get().request(0);
+        List<RpcStreamFrame> frames = written();
+        assertEquals(1, frames.size());
+        assertEquals(RpcStreamFrame.REQUEST, frames.get(0).getKind());
+        assertEquals(5, frames.get(0).getCredit());
+
+        // credit is granted back once half of the window is consumed
+        for (int i = 0; i < 3; i++) {
+            rpcStream.onMessage(new RpcStreamFrame(RpcStreamFrame.DATA, 0, "item" + i));
+        }
+        rpcStream.onMessage(new RpcStreamFrame(RpcStreamFrame.COMPLETE, 0, null));
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(3, received.size());
+        assertEquals("item2", received.get(2));
+        frames = awaitWritten(1);
+        assertEquals(1, frames.size());
+        assertEquals(RpcStreamFrame.REQUEST, frames.get(0).getKind());
+        assertEquals(2, frames.get(0).getCredit());
+    }
+
+    @Test
+    void cancelTest() throws Exception {
+        RpcStream rpcStream = new RpcStream(channel, 1, 4, CODEC, COMPRESS);
+        assertSame(rpcStream, RpcStreamRegistry.of(channel).get(1));
+        written();
+        AtomicReference<Thread> sender = new AtomicReference<>();
+        CompletableFuture<Void> sent = sendAsync(rpcStream.getOutboundObserver(), 1, sender);
+        while (sender.get() == null) {
+            Thread.sleep(5);
+        }
+        awaitBlocked(sender.get());
+
+        // the blocked sender is released and the peer is told once
+        rpcStream.cancel();
+        rpcStream.cancel();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> sent.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof CancellationException);
+        List<RpcStreamFrame> frames = written();
+        assertEquals(1, frames.size());
+        assertEquals(RpcStreamFrame.CANCEL, frames.get(0).getKind());
+        assertNull(RpcStreamRegistry.of(channel).get(1));
+        assertThrows(CancellationException.class, () -> rpcStream.getOutboundObserver().onNext("late"));
+    }
+
+    @Test
+    void cancelByPeerTest() throws Exception {
+        RpcStream rpcStream = new RpcStream(channel, 1, 4, CODEC, COMPRESS);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicReference<RpcStream> registered = new AtomicReference<>(rpcStream);
+        CountDownLatch failed = new CountDownLatch(1);
+        rpcStream.setInboundObserver(new StreamObserver<Object>() {
+            @Override
+            public void onNext(Object value) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                registered.set(RpcStreamRegistry.of(channel).get(1));
+                error.set(throwable);
+                failed.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        rpcStream.onMessage(new RpcStreamFrame(RpcStreamFrame.CANCEL, 0, null));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof CancellationException);
+        assertNull(registered.get());
+        // nothing to send back, the peer has stopped
+        assertThrows(CancellationException.class, () -> rpcStream.getOutboundObserver().onNext("late"));
+        rpcStream.cancel();
+        assertTrue(written().isEmpty());
+    }
+
+    @Test
+    void errorByPeerTest() throws Exception {
+        RpcStream rpcStream = new RpcStream(channel, 1, 4, CODEC, COMPRESS);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicReference<RpcStream> registered = new AtomicReference<>(rpcStream);
+        CountDownLatch failed = new CountDownLatch(1);
+        rpcStream.setInboundObserver(new StreamObserver<Object>() {
+            @Override
+            public void onNext(Object value) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                // whoever reacts to the error sees the stream closed
+                registered.set(RpcStreamRegistry.of(channel).get(1));
+                error.set(throwable);
+                failed.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        rpcStream.onMessage(new RpcStreamFrame(RpcStreamFrame.ERROR, 0, "boom"));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof RpcException);
+        assertTrue(error.get().getMessage().contains("boom"));
+        assertNull(registered.get());
+    }
+}
@@ -0,0 +1,131 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.registry.ServiceDiscovery;
+import github.javaguide.registry.ServiceEndpoint;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.codec.BaselineRpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.BaselineRpcMessageEncoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NettyRpcClientTest {
+    private final EventLoopGroup serverGroup = new NioEventLoopGroup(1);
+
+    @AfterEach
+    void close() {
+        serverGroup.shutdownGracefully();
+    }
+
+    private static RpcRequest request(String requestId) {
+        return RpcRequest.builder().requestId(requestId).interfaceName("github.javaguide.HelloService")
+                .methodName("hello").parameters(new Object[]{"a"}).paramTypes(new Class<?>[]{String.class})
+                .group("group1").version("version1").build();
+    }
+
+    /**
+     * @return the address of a provider running the given handlers for every connection
+     */
+    private InetSocketAddress startServer(ChannelInitializer<SocketChannel> initializer) throws InterruptedException {
+        Channel serverChannel = new ServerBootstrap().group(serverGroup).channel(NioServerSocketChannel.class)
+                .childHandler(initializer).bind("127.0.0.1", 0).sync().channel();
+        return (InetSocketAddress) serverChannel.localAddress();
+    }
+
+    @Test
+    void requestTimeoutTest() throws InterruptedException {
+        InetSocketAddress address = startServer(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                // reads the requests and never answers
+                ch.pipeline().addLast(new RpcMessageDecoder(), new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ReferenceCountUtil.release(msg);
+                    }
+                });
+            }
+        });
+        System.setProperty(RpcConfigEnum.CLIENT_REQUEST_TIMEOUT_MILLIS.getPropertyValue(), "200");
+        NettyRpcClient nettyRpcClient;
+        try {
+            nettyRpcClient = new NettyRpcClient(rpcRequest -> address);
+        } finally {
+            System.clearProperty(RpcConfigEnum.CLIENT_REQUEST_TIMEOUT_MILLIS.getPropertyValue());
+        }
+        try {
+            assertThrows(RpcException.class, () -> nettyRpcClient.sendRpcRequest(request("t1")));
+        } finally {
+            nettyRpcClient.close();
+        }
+    }
+
+    @Test
+    void baselineProviderTest() throws InterruptedException {
+        InetSocketAddress address = startServer(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                // a provider of the baseline release numbers its responses itself
+                ch.pipeline().addLast(new BaselineRpcMessageEncoder(100000), new BaselineRpcMessageDecoder(),
+                        new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                RpcRequest rpcRequest = (RpcRequest) ((RpcMessage) msg).getData();
+                                RpcMessage rpcMessage = new RpcMessage();
+                                rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+                                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+                                rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+                                rpcMessage.setData(RpcResponse.success("hello " + rpcRequest.getParameters()[0], rpcRequest.getRequestId()));
+                                ctx.writeAndFlush(rpcMessage);
+                            }
+                        });
+            }
+        });
+        // registered without metadata, as the baseline release does
+        NettyRpcClient nettyRpcClient = new NettyRpcClient(new ServiceDiscovery() {
+            @Override
+            public InetSocketAddress lookupService(RpcRequest rpcRequest) {
+                return address;
+            }
+
+            @Override
+            public ServiceEndpoint getServiceEndpoint(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+                return new ServiceEndpoint("127.0.0.1:" + address.getPort(), address, Collections.emptyMap());
+            }
+        });
+        try {
+            for (int i = 0; i < 3; i++) {
+                RpcRequest rpcRequest = request("b" + i);
+                rpcRequest.getParameters()[0] = "p" + i;
+                RpcResponse<?> rpcResponse = (RpcResponse<?>) nettyRpcClient.sendRpcRequest(rpcRequest);
+                assertEquals("b" + i, rpcResponse.getRequestId());
+                assertEquals("hello p" + i, rpcResponse.getData());
+            }
+        } finally {
+            nettyRpcClient.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcRequestBatcherTest {
+    private final NettyRpcClient nettyRpcClient = new NettyRpcClient(null);
+    private final EmbeddedChannel channel = new EmbeddedChannel(new RpcMessageEncoder());
+
+    @AfterEach
+    void close() {
+        channel.finishAndReleaseAll();
+        nettyRpcClient.close();
+    }
+
+    private static RpcRequest request(int i) {
+        return RpcRequest.builder().requestId("r" + i).interfaceName("github.javaguide.HelloService")
+                .methodName("hello").parameters(new Object[]{"p" + i}).paramTypes(new Class<?>[]{String.class})
+                .group("group1").version("version1").build();
+    }
+
+    /**
+     * @return the messages written to the provider so far, decoded as the provider decodes them
+     */
+    private List<RpcMessage> written() {
+        EmbeddedChannel provider = new EmbeddedChannel(new RpcMessageDecoder());
+        for (Object frame = channel.readOutbound(); frame != null; frame = channel.readOutbound()) {
+            provider.writeInbound((ByteBuf) frame);
+        }
+        List<RpcMessage> messages = new ArrayList<>();
+        for (Object message = provider.readInbound(); message != null; message = provider.readInbound()) {
+            messages.add((RpcMessage) message);
+        }
+        return messages;
+    }
+
+    @Test
+    void sendFullBatchAtOnceTest() {
+        RpcRequestBatcher batcher = new RpcRequestBatcher(nettyRpcClient, 3, TimeUnit.MINUTES.toMicros(1));
+        for (int i = 0; i < 4; i++) {
+            batcher.add(channel, 10 + i, request(i));
+        }
+        // the fourth request waits for the next window
+        List<RpcMessage> messages = written();
+        assertEquals(1, messages.size());
+        assertEquals(RpcConstants.BATCH_REQUEST_TYPE, messages.get(0).getMessageType());
+        assertEquals(10, messages.get(0).getRequestId());
+        RpcBatchRequest batchRequest = (RpcBatchRequest) LazyPayload.resolve(messages.get(0).getData());
+        assertArrayEquals(new int[]{10, 11, 12}, batchRequest.getMessageIds());
+        assertEquals(3, batchRequest.getRequests().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("r" + i, batchRequest.getRequests().get(i).getRequestId());
+            assertEquals("p" + i, batchRequest.getRequests().get(i).getParameters()[0]);
+        }
+    }
+
+    @Test
+    void flushWindowAfterDelayTest() throws InterruptedException {
+        RpcRequestBatcher batcher = new RpcRequestBatcher(nettyRpcClient, 32, 1000);
+        batcher.add(channel, 20, request(0));
+        batcher.add(channel, 21, request(1));
+        assertTrue(written().isEmpty());
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+        List<RpcMessage> messages = written();
+        assertEquals(1, messages.size());
+        assertEquals(RpcConstants.BATCH_REQUEST_TYPE, messages.get(0).getMessageType());
+        assertArrayEquals(new int[]{20, 21}, ((RpcBatchRequest) LazyPayload.resolve(messages.get(0).getData())).getMessageIds());
+
+        // a window of one request is sent as a plain request
+        batcher.add(channel, 22, request(2));
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+        messages = written();
+        assertEquals(1, messages.size());
+        assertEquals(RpcConstants.REQUEST_TYPE, messages.get(0).getMessageType());
+        assertEquals(22, messages.get(0).getRequestId());
+        assertEquals("r2", ((RpcRequest) LazyPayload.resolve(messages.get(0).getData())).getRequestId());
+    }
+}
@@ -0,0 +1,71 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnprocessedRequestsTest {
+    private final UnprocessedRequests unprocessedRequests = new UnprocessedRequests();
+
+    private static RpcMessage responseMessage(byte version, int headerId, String requestId) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setVersion(version);
+        rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+        rpcMessage.setRequestId(headerId);
+        rpcMessage.setData(RpcResponse.success("hello", requestId));
+        return rpcMessage;
+    }
+
+    @Test
+    void matchByMessageIdTest() {
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        unprocessedRequests.put(1001, future);
+        RpcMessage rpcMessage = responseMessage(RpcConstants.VERSION, 1001, "r1001");
+        unprocessedRequests.complete(rpcMessage);
+        assertSame(rpcMessage, future.getNow(null));
+    }
+
+    @Test
+    void matchBaselineByRequestIdTest() {
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        unprocessedRequests.putBaseline(1002, "r1002", future);
+        // a baseline provider numbers its responses itself
+        RpcMessage rpcMessage = responseMessage(RpcConstants.BASELINE_VERSION, 3, "r1002");
+        unprocessedRequests.complete(rpcMessage);
+        assertSame(rpcMessage, future.getNow(null));
+        assertEquals("r1002", ((RpcResponse<?>) rpcMessage.getData()).getRequestId());
+        assertFalse(unprocessedRequests.fail(1002, new TimeoutException()));
+    }
+
+    @Test
+    void dropLateResponseTest() {
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        unprocessedRequests.putBaseline(1003, "r1003", future);
+        assertTrue(unprocessedRequests.fail(1003, new TimeoutException()));
+        assertTrue(future.isCompletedExceptionally());
+        assertFalse(unprocessedRequests.fail(1003, new TimeoutException()));
+        // the caller has given up, the response is dropped without closing the connection
+        unprocessedRequests.complete(responseMessage(RpcConstants.BASELINE_VERSION, 1003, "r1003"));
+
+        unprocessedRequests.put(1004, new CompletableFuture<>());
+        assertTrue(unprocessedRequests.fail(1004, new TimeoutException()));
+        ByteBuf segment = Unpooled.copiedBuffer(new byte[]{1, 2, 3});
+        RpcMessage rpcMessage = responseMessage(RpcConstants.VERSION, 1004, "r1004");
+        rpcMessage.setAttachments(new ArrayList<>(Collections.singletonList(segment)));
+        unprocessedRequests.complete(rpcMessage);
+        assertEquals(0, segment.refCnt());
+    }
+}
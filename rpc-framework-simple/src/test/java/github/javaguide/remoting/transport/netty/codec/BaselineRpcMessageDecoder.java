@@ -0,0 +1,110 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.compress.Compress;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import java.util.Arrays;
+
+/**
+ * The decoder of protocol version 1 as it was released, to check that the current codec still talks to it.
+ * Copied from the release, except that errors are thrown instead of logged.
+ * It rejects any other version and knows no flag in the messageType.
+ */
+public class BaselineRpcMessageDecoder extends LengthFieldBasedFrameDecoder {
+
+    public BaselineRpcMessageDecoder() {
+        super(RpcConstants.MAX_FRAME_LENGTH, 5, 4, -9, 0);
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        Object decoded = super.decode(ctx, in);
+        if (decoded instanceof ByteBuf) {
+            ByteBuf frame = (ByteBuf) decoded;
+            if (frame.readableBytes() >= RpcConstants.HEAD_LENGTH) {
+                try {
+                    return decodeFrame(frame);
+                } finally {
+                    frame.release();
+                }
+            }
+        }
+        return decoded;
+    }
+
+    private Object decodeFrame(ByteBuf in) {
+        // note: must read ByteBuf in order
+        checkMagicNumber(in);
+        checkVersion(in);
+        int fullLength = in.readInt();
+        // build RpcMessage object
+        byte messageType = in.readByte();
+        byte codecType = in.readByte();
+        byte compressType = in.readByte();
+        int requestId = in.readInt();
+        RpcMessage rpcMessage = RpcMessage.builder()
+                .codec(codecType)
+                .requestId(requestId)
+                .messageType(messageType).build();
+        if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
+            rpcMessage.setData(RpcConstants.PING);
+            return rpcMessage;
+        }
+        if (messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+            rpcMessage.setData(RpcConstants.PONG);
+            return rpcMessage;
+        }
+        int bodyLength = fullLength - RpcConstants.HEAD_LENGTH;
+        if (bodyLength > 0) {
+            byte[] bs = new byte[bodyLength];
+            in.readBytes(bs);
+            // decompress the bytes
+            String compressName = CompressTypeEnum.getName(compressType);
+            Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                    .getExtension(compressName);
+            bs = compress.decompress(bs);
+            // deserialize the object
+            String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
+            Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                    .getExtension(codecName);
+            if (messageType == RpcConstants.REQUEST_TYPE) {
+                RpcRequest tmpValue = serializer.deserialize(bs, RpcRequest.class);
+                rpcMessage.setData(tmpValue);
+            } else {
+                RpcResponse tmpValue = serializer.deserialize(bs, RpcResponse.class);
+                rpcMessage.setData(tmpValue);
+            }
+        }
+        return rpcMessage;
+    }
+
+    private void checkVersion(ByteBuf in) {
+        // read the version and compare
+        byte version = in.readByte();
+        if (version != RpcConstants.BASELINE_VERSION) {
+            throw new RuntimeException("version isn't compatible" + version);
+        }
+    }
+
+    private void checkMagicNumber(ByteBuf in) {
+        // read the first 4 bit, which is the magic number, and compare
+        int len = RpcConstants.MAGIC_NUMBER.length;
+        byte[] tmp = new byte[len];
+        in.readBytes(tmp);
+        for (int i = 0; i < len; i++) {
+            if (tmp[i] != RpcConstants.MAGIC_NUMBER[i]) {
+                throw new IllegalArgumentException("Unknown magic code: " + Arrays.toString(tmp));
+            }
+        }
+    }
+}
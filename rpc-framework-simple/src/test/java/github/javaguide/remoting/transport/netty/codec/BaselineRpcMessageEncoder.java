@@ -0,0 +1,69 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.compress.Compress;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The encoder of protocol version 1 as it was released, to check that the current codec still talks to it.
+ * Copied from the release, except that errors are thrown instead of logged.
+ * It numbers the messages it writes itself, it does not echo the requestId of the message.
+ */
+public class BaselineRpcMessageEncoder extends MessageToByteEncoder<RpcMessage> {
+    private final AtomicInteger atomicInteger;
+
+    /**
+     * @param firstRequestId the requestId of the first message written
+     */
+    public BaselineRpcMessageEncoder(int firstRequestId) {
+        this.atomicInteger = new AtomicInteger(firstRequestId);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, RpcMessage rpcMessage, ByteBuf out) {
+        out.writeBytes(RpcConstants.MAGIC_NUMBER);
+        out.writeByte(RpcConstants.BASELINE_VERSION);
+        // leave a place to write the value of full length
+        out.writerIndex(out.writerIndex() + 4);
+        byte messageType = rpcMessage.getMessageType();
+        out.writeByte(messageType);
+        out.writeByte(rpcMessage.getCodec());
+        out.writeByte(CompressTypeEnum.GZIP.getCode());
+        out.writeInt(atomicInteger.getAndIncrement());
+        // build full length
+        byte[] bodyBytes = null;
+        int fullLength = RpcConstants.HEAD_LENGTH;
+        // if messageType is not heartbeat message,fullLength = head length + body length
+        if (messageType != RpcConstants.HEARTBEAT_REQUEST_TYPE
+                && messageType != RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+            // serialize the object
+            String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
+            Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                    .getExtension(codecName);
+            bodyBytes = serializer.serialize(rpcMessage.getData());
+            // compress the bytes
+            String compressName = CompressTypeEnum.getName(rpcMessage.getCompress());
+            Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                    .getExtension(compressName);
+            bodyBytes = compress.compress(bodyBytes);
+            fullLength += bodyBytes.length;
+        }
+
+        if (bodyBytes != null) {
+            out.writeBytes(bodyBytes);
+        }
+        int writeIndex = out.writerIndex();
+        out.writerIndex(writeIndex - fullLength + RpcConstants.MAGIC_NUMBER.length + 1);
+        out.writeInt(fullLength);
+        out.writerIndex(writeIndex);
+    }
+}
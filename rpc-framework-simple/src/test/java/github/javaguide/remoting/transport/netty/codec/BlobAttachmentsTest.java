@@ -0,0 +1,216 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBlobRef;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobAttachmentsTest {
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private static RpcMessage requestMessage(Object blob, Class<?> type) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setCodec(SerializationTypeEnum.HESSIAN2.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
+        rpcMessage.setMessageType(RpcConstants.REQUEST_TYPE);
+        rpcMessage.setRequestId(7);
+        rpcMessage.setData(RpcRequest.builder().requestId("r1").interfaceName("github.javaguide.BlobService")
+                .methodName("upload").parameters(new Object[]{"name", blob}).paramTypes(new Class<?>[]{String.class, type})
+                .group("").version("").build());
+        return rpcMessage;
+    }
+
+    private static RpcMessage responseMessage(Object blob) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setCodec(SerializationTypeEnum.HESSIAN2.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
+        rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+        rpcMessage.setRequestId(7);
+        rpcMessage.setData(RpcResponse.success(blob, "r1"));
+        return rpcMessage;
+    }
+
+    /**
+     * Write the message and hand everything written, head and segments, to the decoder of the peer, as a socket would
+     *
+     * @return the message decoded by the peer and the received frame
+     */
+    private static RpcMessage transfer(RpcMessage rpcMessage, ByteBuf[] received) throws IOException {
+        EmbeddedChannel sender = new EmbeddedChannel(new RpcMessageEncoder());
+        sender.writeOutbound(rpcMessage);
+        ByteBuf frame = Unpooled.buffer();
+        for (Object written = sender.readOutbound(); written != null; written = sender.readOutbound()) {
+            if (written instanceof ByteBuf) {
+                frame.writeBytes((ByteBuf) written);
+                ((ByteBuf) written).release();
+            } else {
+                FileRegion region = (FileRegion) written;
+                WritableByteChannel target = new WritableByteChannel() {
+                    @Override
+                    public int write(ByteBuffer src) {
+                        int length = src.remaining();
+                        frame.writeBytes(src);
+                        return length;
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return true;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+                while (region.transferred() < region.count()) {
+                    region.transferTo(target, region.transferred());
+                }
+                region.release();
+            }
+        }
+        received[0] = frame;
+        EmbeddedChannel receiver = new EmbeddedChannel(new RpcMessageDecoder());
+        receiver.writeInbound(frame);
+        return receiver.readInbound();
+    }
+
+    private static byte[] bytes(ByteBuf segment) {
+        return ByteBufUtil.getBytes(segment);
+    }
+
+    @Test
+    void byteBufParameterTest() throws IOException {
+        ByteBuf blob = Unpooled.copiedBuffer(CONTENT);
+        ByteBuf[] frame = new ByteBuf[1];
+        RpcMessage decoded = transfer(requestMessage(blob, ByteBuf.class), frame);
+        assertEquals(1, decoded.getAttachments().size());
+        RpcRequest rpcRequest = (RpcRequest) LazyPayload.resolve(decoded.getData());
+        assertTrue(rpcRequest.getParameters()[1] instanceof RpcBlobRef);
+
+        List<Path> tempFiles = BlobAttachments.resolveParameters(rpcRequest, decoded.getAttachments());
+        assertTrue(tempFiles.isEmpty());
+        assertEquals("name", rpcRequest.getParameters()[0]);
+        // the service gets the received segment itself, valid until the call completes
+        assertSame(decoded.getAttachments().get(0), rpcRequest.getParameters()[1]);
+        assertArrayEquals(CONTENT, bytes((ByteBuf) rpcRequest.getParameters()[1]));
+        assertEquals(1, frame[0].refCnt());
+        BlobAttachments.release(decoded.getAttachments());
+        assertEquals(0, frame[0].refCnt());
+    }
+
+    @Test
+    void byteBufferParameterTest() throws IOException {
+        ByteBuffer blob = ByteBuffer.wrap(CONTENT);
+        ByteBuf[] frame = new ByteBuf[1];
+        RpcMessage decoded = transfer(requestMessage(blob, ByteBuffer.class), frame);
+        // the buffer of the caller is left as it was
+        assertEquals(CONTENT.length, blob.remaining());
+        RpcRequest rpcRequest = (RpcRequest) LazyPayload.resolve(decoded.getData());
+        BlobAttachments.resolveParameters(rpcRequest, decoded.getAttachments());
+        ByteBuffer parameter = (ByteBuffer) rpcRequest.getParameters()[1];
+        assertEquals(ByteBuffer.wrap(CONTENT), parameter);
+        BlobAttachments.release(decoded.getAttachments());
+        assertEquals(0, frame[0].refCnt());
+    }
+
+    @Test
+    void pathParameterTest() throws IOException {
+        Path blob = Files.createTempFile("blob-test-", ".bin");
+        try {
+            Files.write(blob, CONTENT);
+            ByteBuf[] frame = new ByteBuf[1];
+            RpcMessage decoded = transfer(requestMessage(blob, Path.class), frame);
+            RpcRequest rpcRequest = (RpcRequest) LazyPayload.resolve(decoded.getData());
+            List<Path> tempFiles = BlobAttachments.resolveParameters(rpcRequest, decoded.getAttachments());
+            // the service gets a temporary copy, deleted by the framework after the call
+            assertEquals(Collections.singletonList(rpcRequest.getParameters()[1]), tempFiles);
+            assertNotEquals(blob, tempFiles.get(0));
+            assertArrayEquals(CONTENT, Files.readAllBytes(tempFiles.get(0)));
+            BlobAttachments.release(decoded.getAttachments());
+            assertEquals(0, frame[0].refCnt());
+            BlobAttachments.deleteQuietly(tempFiles);
+            assertFalse(Files.exists(tempFiles.get(0)));
+            assertArrayEquals(CONTENT, Files.readAllBytes(blob));
+        } finally {
+            Files.deleteIfExists(blob);
+        }
+    }
+
+    @Test
+    void resultTest() throws IOException {
+        ByteBuf[] frame = new ByteBuf[1];
+        RpcMessage decoded = transfer(responseMessage(Unpooled.copiedBuffer(CONTENT)), frame);
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) LazyPayload.resolve(decoded.getData());
+        // the result outlives the message, it belongs to the caller
+        ByteBuf result = (ByteBuf) BlobAttachments.resolveResult(rpcResponse.getData(), decoded.getAttachments());
+        BlobAttachments.release(decoded.getAttachments());
+        assertEquals(1, result.refCnt());
+        assertSame(result, BlobAttachments.toResultType(result, ByteBuf.class));
+        assertArrayEquals(CONTENT, bytes(result));
+        result.release();
+        assertEquals(0, frame[0].refCnt());
+    }
+
+    @Test
+    void convertResultTest() throws IOException {
+        ByteBuf[] frame = new ByteBuf[1];
+        RpcMessage decoded = transfer(responseMessage(ByteBuffer.wrap(CONTENT)), frame);
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) LazyPayload.resolve(decoded.getData());
+        Object result = BlobAttachments.resolveResult(rpcResponse.getData(), decoded.getAttachments());
+        BlobAttachments.release(decoded.getAttachments());
+        // copied to the heap, the frame is not kept
+        assertEquals(ByteBuffer.wrap(CONTENT), BlobAttachments.toResultType(result, ByteBuffer.class));
+        assertEquals(0, frame[0].refCnt());
+
+        decoded = transfer(responseMessage(Unpooled.copiedBuffer(CONTENT)), frame);
+        rpcResponse = (RpcResponse<?>) LazyPayload.resolve(decoded.getData());
+        result = BlobAttachments.resolveResult(rpcResponse.getData(), decoded.getAttachments());
+        BlobAttachments.release(decoded.getAttachments());
+        Path path = (Path) BlobAttachments.toResultType(result, Path.class);
+        try {
+            assertArrayEquals(CONTENT, Files.readAllBytes(path));
+            assertEquals(0, frame[0].refCnt());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void releaseUnsentBlobTest() {
+        // a baseline peer does not accept blobs, the buffer handed to the framework is released anyway
+        ByteBuf blob = Unpooled.copiedBuffer(CONTENT);
+        RpcMessage rpcMessage = requestMessage(blob, ByteBuf.class);
+        rpcMessage.setVersion(RpcConstants.BASELINE_VERSION);
+        EmbeddedChannel sender = new EmbeddedChannel(new RpcMessageEncoder());
+        ChannelFuture future = sender.writeAndFlush(rpcMessage);
+        assertFalse(future.isSuccess());
+        assertTrue(future.cause() instanceof IllegalArgumentException);
+        assertEquals(0, blob.refCnt());
+        assertFalse(sender.finishAndReleaseAll());
+    }
+}
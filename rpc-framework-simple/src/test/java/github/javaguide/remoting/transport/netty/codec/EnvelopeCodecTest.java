@@ -0,0 +1,87 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.serialize.hessian.Hessian2Serializer;
+import github.javaguide.serialize.kyro.KryoSerializer;
+import github.javaguide.serialize.protostuff.ProtostuffSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnvelopeCodecTest {
+    private final List<Serializer> serializers = Arrays.asList(new KryoSerializer(), new ProtostuffSerializer(), new Hessian2Serializer());
+
+    @Test
+    void requestTest() {
+        RpcRequest target = RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{"sayhelooloo", 42, null})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, int.class, String.class})
+                .requestId("b4f5e3a0-8f0c-4d2f-9d4c-5c2a3b1f0e77")
+                .group("group1")
+                .version("version1")
+                .build();
+        for (Serializer serializer : serializers) {
+            ByteBuf buf = Unpooled.buffer();
+            try {
+                EnvelopeCodec.encode(serializer, target, buf);
+                RpcRequest actual = (RpcRequest) EnvelopeCodec.decode(serializer, RpcRequest.class, buf);
+                assertEquals(target.getRequestId(), actual.getRequestId());
+                assertEquals(target.getInterfaceName(), actual.getInterfaceName());
+                assertEquals(target.getMethodName(), actual.getMethodName());
+                assertEquals(target.getGroup(), actual.getGroup());
+                assertEquals(target.getVersion(), actual.getVersion());
+                assertArrayEquals(target.getParamTypes(), actual.getParamTypes());
+                assertArrayEquals(target.getParameters(), actual.getParameters());
+                // the envelope is smaller than the request serialized as a whole
+                assertTrue(buf.writerIndex() < serializer.serialize(target).length, serializer.getClass().getSimpleName());
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    @Test
+    void responseTest() {
+        for (Serializer serializer : serializers) {
+            ByteBuf buf = Unpooled.buffer();
+            try {
+                EnvelopeCodec.encode(serializer, RpcResponse.success("hello", "id1"), buf);
+                EnvelopeCodec.encode(serializer, RpcResponse.fail(RpcResponseCodeEnum.FAIL, "id2"), buf);
+                RpcResponse<?> success = (RpcResponse<?>) EnvelopeCodec.decode(serializer, RpcResponse.class, buf.readSlice(buf.readableBytes() - failLength(serializer)));
+                assertEquals("id1", success.getRequestId());
+                assertEquals(RpcResponseCodeEnum.SUCCESS.getCode(), success.getCode());
+                assertEquals(RpcResponseCodeEnum.SUCCESS.getMessage(), success.getMessage());
+                assertEquals("hello", success.getData());
+                RpcResponse<?> fail = (RpcResponse<?>) EnvelopeCodec.decode(serializer, RpcResponse.class, buf);
+                assertEquals("id2", fail.getRequestId());
+                assertEquals(RpcResponseCodeEnum.FAIL.getCode(), fail.getCode());
+                assertEquals(RpcResponseCodeEnum.FAIL.getMessage(), fail.getMessage());
+                assertNull(fail.getData());
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    private static int failLength(Serializer serializer) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            EnvelopeCodec.encode(serializer, RpcResponse.fail(RpcResponseCodeEnum.FAIL, "id2"), buf);
+            return buf.readableBytes();
+        } finally {
+            buf.release();
+        }
+    }
+}
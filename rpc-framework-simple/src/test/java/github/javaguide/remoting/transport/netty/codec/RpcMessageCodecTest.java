@@ -0,0 +1,232 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcMessageCodecTest {
+    private static final int VERSION_INDEX = 4;
+    private static final int MESSAGE_TYPE_INDEX = 9;
+
+    private static RpcRequest request() {
+        return RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{"sayhelooloo", 42})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, int.class})
+                .requestId("b4f5e3a0-8f0c-4d2f-9d4c-5c2a3b1f0e77")
+                .group("group1")
+                .version("version1")
+                .build();
+    }
+
+    private static RpcMessage requestMessage(byte version, SerializationTypeEnum codec) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setVersion(version);
+        rpcMessage.setCodec(codec.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+        rpcMessage.setMessageType(RpcConstants.REQUEST_TYPE);
+        rpcMessage.setRequestId(7);
+        rpcMessage.setData(request());
+        return rpcMessage;
+    }
+
+    private static ByteBuf encode(RpcMessage rpcMessage) {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcMessageEncoder());
+        channel.writeOutbound(rpcMessage);
+        return channel.readOutbound();
+    }
+
+    private static RpcMessage baselineDecode(ByteBuf frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new BaselineRpcMessageDecoder());
+        channel.writeInbound(frame);
+        return channel.readInbound();
+    }
+
+    private static ByteBuf baselineEncode(RpcMessage rpcMessage, int firstRequestId) {
+        EmbeddedChannel channel = new EmbeddedChannel(new BaselineRpcMessageEncoder(firstRequestId));
+        channel.writeOutbound(rpcMessage);
+        return channel.readOutbound();
+    }
+
+    private static RpcMessage decode(ByteBuf frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcMessageDecoder());
+        channel.writeInbound(frame);
+        return channel.readInbound();
+    }
+
+    @Test
+    void baselineVersionTest() {
+        ByteBuf frame = encode(requestMessage(RpcConstants.BASELINE_VERSION, SerializationTypeEnum.HESSIAN));
+        // a provider of the baseline version reads the frame: its version, and no envelope flag
+        assertEquals(RpcConstants.BASELINE_VERSION, frame.getByte(VERSION_INDEX));
+        assertEquals(RpcConstants.REQUEST_TYPE, frame.getByte(MESSAGE_TYPE_INDEX));
+        RpcMessage decoded = decode(frame);
+        assertEquals(RpcConstants.BASELINE_VERSION, decoded.getVersion());
+        assertEquals(RpcConstants.REQUEST_TYPE, decoded.getMessageType());
+        RpcRequest actual = (RpcRequest) LazyPayload.resolve(decoded.getData());
+        assertEquals(request().getRpcServiceName(), actual.getRpcServiceName());
+        assertArrayEquals(request().getParameters(), actual.getParameters());
+    }
+
+    @Test
+    void currentVersionTest() {
+        ByteBuf frame = encode(requestMessage((byte) 0, SerializationTypeEnum.HESSIAN2));
+        assertEquals(RpcConstants.VERSION, frame.getByte(VERSION_INDEX));
+        assertEquals(RpcConstants.REQUEST_TYPE | RpcConstants.ENVELOPE_FLAG, frame.getByte(MESSAGE_TYPE_INDEX));
+        RpcMessage decoded = decode(frame);
+        assertEquals(RpcConstants.VERSION, decoded.getVersion());
+        assertEquals(RpcConstants.REQUEST_TYPE, decoded.getMessageType());
+        RpcRequest actual = (RpcRequest) LazyPayload.resolve(decoded.getData());
+        assertArrayEquals(request().getParameters(), actual.getParameters());
+    }
+
+    @Test
+    void unknownVersionTest() {
+        ByteBuf frame = encode(requestMessage(RpcConstants.VERSION, SerializationTypeEnum.HESSIAN2));
+        frame.setByte(VERSION_INDEX, RpcConstants.VERSION + 1);
+        assertThrows(DecoderException.class, () -> decode(frame));
+    }
+
+    @Test
+    void lazyDecodeTest() {
+        char[] chars = new char[RpcConstants.DEFAULT_LAZY_DECODE_THRESHOLD * 2];
+        Arrays.fill(chars, 'a');
+        RpcMessage rpcMessage = requestMessage(RpcConstants.VERSION, SerializationTypeEnum.HESSIAN2);
+        rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
+        ((RpcRequest) rpcMessage.getData()).getParameters()[0] = new String(chars);
+        ByteBuf frame = encode(rpcMessage);
+        RpcMessage decoded = decode(frame);
+        // a large body is left to the thread consuming the message, which owns its part of the frame
+        assertTrue(decoded.getData() instanceof LazyPayload);
+        assertEquals(1, frame.refCnt());
+        RpcRequest actual = (RpcRequest) LazyPayload.resolve(decoded.getData());
+        assertEquals(new String(chars), actual.getParameters()[0]);
+        assertEquals(0, frame.refCnt());
+        assertThrows(IllegalStateException.class, () -> ((LazyPayload) decoded.getData()).decode());
+
+        // a small body is decoded on the IO thread
+        RpcMessage small = decode(encode(requestMessage(RpcConstants.VERSION, SerializationTypeEnum.HESSIAN2)));
+        assertTrue(small.getData() instanceof RpcRequest);
+    }
+
+    @Test
+    void releaseLazyPayloadTest() {
+        char[] chars = new char[RpcConstants.DEFAULT_LAZY_DECODE_THRESHOLD];
+        Arrays.fill(chars, 'a');
+        RpcMessage rpcMessage = requestMessage(RpcConstants.VERSION, SerializationTypeEnum.HESSIAN2);
+        rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
+        ((RpcRequest) rpcMessage.getData()).getParameters()[0] = new String(chars);
+        ByteBuf frame = encode(rpcMessage);
+        RpcMessage decoded = decode(frame);
+        // a message dropped without being consumed gives the frame back
+        LazyPayload.release(decoded.getData());
+        assertEquals(0, frame.refCnt());
+        LazyPayload.release(decoded.getData());
+    }
+
+    @Test
+    void eagerEncodeTest() {
+        RpcMessage rpcMessage = requestMessage(RpcConstants.VERSION, SerializationTypeEnum.HESSIAN2);
+        RpcMessageEncoder.encodeBodyEagerly(rpcMessage);
+        // the IO thread only copies the body serialized and compressed by the calling thread
+        assertTrue(rpcMessage.getData() instanceof EncodedPayload);
+        byte[] bytes = ((EncodedPayload) rpcMessage.getData()).getBytes();
+        RpcMessageEncoder.encodeBodyEagerly(rpcMessage);
+        assertSame(bytes, ((EncodedPayload) rpcMessage.getData()).getBytes());
+
+        RpcMessage decoded = decode(encode(rpcMessage));
+        assertEquals(RpcConstants.REQUEST_TYPE, decoded.getMessageType());
+        assertEquals(7, decoded.getRequestId());
+        RpcRequest actual = (RpcRequest) LazyPayload.resolve(decoded.getData());
+        assertEquals(request().getRequestId(), actual.getRequestId());
+        assertEquals(request().getRpcServiceName(), actual.getRpcServiceName());
+        assertArrayEquals(request().getParameters(), actual.getParameters());
+    }
+
+    @Test
+    void baselineProviderRoundTripTest() {
+        // a request in a baseline frame is read by the decoder of the baseline release
+        RpcMessage received = baselineDecode(encode(requestMessage(RpcConstants.BASELINE_VERSION, SerializationTypeEnum.HESSIAN)));
+        assertEquals(RpcConstants.REQUEST_TYPE, received.getMessageType());
+        assertEquals(7, received.getRequestId());
+        RpcRequest rpcRequest = (RpcRequest) received.getData();
+        assertEquals(request().getRequestId(), rpcRequest.getRequestId());
+        assertEquals(request().getRpcServiceName(), rpcRequest.getRpcServiceName());
+        assertArrayEquals(request().getParameters(), rpcRequest.getParameters());
+
+        // its response, numbered by the baseline provider itself, is read by the current decoder
+        RpcMessage response = new RpcMessage();
+        response.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        response.setCompress(CompressTypeEnum.GZIP.getCode());
+        response.setMessageType(RpcConstants.RESPONSE_TYPE);
+        response.setData(RpcResponse.success("hello", rpcRequest.getRequestId()));
+        RpcMessage decoded = decode(baselineEncode(response, 1000));
+        assertEquals(RpcConstants.BASELINE_VERSION, decoded.getVersion());
+        assertEquals(RpcConstants.RESPONSE_TYPE, decoded.getMessageType());
+        assertEquals(1000, decoded.getRequestId());
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) LazyPayload.resolve(decoded.getData());
+        assertEquals(request().getRequestId(), rpcResponse.getRequestId());
+        assertEquals("hello", rpcResponse.getData());
+
+        // and so are the heartbeats
+        RpcMessage ping = new RpcMessage();
+        ping.setVersion(RpcConstants.BASELINE_VERSION);
+        ping.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        ping.setCompress(CompressTypeEnum.GZIP.getCode());
+        ping.setMessageType(RpcConstants.HEARTBEAT_REQUEST_TYPE);
+        ping.setData(RpcConstants.PING);
+        assertEquals(RpcConstants.PING, baselineDecode(encode(ping)).getData());
+        RpcMessage pong = new RpcMessage();
+        pong.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        pong.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
+        RpcMessage decodedPong = decode(baselineEncode(pong, 1001));
+        assertEquals(RpcConstants.HEARTBEAT_RESPONSE_TYPE, decodedPong.getMessageType());
+        assertEquals(RpcConstants.PONG, decodedPong.getData());
+    }
+
+    @Test
+    void baselineConsumerRoundTripTest() {
+        // a request of a baseline consumer is read by the current decoder
+        RpcMessage request = new RpcMessage();
+        request.setCodec(SerializationTypeEnum.KYRO.getCode());
+        request.setCompress(CompressTypeEnum.GZIP.getCode());
+        request.setMessageType(RpcConstants.REQUEST_TYPE);
+        request.setData(request());
+        RpcMessage received = decode(baselineEncode(request, 5));
+        assertEquals(RpcConstants.BASELINE_VERSION, received.getVersion());
+        assertEquals(5, received.getRequestId());
+        RpcRequest rpcRequest = (RpcRequest) LazyPayload.resolve(received.getData());
+        assertArrayEquals(request().getParameters(), rpcRequest.getParameters());
+
+        // answered in a baseline frame, in its serializer, which the decoder of the baseline release reads
+        RpcMessage response = RpcMessage.newInstance();
+        response.setVersion(received.getVersion());
+        response.setCodec(received.getCodec());
+        response.setCompress(CompressTypeEnum.GZIP.getCode());
+        response.setMessageType(RpcConstants.RESPONSE_TYPE);
+        response.setRequestId(received.getRequestId());
+        response.setData(RpcResponse.success("hello", rpcRequest.getRequestId()));
+        ByteBuf frame = encode(response);
+        assertEquals(RpcConstants.RESPONSE_TYPE, frame.getByte(MESSAGE_TYPE_INDEX));
+        RpcMessage decoded = baselineDecode(frame);
+        assertEquals(5, decoded.getRequestId());
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) decoded.getData();
+        assertEquals(request().getRequestId(), rpcResponse.getRequestId());
+        assertEquals("hello", rpcResponse.getData());
+    }
+}
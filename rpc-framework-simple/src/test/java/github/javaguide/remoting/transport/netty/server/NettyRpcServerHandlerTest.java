@@ -0,0 +1,203 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.DemoRpcServiceImpl;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
+import github.javaguide.remoting.dto.RpcBlobRef;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.codec.BaselineRpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.BaselineRpcMessageEncoder;
+import github.javaguide.remoting.transport.netty.codec.LazyPayload;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NettyRpcServerHandlerTest {
+
+    private static RpcMessage requestMessage(int messageId, RpcRequest rpcRequest, List<Object> attachments) {
+        RpcMessage rpcMessage = RpcMessage.newInstance();
+        rpcMessage.setCodec(SerializationTypeEnum.HESSIAN2.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
+        rpcMessage.setMessageType(RpcConstants.REQUEST_TYPE);
+        rpcMessage.setRequestId(messageId);
+        rpcMessage.setData(rpcRequest);
+        rpcMessage.setAttachments(attachments);
+        return rpcMessage;
+    }
+
+    private static RpcRequest helloRequest(String requestId, String version) {
+        return RpcRequest.builder().requestId(requestId).interfaceName(DemoRpcService.class.getCanonicalName())
+                .methodName("hello").parameters(new Object[0]).paramTypes(new Class<?>[0])
+                .group("batch").version(version).build();
+    }
+
+    /**
+     * The embedded channel is not thread safe, the responses of a batch are written from the batch executor threads
+     */
+    private static class SerializedWrites extends ChannelOutboundHandlerAdapter {
+        private final CountDownLatch flushed;
+
+        private SerializedWrites(int expectedFlushes) {
+            this.flushed = new CountDownLatch(expectedFlushes);
+        }
+
+        @Override
+        public synchronized void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public synchronized void flush(ChannelHandlerContext ctx) {
+            ctx.flush();
+            flushed.countDown();
+        }
+    }
+
+    /**
+     * @return the messages written by the server, decoded as the client decodes them
+     */
+    private static List<RpcMessage> written(EmbeddedChannel server) {
+        EmbeddedChannel client = new EmbeddedChannel(new RpcMessageDecoder());
+        for (Object frame = server.readOutbound(); frame != null; frame = server.readOutbound()) {
+            client.writeInbound((ByteBuf) frame);
+        }
+        List<RpcMessage> messages = new ArrayList<>();
+        for (Object message = client.readInbound(); message != null; message = client.readInbound()) {
+            messages.add((RpcMessage) message);
+        }
+        return messages;
+    }
+
+    @Test
+    void answerUnresolvableBlobTest() {
+        EmbeddedChannel server = new EmbeddedChannel(new RpcMessageEncoder(), new NettyRpcServerHandler());
+        RpcRequest rpcRequest = RpcRequest.builder().requestId("r1").interfaceName("github.javaguide.BlobService")
+                .methodName("size").parameters(new Object[]{new RpcBlobRef(3)}).paramTypes(new Class<?>[]{ByteBuf.class})
+                .group("").version("").build();
+        ByteBuf segment = Unpooled.copiedBuffer(new byte[]{1, 2, 3});
+        server.writeInbound(requestMessage(42, rpcRequest, new ArrayList<>(Collections.singletonList(segment))));
+
+        // the client waiting for message 42 gets a failure instead of no answer
+        List<RpcMessage> messages = written(server);
+        assertEquals(1, messages.size());
+        assertEquals(RpcConstants.RESPONSE_TYPE, messages.get(0).getMessageType());
+        assertEquals(42, messages.get(0).getRequestId());
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) LazyPayload.resolve(messages.get(0).getData());
+        assertEquals("r1", rpcResponse.getRequestId());
+        assertEquals(RpcResponseCodeEnum.FAIL.getCode(), rpcResponse.getCode());
+        assertEquals(0, segment.refCnt());
+    }
+
+    @Test
+    void batchRequestTest() throws InterruptedException {
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(RpcServiceConfig.builder()
+                .group("batch").version("1").serializer("").service(new DemoRpcServiceImpl()).build());
+        SerializedWrites serializedWrites = new SerializedWrites(3);
+        EmbeddedChannel server = new EmbeddedChannel(new RpcMessageEncoder(), serializedWrites, new NettyRpcServerHandler());
+        // the second request targets a service which is not published
+        RpcBatchRequest rpcBatchRequest = RpcBatchRequest.builder()
+                .requests(Arrays.asList(helloRequest("r1", "1"), helloRequest("r2", "unknown"), helloRequest("r3", "1")))
+                .messageIds(new int[]{11, 12, 13}).build();
+        RpcMessage rpcMessage = requestMessage(11, null, null);
+        rpcMessage.setMessageType(RpcConstants.BATCH_REQUEST_TYPE);
+        rpcMessage.setData(rpcBatchRequest);
+        server.writeInbound(rpcMessage);
+        assertTrue(serializedWrites.flushed.await(10, TimeUnit.SECONDS));
+
+        // every request of the batch gets its own response, under its own message id
+        Map<Integer, RpcResponse<?>> responses = new HashMap<>();
+        for (RpcMessage message : written(server)) {
+            assertEquals(RpcConstants.RESPONSE_TYPE, message.getMessageType());
+            responses.put(message.getRequestId(), (RpcResponse<?>) LazyPayload.resolve(message.getData()));
+        }
+        assertEquals(3, responses.size());
+        assertEquals("r1", responses.get(11).getRequestId());
+        assertEquals(RpcResponseCodeEnum.SUCCESS.getCode(), responses.get(11).getCode());
+        assertEquals("hello", responses.get(11).getData());
+        assertEquals("r2", responses.get(12).getRequestId());
+        assertEquals(RpcResponseCodeEnum.FAIL.getCode(), responses.get(12).getCode());
+        assertEquals("r3", responses.get(13).getRequestId());
+        assertEquals("hello", responses.get(13).getData());
+    }
+
+    @Test
+    void recycleAnsweredRequestTest() {
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(RpcServiceConfig.builder()
+                .group("batch").version("1").serializer("").service(new DemoRpcServiceImpl()).build());
+        // decoded as it is received, the envelope codec takes the request from the pool
+        EmbeddedChannel client = new EmbeddedChannel(new RpcMessageEncoder());
+        client.writeOutbound(requestMessage(43, helloRequest("r1", "1"), null));
+        EmbeddedChannel decoder = new EmbeddedChannel(new RpcMessageDecoder());
+        decoder.writeInbound((ByteBuf) client.readOutbound());
+        RpcMessage received = decoder.readInbound();
+        RpcRequest rpcRequest = (RpcRequest) received.getData();
+        assertEquals("r1", rpcRequest.getRequestId());
+
+        EmbeddedChannel server = new EmbeddedChannel(new RpcMessageEncoder(), new NettyRpcServerHandler());
+        server.writeInbound(received);
+        List<RpcMessage> messages = written(server);
+        assertEquals(1, messages.size());
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) LazyPayload.resolve(messages.get(0).getData());
+        assertEquals("r1", rpcResponse.getRequestId());
+        assertEquals("hello", rpcResponse.getData());
+        // answered, the request went back to the pool
+        assertNull(rpcRequest.getRequestId());
+        assertNull(rpcRequest.getInterfaceName());
+    }
+
+    @Test
+    void answerBaselineConsumerTest() {
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(RpcServiceConfig.builder()
+                .group("batch").version("1").serializer("").service(new DemoRpcServiceImpl()).build());
+        RpcMessage request = new RpcMessage();
+        request.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        request.setCompress(CompressTypeEnum.GZIP.getCode());
+        request.setMessageType(RpcConstants.REQUEST_TYPE);
+        request.setData(helloRequest("r1", "1"));
+        EmbeddedChannel consumer = new EmbeddedChannel(new BaselineRpcMessageEncoder(44), new BaselineRpcMessageDecoder());
+        consumer.writeOutbound(request);
+
+        EmbeddedChannel server = new EmbeddedChannel(new RpcMessageDecoder(), new RpcMessageEncoder(), new NettyRpcServerHandler());
+        server.writeInbound((ByteBuf) consumer.readOutbound());
+        // the response is a baseline frame the consumer of the baseline release reads
+        for (Object frame = server.readOutbound(); frame != null; frame = server.readOutbound()) {
+            consumer.writeInbound((ByteBuf) frame);
+        }
+        RpcMessage response = consumer.readInbound();
+        assertEquals(RpcConstants.RESPONSE_TYPE, response.getMessageType());
+        assertEquals(44, response.getRequestId());
+        RpcResponse<?> rpcResponse = (RpcResponse<?>) response.getData();
+        assertEquals("r1", rpcResponse.getRequestId());
+        assertEquals(RpcResponseCodeEnum.SUCCESS.getCode(), rpcResponse.getCode());
+        assertEquals("hello", rpcResponse.getData());
+        assertNull(consumer.readInbound());
+    }
+}
@@ -0,0 +1,72 @@
+package github.javaguide.serialize.adaptive;
+
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveSerializerTest {
+
+    private static RpcRequest newRequest(String methodName) {
+        return RpcRequest.builder().methodName(methodName)
+                .parameters(new Object[]{"sayhelooloo", "sayhelooloosayhelooloo"})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, String.class})
+                .requestId(UUID.randomUUID().toString())
+                .group("group1")
+                .version("version1")
+                .build();
+    }
+
+    @Test
+    void adaptiveSerializerTest() {
+        AdaptiveSerializer adaptiveSerializer = new AdaptiveSerializer(new String[]{"kyro", "protostuff", "hessian2"}, 3, 300, 1);
+        RpcRequest target = newRequest("hello");
+        byte[] bytes = adaptiveSerializer.serialize(target);
+        RpcRequest actual = adaptiveSerializer.deserialize(bytes, RpcRequest.class);
+        assertEquals(target.getRequestId(), actual.getRequestId());
+        assertEquals(target.getParameters()[1], actual.getParameters()[1]);
+    }
+
+    @Test
+    void selectTest() {
+        AdaptiveSerializer adaptiveSerializer = new AdaptiveSerializer(new String[]{"kyro", "protostuff", "hessian2"}, 3, 300, 1);
+        byte first = adaptiveSerializer.select(newRequest("hello"));
+        assertTrue(first == SerializationTypeEnum.KYRO.getCode() || first == SerializationTypeEnum.PROTOSTUFF.getCode()
+                || first == SerializationTypeEnum.HESSIAN2.getCode());
+        assertFalse(adaptiveSerializer.getDecisions().isEmpty());
+        byte decided = 0;
+        for (int i = 0; i < 3; i++) {
+            decided = adaptiveSerializer.select(newRequest("hello"));
+        }
+        // the decision is kept once the samples are taken
+        for (int i = 0; i < 10; i++) {
+            assertEquals(decided, adaptiveSerializer.select(newRequest("hello")));
+        }
+        adaptiveSerializer.select(RpcResponse.success("result", "1"));
+        assertEquals(2, adaptiveSerializer.getDecisions().size());
+        assertTrue(adaptiveSerializer.getDecisions().containsKey("github.javaguide.HelloService#hello"));
+    }
+
+    @Test
+    void failingCandidateIsNotSelectedTest() {
+        // hessian can only write Serializable objects
+        AdaptiveSerializer adaptiveSerializer = new AdaptiveSerializer(new String[]{"hessian2", "kyro"}, 2, 300, 1);
+        NotSerializable target = new NotSerializable();
+        target.value = "value";
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SerializationTypeEnum.KYRO.getCode(), adaptiveSerializer.select(target));
+        }
+        assertEquals("value", adaptiveSerializer.deserialize(adaptiveSerializer.serialize(target), NotSerializable.class).value);
+    }
+
+    static class NotSerializable {
+        String value;
+    }
+}
@@ -0,0 +1,123 @@
+package github.javaguide.serialize.codegen;
+
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.remoting.dto.RpcPayload;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodegenSerializerTest {
+    private final CodegenSerializer codegenSerializer = new CodegenSerializer();
+
+    @Test
+    void codegenSerializerTest() {
+        RpcRequest target = RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{"sayhelooloo", "说你好", 42, null})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, String.class, int.class, Object.class})
+                .requestId(UUID.randomUUID().toString())
+                .group("group1")
+                .version("version1")
+                .build();
+        RpcRequest actual = codegenSerializer.deserialize(codegenSerializer.serialize(target), RpcRequest.class);
+        assertEquals(target.getRequestId(), actual.getRequestId());
+        assertEquals(target.getGroup(), actual.getGroup());
+        assertArrayEquals(target.getParameters(), actual.getParameters());
+        assertArrayEquals(target.getParamTypes(), actual.getParamTypes());
+        ByteBuf buf = Unpooled.directBuffer();
+        try {
+            codegenSerializer.serialize(target, buf);
+            assertEquals(target.getRequestId(), codegenSerializer.deserialize(buf, RpcRequest.class).getRequestId());
+            assertEquals(0, buf.readableBytes());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void nestedObjectTest() {
+        Order order = new Order();
+        order.id = -7L;
+        order.price = 12.5;
+        order.paid = true;
+        order.code = 'x';
+        order.status = RpcResponseCodeEnum.SUCCESS;
+        order.lines = new ArrayList<>(Arrays.asList(new Line("apple", 3), new Line("pear", 1)));
+        order.attributes = new HashMap<>(Collections.singletonMap("k", new int[]{1, -2, 3}));
+        order.total = new BigDecimal("3.14");
+        order.data = new byte[]{1, 2, 3};
+        order.unmodifiable = Collections.singletonList("one");
+        RpcResponse<Object> target = RpcResponse.success(new RpcPayload(order), "1");
+        RpcResponse<?> actual = codegenSerializer.deserialize(codegenSerializer.serialize(target), RpcResponse.class);
+        assertEquals(RpcResponseCodeEnum.SUCCESS.getCode(), actual.getCode());
+        Order actualOrder = (Order) ((RpcPayload) actual.getData()).getValue();
+        assertEquals(order.id, actualOrder.id);
+        assertEquals(order.price, actualOrder.price);
+        assertTrue(actualOrder.paid);
+        assertEquals('x', actualOrder.code);
+        assertEquals(RpcResponseCodeEnum.SUCCESS, actualOrder.status);
+        assertEquals(2, actualOrder.lines.size());
+        assertEquals("pear", actualOrder.lines.get(1).name);
+        assertEquals(3, actualOrder.lines.get(0).quantity);
+        assertArrayEquals(new int[]{1, -2, 3}, (int[]) actualOrder.attributes.get("k"));
+        assertEquals(order.total, actualOrder.total);
+        assertArrayEquals(order.data, actualOrder.data);
+        assertEquals(order.unmodifiable, actualOrder.unmodifiable);
+        assertNull(actualOrder.note);
+    }
+
+    @Test
+    void cycleTest() {
+        Node node = new Node();
+        node.next = node;
+        assertThrows(RuntimeException.class, () -> codegenSerializer.serialize(node));
+        // the failed message does not leak into the next one
+        Node single = new Node();
+        assertNull(codegenSerializer.deserialize(codegenSerializer.serialize(single), Node.class).next);
+    }
+
+    static class Order {
+        long id;
+        double price;
+        boolean paid;
+        char code;
+        RpcResponseCodeEnum status;
+        List<Line> lines;
+        Map<String, Object> attributes;
+        BigDecimal total;
+        byte[] data;
+        List<String> unmodifiable;
+        String note;
+    }
+
+    static class Line {
+        final String name;
+        final int quantity;
+
+        Line(String name, int quantity) {
+            this.name = name;
+            this.quantity = quantity;
+        }
+    }
+
+    static class Node {
+        Node next;
+    }
+}
@@ -0,0 +1,59 @@
+package github.javaguide.serialize.hessian;
+
+import github.javaguide.remoting.dto.RpcRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Hessian2SerializerTest {
+
+    private static RpcRequest newRequest() {
+        return RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{"sayhelooloo", "sayhelooloosayhelooloo"})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, String.class})
+                .requestId(UUID.randomUUID().toString())
+                .group("group1")
+                .version("version1")
+                .build();
+    }
+
+    @Test
+    void hessian2SerializerTest() {
+        RpcRequest target = newRequest();
+        Hessian2Serializer hessian2Serializer = new Hessian2Serializer();
+        RpcRequest actual = hessian2Serializer.deserialize(hessian2Serializer.serialize(target), RpcRequest.class);
+        assertEquals(target.getGroup(), actual.getGroup());
+        assertEquals(target.getVersion(), actual.getVersion());
+        assertEquals(target.getRequestId(), actual.getRequestId());
+        ByteBuf buf = Unpooled.directBuffer();
+        try {
+            hessian2Serializer.serialize(target, buf);
+            assertEquals(target.getRequestId(), hessian2Serializer.deserialize(buf, RpcRequest.class).getRequestId());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void hessian2SessionTest() {
+        Hessian2Session writer = new Hessian2Session();
+        Hessian2Session reader = new Hessian2Session();
+        ByteBuf first = Unpooled.buffer();
+        ByteBuf second = Unpooled.buffer();
+        RpcRequest target = newRequest();
+        writer.serialize(newRequest(), first);
+        writer.serialize(target, second);
+        // the second message refers to the class definition sent with the first one
+        assertTrue(second.readableBytes() < first.readableBytes());
+        reader.deserialize(first);
+        RpcRequest actual = (RpcRequest) reader.deserialize(second);
+        assertEquals(target.getRequestId(), actual.getRequestId());
+        assertEquals(target.getParameters()[1], actual.getParameters()[1]);
+    }
+}
@@ -1,6 +1,8 @@
 package github.javaguide.serialize.kyro;
 
 import github.javaguide.remoting.dto.RpcRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.Test;
 
 import java.util.UUID;
@@ -26,4 +28,36 @@ class KryoSerializerTest {
         assertEquals(target.getVersion(), actual.getVersion());
         assertEquals(target.getRequestId(), actual.getRequestId());
     }
+
+    @Test
+    void kryoSerializeIntoByteBufTest() {
+        RpcRequest target = RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{"sayhelooloo", new byte[10000]})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, byte[].class})
+                .requestId(UUID.randomUUID().toString())
+                .group("group1")
+                .version("version1")
+                .build();
+        KryoSerializer kryoSerializer = new KryoSerializer();
+        ByteBuf heap = Unpooled.buffer();
+        ByteBuf direct = Unpooled.directBuffer();
+        try {
+            kryoSerializer.serialize(target, heap);
+            direct.writeBytes(heap, heap.readerIndex(), heap.readableBytes());
+            // followed by a byte which does not belong to the object
+            heap.writeByte(42);
+            RpcRequest fromHeap = kryoSerializer.deserialize(heap, RpcRequest.class);
+            assertEquals(target.getRequestId(), fromHeap.getRequestId());
+            assertEquals(1, heap.readableBytes());
+            RpcRequest fromDirect = kryoSerializer.deserialize(direct, RpcRequest.class);
+            assertEquals(target.getRequestId(), fromDirect.getRequestId());
+            assertEquals(10000, ((byte[]) fromDirect.getParameters()[1]).length);
+            // the pooled buffers are reused by the byte array methods
+            assertEquals(target.getGroup(), kryoSerializer.deserialize(kryoSerializer.serialize(target), RpcRequest.class).getGroup());
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package github.javaguide.serialize.protostuff;
+
+import github.javaguide.remoting.dto.RpcRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProtostuffSerializerTest {
+
+    private static RpcRequest newRequest(String parameter) {
+        return RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{parameter})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class})
+                .requestId(UUID.randomUUID().toString())
+                .group("group1")
+                .version("version1")
+                .build();
+    }
+
+    @Test
+    void concurrentSerializeTest() throws Exception {
+        ProtostuffSerializer protostuffSerializer = new ProtostuffSerializer();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        RpcRequest target = newRequest(Thread.currentThread().getName() + i);
+                        byte[] bytes = protostuffSerializer.serialize(target);
+                        RpcRequest actual = protostuffSerializer.deserialize(bytes, RpcRequest.class);
+                        assertEquals(target.getRequestId(), actual.getRequestId());
+                        assertEquals(target.getParameters()[0], actual.getParameters()[0]);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void byteBufSerializeTest() {
+        ProtostuffSerializer protostuffSerializer = new ProtostuffSerializer();
+        RpcRequest target = newRequest(new String(new char[5000]).replace('\0', 'a'));
+        ByteBuf heap = Unpooled.buffer();
+        ByteBuf direct = Unpooled.directBuffer();
+        try {
+            protostuffSerializer.serialize(target, heap);
+            direct.writeBytes(heap, heap.readerIndex(), heap.readableBytes());
+            assertEquals(target.getParameters()[0], protostuffSerializer.deserialize(heap, RpcRequest.class).getParameters()[0]);
+            assertEquals(0, heap.readableBytes());
+            assertEquals(target.getRequestId(), protostuffSerializer.deserialize(direct, RpcRequest.class).getRequestId());
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
+}
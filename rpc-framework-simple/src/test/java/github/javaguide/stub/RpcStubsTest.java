@@ -0,0 +1,137 @@
+package github.javaguide.stub;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.annotation.RpcReference;
+import github.javaguide.annotation.RpcService;
+import github.javaguide.proxy.RpcClientProxy;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The stub and the skeleton of Calculator are generated by rpc-framework-processor when the tests are compiled
+ */
+class RpcStubsTest {
+
+    interface Named<T> {
+        T name();
+    }
+
+    interface Calculator extends Named<String> {
+        int add(int a, int b);
+
+        long add(long a, long b);
+
+        void reset();
+
+        <T extends Comparable<T>> T max(List<T> values);
+    }
+
+    @RpcService
+    static class CalculatorImpl implements Calculator {
+        private int resets;
+
+        @Override
+        public String name() {
+            return "calculator";
+        }
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public long add(long a, long b) {
+            return a + b;
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+
+        @Override
+        public <T extends Comparable<T>> T max(List<T> values) {
+            return Collections.max(values);
+        }
+    }
+
+    @RpcReference
+    private Calculator calculator;
+
+    @Test
+    void skeletonTest() throws Throwable {
+        RpcSkeleton rpcSkeleton = RpcStubs.getSkeleton(Calculator.class);
+        assertNotNull(rpcSkeleton);
+        CalculatorImpl service = new CalculatorImpl();
+        int intAdd = rpcSkeleton.methodIndex("add", new Class<?>[]{int.class, int.class});
+        int longAdd = rpcSkeleton.methodIndex("add", new Class<?>[]{long.class, long.class});
+        assertTrue(intAdd >= 0 && longAdd >= 0 && intAdd != longAdd);
+        assertEquals(5, rpcSkeleton.invoke(service, intAdd, new Object[]{2, 3}));
+        assertEquals(5L, rpcSkeleton.invoke(service, longAdd, new Object[]{2L, 3L}));
+        assertEquals("calculator", rpcSkeleton.invoke(service, rpcSkeleton.methodIndex("name", new Class<?>[0]), null));
+        assertNull(rpcSkeleton.invoke(service, rpcSkeleton.methodIndex("reset", new Class<?>[0]), null));
+        assertEquals(1, service.resets);
+        assertEquals("b", rpcSkeleton.invoke(service, rpcSkeleton.methodIndex("max", new Class<?>[]{List.class}),
+                new Object[]{Arrays.asList("a", "b")}));
+        assertEquals(-1, rpcSkeleton.methodIndex("add", new Class<?>[]{String.class}));
+        assertEquals(-1, rpcSkeleton.methodIndex("subtract", new Class<?>[]{int.class, int.class}));
+        assertThrows(ClassCastException.class, () -> rpcSkeleton.invoke(service, intAdd, new Object[]{"2", 3}));
+        // DemoRpcService is published by DemoRpcServiceImpl but never referenced
+        assertNotNull(RpcStubs.getSkeleton(DemoRpcService.class));
+        assertNull(RpcStubs.newStub(DemoRpcService.class, new RpcClientProxy(rpcRequest -> null)));
+    }
+
+    @Test
+    void stubTest() {
+        List<String> calls = new ArrayList<>();
+        RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcRequest -> {
+            calls.add(rpcRequest.getInterfaceName() + "#" + rpcRequest.getMethodName());
+            return RpcResponse.success(result(rpcRequest), rpcRequest.getRequestId());
+        });
+        Calculator stub = rpcClientProxy.getProxy(Calculator.class);
+        assertFalse(Proxy.isProxyClass(stub.getClass()));
+        assertEquals(5, stub.add(2, 3));
+        assertEquals(7L, stub.add(3L, 4L));
+        stub.reset();
+        assertEquals("remote", stub.name());
+        assertEquals(Arrays.asList(Calculator.class.getName() + "#add", Calculator.class.getName() + "#add",
+                Calculator.class.getName() + "#reset", Named.class.getName() + "#name"), calls);
+    }
+
+    /**
+     * what the server would answer, checking the request is the one a JDK proxy sends
+     */
+    private static Object result(RpcRequest rpcRequest) {
+        switch (rpcRequest.getMethodName()) {
+            case "add":
+                Object[] parameters = rpcRequest.getParameters();
+                if (rpcRequest.getParamTypes()[0] == int.class) {
+                    assertArrayEquals(new Class<?>[]{int.class, int.class}, rpcRequest.getParamTypes());
+                    return (Integer) parameters[0] + (Integer) parameters[1];
+                }
+                assertArrayEquals(new Class<?>[]{long.class, long.class}, rpcRequest.getParamTypes());
+                return (Long) parameters[0] + (Long) parameters[1];
+            case "reset":
+                assertNull(rpcRequest.getParameters());
+                return null;
+            default:
+                return "remote";
+        }
+    }
+}
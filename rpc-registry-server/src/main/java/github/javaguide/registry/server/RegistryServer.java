@@ -0,0 +1,29 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.registry.server.util.RegistryServerUtils;
+import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
+import github.javaguide.utils.RpcConfigUtil;
+
+/**
+ * The registry server, a {@link NettyRpcServer} serving the {@link RegistryService} on
+ * {@code rpc.registry.server.port} (9997 by default). The providers and the clients use it with
+ * {@code rpc.registry=server} and {@code rpc.registry.server.address}.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+public class RegistryServer {
+
+    public static void main(String[] args) {
+        int port = RpcConfigUtil.getInt(RpcConfigEnum.REGISTRY_SERVER_PORT, RegistryServerUtils.DEFAULT_PORT);
+        RpcServiceConfig rpcServiceConfig = new RpcServiceConfig();
+        rpcServiceConfig.setService(new RegistryServiceImpl());
+        // served but not registered, the registry server is not looked up in a registry
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(rpcServiceConfig);
+        new NettyRpcServer(port).start();
+    }
+}
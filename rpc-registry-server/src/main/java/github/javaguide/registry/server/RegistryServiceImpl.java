@@ -0,0 +1,292 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.registry.server.util.RegistryServerUtils;
+import github.javaguide.remoting.stream.StreamObserver;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The registry kept by the registry server, in memory. Every change of a provider is an event with the next
+ * sequence number, kept in a history of the last {@code rpc.registry.server.history} events (10000 by default) for
+ * the subscribers which reconnect. A provider without heartbeat for {@code rpc.registry.server.lease-millis}
+ * (15000 by default) is removed.
+ * <p>
+ * The events of a subscriber are queued and sent by a thread of their own, so a subscriber waiting for credit does
+ * not hold back the registry nor the other subscribers. A subscriber with too many events pending is closed, it
+ * subscribes again and gets the snapshots instead.
+ *
+ * @author agent
+ * @createTime 2026年10月19日 10:00:00
+ */
+@Slf4j
+public class RegistryServiceImpl implements RegistryService {
+    private static final long DEFAULT_LEASE_MILLIS = 15000;
+    private static final int DEFAULT_HISTORY = 10000;
+    private static final int MAX_PENDING_EVENTS = 10000;
+    private final long leaseMillis;
+    private final int historySize;
+    private final int maxPendingEvents;
+    /**
+     * the start of this run, the sequences of another run are not comparable
+     */
+    private final long epoch = System.currentTimeMillis();
+    /**
+     * key: rpc service name, value: key: address of a provider, value: its metadata. Guarded by this, as the
+     * fields below.
+     */
+    private final Map<String, Map<String, byte[]>> services = new HashMap<>();
+    private final Map<String, Provider> providers = new LinkedHashMap<>();
+    private final ArrayDeque<RegistryEvent> history = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = new LinkedHashSet<>();
+    private long sequence;
+    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
+            ThreadPoolFactoryUtil.createThreadFactory("registry-server", true));
+    /**
+     * a thread per subscriber with events to send, blocked while the subscriber has granted no credit
+     */
+    private final ExecutorService pushExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), ThreadPoolFactoryUtil.createThreadFactory("registry-server-push", true));
+
+    public RegistryServiceImpl() {
+        this(RpcConfigUtil.getLong(RpcConfigEnum.REGISTRY_SERVER_LEASE_MILLIS, DEFAULT_LEASE_MILLIS),
+                RegistryServerUtils.getKeepaliveMillis(),
+                RpcConfigUtil.getInt(RpcConfigEnum.REGISTRY_SERVER_HISTORY, DEFAULT_HISTORY));
+    }
+
+    public RegistryServiceImpl(long leaseMillis, long keepaliveMillis, int historySize) {
+        this(leaseMillis, keepaliveMillis, historySize, MAX_PENDING_EVENTS);
+    }
+
+    RegistryServiceImpl(long leaseMillis, long keepaliveMillis, int historySize, int maxPendingEvents) {
+        this.leaseMillis = leaseMillis;
+        this.historySize = historySize;
+        this.maxPendingEvents = maxPendingEvents;
+        long checkMillis = Math.max(leaseMillis / 10, 1);
+        scheduler.scheduleWithFixedDelay(this::expireLeases, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::keepalive, keepaliveMillis, keepaliveMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized long register(ProviderRegistration registration) {
+        String address = registration.getProviderAddress();
+        Provider provider = providers.computeIfAbsent(address, Provider::new);
+        provider.expiresAt = System.currentTimeMillis() + leaseMillis;
+        registration.getServices().forEach((rpcServiceName, metadata) -> {
+            provider.services.add(rpcServiceName);
+            byte[] previous = services.computeIfAbsent(rpcServiceName, key -> new HashMap<>()).put(address, metadata);
+            if (!Arrays.equals(previous, metadata)) {
+                publish(rpcServiceName, address, metadata);
+            }
+        });
+        log.info("Provider [{}] registered [{}] services", address, registration.getServices().size());
+        return leaseMillis;
+    }
+
+    @Override
+    public synchronized boolean heartbeat(String providerAddress) {
+        Provider provider = providers.get(providerAddress);
+        if (provider == null) {
+            return false;
+        }
+        provider.expiresAt = System.currentTimeMillis() + leaseMillis;
+        return true;
+    }
+
+    @Override
+    public synchronized void unregister(String providerAddress) {
+        Provider provider = providers.remove(providerAddress);
+        if (provider != null) {
+            remove(provider);
+            log.info("Provider [{}] unregistered", providerAddress);
+        }
+    }
+
+    @Override
+    public synchronized StreamObserver<RegistryWatch> subscribe(StreamObserver<RegistryEvent> events) {
+        Subscriber subscriber = new Subscriber(events);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * replay the events the subscriber missed if the history still has them all, otherwise send the providers of
+     * the services. The keepalive which follows tells the subscriber it is up to date.
+     */
+    private synchronized void watch(Subscriber subscriber, RegistryWatch registryWatch) {
+        if (subscriber.closed) {
+            return;
+        }
+        Set<String> rpcServiceNames = new HashSet<>(registryWatch.getRpcServiceNames());
+        subscriber.services.addAll(rpcServiceNames);
+        long resumed = registryWatch.getSequence();
+        if (registryWatch.getEpoch() == epoch && resumed <= sequence && resumed >= sequence - history.size()) {
+            for (RegistryEvent event : history) {
+                if (event.getSequence() > resumed && rpcServiceNames.contains(event.getRpcServiceName())) {
+                    subscriber.enqueue(event);
+                }
+            }
+        } else {
+            for (String rpcServiceName : rpcServiceNames) {
+                Map<String, byte[]> endpoints = services.get(rpcServiceName);
+                subscriber.enqueue(RegistryEvent.snapshot(epoch, sequence, rpcServiceName,
+                        endpoints == null ? new HashMap<>() : new HashMap<>(endpoints)));
+            }
+        }
+        subscriber.enqueue(RegistryEvent.keepalive(epoch, sequence));
+    }
+
+    private void remove(Provider provider) {
+        for (String rpcServiceName : provider.services) {
+            Map<String, byte[]> endpoints = services.get(rpcServiceName);
+            if (endpoints != null && endpoints.remove(provider.address) != null) {
+                publish(rpcServiceName, provider.address, null);
+                if (endpoints.isEmpty()) {
+                    services.remove(rpcServiceName);
+                }
+            }
+        }
+    }
+
+    private void publish(String rpcServiceName, String address, byte[] metadata) {
+        RegistryEvent event = RegistryEvent.change(epoch, ++sequence, rpcServiceName, address, metadata);
+        history.addLast(event);
+        while (history.size() > historySize) {
+            history.removeFirst();
+        }
+        // a subscriber closed by enqueue leaves the set, which is iterated through a copy
+        for (Subscriber subscriber : subscribers.toArray(new Subscriber[0])) {
+            if (subscriber.services.contains(rpcServiceName)) {
+                subscriber.enqueue(event);
+            }
+        }
+    }
+
+    private synchronized void expireLeases() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Provider> iterator = providers.values().iterator(); iterator.hasNext(); ) {
+            Provider provider = iterator.next();
+            if (provider.expiresAt < now) {
+                iterator.remove();
+                remove(provider);
+                log.info("Provider [{}] removed, no heartbeat for [{}] ms", provider.address, leaseMillis);
+            }
+        }
+    }
+
+    private synchronized void keepalive() {
+        RegistryEvent event = RegistryEvent.keepalive(epoch, sequence);
+        for (Subscriber subscriber : subscribers.toArray(new Subscriber[0])) {
+            subscriber.enqueue(event);
+        }
+    }
+
+    private synchronized void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private static final class Provider {
+        private final String address;
+        private final Set<String> services = new HashSet<>();
+        private long expiresAt;
+
+        private Provider(String address) {
+            this.address = address;
+        }
+    }
+
+    /**
+     * a subscription: receives the watches of the client, sends it the events of the services it watches
+     */
+    private final class Subscriber implements StreamObserver<RegistryWatch> {
+        private final StreamObserver<RegistryEvent> events;
+        /**
+         * guarded by the registry
+         */
+        private final Set<String> services = new HashSet<>();
+        private final Queue<RegistryEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean closed;
+
+        private Subscriber(StreamObserver<RegistryEvent> events) {
+            this.events = events;
+        }
+
+        /**
+         * called with the lock of the registry, so the events are queued in sequence order
+         */
+        private void enqueue(RegistryEvent event) {
+            if (closed) {
+                return;
+            }
+            if (pending.incrementAndGet() > maxPendingEvents) {
+                log.warn("Subscriber has [{}] events pending, close it", maxPendingEvents);
+                unsubscribe(this);
+                events.onError(new IllegalStateException("too many events pending, subscribe again"));
+                return;
+            }
+            queue.add(event);
+            if (wip.getAndIncrement() == 0) {
+                pushExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                RegistryEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    pending.decrementAndGet();
+                    try {
+                        events.onNext(event);
+                    } catch (RuntimeException e) {
+                        log.info("Subscriber is gone: {}", e.toString());
+                        unsubscribe(this);
+                    }
+                }
+                if (closed) {
+                    queue.clear();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        public void onNext(RegistryWatch value) {
+            watch(this, value);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            unsubscribe(this);
+        }
+
+        @Override
+        public void onCompleted() {
+            unsubscribe(this);
+            events.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package github.javaguide.registry.server;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.registry.ServiceSnapshot;
+import github.javaguide.registry.server.util.RegistryServerUtils;
+import github.javaguide.remoting.stream.StreamObserver;
+import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistryServerTest {
+    private static final String RPC_SERVICE_NAME = "github.javaguide.RegistryServicetest1version1";
+    private static final int PORT = 19997;
+
+    @Test
+    void resumeFromSequenceTest() throws InterruptedException {
+        RegistryServiceImpl registry = new RegistryServiceImpl(60_000, 60_000, 2);
+        registry.register(registration("127.0.0.1:9001"));
+        Events first = new Events();
+        StreamObserver<RegistryWatch> watches = registry.subscribe(first);
+        watches.onNext(new RegistryWatch(0, 0, Collections.singletonList(RPC_SERVICE_NAME)));
+        RegistryEvent snapshot = first.take(RegistryEvent.Type.SNAPSHOT);
+        assertEquals(Collections.singleton("127.0.0.1:9001"), snapshot.getProviders().keySet());
+        first.take(RegistryEvent.Type.KEEPALIVE);
+        registry.register(registration("127.0.0.1:9002"));
+        assertEquals("127.0.0.1:9002", first.take(RegistryEvent.Type.CHANGE).getProviderAddress());
+        watches.onError(new IllegalStateException("connection closed"));
+
+        // the changes missed are replayed
+        registry.register(registration("127.0.0.1:9003"));
+        Events resumed = new Events();
+        registry.subscribe(resumed).onNext(new RegistryWatch(snapshot.getEpoch(), snapshot.getSequence(), Collections.singletonList(RPC_SERVICE_NAME)));
+        assertEquals("127.0.0.1:9002", resumed.take(RegistryEvent.Type.CHANGE).getProviderAddress());
+        assertEquals("127.0.0.1:9003", resumed.take(RegistryEvent.Type.CHANGE).getProviderAddress());
+        resumed.take(RegistryEvent.Type.KEEPALIVE);
+
+        // no longer in the history of two events
+        registry.register(registration("127.0.0.1:9004"));
+        Events late = new Events();
+        registry.subscribe(late).onNext(new RegistryWatch(snapshot.getEpoch(), snapshot.getSequence(), Collections.singletonList(RPC_SERVICE_NAME)));
+        assertEquals(4, late.take(RegistryEvent.Type.SNAPSHOT).getProviders().size());
+        assertEquals("127.0.0.1:9004", resumed.take(RegistryEvent.Type.CHANGE).getProviderAddress());
+    }
+
+    @Test
+    void leaseExpiresWithoutHeartbeatTest() throws InterruptedException {
+        RegistryServiceImpl registry = new RegistryServiceImpl(200, 60_000, 100);
+        registry.register(registration("127.0.0.1:9001"));
+        assertTrue(registry.heartbeat("127.0.0.1:9001"));
+        Events events = new Events();
+        registry.subscribe(events).onNext(new RegistryWatch(0, 0, Collections.singletonList(RPC_SERVICE_NAME)));
+        assertEquals(1, events.take(RegistryEvent.Type.SNAPSHOT).getProviders().size());
+        RegistryEvent removed = events.take(RegistryEvent.Type.CHANGE);
+        assertEquals("127.0.0.1:9001", removed.getProviderAddress());
+        assertNull(removed.getMetadata());
+        // the provider registers again when it is told so
+        assertFalse(registry.heartbeat("127.0.0.1:9001"));
+    }
+
+    @Test
+    void slowSubscribersClosedTest() throws InterruptedException {
+        RegistryServiceImpl registry = new RegistryServiceImpl(60_000, 100, 100, 5);
+        CountDownLatch blocked = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            StreamObserver<RegistryEvent> slow = new Events() {
+                @Override
+                public void onNext(RegistryEvent value) {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            registry.subscribe(slow).onNext(new RegistryWatch(0, 0, Collections.singletonList(RPC_SERVICE_NAME)));
+        }
+        Events events = new Events();
+        registry.subscribe(events).onNext(new RegistryWatch(0, 0, Collections.singletonList(RPC_SERVICE_NAME)));
+        events.take(RegistryEvent.Type.SNAPSHOT);
+        // the slow subscribers are closed while the changes are published
+        for (int port = 9001; port <= 9010; port++) {
+            registry.register(registration("127.0.0.1:" + port));
+            assertEquals("127.0.0.1:" + port, events.take(RegistryEvent.Type.CHANGE).getProviderAddress());
+        }
+        // and the keepalives go on
+        events.take(RegistryEvent.Type.KEEPALIVE);
+        events.take(RegistryEvent.Type.KEEPALIVE);
+        blocked.countDown();
+    }
+
+    @Test
+    void providersThroughRegistryServerTest() throws Exception {
+        RpcServiceConfig rpcServiceConfig = new RpcServiceConfig();
+        rpcServiceConfig.setService(new RegistryServiceImpl(1000, 200, 100));
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(rpcServiceConfig);
+        new Thread(new NettyRpcServer(PORT)::start).start();
+        InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLocalHost().getHostAddress(), PORT);
+        await(() -> isListening(serverAddress), "the registry server starts");
+
+        RegistryService registryService = RegistryServerUtils.newRegistryService(serverAddress);
+        ServerServiceRegistryImpl provider = new ServerServiceRegistryImpl(registryService);
+        provider.registerService(RPC_SERVICE_NAME, new InetSocketAddress("127.0.0.1", 9101), Collections.singletonMap("weight", "2"));
+        ServerServiceDirectory directory = new ServerServiceDirectory(registryService, 200);
+        ServiceSnapshot snapshot = directory.getSnapshot(RPC_SERVICE_NAME);
+        assertEquals(Collections.singletonList("127.0.0.1:9101"), snapshot.getAddresses());
+        assertEquals(Collections.singletonMap("weight", "2"), snapshot.getEndpoint("127.0.0.1:9101").getMetadata());
+
+        provider.registerService(RPC_SERVICE_NAME, new InetSocketAddress("127.0.0.1", 9102));
+        await(() -> directory.getSnapshot(RPC_SERVICE_NAME).getEndpoints().size() == 2, "the new provider is streamed");
+        // kept by the heartbeats beyond the lease
+        Thread.sleep(1500);
+        assertEquals(Arrays.asList("127.0.0.1:9101", "127.0.0.1:9102"), directory.getSnapshot(RPC_SERVICE_NAME).getAddresses());
+        assertFalse(directory.getSnapshot(RPC_SERVICE_NAME).isStale());
+
+        provider.unregisterServices(new InetSocketAddress("127.0.0.1", 9101));
+        await(() -> directory.getSnapshot(RPC_SERVICE_NAME).getAddresses().equals(Collections.singletonList("127.0.0.1:9102")),
+                "the provider unregistered is removed");
+        assertNull(directory.getSnapshot(RPC_SERVICE_NAME).getEndpoint("127.0.0.1:9101"));
+    }
+
+    private static ProviderRegistration registration(String address) {
+        return new ProviderRegistration(address, Collections.singletonMap(RPC_SERVICE_NAME, new byte[0]));
+    }
+
+    private static boolean isListening(InetSocketAddress address) {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting until " + description);
+            Thread.sleep(20);
+        }
+    }
+
+    private static class Events implements StreamObserver<RegistryEvent> {
+        private final BlockingQueue<RegistryEvent> events = new LinkedBlockingQueue<>();
+
+        /**
+         * @return the next event but the keepalives, unless a keepalive is expected
+         */
+        private RegistryEvent take(RegistryEvent.Type type) throws InterruptedException {
+            while (true) {
+                RegistryEvent event = events.poll(5, TimeUnit.SECONDS);
+                assertTrue(event != null, "no " + type + " event");
+                if (event.getType() == type) {
+                    return event;
+                }
+                assertEquals(RegistryEvent.Type.KEEPALIVE, event.getType(), "unexpected " + event);
+            }
+        }
+
+        @Override
+        public void onNext(RegistryEvent value) {
+            events.add(value);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}